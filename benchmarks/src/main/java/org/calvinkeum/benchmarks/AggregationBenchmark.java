@@ -0,0 +1,122 @@
+package org.calvinkeum.benchmarks;
+
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.service.ExamService;
+import org.calvinkeum.service.StudentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Events per second applied through {@code processStudentData} and {@code processExamData}, the way the ingest
+ * pipeline consumers apply them, by one writer and by several writers sharing the store. The store is emptied
+ * before every iteration so its size stays comparable between runs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AggregationBenchmark {
+    private static final int BATCH_SIZE = 512;
+    private static final int BATCHES = 64;
+
+    @State(Scope.Benchmark)
+    public static class Store {
+        @Param({"1000", "100000"})
+        private int students;
+
+        @Param({"10", "1000"})
+        private int exams;
+
+        private StudentService studentService;
+        private ExamService examService;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            ConcurrentScoreRepository scoreRepository = new ConcurrentScoreRepository();
+            studentService = new StudentService(scoreRepository);
+            examService = new ExamService(scoreRepository);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Batches {
+        private final List<List<StudentExamScore>> batches = new ArrayList<>(BATCHES);
+        private int nextBatch;
+        private int nextEvent;
+
+        @Setup
+        public void setUp(Store store, ThreadParams threadParams) {
+            Random random = new Random(threadParams.getThreadIndex());
+
+            for (int i = 0; i < BATCHES; i++) {
+                List<StudentExamScore> batch = new ArrayList<>(BATCH_SIZE);
+
+                for (int j = 0; j < BATCH_SIZE; j++) {
+                    batch.add(new StudentExamScore("Student_" + random.nextInt(store.students), random.nextInt(store.exams), random.nextDouble()));
+                }
+
+                batches.add(batch);
+            }
+        }
+
+        private List<StudentExamScore> nextBatch() {
+            List<StudentExamScore> batch = batches.get(nextBatch);
+            nextBatch = nextBatch + 1 == BATCHES ? 0 : nextBatch + 1;
+            return batch;
+        }
+
+        private StudentExamScore nextEvent() {
+            StudentExamScore studentExamScore = batches.get(0).get(nextEvent);
+            nextEvent = nextEvent + 1 == BATCH_SIZE ? 0 : nextEvent + 1;
+            return studentExamScore;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void singleWriter(Store store, Batches batches) {
+        apply(store, batches.nextBatch());
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void concurrentWriters(Store store, Batches batches) {
+        apply(store, batches.nextBatch());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void singleWriterUnbatched(Store store, Batches batches) {
+        StudentExamScore studentExamScore = batches.nextEvent();
+
+        store.studentService.processStudentData(studentExamScore);
+        store.examService.processExamData(studentExamScore);
+    }
+
+    private static void apply(Store store, List<StudentExamScore> batch) {
+        store.studentService.processStudentData(batch);
+        store.examService.processExamData(batch);
+    }
+}
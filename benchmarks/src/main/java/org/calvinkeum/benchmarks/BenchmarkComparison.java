@@ -0,0 +1,129 @@
+package org.calvinkeum.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files and lists every benchmark's change, and that of every secondary result such
+ * as an aux counter, listed as {@code benchmark:counter}. A change counts as a regression when it is worse than the
+ * threshold and larger than the two runs' error margins combined; the exit status is 1 if any benchmark regressed.
+ * Secondary results are sizes and counts, better when lower. Single-shot times are listed but not judged, as one
+ * measurement is too noisy to call a regression on.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar org.calvinkeum.benchmarks.BenchmarkComparison baseline.json jmh-result.json [threshold %]
+ * </pre>
+ */
+public class BenchmarkComparison {
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <current.json> [threshold %]");
+            System.exit(2);
+        }
+
+        double thresholdPercent = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        Map<String, Metric> baseline = readResults(new File(args[0]));
+        Map<String, Metric> current = readResults(new File(args[1]));
+        int regressions = 0;
+
+        for (Map.Entry<String, Metric> entry : current.entrySet()) {
+            Metric currentMetric = entry.getValue();
+            Metric baselineMetric = baseline.get(entry.getKey());
+            String unit = currentMetric.node.path("scoreUnit").asText();
+            double currentScore = score(currentMetric.node);
+
+            if (baselineMetric == null) {
+                System.out.printf("%-90s %14s -> %14.3f %-10s new%n", entry.getKey(), "", currentScore, unit);
+                continue;
+            }
+
+            double baselineScore = score(baselineMetric.node);
+            double changePercent = (currentScore - baselineScore) / baselineScore * 100;
+            double worsePercent = currentMetric.higherIsBetter ? -changePercent : changePercent;
+            double errorMargin = error(baselineMetric.node) + error(currentMetric.node);
+            boolean regressed = currentMetric.judged
+                && worsePercent > thresholdPercent && Math.abs(currentScore - baselineScore) > errorMargin;
+
+            if (regressed) {
+                regressions++;
+            }
+
+            System.out.printf("%-90s %14.3f -> %14.3f %-10s %+7.1f%%%s%n", entry.getKey(), baselineScore, currentScore, unit,
+                changePercent, regressed ? "  REGRESSION" : currentMetric.judged ? "" : "  (single shot)");
+        }
+
+        System.out.printf("%d of %d benchmarks regressed by more than %.1f%%%n", regressions, current.size(), thresholdPercent);
+
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Metric> readResults(File file) throws IOException {
+        Map<String, Metric> results = new LinkedHashMap<>();
+
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            String mode = result.path("mode").asText();
+
+            // throughput is better when higher, every other mode measures time and is better when lower
+            results.put(key(result, ""), new Metric(result.path("primaryMetric"), "thrpt".equals(mode), !"ss".equals(mode)));
+
+            Iterator<Map.Entry<String, JsonNode>> secondaryMetrics = result.path("secondaryMetrics").fields();
+
+            while (secondaryMetrics.hasNext()) {
+                Map.Entry<String, JsonNode> secondaryMetric = secondaryMetrics.next();
+                results.put(key(result, ":" + secondaryMetric.getKey()), new Metric(secondaryMetric.getValue(), false, true));
+            }
+        }
+
+        return results;
+    }
+
+    private static String key(JsonNode result, String metricSuffix) {
+        StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+            .replace("org.calvinkeum.benchmarks.", "")).append(metricSuffix);
+        Map<String, String> params = new TreeMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = result.path("params").fields();
+
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            params.put(field.getKey(), field.getValue().asText());
+        }
+
+        params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+
+        return key.toString();
+    }
+
+    private static double score(JsonNode metric) {
+        return metric.path("score").asDouble();
+    }
+
+    private static double error(JsonNode metric) {
+        double error = metric.path("scoreError").asDouble();
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    /**
+     * One result of a benchmark, the primary one or a secondary one, and how to judge its change.
+     */
+    private static class Metric {
+        private final JsonNode node;
+        private final boolean higherIsBetter;
+        private final boolean judged;
+
+        private Metric(JsonNode node, boolean higherIsBetter, boolean judged) {
+            this.node = node;
+            this.higherIsBetter = higherIsBetter;
+            this.judged = judged;
+        }
+    }
+}
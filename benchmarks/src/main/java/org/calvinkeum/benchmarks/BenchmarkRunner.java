@@ -0,0 +1,47 @@
+package org.calvinkeum.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Runs the benchmarks with the usual JMH command line options, writing the results as JSON to
+ * {@code jmh-result.json} unless {@code -rf}/{@code -rff} say otherwise, so runs can be compared with
+ * {@link BenchmarkComparison}.
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar [regexp] [-p students=1000] [-rff results.json]
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+        if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList() || commandLineOptions.shouldListWithParams()
+            || commandLineOptions.shouldListProfilers() || commandLineOptions.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+
+        OptionsBuilder optionsBuilder = new OptionsBuilder();
+        optionsBuilder.parent(commandLineOptions);
+
+        if (!commandLineOptions.getResultFormat().hasValue()) {
+            optionsBuilder.resultFormat(ResultFormatType.JSON);
+        }
+
+        if (!commandLineOptions.getResult().hasValue()) {
+            optionsBuilder.result("jmh-result.json");
+        }
+
+        Options options = optionsBuilder.build();
+        new Runner(options).run();
+    }
+}
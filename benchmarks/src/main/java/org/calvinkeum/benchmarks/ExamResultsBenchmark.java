@@ -0,0 +1,84 @@
+package org.calvinkeum.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.calvinkeum.dto.ExamAvgScoreResponse;
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.service.ExamService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link ExamService#getExamResults(Integer)} with the response cache empty and filled, on its own and
+ * together with the JSON serialization a request adds on top.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ExamResultsBenchmark {
+    private static final int EXAM = 1;
+
+    @Param({"1000", "100000"})
+    private int studentsPerExam;
+
+    private ConcurrentScoreRepository scoreRepository;
+    private ExamService warmExamService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        List<StudentExamScore> studentExamScores = new ArrayList<>(studentsPerExam);
+
+        for (int i = 0; i < studentsPerExam; i++) {
+            studentExamScores.add(new StudentExamScore("Student_" + i, EXAM, random.nextDouble()));
+        }
+
+        scoreRepository = new ConcurrentScoreRepository();
+        scoreRepository.addExamScores(studentExamScores);
+
+        warmExamService = new ExamService(scoreRepository);
+        warmExamService.getExamResults(EXAM);
+    }
+
+    /**
+     * A new service starts with an empty cache, so every call builds the response.
+     */
+    @Benchmark
+    public ExamAvgScoreResponse coldCache() {
+        return new ExamService(scoreRepository).getExamResults(EXAM);
+    }
+
+    @Benchmark
+    public ExamAvgScoreResponse warmCache() {
+        return warmExamService.getExamResults(EXAM);
+    }
+
+    @Benchmark
+    public byte[] coldCacheAsJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(new ExamService(scoreRepository).getExamResults(EXAM));
+    }
+
+    @Benchmark
+    public byte[] warmCacheAsJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(warmExamService.getExamResults(EXAM));
+    }
+}
@@ -0,0 +1,130 @@
+package org.calvinkeum.benchmarks;
+
+import org.calvinkeum.config.IngestPipelineProperties;
+import org.calvinkeum.config.IngestPipelineProperties.OverflowPolicy;
+import org.calvinkeum.ingest.ScoreEvent;
+import org.calvinkeum.ingest.ScoreIngestPipeline;
+import org.calvinkeum.ingest.SseScoreParser;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.service.DataImportService;
+import org.calvinkeum.service.ExamService;
+import org.calvinkeum.service.StudentService;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Parsing cost of the ingest path, per event: {@link DataImportService#importStudentExamData(String)} on single
+ * {@code data:} lines, and whole streams read by {@link SseScoreParser} against the previous line reader, regex
+ * and org.json path.
+ * <p>
+ * The import service publishes into a pipeline that is never started and drops when full, so only parsing and the
+ * hand-off are measured, not aggregation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class IngestParsingBenchmark {
+    private static final Pattern JSON_DATA_PATTERN = Pattern.compile("data: \\{.*\\}");
+    private static final int STREAM_EVENTS = 100_000;
+
+    /**
+     * Number of distinct student ids in the generated events.
+     */
+    @Param({"1000", "100000"})
+    private int students;
+
+    private String[] dataLines;
+    private byte[] stream;
+    private int nextLine;
+
+    private DataImportService dataImportService;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        dataLines = new String[STREAM_EVENTS];
+        StringBuilder streamBuilder = new StringBuilder(STREAM_EVENTS * 100);
+
+        for (int i = 0; i < STREAM_EVENTS; i++) {
+            dataLines[i] = "data: {\"exam\": " + random.nextInt(500)
+                + ", \"studentId\": \"Student_" + random.nextInt(students)
+                + "\", \"score\": " + random.nextDouble() + "}";
+            streamBuilder.append("event: score\n").append(dataLines[i]).append("\n\n");
+        }
+
+        stream = streamBuilder.toString().getBytes(StandardCharsets.UTF_8);
+
+        IngestPipelineProperties properties = new IngestPipelineProperties();
+        properties.setBufferSize(1);
+        properties.setOverflowPolicy(OverflowPolicy.DROP_NEWEST);
+
+        ConcurrentScoreRepository scoreRepository = new ConcurrentScoreRepository();
+        dataImportService = new DataImportService(new ScoreIngestPipeline(
+            properties, new StudentService(scoreRepository), new ExamService(scoreRepository)));
+    }
+
+    @Benchmark
+    public void importStudentExamData() {
+        dataImportService.importStudentExamData(dataLines[nextLine]);
+        nextLine = nextLine + 1 == dataLines.length ? 0 : nextLine + 1;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STREAM_EVENTS)
+    public void parseStream(Blackhole blackhole) throws IOException {
+        SseScoreParser parser = new SseScoreParser(new ByteArrayInputStream(stream));
+        ScoreEvent scoreEvent = new ScoreEvent();
+
+        while (parser.next(scoreEvent)) {
+            blackhole.consume(scoreEvent.getStudentId());
+            blackhole.consume(scoreEvent.getExam());
+            blackhole.consume(scoreEvent.getScore());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STREAM_EVENTS)
+    public void parseStreamLegacy(Blackhole blackhole) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(stream), StandardCharsets.UTF_8));
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            if (!"event: score".equals(line) || (line = reader.readLine()) == null) {
+                continue;
+            }
+
+            if (!JSON_DATA_PATTERN.matcher(line).find()) {
+                continue;
+            }
+
+            JSONObject jsonObject = new JSONObject(line.substring(line.indexOf('{')));
+            blackhole.consume(jsonObject.getString("studentId"));
+            blackhole.consume(jsonObject.getInt("exam"));
+            blackhole.consume(jsonObject.getDouble("score"));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package org.calvinkeum.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Drives the same request mix against one or more running instances of the API, such as the servlet application
+ * and the reactive one, and prints each one's throughput and latency side by side. Every client keeps one request
+ * in flight at a time, so {@code --concurrency} is the number of open requests the server has to juggle.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar org.calvinkeum.benchmarks.LoadComparison \
+ *     [--concurrency 1000] [--duration 30s] [--warmup 5s] [--path /api/v1/exams/1 ...] http://localhost:8080 http://localhost:8082
+ * </pre>
+ * Rate limiting answers most requests with 429 under load, so start the instances with a high
+ * {@code resilience4j.ratelimiter.configs.default.limit-for-period} unless the limiter is what is being compared.
+ */
+public class LoadComparison {
+    private static final List<String> DEFAULT_PATHS = List.of(
+        "/api/v1/exams?limit=50",
+        "/api/v1/exams/1?order_by=score&limit=20",
+        "/api/v1/exams/1/distribution",
+        "/api/v1/students/student1",
+        "/api/v1/students?order_by=average&limit=20");
+
+    public static void main(String[] args) throws InterruptedException {
+        int concurrency = 1000;
+        Duration duration = Duration.ofSeconds(30);
+        Duration warmup = Duration.ofSeconds(5);
+        List<String> paths = new ArrayList<>();
+        List<String> targets = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+                case "--duration" -> duration = parseDuration(args[++i]);
+                case "--warmup" -> warmup = parseDuration(args[++i]);
+                case "--path" -> paths.add(args[++i]);
+                default -> targets.add(args[i]);
+            }
+        }
+
+        if (targets.isEmpty()) {
+            System.err.println("Usage: LoadComparison [--concurrency n] [--duration 30s] [--warmup 5s] [--path path ...] <base url> [<base url> ...]");
+            System.exit(2);
+        }
+
+        if (paths.isEmpty()) {
+            paths = DEFAULT_PATHS;
+        }
+
+        System.out.printf("%d concurrent clients, %s per target after a %s warmup, over %s%n", concurrency, duration, warmup, paths);
+        System.out.printf("%-28s %10s %10s %10s %10s %10s %10s %8s%n", "target", "requests", "req/s", "p50 ms", "p99 ms", "max ms", "non-2xx", "errors");
+
+        for (String target : targets) {
+            run(target, paths, concurrency, warmup);
+            Result result = run(target, paths, concurrency, duration);
+
+            System.out.printf("%-28s %10d %10.0f %10.2f %10.2f %10.2f %10d %8d%n", target, result.requests(),
+                result.requests() / (duration.toNanos() / 1e9), result.percentileMillis(50), result.percentileMillis(99),
+                result.percentileMillis(100), result.rejected(), result.errors());
+        }
+    }
+
+    private static Result run(String target, List<String> paths, int concurrency, Duration duration) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+        try {
+            HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(executor)
+                .build();
+
+            List<HttpRequest> requests = paths.stream()
+                .map(path -> HttpRequest.newBuilder(URI.create(target + path)).timeout(Duration.ofSeconds(30)).GET().build())
+                .toList();
+
+            long deadline = System.nanoTime() + duration.toNanos();
+            CountDownLatch finished = new CountDownLatch(concurrency);
+            List<Client> clients = new ArrayList<>(concurrency);
+
+            for (int i = 0; i < concurrency; i++) {
+                Client client = new Client(httpClient, requests, i, deadline, finished);
+                clients.add(client);
+                client.next();
+            }
+
+            finished.await();
+
+            return Result.of(clients);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Duration parseDuration(String value) {
+        return value.endsWith("ms") ? Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)))
+            : value.endsWith("s") ? Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)))
+            : Duration.parse(value);
+    }
+
+    /**
+     * One client that sends its next request as soon as the previous one completed, cycling through the paths.
+     * Only one request is in flight per client, so its counts need no synchronization.
+     */
+    private static class Client {
+        private final HttpClient httpClient;
+        private final List<HttpRequest> requests;
+        private final long deadline;
+        private final CountDownLatch finished;
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private int next;
+        private long rejected;
+        private long errors;
+
+        private Client(HttpClient httpClient, List<HttpRequest> requests, int offset, long deadline, CountDownLatch finished) {
+            this.httpClient = httpClient;
+            this.requests = requests;
+            this.next = offset;
+            this.deadline = deadline;
+            this.finished = finished;
+        }
+
+        private void next() {
+            if (System.nanoTime() >= deadline) {
+                finished.countDown();
+                return;
+            }
+
+            HttpRequest request = requests.get(next++ % requests.size());
+            long start = System.nanoTime();
+
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, throwable) -> {
+                if (throwable != null) {
+                    errors++;
+                }
+                else {
+                    record(System.nanoTime() - start);
+
+                    if (response.statusCode() >= 300 && response.statusCode() != 304) {
+                        rejected++;
+                    }
+                }
+
+                next();
+            });
+        }
+
+        private void record(long latencyNanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+
+            latencies[count++] = latencyNanos;
+        }
+    }
+
+    private record Result(long[] latencies, long rejected, long errors) {
+
+        private static Result of(List<Client> clients) {
+            long[] latencies = new long[clients.stream().mapToInt(client -> client.count).sum()];
+            long rejected = 0;
+            long errors = 0;
+            int position = 0;
+
+            for (Client client : clients) {
+                System.arraycopy(client.latencies, 0, latencies, position, client.count);
+                position += client.count;
+                rejected += client.rejected;
+                errors += client.errors;
+            }
+
+            Arrays.sort(latencies);
+
+            return new Result(latencies, rejected, errors);
+        }
+
+        private long requests() {
+            return latencies.length;
+        }
+
+        private double percentileMillis(double percentile) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+
+            int index = (int) Math.min(latencies.length - 1, Math.ceil(percentile / 100 * latencies.length) - 1);
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
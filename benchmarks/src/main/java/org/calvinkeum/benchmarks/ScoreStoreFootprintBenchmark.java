@@ -0,0 +1,124 @@
+package org.calvinkeum.benchmarks;
+
+import org.calvinkeum.config.ScoreStoreProperties;
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap retained per stored score event, measured as the used heap after a full collection with the store filled
+ * less the used heap before. {@code OBJECTS} keeps every event as a {@link StudentExamScore} with its own student id
+ * string in a list per exam, as the store did before it moved to columns; {@code DOUBLE} and {@code FIXED_POINT}
+ * fill a {@link ConcurrentScoreRepository} with the full and the 4 digit score precision, which besides the exam
+ * columns also keeps each student's columns, the score order and the windows. The time is only that of filling.
+ * <p>
+ * JMH sums event counters over the measured iterations, so there is only one; the measurement barely varies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-XX:+UseSerialGC"})
+public class ScoreStoreFootprintBenchmark {
+    private static final int EXAMS = 100;
+    private static final int BATCH_SIZE = 1000;
+
+    public enum Layout { OBJECTS, DOUBLE, FIXED_POINT }
+
+    @Param({"1000000"})
+    private int events;
+
+    @Param({"10000"})
+    private int students;
+
+    @Param({"OBJECTS", "DOUBLE", "FIXED_POINT"})
+    private Layout layout;
+
+    /**
+     * Reported next to the time in the results as {@code fill:heapBytesPerEvent}.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public double heapBytesPerEvent;
+    }
+
+    @Benchmark
+    public Object fill(Footprint footprint) {
+        long before = usedHeapAfterGc();
+        Object store = layout == Layout.OBJECTS ? fillObjects() : fillRepository();
+        long after = usedHeapAfterGc();
+
+        footprint.heapBytesPerEvent = (double) (after - before) / events;
+
+        return store;
+    }
+
+    private Map<Integer, List<StudentExamScore>> fillObjects() {
+        Map<Integer, List<StudentExamScore>> examEntries = new HashMap<>();
+        Random random = new Random(1);
+
+        for (int i = 0; i < events; i++) {
+            int exam = random.nextInt(EXAMS);
+
+            // a parsed event carried its own copy of the student id
+            String studentId = "Student_" + random.nextInt(students);
+            examEntries.computeIfAbsent(exam, key -> new ArrayList<>())
+                .add(new StudentExamScore(studentId, exam, random.nextDouble()));
+        }
+
+        return examEntries;
+    }
+
+    private ConcurrentScoreRepository fillRepository() {
+        ScoreStoreProperties scoreStoreProperties = new ScoreStoreProperties();
+        scoreStoreProperties.setScorePrecision(layout == Layout.FIXED_POINT ? 4 : 0);
+
+        ConcurrentScoreRepository scoreRepository = new ConcurrentScoreRepository(scoreStoreProperties);
+        List<StudentExamScore> batch = new ArrayList<>(BATCH_SIZE);
+        Random random = new Random(1);
+
+        for (int i = 0; i < events; i++) {
+            int exam = random.nextInt(EXAMS);
+            batch.add(new StudentExamScore("Student_" + random.nextInt(students), exam, random.nextDouble()));
+
+            if (batch.size() == BATCH_SIZE) {
+                scoreRepository.addStudentScores(batch);
+                scoreRepository.addExamScores(batch);
+                batch.clear();
+            }
+        }
+
+        scoreRepository.addStudentScores(batch);
+        scoreRepository.addExamScores(batch);
+
+        return scoreRepository;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,73 @@
+package org.calvinkeum.benchmarks;
+
+import org.calvinkeum.dto.StudentPaginationResponse;
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.service.PageCursor;
+import org.calvinkeum.service.StudentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of fetching the last page of {@link StudentService#getAllStudents} by offset and by cursor, with the first
+ * page as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class StudentListingBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"10000", "1000000"})
+    private int students;
+
+    private StudentService studentService;
+    private String lastPageCursor;
+
+    @Setup
+    public void setUp() {
+        List<StudentExamScore> studentExamScores = new ArrayList<>(students);
+
+        for (int i = 0; i < students; i++) {
+            studentExamScores.add(new StudentExamScore(String.format("Student_%07d", i), 1, i % 100 / 100D));
+        }
+
+        ConcurrentScoreRepository scoreRepository = new ConcurrentScoreRepository();
+        scoreRepository.addStudentScores(studentExamScores);
+        studentService = new StudentService(scoreRepository);
+
+        // the cursor a client holds after paging up to the last page
+        lastPageCursor = PageCursor.encodeStudent(String.format("Student_%07d", students - PAGE_SIZE - 1));
+    }
+
+    @Benchmark
+    public StudentPaginationResponse firstPage() {
+        return studentService.getAllStudents(0, PAGE_SIZE, "ASC");
+    }
+
+    @Benchmark
+    public StudentPaginationResponse lastPageBySkip() {
+        return studentService.getAllStudents(students - PAGE_SIZE, PAGE_SIZE, "ASC");
+    }
+
+    @Benchmark
+    public StudentPaginationResponse lastPageByCursor() {
+        return studentService.getAllStudents(0, PAGE_SIZE, "ASC", lastPageCursor);
+    }
+}
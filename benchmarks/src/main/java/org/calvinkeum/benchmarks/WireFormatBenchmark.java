@@ -0,0 +1,93 @@
+package org.calvinkeum.benchmarks;
+
+import org.calvinkeum.controller.WireFormat;
+import org.calvinkeum.dto.ExamAvgScoreResponse;
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.service.ExamService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to encode and decode an exam's results as JSON and as CBOR, and the encoded size, reported by {@link #size}
+ * as the secondary result {@code size:encodedBytes}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class WireFormatBenchmark {
+    private static final int EXAM = 1;
+
+    @Param({"1000", "100000"})
+    private int studentsPerExam;
+
+    @Param({"JSON", "CBOR"})
+    private WireFormat wireFormat;
+
+    private ExamAvgScoreResponse examAvgScoreResponse;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(1);
+        List<StudentExamScore> studentExamScores = new ArrayList<>(studentsPerExam);
+
+        for (int i = 0; i < studentsPerExam; i++) {
+            studentExamScores.add(new StudentExamScore("Student_" + i, EXAM, random.nextDouble()));
+        }
+
+        ConcurrentScoreRepository scoreRepository = new ConcurrentScoreRepository();
+        scoreRepository.addExamScores(studentExamScores);
+
+        examAvgScoreResponse = new ExamService(scoreRepository).getExamResults(EXAM);
+        encoded = wireFormat.encode(examAvgScoreResponse);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        public long encodedBytes;
+    }
+
+    /**
+     * Encodes once per trial: JMH sums event counters over the measured iterations, and the size does not vary.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public byte[] size(EncodedSize encodedSize) throws IOException {
+        byte[] bytes = wireFormat.encode(examAvgScoreResponse);
+        encodedSize.encodedBytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return wireFormat.encode(examAvgScoreResponse);
+    }
+
+    @Benchmark
+    public ExamAvgScoreResponse decode() throws IOException {
+        return wireFormat.decode(encoded, ExamAvgScoreResponse.class);
+    }
+}
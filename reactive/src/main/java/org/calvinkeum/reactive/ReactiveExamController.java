@@ -0,0 +1,105 @@
+package org.calvinkeum.reactive;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.calvinkeum.controller.BatchLookupLimiter;
+import org.calvinkeum.controller.EncodedResponseCache;
+import org.calvinkeum.controller.ExamController;
+import org.calvinkeum.dto.ExamBatchRequest;
+import org.calvinkeum.service.ExamService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * The exam APIs on WebFlux. Each handler calls the servlet controller's handler method directly, outside of
+ * Spring MVC, so both stacks answer with the same statuses, bodies and ETags. Large exam results are streamed by
+ * {@link ReactiveExamResultsStreamer}, off the event loop.
+ */
+@Tag(name = "Exam", description = "Exam APIs")
+@RestController
+@RequestMapping("/api/v1/exams")
+@Slf4j
+public class ReactiveExamController {
+
+    private final ExamService examService;
+    private final BatchLookupLimiter batchLookupLimiter;
+    private final ReactiveRateLimits reactiveRateLimits;
+    private final ExamController examController;
+
+    public ReactiveExamController(ExamService examService, BatchLookupLimiter batchLookupLimiter, EncodedResponseCache encodedResponseCache,
+                                  ReactiveExamResultsStreamer reactiveExamResultsStreamer, ReactiveRateLimits reactiveRateLimits) {
+        this.examService = examService;
+        this.batchLookupLimiter = batchLookupLimiter;
+        this.reactiveRateLimits = reactiveRateLimits;
+        this.examController = new ExamController(examService, batchLookupLimiter, encodedResponseCache, reactiveExamResultsStreamer);
+    }
+
+    @Operation(summary = "Get all Exams")
+    @GetMapping
+    public Mono<ResponseEntity<?>> getAllExams(@RequestParam(defaultValue = "0") int skip,
+                                               @RequestParam(defaultValue = "20") int limit,
+                                               @RequestParam(defaultValue = "ASC") String sort_order,
+                                               @RequestParam(required = false) String after,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return reactiveRateLimits.limit("exam", () -> examController.getAllExams(skip, limit, sort_order, after, ifNoneMatch, accept));
+    }
+
+    @Operation(summary = "Retrieve the exam details based on its unique identifier, includes the individual student scores and the average score calculated across all students. "
+        + "Pass order_by=score to page through the students by score instead, or a window such as window=5m or window=10000 "
+        + "for the number and average of the scores received in the last 5 minutes or the last 10000 scores.")
+    @GetMapping("/{number}")
+    public Mono<ResponseEntity<?>> getExamResults(@PathVariable Integer number,
+                                                  @RequestParam(required = false) String order_by,
+                                                  @RequestParam(defaultValue = "0") int skip,
+                                                  @RequestParam(defaultValue = "100") int limit,
+                                                  @RequestParam(defaultValue = "DESC") String sort_order,
+                                                  @RequestParam(required = false) String window,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return reactiveRateLimits.limit("exam", () -> examController.getExamResults(number, order_by, skip, limit, sort_order, window, ifNoneMatch, accept, acceptEncoding));
+    }
+
+    @Operation(summary = "Get the distribution of an exam's scores: the median, p10, p90 and p99 and a histogram of the scores in bins of binWidth, "
+        + "counting each student's latest score")
+    @GetMapping("/{number}/distribution")
+    public Mono<ResponseEntity<?>> getExamDistribution(@PathVariable Integer number,
+                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                       @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return reactiveRateLimits.limit("exam", () -> examController.getExamDistribution(number, ifNoneMatch, accept));
+    }
+
+    @Operation(summary = "Get a Student's score, rank and percentile on an exam")
+    @GetMapping("/{number}/students/{id}")
+    public Mono<ResponseEntity<?>> getStudentExamRank(@PathVariable Integer number, @PathVariable String id,
+                                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return reactiveRateLimits.limit("exam", () -> examController.getStudentExamRank(number, id, ifNoneMatch, accept));
+    }
+
+    @Operation(summary = "Get the average, lowest and highest score and number of Students of up to test-scores.api.batch.max-size Exams in one call, in the order requested. "
+        + "The call takes one rate limit permit per started group of test-scores.api.batch.ids-per-permit exams.")
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<?>> getExamSummaries(@RequestBody ExamBatchRequest request) {
+        List<Integer> exams = request == null ? null : request.getExams();
+        log.debug("POST /api/exams/batch called with {} exams", exams == null ? 0 : exams.size());
+
+        // validated here rather than by the servlet handler, whose permit wait would block the event loop
+        if (exams == null || exams.isEmpty()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("No exams supplied."));
+        }
+
+        if (exams.size() > batchLookupLimiter.getMaxSize()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Too many exams supplied, at most " + batchLookupLimiter.getMaxSize() + " are allowed."));
+        }
+
+        return reactiveRateLimits.limitBatch("exam", exams.size(), () -> ResponseEntity.ok(examService.getExamSummaries(exams)));
+    }
+}
@@ -0,0 +1,54 @@
+package org.calvinkeum.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.calvinkeum.config.ExamStreamingProperties;
+import org.calvinkeum.controller.ExamResultsStreamer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Streams large exam results as buffers written on the bounded elastic scheduler, so neither encoding nor a slow
+ * client holds up the event loop. The writer only runs as fast as the client takes the buffers.
+ */
+@Component
+public class ReactiveExamResultsStreamer extends ExamResultsStreamer<ReactiveExamResultsStreamer.StreamedBody> {
+
+    public ReactiveExamResultsStreamer(ExamStreamingProperties properties, ObjectMapper objectMapper) {
+        super(properties, objectMapper);
+    }
+
+    @Override
+    protected StreamedBody body(BodyWriter bodyWriter) {
+        return new StreamedBody(Flux.from(DataBufferUtils.outputStreamPublisher(outputStream -> {
+            try {
+                bodyWriter.writeTo(outputStream);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, DefaultDataBufferFactory.sharedInstance, runnable -> Schedulers.boundedElastic().schedule(runnable))));
+    }
+
+    /**
+     * The buffers of a streamed body, written as they are by {@link StreamedBodyWriter}. A bare {@code Flux} in a
+     * {@code ResponseEntity<?>} would be taken for a stream of objects and encoded one buffer at a time.
+     */
+    public static final class StreamedBody {
+        private final Flux<DataBuffer> buffers;
+
+        private StreamedBody(Flux<DataBuffer> buffers) {
+            this.buffers = buffers;
+        }
+
+        public Flux<DataBuffer> getBuffers() {
+            return buffers;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.calvinkeum.reactive;
+
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import io.github.resilience4j.reactor.ratelimiter.operator.RateLimiterOperator;
+import lombok.RequiredArgsConstructor;
+import org.calvinkeum.controller.BatchLookupLimiter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Applies the same rate limiters as the servlet controllers without holding a thread while waiting for a
+ * permit: the wait is a timer on the event loop. The lookups themselves only read the in-memory store, so they
+ * run on the event loop as well.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReactiveRateLimits {
+
+    private final RateLimiterRegistry rateLimiterRegistry;
+    private final BatchLookupLimiter batchLookupLimiter;
+
+    /**
+     * Runs the lookup once the named limiter hands out a permit, or answers 429 if none is free within its timeout.
+     */
+    public Mono<ResponseEntity<?>> limit(String rateLimiterName, Supplier<ResponseEntity<?>> lookup) {
+        return Mono.fromSupplier(lookup)
+            .transformDeferred(RateLimiterOperator.of(rateLimiterRegistry.rateLimiter(rateLimiterName)))
+            .onErrorResume(RequestNotPermitted.class, e -> Mono.just(tooManyRequests()));
+    }
+
+    /**
+     * Runs the lookup once the permits a batch of {@code size} ids costs are available, or answers 429 if they
+     * are not within the limiter's timeout.
+     */
+    public Mono<ResponseEntity<?>> limitBatch(String rateLimiterName, int size, Supplier<ResponseEntity<?>> lookup) {
+        return Mono.defer(() -> {
+            long waitNanos = batchLookupLimiter.reserve(rateLimiterName, size);
+
+            if (waitNanos < 0) {
+                return Mono.just(tooManyRequests());
+            }
+
+            Mono<ResponseEntity<?>> response = Mono.fromSupplier(lookup);
+
+            return waitNanos == 0 ? response : Mono.delay(Duration.ofNanos(waitNanos)).then(response);
+        });
+    }
+
+    private static ResponseEntity<?> tooManyRequests() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body("Rate limit exceeded. Please try again later.");
+    }
+}
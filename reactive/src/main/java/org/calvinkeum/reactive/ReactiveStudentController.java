@@ -0,0 +1,103 @@
+package org.calvinkeum.reactive;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.calvinkeum.controller.BatchLookupLimiter;
+import org.calvinkeum.controller.EncodedResponseCache;
+import org.calvinkeum.controller.StudentController;
+import org.calvinkeum.dto.StudentBatchRequest;
+import org.calvinkeum.service.StudentService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * The student APIs on WebFlux. Each handler calls the servlet controller's handler method directly, outside of
+ * Spring MVC, so both stacks answer with the same statuses, bodies and ETags.
+ */
+@Tag(name = "Student", description = "Student APIs")
+@RestController
+@RequestMapping("/api/v1/students")
+@Slf4j
+public class ReactiveStudentController {
+
+    private final StudentService studentService;
+    private final BatchLookupLimiter batchLookupLimiter;
+    private final ReactiveRateLimits reactiveRateLimits;
+    private final StudentController studentController;
+
+    public ReactiveStudentController(StudentService studentService, BatchLookupLimiter batchLookupLimiter, EncodedResponseCache encodedResponseCache,
+                                     ReactiveRateLimits reactiveRateLimits) {
+        this.studentService = studentService;
+        this.batchLookupLimiter = batchLookupLimiter;
+        this.reactiveRateLimits = reactiveRateLimits;
+        this.studentController = new StudentController(studentService, batchLookupLimiter, encodedResponseCache);
+    }
+
+    @Operation(summary = "Get all Students that have received at least one test score. "
+        + "Pass order_by=average to page through the leaderboard of averages instead, highest first by default.")
+    @GetMapping
+    public Mono<ResponseEntity<?>> getAllStudents(@RequestParam(defaultValue = "0") int skip,
+                                                  @RequestParam(defaultValue = "20") int limit,
+                                                  @RequestParam(required = false) String sort_order,
+                                                  @RequestParam(required = false) String after,
+                                                  @RequestParam(required = false) String order_by,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return reactiveRateLimits.limit("student", () -> studentController.getAllStudents(skip, limit, sort_order, after, order_by, ifNoneMatch, accept));
+    }
+
+    @Operation(summary = "Get a Student's average score across all exams. "
+        + "Pass a window such as window=5m or window=10000 for the number and average of the scores received in the last 5 minutes or the last 10000 scores.")
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<?>> getStudentAverageScore(@PathVariable String id,
+                                                          @RequestParam(required = false) String window,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return reactiveRateLimits.limit("student", () -> studentController.getStudentAverageScore(id, window, ifNoneMatch, accept, acceptEncoding));
+    }
+
+    @Operation(summary = "Get a Student's exam scores in the order they were received, newest first for sort_order=desc")
+    @GetMapping("/{id}/exams")
+    public Mono<ResponseEntity<?>> getStudentExams(@PathVariable String id,
+                                                   @RequestParam(defaultValue = "0") int skip,
+                                                   @RequestParam(defaultValue = "100") int limit,
+                                                   @RequestParam(defaultValue = "ASC") String sort_order,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return reactiveRateLimits.limit("student", () -> studentController.getStudentExams(id, skip, limit, sort_order, ifNoneMatch, accept));
+    }
+
+    @Operation(summary = "Get a Student's average score and rank among all Students")
+    @GetMapping("/{id}/rank")
+    public Mono<ResponseEntity<?>> getStudentRank(@PathVariable String id,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return reactiveRateLimits.limit("student", () -> studentController.getStudentRank(id, ifNoneMatch, accept));
+    }
+
+    @Operation(summary = "Get the average scores of up to test-scores.api.batch.max-size Students in one call, in the order requested. "
+        + "The call takes one rate limit permit per started group of test-scores.api.batch.ids-per-permit ids.")
+    @PostMapping("/batch")
+    public Mono<ResponseEntity<?>> getStudentAverageScores(@RequestBody StudentBatchRequest request) {
+        List<String> studentIds = request == null ? null : request.getStudentIds();
+        log.debug("POST /api/students/batch called with {} ids", studentIds == null ? 0 : studentIds.size());
+
+        // validated here rather than by the servlet handler, whose permit wait would block the event loop
+        if (studentIds == null || studentIds.isEmpty()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("No ids supplied."));
+        }
+
+        if (studentIds.size() > batchLookupLimiter.getMaxSize()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Too many ids supplied, at most " + batchLookupLimiter.getMaxSize() + " are allowed."));
+        }
+
+        return reactiveRateLimits.limitBatch("student", studentIds.size(), () -> ResponseEntity.ok(studentService.getStudentAverageScores(studentIds)));
+    }
+}
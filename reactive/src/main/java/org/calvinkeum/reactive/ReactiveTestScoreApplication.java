@@ -0,0 +1,55 @@
+package org.calvinkeum.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.calvinkeum.controller.WireFormat;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+
+/**
+ * Serves the {@code /api/v1} exam and student APIs on WebFlux and Netty, over the same services, store, ingest
+ * and persistence as the servlet application. Only the servlet controllers, the servlet application itself and
+ * the live update stream, which is built on servlet emitters, are left out of the scan.
+ * <p>
+ * WebFlux has no Jackson CBOR codec by default, so one is registered to write the responses the controllers pin to
+ * {@link WireFormat#CBOR}, along with the writer of streamed exam results.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@ConfigurationPropertiesScan("org.calvinkeum")
+@ComponentScan(basePackages = "org.calvinkeum", excludeFilters = {
+    @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class),
+    @ComponentScan.Filter(type = FilterType.CUSTOM, classes = AutoConfigurationExcludeFilter.class),
+    @ComponentScan.Filter(type = FilterType.REGEX, pattern = {
+        "org\\.calvinkeum\\.TestScoreApplication",
+        "org\\.calvinkeum\\.controller\\.(Exam|Student|LiveUpdate)Controller",
+        "org\\.calvinkeum\\.service\\.LiveUpdateService" }) })
+public class ReactiveTestScoreApplication {
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveTestScoreApplication.class, args);
+    }
+
+    @Bean
+    public CodecCustomizer codecCustomizer(ObjectMapper objectMapper) {
+        ObjectMapper cborMapper = WireFormat.CBOR.mapperFor(objectMapper);
+
+        return configurer -> {
+            // custom writers are asked before the default ones, so JSON goes first to stay the default for requests
+            // that accept anything
+            configurer.customCodecs().register(new Jackson2JsonEncoder(objectMapper));
+            configurer.customCodecs().register(new SingleValueCborEncoder(cborMapper));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+            configurer.customCodecs().register(new StreamedBodyWriter());
+        };
+    }
+}
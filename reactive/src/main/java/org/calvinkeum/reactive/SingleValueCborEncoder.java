@@ -0,0 +1,33 @@
+package org.calvinkeum.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Spring's CBOR encoder only encodes through {@link #encodeValue}, and rejects the publisher a response body is
+ * written from. Every body the controllers answer in CBOR is a single value, so it is encoded as one.
+ */
+class SingleValueCborEncoder extends Jackson2CborEncoder {
+
+    SingleValueCborEncoder(ObjectMapper cborMapper) {
+        super(cborMapper, MediaType.APPLICATION_CBOR);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                   MimeType mimeType, Map<String, Object> hints) {
+        return Mono.from(inputStream)
+            .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+            .flux();
+    }
+}
@@ -0,0 +1,34 @@
+package org.calvinkeum.reactive;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.http.codec.HttpMessageWriter;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a {@link ReactiveExamResultsStreamer.StreamedBody} returned from a {@code ResponseEntity<?>} handler
+ * straight to the response, under the content type the handler set.
+ */
+class StreamedBodyWriter implements HttpMessageWriter<ReactiveExamResultsStreamer.StreamedBody> {
+
+    @Override
+    public List<MediaType> getWritableMediaTypes() {
+        return List.of(MediaType.ALL);
+    }
+
+    @Override
+    public boolean canWrite(ResolvableType elementType, MediaType mediaType) {
+        return ReactiveExamResultsStreamer.StreamedBody.class.isAssignableFrom(elementType.toClass());
+    }
+
+    @Override
+    public Mono<Void> write(Publisher<? extends ReactiveExamResultsStreamer.StreamedBody> inputStream, ResolvableType elementType,
+                            MediaType mediaType, ReactiveHttpOutputMessage message, Map<String, Object> hints) {
+        return Mono.from(inputStream).flatMap(streamedBody -> message.writeWith(streamedBody.getBuffers()));
+    }
+}
@@ -0,0 +1,143 @@
+package org.calvinkeum.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import org.calvinkeum.config.BatchLookupProperties;
+import org.calvinkeum.config.EncodedResponseProperties;
+import org.calvinkeum.config.ExamStreamingProperties;
+import org.calvinkeum.controller.BatchLookupLimiter;
+import org.calvinkeum.controller.EncodedResponseCache;
+import org.calvinkeum.controller.WireFormat;
+import org.calvinkeum.dto.ExamAvgScoreResponse;
+import org.calvinkeum.dto.ExamBatchRequest;
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.repository.ScoreRepository;
+import org.calvinkeum.service.ExamService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReactiveExamControllerTest {
+
+    private ScoreRepository scoreRepository;
+    private ExamService examService;
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    public void setUp() {
+        scoreRepository = new ConcurrentScoreRepository();
+        scoreRepository.addExamScores(List.of(new StudentExamScore("john.doe", 1, 0.5), new StudentExamScore("jane.doe", 1, 1.0)));
+
+        RateLimiterRegistry rateLimiterRegistry = RateLimiterRegistry.of(RateLimiterConfig.custom()
+            .limitForPeriod(3)
+            .limitRefreshPeriod(Duration.ofMinutes(1))
+            .timeoutDuration(Duration.ZERO)
+            .build());
+        BatchLookupLimiter batchLookupLimiter = new BatchLookupLimiter(rateLimiterRegistry, new BatchLookupProperties());
+        ExamStreamingProperties streamingProperties = new ExamStreamingProperties();
+        streamingProperties.setMinStudents(1_000);
+        examService = new ExamService(scoreRepository);
+        ReactiveExamController reactiveExamController = new ReactiveExamController(examService, batchLookupLimiter,
+            new EncodedResponseCache(new EncodedResponseProperties(), new ObjectMapper()),
+            new ReactiveExamResultsStreamer(streamingProperties, new ObjectMapper()), new ReactiveRateLimits(rateLimiterRegistry, batchLookupLimiter));
+
+        webTestClient = WebTestClient.bindToController(reactiveExamController)
+            .httpMessageCodecs(new ReactiveTestScoreApplication().codecCustomizer(new ObjectMapper())::customize)
+            .build();
+    }
+
+    @Test
+    public void testGetExamResults_AnswersLikeTheServletControllerUntilRateLimited() {
+        String eTag = webTestClient.get().uri("/api/v1/exams/1")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.averageScore").isEqualTo(0.75)
+            .jsonPath("$.students.length()").isEqualTo(2)
+            .returnResult()
+            .getResponseHeaders()
+            .getETag();
+        assertNotNull(eTag);
+
+        webTestClient.get().uri("/api/v1/exams/1")
+            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+            .exchange()
+            .expectStatus().isNotModified();
+
+        webTestClient.get().uri("/api/v1/exams/2")
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectBody(String.class).isEqualTo("No results found for the provided number.");
+
+        webTestClient.get().uri("/api/v1/exams/1")
+            .exchange()
+            .expectStatus().isEqualTo(429);
+    }
+
+    @Test
+    public void testGetExamResults_StreamsLargeExams() throws IOException {
+        scoreRepository.addExamScores(IntStream.range(0, 5_000).mapToObj(i -> new StudentExamScore("student" + i, 2, i % 100 / 100D)).toList());
+
+        EntityExchangeResult<byte[]> result = webTestClient.get().uri("/api/v1/exams/2")
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+            .expectBody(byte[].class)
+            .returnResult();
+
+        assertEquals(-1, result.getResponseHeaders().getContentLength());
+        assertArrayEquals(new ObjectMapper().writeValueAsBytes(examService.getExamResults(2)),
+            new GZIPInputStream(new ByteArrayInputStream(result.getResponseBody())).readAllBytes());
+
+        byte[] cbor = webTestClient.get().uri("/api/v1/exams/2")
+            .header(HttpHeaders.ACCEPT, "application/cbor")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+
+        assertEquals(5_000, WireFormat.CBOR.decode(cbor, ExamAvgScoreResponse.class).getStudents().size());
+    }
+
+    @Test
+    public void testGetExamSummaries_ValidatesAndTakesPermitsPerBatch() {
+        webTestClient.post().uri("/api/v1/exams/batch")
+            .bodyValue(new ExamBatchRequest(List.of(1, 2)))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.exams[0].totalStudents").isEqualTo(2)
+            .jsonPath("$.notFound[0]").isEqualTo(2);
+
+        webTestClient.post().uri("/api/v1/exams/batch")
+            .bodyValue(new ExamBatchRequest(List.of()))
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        // 200 exams cost the two permits left, after that the limiter turns the batch away without waiting
+        webTestClient.post().uri("/api/v1/exams/batch")
+            .bodyValue(new ExamBatchRequest(IntStream.range(0, 200).boxed().toList()))
+            .exchange()
+            .expectStatus().isOk();
+
+        webTestClient.post().uri("/api/v1/exams/batch")
+            .bodyValue(new ExamBatchRequest(List.of(1)))
+            .exchange()
+            .expectStatus().isEqualTo(429);
+    }
+}
@@ -0,0 +1,69 @@
+package org.calvinkeum.reactive;
+
+import org.calvinkeum.controller.WireFormat;
+import org.calvinkeum.dto.ExamBatchRequest;
+import org.calvinkeum.dto.ExamDistributionResponse;
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ScoreRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "test-scores.ingest.stream.enabled=false",
+    "test-scores.persistence.enabled=false" })
+public class ReactiveTestScoreApplicationTest {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ScoreRepository scoreRepository;
+
+    @Test
+    public void testContextLoads_WithoutTheServletOnlyComponents() {
+        assertTrue(applicationContext.containsBean("reactiveExamController"));
+        assertFalse(applicationContext.containsBean("streamingResponseBodyConverter"));
+        assertFalse(applicationContext.containsBean("servletExamResultsStreamer"));
+        assertTrue(applicationContext.containsBean("reactiveExamResultsStreamer"));
+
+        webTestClient.get().uri("/api/v1/exams")
+            .exchange()
+            .expectStatus().isNoContent();
+    }
+
+    @Test
+    public void testGetExamDistribution_WritesCborOnlyWhenAsked() throws IOException {
+        scoreRepository.addExamScores(List.of(new StudentExamScore("john.doe", 7, 0.5), new StudentExamScore("jane.doe", 7, 1.0)));
+
+        byte[] body = webTestClient.get().uri("/api/v1/exams/7/distribution")
+            .header(HttpHeaders.ACCEPT, "application/cbor")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(WireFormat.CBOR.getMediaType())
+            .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+
+        assertEquals(2, WireFormat.CBOR.decode(body, ExamDistributionResponse.class).getTotalStudents());
+
+        // JSON stays the default where the body is not pinned to a format
+        webTestClient.post().uri("/api/v1/exams/batch")
+            .bodyValue(new ExamBatchRequest(List.of(7)))
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(WireFormat.JSON.getMediaType());
+    }
+}
@@ -1,64 +1,125 @@
 package org.calvinkeum;
 
 import lombok.extern.slf4j.Slf4j;
+import org.calvinkeum.config.IngestStreamProperties;
+import org.calvinkeum.ingest.ParseFailure;
+import org.calvinkeum.ingest.ScoreIngestPipeline;
+import org.calvinkeum.ingest.ScoreStreamClient;
+import org.calvinkeum.ingest.StreamCheckpoint;
+import org.calvinkeum.persistence.ScorePersistence;
 import org.calvinkeum.service.DataImportService;
-import org.springframework.boot.CommandLineRunner;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+/**
+ * Runs a reader for every configured score feed in the background for the lifetime of the application. Each
+ * source is read on its own thread and publishes straight into the ingest pipeline, which takes events from any
+ * number of threads, so adding sources adds readers instead of queueing behind one. The readers start once the
+ * ingest pipeline is up and are stopped before the pipeline drains. With persistence enabled, each reader resumes
+ * from the checkpoint it stopped at before a restart, and hands a new one over once stopped.
+ */
 @Component
 @Slf4j
-public class DataLoader implements CommandLineRunner {
+public class DataLoader implements SmartLifecycle {
+    public static final String DEFAULT_SOURCE = "default";
 
-    private static final String URL = "https://live-test-scores.herokuapp.com/scores";
+    private final IngestStreamProperties ingestStreamProperties;
+    private final List<ScoreStreamClient> scoreStreamClients;
+    private final ScorePersistence scorePersistence;
 
-    @Override
-    public void run(String... args) {
-        readResults();
+    private volatile boolean running;
+
+    public DataLoader(IngestStreamProperties ingestStreamProperties, DataImportService dataImportService) {
+        this(ingestStreamProperties, dataImportService, Optional.empty());
     }
 
-    private static void readResults() {
-        try {
-            URL url = new URL(URL);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    /**
+     * @param scorePersistence keeps the readers' checkpoints across restarts, when persistence is enabled
+     */
+    @Autowired
+    public DataLoader(IngestStreamProperties ingestStreamProperties, DataImportService dataImportService,
+                      Optional<ScorePersistence> scorePersistence) {
+        this.ingestStreamProperties = ingestStreamProperties;
+        this.scorePersistence = scorePersistence.orElse(null);
 
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("Accept", "text/event-stream");
+        Map<String, String> sources = ingestStreamProperties.getSources().isEmpty()
+            ? Map.of(DEFAULT_SOURCE, ingestStreamProperties.getUrl())
+            : ingestStreamProperties.getSources();
+        List<ScoreStreamClient> clients = new ArrayList<>();
 
-            int responseCode = connection.getResponseCode();
+        sources.forEach((source, url) ->
+            clients.add(new ScoreStreamClient(source, url, ingestStreamProperties, dataImportService::importScoreEvent,
+                dataImportService.getMaxScore())));
 
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+        this.scoreStreamClients = Collections.unmodifiableList(clients);
+    }
 
-                String line;
+    @Override
+    public synchronized void start() {
+        if (!ingestStreamProperties.isEnabled()) {
+            log.info("Score stream ingestion is disabled");
+            return;
+        }
 
-                while ((line = reader.readLine()) != null) {
-                    // Validate event score data
-                    if (!"event: score".equals(line)) {
-                        continue;
-                    }
+        running = true;
 
-                    // The next line should contain our JSON Data
-                    if ((line = reader.readLine()) != null) {
-                        DataImportService.importStudentExamData(line);
-                    }
-                }
+        for (ScoreStreamClient scoreStreamClient : scoreStreamClients) {
+            log.info("Reading scores for source {} from {}", scoreStreamClient.getName(), scoreStreamClient.getUrl());
 
-                reader.close();
-            }
-            else {
-                log.error("Failed to fetch data. Response code: " + responseCode);
+            if (scorePersistence != null) {
+                scorePersistence.getStreamCheckpoint(scoreStreamClient.getName()).ifPresent(scoreStreamClient::resumeFrom);
             }
 
-            connection.disconnect();
+            scoreStreamClient.start();
         }
-        catch (IOException e) {
-            log.error(e.getLocalizedMessage());
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        scoreStreamClients.forEach(ScoreStreamClient::stop);
+
+        if (scorePersistence != null) {
+            Map<String, StreamCheckpoint> streamCheckpoints = new LinkedHashMap<>();
+            scoreStreamClients.forEach(client -> streamCheckpoints.put(client.getName(), client.checkpoint()));
+            scorePersistence.saveStreamCheckpoints(streamCheckpoints);
         }
     }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * The reader of every source, in configuration order, whether or not ingestion is enabled.
+     */
+    public List<ScoreStreamClient> getScoreStreamClients() {
+        return scoreStreamClients;
+    }
+
+    public long getEventCount() {
+        return scoreStreamClients.stream().mapToLong(ScoreStreamClient::getEventCount).sum();
+    }
+
+    public long getConnectionCount() {
+        return scoreStreamClients.stream().mapToLong(ScoreStreamClient::getConnectionCount).sum();
+    }
+
+    public long getFailureCount(ParseFailure parseFailure) {
+        return scoreStreamClients.stream().mapToLong(client -> client.getFailureCount(parseFailure)).sum();
+    }
+
+    @Override
+    public int getPhase() {
+        return ScoreIngestPipeline.PHASE + 1;
+    }
 }
@@ -2,10 +2,12 @@ package org.calvinkeum;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class TestScoreApplication {
     public static void main(String[] args) {
         SpringApplication.run(TestScoreApplication.class, args);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,20 @@
+package org.calvinkeum.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "test-scores.api.batch")
+public class BatchLookupProperties {
+
+    /**
+     * Most ids accepted by one batch lookup.
+     */
+    private int maxSize = 1000;
+
+    /**
+     * Ids a single rate limiter permit pays for. A batch takes one permit per started group of this many ids,
+     * but never more than the limiter hands out per period.
+     */
+    private int idsPerPermit = 100;
+}
@@ -0,0 +1,26 @@
+package org.calvinkeum.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@ConfigurationProperties(prefix = "test-scores.api.encoded-responses")
+public class EncodedResponseProperties {
+
+    /**
+     * Most bytes of encoded exam results and student averages kept, counting every format and both the plain and
+     * the gzipped copy.
+     */
+    private DataSize cacheSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Whether to keep a gzipped copy of each encoded response, sent to clients that accept gzip.
+     */
+    private boolean gzip = true;
+
+    /**
+     * Smallest response worth gzipping, smaller ones are always sent as they are.
+     */
+    private DataSize gzipMinSize = DataSize.ofKilobytes(2);
+}
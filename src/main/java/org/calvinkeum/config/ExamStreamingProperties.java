@@ -0,0 +1,20 @@
+package org.calvinkeum.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "test-scores.api.streaming")
+public class ExamStreamingProperties {
+
+    /**
+     * Exams with at least this many students are written to the response as they are read, instead of being
+     * encoded and cached whole. 0 never streams.
+     */
+    private int minStudents = 10000;
+
+    /**
+     * Whether to gzip streamed results for clients that accept gzip.
+     */
+    private boolean gzip = true;
+}
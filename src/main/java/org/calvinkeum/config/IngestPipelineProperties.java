@@ -0,0 +1,46 @@
+package org.calvinkeum.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "test-scores.ingest.pipeline")
+public class IngestPipelineProperties {
+
+    /**
+     * Number of consumer threads, or 0 for one per available processor. Events are sharded by exam so each exam is
+     * always applied by the same consumer.
+     */
+    private int consumers = 2;
+
+    /**
+     * Capacity of each consumer's ring buffer.
+     */
+    private int bufferSize = 65_536;
+
+    /**
+     * Maximum number of events applied to the store in one batch.
+     */
+    private int batchSize = 512;
+
+    /**
+     * Longest time a partially filled batch waits for more events before it is applied.
+     */
+    private Duration flushInterval = Duration.ofMillis(50);
+
+    /**
+     * What a publisher does when a consumer's ring buffer is full.
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    public enum OverflowPolicy {
+        /** Wait for space, slowing the reader down to the speed of aggregation. */
+        BLOCK,
+        /** Drop the event being published. */
+        DROP_NEWEST,
+        /** Drop the oldest queued event to make room. */
+        DROP_OLDEST
+    }
+}
@@ -0,0 +1,57 @@
+package org.calvinkeum.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "test-scores.ingest.stream")
+public class IngestStreamProperties {
+
+    /**
+     * Whether to read the score feed at all.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Server-sent events endpoint publishing the scores.
+     */
+    private String url = "https://live-test-scores.herokuapp.com/scores";
+
+    /**
+     * Feeds to read at the same time, by source name, such as one per region. Each is read on its own thread with
+     * its own connection, parser and counters, and all of them publish into the shared ingest pipeline. When empty,
+     * only {@link #url} is read, as the source {@code default}. The timeouts and backoff apply to every source.
+     */
+    private Map<String, String> sources = new LinkedHashMap<>();
+
+    /**
+     * How many of the latest events of each source are remembered to drop ones the feed sends again, e.g. replayed
+     * after a reconnect. Events are matched on their id together with their student, exam and score; events sent
+     * without an id always pass. 0 passes every event on.
+     */
+    private int dedupWindow = 10_000;
+
+    private Duration connectTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Longest a blocked socket read may wait for bytes before the connection is dropped and retried.
+     */
+    private Duration readTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Longest the stream may stay open without delivering a score event, e.g. while only sending keep-alives,
+     * before the connection is dropped and retried.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(2);
+
+    /**
+     * Delay before the first reconnect attempt, doubled after each failed attempt up to {@link #maxBackoff}.
+     */
+    private Duration initialBackoff = Duration.ofSeconds(1);
+
+    private Duration maxBackoff = Duration.ofMinutes(1);
+}
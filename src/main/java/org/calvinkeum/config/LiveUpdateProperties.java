@@ -0,0 +1,43 @@
+package org.calvinkeum.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "test-scores.api.live")
+public class LiveUpdateProperties {
+
+    /**
+     * Window scores are coalesced over. A subscriber gets at most one update per exam or student per window,
+     * however many scores arrived in it.
+     */
+    private Duration coalesceWindow = Duration.ofSeconds(1);
+
+    /**
+     * How often idle subscribers are sent a comment, keeping proxies from closing the connection and
+     * finding the clients that went away.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(30);
+
+    /**
+     * How long a subscription stays open. Event stream clients reconnect on their own once it ends.
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+
+    /**
+     * Most subscriptions open at the same time. Further ones are turned away until others end.
+     */
+    private int maxSubscriptions = 10000;
+
+    /**
+     * Most events waiting to be written to one subscriber. A subscriber that falls further behind is dropped.
+     */
+    private int maxQueuedEvents = 32;
+
+    /**
+     * How long a write to one subscriber may take. A subscriber whose write is stuck for longer is dropped.
+     */
+    private Duration sendTimeout = Duration.ofSeconds(10);
+}
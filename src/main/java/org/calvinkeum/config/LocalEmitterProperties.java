@@ -0,0 +1,44 @@
+package org.calvinkeum.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "test-scores.ingest.local-emitter")
+public class LocalEmitterProperties {
+
+    /**
+     * Whether to serve a generated score feed from inside the application, for running without the remote feed.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Port the feed is served on, or 0 for any free port.
+     */
+    private int port = 8081;
+
+    /**
+     * Events sent per second on each connection, or 0 to send as fast as the client reads.
+     */
+    private int eventsPerSecond = 100;
+
+    /**
+     * Closes each connection after this many events to exercise reconnects, or 0 to keep it open.
+     */
+    private long disconnectAfter = 0;
+
+    /**
+     * Resends this many events before the one after {@code Last-Event-ID} when a client reconnects, as a feed
+     * replaying after a failover would, to exercise deduplication. 0 resumes right after it.
+     */
+    private long replayOnResume = 0;
+
+    /**
+     * Total number of events in the feed, or 0 for an endless feed.
+     */
+    private long maxEvents = 0;
+
+    private int students = 1_000;
+
+    private int exams = 100;
+}
@@ -0,0 +1,49 @@
+package org.calvinkeum.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "test-scores.memory")
+public class MemoryProperties {
+
+    /**
+     * Estimated heap the score store may use. Once over it, the scores of the exams updated longest ago are
+     * released, keeping their aggregates, until it fits again. Unset means no budget.
+     */
+    private DataSize budget;
+
+    /**
+     * Release the scores of exams that received no score for this long, keeping their aggregates. Unset keeps
+     * them regardless of age.
+     */
+    private Duration retentionMaxAge;
+
+    /**
+     * Keep the scores of at most this many exams, the ones updated most recently, and release the others keeping
+     * their aggregates. 0 keeps the scores of every exam.
+     */
+    private int retentionMaxExams = 0;
+
+    /**
+     * When releasing exam scores does not bring the store within its budget, the students with the most scores
+     * have all but their latest this many trimmed, oldest first, keeping their totals and windows. Trimmed scores
+     * are no longer listed among the student's exams. A student always keeps as many as the longest window over
+     * the latest scores covers.
+     */
+    private int studentScoresKept = 100;
+
+    /**
+     * How often the budget and the retention limits are checked.
+     */
+    private Duration sweepInterval = Duration.ofMinutes(1);
+
+    /**
+     * Maximum number of exam results responses cached. Each cached response keeps the exam's columns it was built
+     * from reachable.
+     */
+    private long examResultsCacheSize = 1000;
+}
@@ -0,0 +1,37 @@
+package org.calvinkeum.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "test-scores.persistence")
+public class PersistenceProperties {
+
+    /**
+     * Whether to log ingested scores to disk and restore them on startup.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory holding the event log segments and the snapshots.
+     */
+    private String directory = "data";
+
+    /**
+     * Size of each memory-mapped event log segment.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    /**
+     * How often a snapshot is written, so a restart only replays the events logged since.
+     */
+    private Duration snapshotInterval = Duration.ofMinutes(5);
+
+    /**
+     * Number of snapshots kept. Older ones and the log segments only they need are deleted.
+     */
+    private int snapshotsToKeep = 2;
+}
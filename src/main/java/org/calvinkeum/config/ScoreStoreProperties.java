@@ -0,0 +1,37 @@
+package org.calvinkeum.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "test-scores.store")
+public class ScoreStoreProperties {
+
+    /**
+     * Number of decimal digits kept for each stored score. 0 keeps the full double value,
+     * 1 to 9 store the score as a fixed-point int and halve the memory used per score. A fixed-point score must lie
+     * within plus or minus {@code Integer.MAX_VALUE / 10^precision}, e.g. about 2.147 at 9 digits; the score feeds
+     * reject events outside that range.
+     */
+    private int scorePrecision = 0;
+
+    /**
+     * Time windows every exam and student keeps a running sum and count over, such as 5m.
+     */
+    private List<Duration> windowDurations = new ArrayList<>(List.of(Duration.ofMinutes(5)));
+
+    /**
+     * Number of buckets each time window is split into. A window moves forward one bucket at a time, and every
+     * bucket costs 20 bytes per exam and student.
+     */
+    private int windowBuckets = 10;
+
+    /**
+     * Numbers of latest scores every exam and student keeps a running sum over, such as 10000.
+     */
+    private List<Integer> windowCounts = new ArrayList<>(List.of(10000));
+}
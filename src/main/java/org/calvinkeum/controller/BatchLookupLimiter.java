@@ -0,0 +1,56 @@
+package org.calvinkeum.controller;
+
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.calvinkeum.config.BatchLookupProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Charges batch lookups against the same rate limiters as the single lookups, as one call whose cost grows
+ * with the number of ids, instead of one permit per request.
+ */
+@Component
+@RequiredArgsConstructor
+public class BatchLookupLimiter {
+
+    private final RateLimiterRegistry rateLimiterRegistry;
+    private final BatchLookupProperties batchLookupProperties;
+
+    public int getMaxSize() {
+        return batchLookupProperties.getMaxSize();
+    }
+
+    /**
+     * Takes the permits a batch of {@code size} ids costs from the named rate limiter, waiting up to the
+     * limiter's timeout for them.
+     *
+     * @return false if the permits were not available in time
+     */
+    public boolean tryAcquire(String rateLimiterName, int size) {
+        RateLimiter rateLimiter = rateLimiterRegistry.rateLimiter(rateLimiterName);
+
+        return rateLimiter.acquirePermission(permitsFor(rateLimiter, size));
+    }
+
+    /**
+     * Reserves the permits a batch of {@code size} ids costs from the named rate limiter without waiting for them,
+     * for callers that must not block.
+     *
+     * @return nanoseconds to wait before the permits may be used, or a negative value if they are not available
+     *         within the limiter's timeout
+     */
+    public long reserve(String rateLimiterName, int size) {
+        RateLimiter rateLimiter = rateLimiterRegistry.rateLimiter(rateLimiterName);
+
+        return rateLimiter.reservePermission(permitsFor(rateLimiter, size));
+    }
+
+    int permitsFor(RateLimiter rateLimiter, int size) {
+        int idsPerPermit = Math.max(1, batchLookupProperties.getIdsPerPermit());
+        int permits = Math.max(1, (size + idsPerPermit - 1) / idsPerPermit);
+
+        // asking for more than one period's worth would never succeed
+        return Math.min(permits, rateLimiter.getRateLimiterConfig().getLimitForPeriod());
+    }
+}
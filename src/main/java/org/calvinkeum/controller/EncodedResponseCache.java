@@ -0,0 +1,180 @@
+package org.calvinkeum.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.calvinkeum.config.EncodedResponseProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response bodies already encoded as JSON or CBOR, and gzipped when large enough, so repeated reads of a hot exam
+ * or student are answered by copying bytes instead of serializing the response again. An entry is kept per
+ * resource and {@link WireFormat} together with the version it was built at, and rebuilt on the first read after
+ * the version moves.
+ * <p>
+ * The bytes are returned as a {@code byte[]} body, which Spring writes to the servlet output stream unchanged.
+ */
+@Component
+public class EncodedResponseCache {
+
+    private final EncodedResponseProperties properties;
+    private final Map<WireFormat, ObjectMapper> objectMappers = new EnumMap<>(WireFormat.class);
+    private final Cache<String, EncodedResponse> encodedResponses;
+
+    public EncodedResponseCache(EncodedResponseProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+
+        for (WireFormat wireFormat : WireFormat.values()) {
+            objectMappers.put(wireFormat, wireFormat.mapperFor(objectMapper));
+        }
+
+        this.encodedResponses = Caffeine.newBuilder()
+            .maximumWeight(properties.getCacheSize().toBytes())
+            .weigher((String key, EncodedResponse encodedResponse) -> encodedResponse.weight())
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Returns a 200 response carrying the resource's body at {@code version}, encoded from the cache if it was
+     * encoded at that version already, or from {@code body} otherwise.
+     *
+     * @param kind           the kind of resource, such as {@code exam}
+     * @param id             identifies the resource among those of its kind
+     * @param version        the resource's version, read before {@code body} is called
+     * @param eTag           the tag of the plain body in {@code wireFormat}, a gzipped body is sent with
+     *                       {@link EntityTags#gzipped}
+     * @param wireFormat     the format negotiated for the request
+     * @param acceptEncoding the request's {@code Accept-Encoding} header, may be null
+     * @return null if {@code body} returns null
+     */
+    public ResponseEntity<byte[]> ok(String kind, Object id, long version, String eTag, WireFormat wireFormat,
+                                     String acceptEncoding, Supplier<?> body) {
+        String key = kind + ":" + id + ":" + wireFormat;
+        EncodedResponse encodedResponse = encodedResponses.getIfPresent(key);
+
+        if (encodedResponse == null || encodedResponse.version != version) {
+            Object response = body.get();
+
+            if (response == null) {
+                return null;
+            }
+
+            encodedResponse = encode(version, response, objectMappers.get(wireFormat));
+            encodedResponses.put(key, encodedResponse);
+        }
+
+        ResponseEntity.BodyBuilder builder = EntityTags.ok(wireFormat).varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+
+        if (encodedResponse.gzipped != null && acceptsGzip(acceptEncoding)) {
+            return builder.eTag(EntityTags.gzipped(eTag))
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .contentLength(encodedResponse.gzipped.length)
+                .body(encodedResponse.gzipped);
+        }
+
+        return builder.eTag(eTag).contentLength(encodedResponse.bytes.length).body(encodedResponse.bytes);
+    }
+
+    public long getHitCount() {
+        return encodedResponses.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return encodedResponses.stats().missCount();
+    }
+
+    /**
+     * Returns the bytes held, as weighed against the cache size.
+     */
+    public long getWeight() {
+        return encodedResponses.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    private EncodedResponse encode(long version, Object response, ObjectMapper objectMapper) {
+        byte[] bytes;
+
+        try {
+            bytes = objectMapper.writeValueAsBytes(response);
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode " + response.getClass().getSimpleName(), e);
+        }
+
+        byte[] gzipped = properties.isGzip() && bytes.length >= properties.getGzipMinSize().toBytes() ? gzip(bytes) : null;
+
+        return new EncodedResponse(version, bytes, gzipped);
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream(bytes.length / 4 + 64);
+
+        // the fastest level already shrinks score lists several times over, higher ones mostly cost time
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzipped) {{ def.setLevel(Deflater.BEST_SPEED); }}) {
+            gzipOutputStream.write(bytes);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return gzipped.toByteArray();
+    }
+
+    /**
+     * Returns whether an {@code Accept-Encoding} header value allows gzip. Only an explicit {@code q=0} rules it
+     * out, a wildcard is not honoured, as sending the plain body is always allowed.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String candidate : acceptEncoding.split(",")) {
+            String[] parts = candidate.split(";");
+
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].replace(" ", "");
+
+                if (parameter.startsWith("q=") && parameter.substring(2).matches("0(\\.0*)?")) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    private static class EncodedResponse {
+        private final long version;
+        private final byte[] bytes;
+        private final byte[] gzipped;
+
+        private EncodedResponse(long version, byte[] bytes, byte[] gzipped) {
+            this.version = version;
+            this.bytes = bytes;
+            this.gzipped = gzipped;
+        }
+
+        private int weight() {
+            return bytes.length + (gzipped == null ? 0 : gzipped.length);
+        }
+    }
+}
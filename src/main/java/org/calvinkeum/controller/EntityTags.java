@@ -0,0 +1,114 @@
+package org.calvinkeum.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Locale;
+
+/**
+ * Strong ETags built from the store's version counters, so a conditional GET can be answered before the
+ * response is built or serialized. Shared with the reactive controllers.
+ * <p>
+ * Every wire format and content coding of a body is a representation of its own, so a CBOR body carries its own
+ * tag, see {@link #of(String, long, WireFormat)}, and so does a gzipped one, see {@link #gzipped(String)}. Every
+ * response picked by {@code Accept}, 304s included, says so with {@code Vary}, so shared caches keep the formats
+ * apart.
+ */
+public final class EntityTags {
+    // versions start over when the process restarts, so tags handed out by an earlier run must never match
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private EntityTags() {
+    }
+
+    public static String of(String kind, long version) {
+        return "\"" + kind + "-" + EPOCH + "-" + version + "\"";
+    }
+
+    /**
+     * Returns the tag of the resource's body in a wire format, the plain tag for JSON and one ending in the
+     * format's name, such as {@code -cbor}, for the others.
+     */
+    public static String of(String kind, long version, WireFormat wireFormat) {
+        String eTag = of(kind, version);
+
+        if (wireFormat == WireFormat.JSON) {
+            return eTag;
+        }
+
+        return eTag.substring(0, eTag.length() - 1) + "-" + wireFormat.name().toLowerCase(Locale.ROOT) + "\"";
+    }
+
+    /**
+     * Returns the tag of the gzip-coded variant of the representation tagged {@code eTag}.
+     */
+    public static String gzipped(String eTag) {
+        return eTag.substring(0, eTag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * Returns whether an {@code If-None-Match} header value matches the tag. The header may list several tags,
+     * which are compared ignoring a weak prefix as the header requires. {@code *} is not honoured: answering it
+     * would need a lookup of its own, and a full response is always a valid answer.
+     */
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+
+            if (candidate.equals(eTag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Starts a 200 response whose body is written in {@code wireFormat}, the one {@link WireFormat#negotiate} picked
+     * for the request, so the body always matches the tag built for that format. A body that also varies by
+     * coding replaces the {@code Vary} header with {@code varyBy}.
+     */
+    public static ResponseEntity.BodyBuilder ok(WireFormat wireFormat) {
+        return ResponseEntity.ok()
+            .contentType(wireFormat.getMediaType())
+            .varyBy(HttpHeaders.ACCEPT);
+    }
+
+    public static ResponseEntity<?> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            .eTag(eTag)
+            .varyBy(HttpHeaders.ACCEPT)
+            .build();
+    }
+
+    /**
+     * Answers a conditional GET for a body that may be sent gzipped: returns a 304 when {@code If-None-Match} holds
+     * the tag of the plain body, or of the gzipped one if the request accepts gzip, naming the variant the client
+     * holds. Returns null when neither matches and the body has to be sent.
+     *
+     * @param acceptEncoding the request's {@code Accept-Encoding} header, may be null
+     */
+    public static ResponseEntity<?> notModified(String ifNoneMatch, String eTag, String acceptEncoding) {
+        String matched = matches(ifNoneMatch, eTag) ? eTag
+            : EncodedResponseCache.acceptsGzip(acceptEncoding) && matches(ifNoneMatch, gzipped(eTag)) ? gzipped(eTag)
+            : null;
+
+        if (matched == null) {
+            return null;
+        }
+
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            .eTag(matched)
+            .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+            .build();
+    }
+}
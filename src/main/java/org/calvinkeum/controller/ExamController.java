@@ -11,13 +11,22 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.calvinkeum.dto.ExamAvgScoreResponse;
+import org.calvinkeum.dto.ExamBatchRequest;
+import org.calvinkeum.dto.ExamBatchResponse;
+import org.calvinkeum.dto.ExamDistributionResponse;
 import org.calvinkeum.dto.ExamPaginationResponse;
+import org.calvinkeum.dto.ExamRankResponse;
 import org.calvinkeum.dto.ExamResponse;
+import org.calvinkeum.dto.ExamScorePageResponse;
+import org.calvinkeum.dto.ExamWindowResponse;
 import org.calvinkeum.service.ExamService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @Tag(name = "Exam", description = "Exam APIs")
 @RestController
 @RequestMapping("/api/v1/exams")
@@ -26,45 +35,230 @@ import org.springframework.web.bind.annotation.*;
 public class ExamController {
 
     private final ExamService examService;
+    private final BatchLookupLimiter batchLookupLimiter;
+    private final EncodedResponseCache encodedResponseCache;
+    private final ExamResultsStreamer<?> examResultsStreamer;
 
     @Operation(summary = "Get all Exams")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Found exams", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ExamResponse.class)) }),
+        @ApiResponse(responseCode = "304", description = "No exam was added since the ETag sent in If-None-Match", content = @Content),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor supplied", content = @Content),
         @ApiResponse(responseCode = "404", description = "Exams not found", content = @Content), })
         @ApiResponse(responseCode = "429", description = "Too Many Requests", content = @Content)
     @RateLimiter(name = "exam", fallbackMethod = "examFallbackMethod")
     @GetMapping
     public ResponseEntity<?> getAllExams(@RequestParam(defaultValue = "0") int skip,
                                          @RequestParam(defaultValue = "20") int limit,
-                                         @RequestParam(defaultValue = "ASC") String sort_order) {
-        log.info("GET /api/exams with skip={}, limit={}, sort_order={}",
-                skip, limit, sort_order);
-        ExamPaginationResponse examPaginationResponse = examService.getAllExams(skip, limit, sort_order);
+                                         @RequestParam(defaultValue = "ASC") String sort_order,
+                                         @RequestParam(required = false) String after,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        log.debug("GET /api/exams with skip={}, limit={}, sort_order={}, after={}",
+                skip, limit, sort_order, after);
+
+        // read the version before the data, so the tag never claims more than the body holds
+        long version = examService.getExamsVersion();
+        WireFormat wireFormat = WireFormat.negotiate(accept);
+        String eTag = EntityTags.of("exams", version, wireFormat);
+
+        if (version > 0 && EntityTags.matches(ifNoneMatch, eTag)) {
+            return EntityTags.notModified(eTag);
+        }
+
+        ExamPaginationResponse examPaginationResponse;
+
+        try {
+            examPaginationResponse = examService.getAllExams(skip, limit, sort_order, after);
+        }
+        catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid cursor supplied.");
+        }
 
         if (examPaginationResponse == null || examPaginationResponse.getTotalExams() == 0) {
             return ResponseEntity.status(HttpStatus.NO_CONTENT).body("No results found.");
         }
 
-        return ResponseEntity.ok(examPaginationResponse);
+        return EntityTags.ok(wireFormat).eTag(eTag).body(examPaginationResponse);
     }
 
-    @Operation(summary = "Retrieve the exam details based on its unique identifier, includes the individual student scores and the average score calculated across all students.")
+    @Operation(summary = "Retrieve the exam details based on its unique identifier, includes the individual student scores and the average score calculated across all students. "
+        + "Pass order_by=score to page through the students by score instead, or a window such as window=5m or window=10000 "
+        + "for the number and average of the scores received in the last 5 minutes or the last 10000 scores.")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Found the Exam", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ExamAvgScoreResponse.class)) }),
-        @ApiResponse(responseCode = "400", description = "Invalid number supplied", content = @Content),
+        @ApiResponse(responseCode = "200", description = "Found the Exam", content = {
+            @Content(mediaType = "application/json", schema = @Schema(implementation = ExamAvgScoreResponse.class)),
+            @Content(mediaType = "application/json", schema = @Schema(implementation = ExamScorePageResponse.class)),
+            @Content(mediaType = "application/json", schema = @Schema(implementation = ExamWindowResponse.class)) }),
+        @ApiResponse(responseCode = "304", description = "No score was added to the Exam since the ETag sent in If-None-Match", content = @Content),
+        @ApiResponse(responseCode = "400", description = "Invalid number, order_by or window supplied", content = @Content),
         @ApiResponse(responseCode = "404", description = "Exam not found", content = @Content), })
         @ApiResponse(responseCode = "429", description = "Too Many Requests", content = @Content)
     @RateLimiter(name = "exam", fallbackMethod = "examFallbackMethod")
     @GetMapping("/{number}")
-    public ResponseEntity<?> getExamResults(@PathVariable Integer number) {
-        log.info("GET /api/exams/{number}");
+    public ResponseEntity<?> getExamResults(@PathVariable Integer number,
+                                            @RequestParam(required = false) String order_by,
+                                            @RequestParam(defaultValue = "0") int skip,
+                                            @RequestParam(defaultValue = "100") int limit,
+                                            @RequestParam(defaultValue = "DESC") String sort_order,
+                                            @RequestParam(required = false) String window,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.debug("GET /api/exams/{number} with order_by={}, window={}", order_by, window);
+
+        if (order_by != null && !"score".equalsIgnoreCase(order_by)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid order_by supplied.");
+        }
+
+        WireFormat wireFormat = WireFormat.negotiate(accept);
+
+        // a time window moves on without any new score, so window responses carry no ETag
+        if (window != null) {
+            if (order_by != null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("order_by cannot be combined with window.");
+            }
+
+            ExamWindowResponse examWindowResponse;
+
+            try {
+                examWindowResponse = examService.getExamWindow(number, window);
+            }
+            catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid window supplied, expected one of " + examService.getWindows() + ".");
+            }
+
+            if (examWindowResponse == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No results found for the provided number.");
+            }
+
+            return EntityTags.ok(wireFormat).body(examWindowResponse);
+        }
+
+        long version = examService.getExamVersion(number);
+        String eTag = EntityTags.of("exam", version, wireFormat);
+
+        // only the full results are ever sent gzipped, under a tag of their own
+        ResponseEntity<?> notModified = version > 0
+            ? EntityTags.notModified(ifNoneMatch, eTag, order_by == null ? acceptEncoding : null)
+            : null;
+
+        if (notModified != null) {
+            return notModified;
+        }
+
+        if (order_by != null) {
+            ExamScorePageResponse examScorePageResponse = examService.getExamResultsByScore(number, skip, limit, sort_order);
+
+            if (examScorePageResponse == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No results found for the provided number.");
+            }
+
+            return EntityTags.ok(wireFormat).eTag(eTag).body(examScorePageResponse);
+        }
+
         ExamAvgScoreResponse examAvgScoreResponse = examService.getExamResults(number);
 
         if (examAvgScoreResponse == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No results found for the provided number.");
         }
 
-        return ResponseEntity.ok(examAvgScoreResponse);
+        // large exams are written as they are read instead of being encoded whole
+        if (examResultsStreamer.shouldStream(examAvgScoreResponse)) {
+            return examResultsStreamer.stream(examAvgScoreResponse, eTag, wireFormat, acceptEncoding);
+        }
+
+        // otherwise the encoded bytes are reused until the exam changes
+        if (version > 0) {
+            return encodedResponseCache.ok("exam", number, version, eTag, wireFormat, acceptEncoding, () -> examAvgScoreResponse);
+        }
+
+        return EntityTags.ok(wireFormat).eTag(eTag).body(examAvgScoreResponse);
+    }
+
+    @Operation(summary = "Get the distribution of an exam's scores: the median, p10, p90 and p99 and a histogram of the scores in bins of binWidth, "
+        + "counting each student's latest score")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Found the Exam", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ExamDistributionResponse.class)) }),
+        @ApiResponse(responseCode = "304", description = "No score was added to the Exam since the ETag sent in If-None-Match", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Exam not found", content = @Content),
+        @ApiResponse(responseCode = "429", description = "Too Many Requests", content = @Content)})
+    @RateLimiter(name = "exam", fallbackMethod = "examFallbackMethod")
+    @GetMapping("/{number}/distribution")
+    public ResponseEntity<?> getExamDistribution(@PathVariable Integer number,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        log.debug("GET /api/exams/{number}/distribution called...");
+        long version = examService.getExamVersion(number);
+        WireFormat wireFormat = WireFormat.negotiate(accept);
+        String eTag = EntityTags.of("exam", version, wireFormat);
+
+        if (version > 0 && EntityTags.matches(ifNoneMatch, eTag)) {
+            return EntityTags.notModified(eTag);
+        }
+
+        ExamDistributionResponse examDistributionResponse = examService.getExamDistribution(number);
+
+        if (examDistributionResponse == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No results found for the provided number.");
+        }
+
+        return EntityTags.ok(wireFormat).eTag(eTag).body(examDistributionResponse);
+    }
+
+    @Operation(summary = "Get a Student's score, rank and percentile on an exam")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Found the Student's score", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ExamRankResponse.class)) }),
+        @ApiResponse(responseCode = "304", description = "No score was added to the Exam since the ETag sent in If-None-Match", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Exam or Student score not found", content = @Content),
+        @ApiResponse(responseCode = "429", description = "Too Many Requests", content = @Content)})
+    @RateLimiter(name = "exam", fallbackMethod = "examFallbackMethod")
+    @GetMapping("/{number}/students/{id}")
+    public ResponseEntity<?> getStudentExamRank(@PathVariable Integer number, @PathVariable String id,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        log.debug("GET /api/exams/{number}/students/{id} called...");
+        long version = examService.getExamVersion(number);
+        WireFormat wireFormat = WireFormat.negotiate(accept);
+        String eTag = EntityTags.of("exam", version, wireFormat);
+
+        if (version > 0 && EntityTags.matches(ifNoneMatch, eTag)) {
+            return EntityTags.notModified(eTag);
+        }
+
+        ExamRankResponse examRankResponse = examService.getStudentExamRank(number, id);
+
+        if (examRankResponse == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No results found for the provided number and id.");
+        }
+
+        return EntityTags.ok(wireFormat).eTag(eTag).body(examRankResponse);
+    }
+
+    @Operation(summary = "Get the average, lowest and highest score and number of Students of up to test-scores.api.batch.max-size Exams in one call, in the order requested. "
+        + "The call takes one rate limit permit per started group of test-scores.api.batch.ids-per-permit exams.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Looked up the exams, the ones without scores are listed in notFound", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = ExamBatchResponse.class)) }),
+        @ApiResponse(responseCode = "400", description = "No exams or too many exams supplied", content = @Content),
+        @ApiResponse(responseCode = "429", description = "Too Many Requests", content = @Content)})
+    @PostMapping("/batch")
+    public ResponseEntity<?> getExamSummaries(@RequestBody ExamBatchRequest request) {
+        List<Integer> exams = request == null ? null : request.getExams();
+        log.debug("POST /api/exams/batch called with {} exams", exams == null ? 0 : exams.size());
+
+        if (exams == null || exams.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("No exams supplied.");
+        }
+
+        if (exams.size() > batchLookupLimiter.getMaxSize()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Too many exams supplied, at most " + batchLookupLimiter.getMaxSize() + " are allowed.");
+        }
+
+        if (!batchLookupLimiter.tryAcquire("exam", exams.size())) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body("Rate limit exceeded. Please try again later.");
+        }
+
+        return ResponseEntity.ok(examService.getExamSummaries(exams));
     }
 
     public ResponseEntity<?> examFallbackMethod(Throwable throwable) {
@@ -0,0 +1,111 @@
+package org.calvinkeum.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.calvinkeum.config.ExamStreamingProperties;
+import org.calvinkeum.dto.ExamAvgScoreResponse;
+import org.calvinkeum.dto.StudentScoreResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the results of large exams to the response one student at a time, straight from the columns the
+ * response is backed by, so a request needs the same memory whatever the exam's size. The body holds the same
+ * fields, in the negotiated {@link WireFormat}, as when the whole response is encoded at once, without a
+ * {@code Content-Length}.
+ * <p>
+ * Each web stack hands the writer an output stream its own way, so each has a subclass building its body type
+ * around {@link BodyWriter}: {@link ServletExamResultsStreamer} here, and one on the reactive side.
+ *
+ * @param <B> the type of the streamed body
+ */
+public abstract class ExamResultsStreamer<B> {
+
+    private final int minStudents;
+    private final boolean gzip;
+    private final Map<WireFormat, ObjectMapper> objectMappers = new EnumMap<>(WireFormat.class);
+
+    protected ExamResultsStreamer(ExamStreamingProperties properties, ObjectMapper objectMapper) {
+        this.minStudents = properties.getMinStudents();
+        this.gzip = properties.isGzip();
+
+        for (WireFormat wireFormat : WireFormat.values()) {
+            objectMappers.put(wireFormat, wireFormat.mapperFor(objectMapper));
+        }
+    }
+
+    /**
+     * Returns whether the response holds enough students to be streamed rather than encoded whole.
+     */
+    public boolean shouldStream(ExamAvgScoreResponse examAvgScoreResponse) {
+        List<StudentScoreResponse> students = examAvgScoreResponse.getStudents();
+
+        return minStudents > 0 && students != null && students.size() >= minStudents;
+    }
+
+    /**
+     * Returns a 200 response that writes the exam's results once the web stack hands it an output stream.
+     *
+     * @param eTag           the tag of the plain body in {@code wireFormat}, a gzipped body is sent with
+     *                       {@link EntityTags#gzipped}
+     * @param wireFormat     the format negotiated for the request
+     * @param acceptEncoding the request's {@code Accept-Encoding} header, may be null
+     */
+    public ResponseEntity<B> stream(ExamAvgScoreResponse examAvgScoreResponse, String eTag, WireFormat wireFormat,
+                                    String acceptEncoding) {
+        ObjectMapper objectMapper = objectMappers.get(wireFormat);
+        ResponseEntity.BodyBuilder builder = EntityTags.ok(wireFormat).varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+
+        if (gzip && EncodedResponseCache.acceptsGzip(acceptEncoding)) {
+            return builder.eTag(EntityTags.gzipped(eTag)).header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body(outputStream -> {
+                // the fastest level keeps up with the network, and finish() writes the trailer without closing the stream
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, 8192) {{ def.setLevel(Deflater.BEST_SPEED); }};
+                write(examAvgScoreResponse, objectMapper, gzipOutputStream);
+                gzipOutputStream.finish();
+            }));
+        }
+
+        return builder.eTag(eTag).body(body(outputStream -> write(examAvgScoreResponse, objectMapper, outputStream)));
+    }
+
+    /**
+     * Wraps the writer in the body type of the web stack, which calls it with the response's output stream.
+     */
+    protected abstract B body(BodyWriter bodyWriter);
+
+    private static void write(ExamAvgScoreResponse examAvgScoreResponse, ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+        // the web stack owns the stream, the generator only flushes its buffer into it
+        try (JsonGenerator generator = objectMapper.createGenerator(outputStream).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.writeStartObject();
+            generator.writeObjectField("exam", examAvgScoreResponse.getExam());
+            generator.writeArrayFieldStart("students");
+
+            // elements of the backed list are built as they are read and dropped once written
+            for (StudentScoreResponse student : examAvgScoreResponse.getStudents()) {
+                generator.writeObject(student);
+            }
+
+            generator.writeEndArray();
+            generator.writeObjectField("averageScore", examAvgScoreResponse.getAverageScore());
+            generator.writeObjectField("minScore", examAvgScoreResponse.getMinScore());
+            generator.writeObjectField("maxScore", examAvgScoreResponse.getMaxScore());
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Writes a streamed body to the output stream it is given.
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+}
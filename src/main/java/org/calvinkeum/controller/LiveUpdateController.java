@@ -0,0 +1,74 @@
+package org.calvinkeum.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.calvinkeum.dto.ExamSummaryResponse;
+import org.calvinkeum.dto.StudentAvgScoreResponse;
+import org.calvinkeum.service.LiveUpdateService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@Tag(name = "Live", description = "Live update APIs")
+@RestController
+@RequestMapping("/api/v1/live")
+@RequiredArgsConstructor
+@Slf4j
+public class LiveUpdateController {
+
+    private final LiveUpdateService liveUpdateService;
+    private final BatchLookupLimiter batchLookupLimiter;
+
+    @Operation(summary = "Subscribe to the summaries of exams and the average scores of Students as an event stream. "
+        + "The current values are sent first as exam and student events, followed by at most one update per exam or Student "
+        + "per test-scores.api.live.coalesce-window. The call takes rate limit permits like a batch lookup of the same size.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Subscribed", content = {
+            @Content(mediaType = "text/event-stream", schema = @Schema(implementation = ExamSummaryResponse.class)),
+            @Content(mediaType = "text/event-stream", schema = @Schema(implementation = StudentAvgScoreResponse.class)) }),
+        @ApiResponse(responseCode = "400", description = "No exams or students, or too many, supplied", content = @Content),
+        @ApiResponse(responseCode = "429", description = "Too Many Requests", content = @Content),
+        @ApiResponse(responseCode = "503", description = "Too many subscriptions open", content = @Content)})
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam(required = false) List<Integer> exams,
+                                @RequestParam(required = false) List<String> students) {
+        exams = exams == null ? List.of() : exams;
+        students = students == null ? List.of() : students;
+        int size = exams.size() + students.size();
+        log.debug("GET /api/live called with {} exams and {} students", exams.size(), students.size());
+
+        // the emitter has not started the response yet, so errors still get their own status
+        if (size == 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No exams or students supplied.");
+        }
+
+        if (size > batchLookupLimiter.getMaxSize()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Too many exams and students supplied, at most " + batchLookupLimiter.getMaxSize() + " are allowed.");
+        }
+
+        if (!batchLookupLimiter.tryAcquire("live", size)) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Rate limit exceeded. Please try again later.");
+        }
+
+        SseEmitter emitter = liveUpdateService.subscribe(exams, students);
+
+        if (emitter == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many subscriptions open. Please try again later.");
+        }
+
+        return emitter;
+    }
+}
@@ -0,0 +1,25 @@
+package org.calvinkeum.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.calvinkeum.config.ExamStreamingProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Streams large exam results as a {@link StreamingResponseBody}, written on the request thread by
+ * {@link StreamingResponseBodyConverter}.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ServletExamResultsStreamer extends ExamResultsStreamer<StreamingResponseBody> {
+
+    public ServletExamResultsStreamer(ExamStreamingProperties properties, ObjectMapper objectMapper) {
+        super(properties, objectMapper);
+    }
+
+    @Override
+    protected StreamingResponseBody body(BodyWriter bodyWriter) {
+        return bodyWriter::writeTo;
+    }
+}
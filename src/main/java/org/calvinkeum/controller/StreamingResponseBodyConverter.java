@@ -0,0 +1,46 @@
+package org.calvinkeum.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link StreamingResponseBody} returned from a {@code ResponseEntity<?>} handler, which Spring only
+ * recognizes itself when the body type is declared. The body is written on the request thread, straight to the
+ * response's output stream. Only registered on the servlet stack, which provides {@link StreamingResponseBody}.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class StreamingResponseBodyConverter extends AbstractHttpMessageConverter<StreamingResponseBody> {
+
+    public StreamingResponseBodyConverter() {
+        super(MediaType.ALL);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return StreamingResponseBody.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected StreamingResponseBody readInternal(Class<? extends StreamingResponseBody> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("A streaming body cannot be read", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(StreamingResponseBody streamingResponseBody, HttpOutputMessage outputMessage) throws IOException {
+        streamingResponseBody.writeTo(outputMessage.getBody());
+    }
+}
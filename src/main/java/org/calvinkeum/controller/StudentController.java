@@ -11,9 +11,16 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.calvinkeum.dto.StudentAvgScoreResponse;
+import org.calvinkeum.dto.StudentBatchRequest;
+import org.calvinkeum.dto.StudentBatchResponse;
+import org.calvinkeum.dto.StudentExamPageResponse;
 import org.calvinkeum.dto.StudentPaginationResponse;
+import org.calvinkeum.dto.StudentRankPageResponse;
+import org.calvinkeum.dto.StudentRankResponse;
 import org.calvinkeum.dto.StudentResponse;
+import org.calvinkeum.dto.StudentWindowResponse;
 import org.calvinkeum.service.StudentService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -28,45 +35,236 @@ import java.util.List;
 public class StudentController {
 
     private final StudentService studentService;
+    private final BatchLookupLimiter batchLookupLimiter;
+    private final EncodedResponseCache encodedResponseCache;
 
-    @Operation(summary = "Get all Students that have received at least one test score")
+    @Operation(summary = "Get all Students that have received at least one test score. "
+        + "Pass order_by=average to page through the leaderboard of averages instead, highest first by default.")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Found Students", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = StudentResponse.class)) }),
+        @ApiResponse(responseCode = "200", description = "Found Students", content = {
+            @Content(mediaType = "application/json", schema = @Schema(implementation = StudentResponse.class)),
+            @Content(mediaType = "application/json", schema = @Schema(implementation = StudentRankPageResponse.class)) }),
+        @ApiResponse(responseCode = "304", description = "The listing did not change since the ETag sent in If-None-Match", content = @Content),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or order_by supplied", content = @Content),
         @ApiResponse(responseCode = "404", description = "Students not found", content = @Content),
         @ApiResponse(responseCode = "429", description = "Too Many Requests", content = @Content)})
     @RateLimiter(name = "student", fallbackMethod = "studentFallbackMethod")
     @GetMapping
     public ResponseEntity<?> getAllStudents(@RequestParam(defaultValue = "0") int skip,
                                             @RequestParam(defaultValue = "20") int limit,
-                                            @RequestParam(defaultValue = "ASC") String sort_order) {
-        log.info("GET /api/students called with skip={}, limit={}, sort_order={}",
-                skip, limit, sort_order);
-        StudentPaginationResponse studentPaginationResponse = studentService.getAllStudents(skip, limit, sort_order);
+                                            @RequestParam(required = false) String sort_order,
+                                            @RequestParam(required = false) String after,
+                                            @RequestParam(required = false) String order_by,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        log.debug("GET /api/students called with skip={}, limit={}, sort_order={}, after={}, order_by={}",
+                skip, limit, sort_order, after, order_by);
+        WireFormat wireFormat = WireFormat.negotiate(accept);
+
+        if ("average".equalsIgnoreCase(order_by)) {
+            // cursors hold a student id, which says nothing about a position in the leaderboard
+            if (after != null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid cursor supplied.");
+            }
+
+            long version = studentService.getLeaderboardVersion();
+            String eTag = EntityTags.of("leaderboard", version, wireFormat);
+
+            if (version > 0 && EntityTags.matches(ifNoneMatch, eTag)) {
+                return EntityTags.notModified(eTag);
+            }
+
+            StudentRankPageResponse studentRankPageResponse = studentService.getStudentsByAverage(skip, limit, sort_order);
+
+            if (studentRankPageResponse.getTotalStudents() == 0) {
+                return ResponseEntity.status(HttpStatus.NO_CONTENT).body("No results found.");
+            }
+
+            return EntityTags.ok(wireFormat).eTag(eTag).body(studentRankPageResponse);
+        }
+
+        if (order_by != null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid order_by supplied.");
+        }
+
+        // read the version before the data, so the tag never claims more than the body holds
+        long version = studentService.getStudentsVersion();
+        String eTag = EntityTags.of("students", version, wireFormat);
+
+        if (version > 0 && EntityTags.matches(ifNoneMatch, eTag)) {
+            return EntityTags.notModified(eTag);
+        }
+
+        StudentPaginationResponse studentPaginationResponse;
+
+        try {
+            studentPaginationResponse = studentService.getAllStudents(skip, limit, sort_order, after);
+        }
+        catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid cursor supplied.");
+        }
 
         if (studentPaginationResponse == null || studentPaginationResponse.getTotalStudents() == 0) {
             return ResponseEntity.status(HttpStatus.NO_CONTENT).body("No results found.");
         }
 
-        return ResponseEntity.ok(studentPaginationResponse);
+        return EntityTags.ok(wireFormat).eTag(eTag).body(studentPaginationResponse);
     }
 
-    @Operation(summary = "Get a Student's average score across all exams")
+    @Operation(summary = "Get a Student's average score across all exams. "
+        + "Pass a window such as window=5m or window=10000 for the number and average of the scores received in the last 5 minutes or the last 10000 scores.")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Found the Student", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = StudentAvgScoreResponse.class)) }),
-        @ApiResponse(responseCode = "400", description = "Invalid id supplied", content = @Content),
+        @ApiResponse(responseCode = "200", description = "Found the Student", content = {
+            @Content(mediaType = "application/json", schema = @Schema(implementation = StudentAvgScoreResponse.class)),
+            @Content(mediaType = "application/json", schema = @Schema(implementation = StudentWindowResponse.class)) }),
+        @ApiResponse(responseCode = "304", description = "No score was added for the Student since the ETag sent in If-None-Match", content = @Content),
+        @ApiResponse(responseCode = "400", description = "Invalid id or window supplied", content = @Content),
         @ApiResponse(responseCode = "404", description = "Student not found", content = @Content), })
         @ApiResponse(responseCode = "429", description = "Too Many Requests", content = @Content)
     @RateLimiter(name = "student", fallbackMethod = "studentFallbackMethod")
     @GetMapping("/{id}")
-    public ResponseEntity<?> getStudentAverageScore(@PathVariable String id) {
-        log.info("GET /api/students/{id} called...");
+    public ResponseEntity<?> getStudentAverageScore(@PathVariable String id,
+                                                    @RequestParam(required = false) String window,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                    @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.debug("GET /api/students/{id} called with window={}", window);
+        WireFormat wireFormat = WireFormat.negotiate(accept);
+
+        // a time window moves on without any new score, so window responses carry no ETag
+        if (window != null) {
+            StudentWindowResponse studentWindowResponse;
+
+            try {
+                studentWindowResponse = studentService.getStudentWindow(id, window);
+            }
+            catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid window supplied, expected one of " + studentService.getWindows() + ".");
+            }
+
+            if (studentWindowResponse == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No results found for the provided id.");
+            }
+
+            return EntityTags.ok(wireFormat).body(studentWindowResponse);
+        }
+
+        long version = studentService.getStudentVersion(id);
+        String eTag = EntityTags.of("student", version, wireFormat);
+        ResponseEntity<?> notModified = version > 0 ? EntityTags.notModified(ifNoneMatch, eTag, acceptEncoding) : null;
+
+        if (notModified != null) {
+            return notModified;
+        }
+
+        // the most requested student response, so its encoded bytes are reused until the student's next score
+        if (version > 0) {
+            ResponseEntity<byte[]> encodedResponse = encodedResponseCache.ok("student", id, version, eTag, wireFormat, acceptEncoding,
+                () -> studentService.getStudentAverageScore(id));
+
+            if (encodedResponse == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No results found for the provided id.");
+            }
+
+            return encodedResponse;
+        }
+
         StudentAvgScoreResponse studentAvgScoreResponse = studentService.getStudentAverageScore(id);
 
         if (studentAvgScoreResponse == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No results found for the provided id.");
         }
 
-        return ResponseEntity.ok(studentAvgScoreResponse);
+        return EntityTags.ok(wireFormat).eTag(eTag).body(studentAvgScoreResponse);
+    }
+
+    @Operation(summary = "Get a Student's exam scores in the order they were received, newest first for sort_order=desc")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Found the Student", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = StudentExamPageResponse.class)) }),
+        @ApiResponse(responseCode = "304", description = "No score was added for the Student since the ETag sent in If-None-Match", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Student not found", content = @Content),
+        @ApiResponse(responseCode = "429", description = "Too Many Requests", content = @Content)})
+    @RateLimiter(name = "student", fallbackMethod = "studentFallbackMethod")
+    @GetMapping("/{id}/exams")
+    public ResponseEntity<?> getStudentExams(@PathVariable String id,
+                                             @RequestParam(defaultValue = "0") int skip,
+                                             @RequestParam(defaultValue = "100") int limit,
+                                             @RequestParam(defaultValue = "ASC") String sort_order,
+                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        log.debug("GET /api/students/{id}/exams called with skip={}, limit={}, sort_order={}", skip, limit, sort_order);
+        WireFormat wireFormat = WireFormat.negotiate(accept);
+        long version = studentService.getStudentVersion(id);
+        String eTag = EntityTags.of("student", version, wireFormat);
+
+        if (version > 0 && EntityTags.matches(ifNoneMatch, eTag)) {
+            return EntityTags.notModified(eTag);
+        }
+
+        StudentExamPageResponse studentExamPageResponse = studentService.getStudentExams(id, skip, limit, sort_order);
+
+        if (studentExamPageResponse == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No results found for the provided id.");
+        }
+
+        return EntityTags.ok(wireFormat).eTag(eTag).body(studentExamPageResponse);
+    }
+
+    @Operation(summary = "Get a Student's average score and rank among all Students")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Found the Student", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = StudentRankResponse.class)) }),
+        @ApiResponse(responseCode = "304", description = "No score was added for any Student since the ETag sent in If-None-Match", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Student not found", content = @Content),
+        @ApiResponse(responseCode = "429", description = "Too Many Requests", content = @Content)})
+    @RateLimiter(name = "student", fallbackMethod = "studentFallbackMethod")
+    @GetMapping("/{id}/rank")
+    public ResponseEntity<?> getStudentRank(@PathVariable String id,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        log.debug("GET /api/students/{id}/rank called...");
+        WireFormat wireFormat = WireFormat.negotiate(accept);
+
+        // a rank moves whenever any student's average does
+        long version = studentService.getLeaderboardVersion();
+        String eTag = EntityTags.of("leaderboard", version, wireFormat);
+
+        if (version > 0 && EntityTags.matches(ifNoneMatch, eTag)) {
+            return EntityTags.notModified(eTag);
+        }
+
+        StudentRankResponse studentRankResponse = studentService.getStudentRank(id);
+
+        if (studentRankResponse == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No results found for the provided id.");
+        }
+
+        return EntityTags.ok(wireFormat).eTag(eTag).body(studentRankResponse);
+    }
+
+    @Operation(summary = "Get the average scores of up to test-scores.api.batch.max-size Students in one call, in the order requested. "
+        + "The call takes one rate limit permit per started group of test-scores.api.batch.ids-per-permit ids.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Looked up the ids, the ones without scores are listed in notFound", content = { @Content(mediaType = "application/json", schema = @Schema(implementation = StudentBatchResponse.class)) }),
+        @ApiResponse(responseCode = "400", description = "No ids or too many ids supplied", content = @Content),
+        @ApiResponse(responseCode = "429", description = "Too Many Requests", content = @Content)})
+    @PostMapping("/batch")
+    public ResponseEntity<?> getStudentAverageScores(@RequestBody StudentBatchRequest request) {
+        List<String> studentIds = request == null ? null : request.getStudentIds();
+        log.debug("POST /api/students/batch called with {} ids", studentIds == null ? 0 : studentIds.size());
+
+        if (studentIds == null || studentIds.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("No ids supplied.");
+        }
+
+        if (studentIds.size() > batchLookupLimiter.getMaxSize()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Too many ids supplied, at most " + batchLookupLimiter.getMaxSize() + " are allowed.");
+        }
+
+        if (!batchLookupLimiter.tryAcquire("student", studentIds.size())) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body("Rate limit exceeded. Please try again later.");
+        }
+
+        return ResponseEntity.ok(studentService.getStudentAverageScores(studentIds));
     }
 
     public ResponseEntity<?> studentFallbackMethod(Throwable throwable) {
@@ -0,0 +1,86 @@
+package org.calvinkeum.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+
+/**
+ * The encodings the API answers in. JSON is the default; CBOR, selected with {@code Accept: application/cbor},
+ * carries the same fields in binary, with scores as 8-byte doubles instead of decimal text, and writes each repeated
+ * string, such as a field name in a list of students, as a reference to its first occurrence. Spring's own CBOR
+ * converter answers the endpoints that return plain response objects; the encoded and streamed responses pick
+ * their format with {@link #negotiate}.
+ * <p>
+ * {@link #encode} and {@link #decode} use default mappers, for clients, tests and benchmarks.
+ */
+public enum WireFormat {
+    JSON(MediaType.APPLICATION_JSON, new ObjectMapper()),
+    CBOR(MediaType.APPLICATION_CBOR, new CBORMapper(cborFactory()));
+
+    private final MediaType mediaType;
+    private final ObjectMapper defaultMapper;
+
+    WireFormat(MediaType mediaType, ObjectMapper defaultMapper) {
+        this.mediaType = mediaType;
+        this.defaultMapper = defaultMapper;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Returns a mapper for this format with the same configuration as the application's JSON mapper.
+     */
+    public ObjectMapper mapperFor(ObjectMapper jsonMapper) {
+        return this == JSON ? jsonMapper : jsonMapper.copyWith(cborFactory());
+    }
+
+    public byte[] encode(Object value) throws IOException {
+        return defaultMapper.writeValueAsBytes(value);
+    }
+
+    public <T> T decode(byte[] bytes, Class<T> type) throws IOException {
+        return defaultMapper.readValue(bytes, type);
+    }
+
+    /**
+     * Returns the format an {@code Accept} header value prefers, JSON unless it ranks CBOR strictly higher. A
+     * missing or malformed header gets JSON.
+     */
+    public static WireFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+
+        double jsonQuality = -1;
+        double cborQuality = -1;
+
+        try {
+            for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+                if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+                    jsonQuality = Math.max(jsonQuality, mediaType.getQualityValue());
+                }
+
+                if (mediaType.includes(MediaType.APPLICATION_CBOR)) {
+                    cborQuality = Math.max(cborQuality, mediaType.getQualityValue());
+                }
+            }
+        }
+        catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+
+        return cborQuality > jsonQuality ? CBOR : JSON;
+    }
+
+    private static CBORFactory cborFactory() {
+        // string references (tags 256 and 25) are understood by Jackson's CBOR parser since 2.15
+        return CBORFactory.builder().enable(CBORGenerator.Feature.STRINGREF).build();
+    }
+}
@@ -15,4 +15,6 @@ public class ExamAvgScoreResponse {
     private Integer exam;
     private List<StudentScoreResponse> students;
     private Double averageScore;
+    private Double minScore;
+    private Double maxScore;
 }
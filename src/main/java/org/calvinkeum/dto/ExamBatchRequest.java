@@ -0,0 +1,16 @@
+package org.calvinkeum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExamBatchRequest {
+    private List<Integer> exams;
+}
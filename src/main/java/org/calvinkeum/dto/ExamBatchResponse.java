@@ -0,0 +1,17 @@
+package org.calvinkeum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExamBatchResponse {
+    private List<ExamSummaryResponse> exams;
+    private List<Integer> notFound;
+}
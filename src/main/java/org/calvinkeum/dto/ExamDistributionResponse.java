@@ -0,0 +1,21 @@
+package org.calvinkeum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExamDistributionResponse {
+    private Integer exam;
+    private long totalStudents;
+    private Double median;
+    private Double p10;
+    private Double p90;
+    private Double p99;
+    private double binWidth;
+    private long[] histogram;
+}
@@ -16,4 +16,5 @@ public class ExamPaginationResponse {
     private int skip;
     private int limit;
     private List<ExamResponse> examResponses;
+    private String nextCursor;
 }
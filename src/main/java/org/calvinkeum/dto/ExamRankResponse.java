@@ -0,0 +1,19 @@
+package org.calvinkeum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExamRankResponse {
+    private Integer exam;
+    private String studentId;
+    private Double score;
+    private int rank;
+    private int totalStudents;
+    private Double percentile;
+}
@@ -0,0 +1,22 @@
+package org.calvinkeum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExamScorePageResponse {
+    private Integer exam;
+    private Double averageScore;
+    private int totalStudents;
+    private int skip;
+    private int limit;
+    private String sortOrder;
+    private List<StudentScoreResponse> students;
+}
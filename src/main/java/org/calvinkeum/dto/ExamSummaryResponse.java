@@ -0,0 +1,18 @@
+package org.calvinkeum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExamSummaryResponse {
+    private Integer exam;
+    private int totalStudents;
+    private Double averageScore;
+    private Double minScore;
+    private Double maxScore;
+}
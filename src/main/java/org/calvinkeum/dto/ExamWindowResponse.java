@@ -0,0 +1,17 @@
+package org.calvinkeum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExamWindowResponse {
+    private Integer exam;
+    private String window;
+    private int totalScores;
+    private Double averageScore;
+}
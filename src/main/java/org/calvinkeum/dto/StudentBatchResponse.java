@@ -0,0 +1,17 @@
+package org.calvinkeum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StudentBatchResponse {
+    private List<StudentAvgScoreResponse> students;
+    private List<String> notFound;
+}
@@ -0,0 +1,23 @@
+package org.calvinkeum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StudentExamPageResponse {
+    private String studentId;
+    private Double averageScore;
+    private int totalExams;
+    private int trimmedExams;
+    private int skip;
+    private int limit;
+    private String sortOrder;
+    private List<ExamScoreResponse> exams;
+}
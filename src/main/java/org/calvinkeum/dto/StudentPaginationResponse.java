@@ -16,4 +16,5 @@ public class StudentPaginationResponse {
     private int skip;
     private int limit;
     private List<StudentResponse> studentResponses;
+    private String nextCursor;
 }
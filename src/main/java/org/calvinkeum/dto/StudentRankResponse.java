@@ -0,0 +1,17 @@
+package org.calvinkeum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StudentRankResponse {
+    private String studentId;
+    private Double averageScore;
+    private int rank;
+    private int totalStudents;
+}
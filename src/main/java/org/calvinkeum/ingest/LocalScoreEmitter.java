@@ -0,0 +1,224 @@
+package org.calvinkeum.ingest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.calvinkeum.config.LocalEmitterProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Serves a generated score feed in the same server-sent event format as the live feed, so ingestion throughput
+ * and reconnects can be exercised offline. Every event carries its sequence number as id, the event for a given
+ * sequence number is always the same, and a client sending {@code Last-Event-ID} resumes right after it, or
+ * a configured number of events before, to replay some.
+ * <p>
+ * Runs inside the application when {@code test-scores.ingest.local-emitter.enabled} is set, or standalone via
+ * {@link #main(String[])}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "test-scores.ingest.local-emitter", name = "enabled", havingValue = "true")
+@Slf4j
+public class LocalScoreEmitter implements SmartLifecycle {
+    public static final String PATH = "/scores";
+
+    private final LocalEmitterProperties properties;
+
+    private final AtomicLong connectionCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+
+    private volatile boolean running;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public LocalScoreEmitter(LocalEmitterProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Serves the feed until the process is killed.
+     *
+     * @param args optional port and events per second, defaulting to 8081 and unthrottled
+     */
+    public static void main(String[] args) {
+        LocalEmitterProperties properties = new LocalEmitterProperties();
+        properties.setPort(args.length > 0 ? Integer.parseInt(args[0]) : 8081);
+        properties.setEventsPerSecond(args.length > 1 ? Integer.parseInt(args[1]) : 0);
+
+        LocalScoreEmitter emitter = new LocalScoreEmitter(properties);
+        emitter.start();
+
+        log.info("Serving scores at {}", emitter.getUrl());
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", properties.getPort()), 0);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to start the local score emitter on port " + properties.getPort(), e);
+        }
+
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "score-emitter");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server.setExecutor(executor);
+        server.createContext(PATH, this::handle);
+        running = true;
+        server.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        server.stop(0);
+        executor.shutdownNow();
+
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // the feed has to be up before the stream client connects to it
+        return ScoreIngestPipeline.PHASE - 1;
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + PATH;
+    }
+
+    public long getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * Fills {@code scoreEvent} with the event the feed sends for the given sequence number.
+     */
+    public void eventAt(long sequence, ScoreEvent scoreEvent) {
+        scoreEvent.setStudentId("student" + sequence % properties.getStudents());
+        scoreEvent.setExam((int) (sequence / properties.getStudents() % properties.getExams()) + 1);
+        scoreEvent.setScore(scoreThousandths(sequence) / 1000.0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        connectionCount.incrementAndGet();
+
+        long sequence = resumeSequence(exchange.getRequestHeaders().getFirst("Last-Event-ID"), properties.getReplayOnResume());
+        long maxEvents = properties.getMaxEvents();
+        long disconnectAfter = properties.getDisconnectAfter();
+        int eventsPerSecond = properties.getEventsPerSecond();
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+
+        StringBuilder event = new StringBuilder(256);
+        byte[] bytes = new byte[256];
+        long sent = 0;
+        long startNanos = System.nanoTime();
+
+        try (OutputStream outputStream = new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024)) {
+            while (running && (maxEvents <= 0 || sequence < maxEvents) && (disconnectAfter <= 0 || sent < disconnectAfter)) {
+                if (eventsPerSecond > 0) {
+                    long dueNanos = startNanos + sent * 1_000_000_000L / eventsPerSecond;
+                    long waitNanos = dueNanos - System.nanoTime();
+
+                    if (waitNanos > 0) {
+                        outputStream.flush();
+                        LockSupport.parkNanos(waitNanos);
+                    }
+                }
+
+                int length = formatEvent(sequence, event, bytes);
+                outputStream.write(bytes, 0, length);
+                sequence++;
+                sent++;
+                sentCount.incrementAndGet();
+            }
+        }
+        catch (IOException e) {
+            // the client went away, it resumes from its last event id when it reconnects
+            log.debug("Score emitter connection closed: {}", e.getLocalizedMessage());
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private int formatEvent(long sequence, StringBuilder event, byte[] bytes) {
+        int thousandths = scoreThousandths(sequence);
+
+        event.setLength(0);
+        event.append("event: score\ndata: {\"exam\": ")
+            .append((int) (sequence / properties.getStudents() % properties.getExams()) + 1)
+            .append(", \"studentId\": \"student").append(sequence % properties.getStudents())
+            .append("\", \"score\": ").append(thousandths / 1000).append('.')
+            .append((char) ('0' + thousandths / 100 % 10))
+            .append((char) ('0' + thousandths / 10 % 10))
+            .append((char) ('0' + thousandths % 10))
+            .append("}\nid: ").append(sequence).append("\n\n");
+
+        // the event is plain ASCII, so each char is one byte
+        for (int i = 0; i < event.length(); i++) {
+            bytes[i] = (byte) event.charAt(i);
+        }
+
+        return event.length();
+    }
+
+    private static int scoreThousandths(long sequence) {
+        long hash = sequence * 0x9E3779B97F4A7C15L;
+        return (int) Long.remainderUnsigned(hash ^ (hash >>> 29), 1001);
+    }
+
+    private static long resumeSequence(String lastEventId, long replay) {
+        if (lastEventId == null) {
+            return 0;
+        }
+
+        try {
+            return Math.max(0, Long.parseLong(lastEventId.trim()) + 1 - replay);
+        }
+        catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.calvinkeum.ingest;
+
+/**
+ * Reasons a score event could not be parsed. Counted per cause by {@link SseScoreParser}.
+ */
+public enum ParseFailure {
+    MALFORMED_JSON,
+    MISSING_FIELD,
+    STUDENT_ID_TOO_LONG,
+    INVALID_NUMBER,
+    SCORE_OUT_OF_RANGE,
+    LINE_TOO_LONG
+}
@@ -0,0 +1,24 @@
+package org.calvinkeum.ingest;
+
+import lombok.Data;
+
+/**
+ * Reusable holder filled in place by {@link SseScoreParser} for each parsed score event.
+ */
+@Data
+public class ScoreEvent {
+    /**
+     * Longest student id accepted, in UTF-8 bytes, which is also the longest the event log records.
+     */
+    public static final int MAX_STUDENT_ID_BYTES = 1024;
+
+    private String studentId;
+    private int exam;
+    private double score;
+
+    void clear() {
+        studentId = null;
+        exam = 0;
+        score = 0;
+    }
+}
@@ -0,0 +1,285 @@
+package org.calvinkeum.ingest;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the most recent score events of one feed so that an event sent again, e.g. replayed by the server
+ * after a reconnect, is only applied once. An event is keyed on its SSE id together with its student, exam and
+ * score, so a server that restarts its ids does not get new events dropped. An event the server sent no id with
+ * always passes: without one, a replay cannot be told apart from a student retaking an exam with the same score.
+ * <p>
+ * Keys are kept as 128-bit fingerprints in two layers:
+ * <ul>
+ *     <li>an exact window holding the fingerprints of the latest {@code windowSize} events, as a ring in arrival
+ *     order indexed by an open-addressing table; an event is a duplicate only if its fingerprint is in it</li>
+ *     <li>a Bloom filter in front of it, in two generations of {@code windowSize} events each so it always covers
+ *     the window; an event it has not seen skips the table lookup and is only inserted. All bits of a key fall in
+ *     one word, so a check reads one word per generation</li>
+ * </ul>
+ * Nothing is allocated per event. Not thread-safe: each feed reader owns its own instance.
+ */
+class ScoreEventDeduplicator {
+    private static final int BLOOM_BITS_PER_KEY = 16;
+    private static final int BLOOM_HASHES = 6;
+
+    private final int windowSize;
+
+    private final long[] ringHigh;
+    private final long[] ringLow;
+    private int ringNext;
+    private int ringSize;
+
+    // per fingerprint in the window, the hash that picks its slot in the upper half and its ring position + 1 in
+    // the lower, so probing and shifting never read the ring; 0 marks a free slot
+    private final long[] slots;
+    private final int slotMask;
+
+    private long[] bloomCurrent;
+    private long[] bloomPrevious;
+    private final int bloomMask;
+    private int bloomCurrentCount;
+
+    private long fingerprintHigh;
+    private long fingerprintLow;
+
+    private long bloomFalsePositiveCount;
+
+    /**
+     * @param windowSize how many of the latest events are remembered
+     */
+    ScoreEventDeduplicator(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("The deduplication window must hold at least one event, got " + windowSize);
+        }
+
+        this.windowSize = windowSize;
+        this.ringHigh = new long[windowSize];
+        this.ringLow = new long[windowSize];
+
+        this.slots = new long[Integer.highestOneBit(windowSize * 2 - 1) << 1];
+        this.slotMask = slots.length - 1;
+
+        long bloomBits = Long.highestOneBit((long) windowSize * BLOOM_BITS_PER_KEY - 1) << 1;
+        this.bloomCurrent = new long[(int) Math.max(1, bloomBits / Long.SIZE)];
+        this.bloomPrevious = new long[bloomCurrent.length];
+        this.bloomMask = bloomCurrent.length - 1;
+    }
+
+    /**
+     * Returns true if the event was seen within the window, and remembers it otherwise.
+     *
+     * @param eventId       the SSE id sent with this event, or null
+     * @param eventIdLength the length of the id, or -1 if the event had none of its own, which is never a duplicate
+     */
+    boolean isDuplicate(byte[] eventId, int eventIdLength, ScoreEvent scoreEvent) {
+        if (eventIdLength < 0) {
+            return false;
+        }
+
+        fingerprint(eventId, eventIdLength, scoreEvent);
+
+        if (mightContain(bloomCurrent) || mightContain(bloomPrevious)) {
+            if (windowContains()) {
+                return true;
+            }
+
+            bloomFalsePositiveCount++;
+        }
+
+        remember();
+        return false;
+    }
+
+    /**
+     * Returns the fingerprints in the window, oldest first, as pairs of longs, so a later instance can pick up
+     * where this one stopped with {@link #restore}.
+     */
+    long[] recentEvents() {
+        long[] recentEvents = new long[ringSize * 2];
+        int position = ringSize == windowSize ? ringNext : 0;
+
+        for (int i = 0; i < ringSize; i++) {
+            recentEvents[i * 2] = ringHigh[position];
+            recentEvents[i * 2 + 1] = ringLow[position];
+            position = position + 1 == windowSize ? 0 : position + 1;
+        }
+
+        return recentEvents;
+    }
+
+    /**
+     * Remembers the fingerprints returned by {@link #recentEvents()}, in order, so the latest ones are kept if
+     * this window is smaller.
+     */
+    void restore(long[] recentEvents) {
+        for (int i = 0; i + 1 < recentEvents.length; i += 2) {
+            fingerprintHigh = recentEvents[i];
+            fingerprintLow = recentEvents[i + 1];
+
+            if (!windowContains()) {
+                remember();
+            }
+        }
+    }
+
+    /**
+     * Events the Bloom filter had possibly seen but the window had not, each costing a table lookup.
+     */
+    long getBloomFalsePositiveCount() {
+        return bloomFalsePositiveCount;
+    }
+
+    private void fingerprint(byte[] eventId, int eventIdLength, ScoreEvent scoreEvent) {
+        fingerprintHigh = 0x9E3779B97F4A7C15L;
+        fingerprintLow = 0xC2B2AE3D27D4EB4FL;
+
+        // the variable parts are mixed in eight bytes at a time, each followed by its length so that no two
+        // different keys feed in the same sequence
+        long word = 0;
+
+        for (int i = 0; i < eventIdLength; i++) {
+            word = word << 8 | eventId[i] & 0xFF;
+
+            if ((i & 7) == 7) {
+                mix(word);
+                word = 0;
+            }
+        }
+
+        mix(word);
+        mix(eventIdLength);
+
+        String studentId = scoreEvent.getStudentId();
+        word = 0;
+
+        for (int i = 0; i < studentId.length(); i++) {
+            word = word << 16 | studentId.charAt(i);
+
+            if ((i & 3) == 3) {
+                mix(word);
+                word = 0;
+            }
+        }
+
+        mix(word);
+        mix(studentId.length());
+        mix(scoreEvent.getExam());
+        mix(Double.doubleToLongBits(scoreEvent.getScore()));
+
+        fingerprintHigh = finish(fingerprintHigh);
+        fingerprintLow = finish(fingerprintLow);
+    }
+
+    private void mix(long value) {
+        fingerprintHigh = Long.rotateLeft(fingerprintHigh ^ value * 0x87C37B91114253D5L, 31) * 0x4CF5AD432745937FL;
+        fingerprintLow = Long.rotateLeft(fingerprintLow ^ value * 0x52DCE729DA3ED7B5L, 33) * 0x38495AB5A5B5D3A1L;
+    }
+
+    private boolean mightContain(long[] bloom) {
+        long bits = bloomBits();
+        return (bloom[bloomWord()] & bits) == bits;
+    }
+
+    private int bloomWord() {
+        return (int) (fingerprintLow >>> 32) & bloomMask;
+    }
+
+    /**
+     * The bits of the key within its word, six bits of the fingerprint per hash.
+     */
+    private long bloomBits() {
+        long bits = 0;
+
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            bits |= 1L << (fingerprintHigh >>> 6 * i);
+        }
+
+        return bits;
+    }
+
+    private boolean windowContains() {
+        int hash = slotHash();
+
+        for (int slot = hash & slotMask; slots[slot] != 0; slot = (slot + 1) & slotMask) {
+            if ((int) (slots[slot] >>> 32) == hash) {
+                int position = (int) slots[slot] - 1;
+
+                if (ringHigh[position] == fingerprintHigh && ringLow[position] == fingerprintLow) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private void remember() {
+        // the oldest event leaves the window to make room
+        if (ringSize == windowSize) {
+            evict(ringNext);
+        }
+        else {
+            ringSize++;
+        }
+
+        ringHigh[ringNext] = fingerprintHigh;
+        ringLow[ringNext] = fingerprintLow;
+
+        int hash = slotHash();
+        int slot = hash & slotMask;
+
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & slotMask;
+        }
+
+        slots[slot] = (long) hash << 32 | ringNext + 1;
+        ringNext = ringNext + 1 == windowSize ? 0 : ringNext + 1;
+
+        if (bloomCurrentCount == windowSize) {
+            long[] cleared = bloomPrevious;
+            Arrays.fill(cleared, 0);
+            bloomPrevious = bloomCurrent;
+            bloomCurrent = cleared;
+            bloomCurrentCount = 0;
+        }
+
+        bloomCurrent[bloomWord()] |= bloomBits();
+        bloomCurrentCount++;
+    }
+
+    /**
+     * Removes the fingerprint at a ring position from the table, shifting back the entries probed past it so
+     * lookups never need tombstones.
+     */
+    private void evict(int position) {
+        int hole = (int) (ringLow[position] >>> 32 ^ ringHigh[position]) & slotMask;
+
+        while ((int) slots[hole] != position + 1) {
+            hole = (hole + 1) & slotMask;
+        }
+
+        for (int next = (hole + 1) & slotMask; slots[next] != 0; next = (next + 1) & slotMask) {
+            int nextHome = (int) (slots[next] >>> 32) & slotMask;
+
+            // an entry may fill the hole unless its home lies between the hole and its slot
+            if (((next - nextHome) & slotMask) >= ((next - hole) & slotMask)) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+        }
+
+        slots[hole] = 0;
+    }
+
+    private int slotHash() {
+        return (int) (fingerprintLow >>> 32 ^ fingerprintHigh);
+    }
+
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ hash >>> 33;
+    }
+}
@@ -0,0 +1,351 @@
+package org.calvinkeum.ingest;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.calvinkeum.config.IngestPipelineProperties;
+import org.calvinkeum.config.IngestPipelineProperties.OverflowPolicy;
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.persistence.ScorePersistence;
+import org.calvinkeum.service.ExamService;
+import org.calvinkeum.service.StudentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Bounded hand-off between the stream readers and the score store. Publishers, one reader thread per source,
+ * drop parsed events into per-consumer ring buffers, sharded by exam, and consumer threads apply them to the
+ * services in batches, so a slow aggregation step no longer holds up the network readers.
+ */
+@Component
+@Slf4j
+public class ScoreIngestPipeline implements SmartLifecycle {
+    /**
+     * Lifecycle phase of the pipeline. Readers feeding it use a later phase, so they start after it and stop before it.
+     */
+    public static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 2048;
+
+    private final IngestPipelineProperties properties;
+    private final StudentService studentService;
+    private final ExamService examService;
+    private final ScorePersistence scorePersistence;
+
+    private final List<BlockingQueue<StudentExamScore>> queues = new ArrayList<>();
+    private final List<Thread> consumers = new ArrayList<>();
+    private final List<Consumer<List<StudentExamScore>>> batchListeners = new CopyOnWriteArrayList<>();
+
+    // bumped by every reader thread, so striped to keep concurrent sources from contending on one counter
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final AtomicLong appliedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile Timer visibilityTimer;
+
+    public ScoreIngestPipeline(IngestPipelineProperties properties, StudentService studentService, ExamService examService) {
+        this(properties, studentService, examService, Optional.empty());
+    }
+
+    /**
+     * @param scorePersistence records every batch on disk before it is applied, when persistence is enabled
+     */
+    @Autowired
+    public ScoreIngestPipeline(IngestPipelineProperties properties, StudentService studentService, ExamService examService,
+                               Optional<ScorePersistence> scorePersistence) {
+        this.properties = properties;
+        this.studentService = studentService;
+        this.examService = examService;
+        this.scorePersistence = scorePersistence.orElse(null);
+
+        int consumerCount = properties.getConsumers() > 0 ? properties.getConsumers() : Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < consumerCount; i++) {
+            queues.add(new ArrayBlockingQueue<>(Math.max(1, properties.getBufferSize())));
+        }
+    }
+
+    /**
+     * Queues a copy of the event for the consumers, applying the configured {@link OverflowPolicy} when full.
+     * The copy is stamped with the time it was read, for the {@link #setVisibilityTimer visibility timer}.
+     *
+     * @return false if the event was dropped
+     */
+    public boolean publish(ScoreEvent scoreEvent) {
+        StudentExamScore studentExamScore = new ReceivedScore(System.nanoTime());
+        studentExamScore.setStudentId(scoreEvent.getStudentId());
+        studentExamScore.setExam(scoreEvent.getExam());
+        studentExamScore.setScore(scoreEvent.getScore());
+
+        return publish(studentExamScore);
+    }
+
+    public boolean publish(StudentExamScore studentExamScore) {
+        BlockingQueue<StudentExamScore> queue = queues.get(Math.floorMod(Integer.hashCode(studentExamScore.getExam()), queues.size()));
+        publishedCount.increment();
+
+        if (queue.offer(studentExamScore)) {
+            return true;
+        }
+
+        OverflowPolicy overflowPolicy = properties.getOverflowPolicy();
+
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                queue.put(studentExamScore);
+                return true;
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        else if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            while (!queue.offer(studentExamScore)) {
+                if (queue.poll() != null) {
+                    droppedCount.increment();
+                }
+            }
+
+            return true;
+        }
+
+        droppedCount.increment();
+        return false;
+    }
+
+    /**
+     * Blocks until every event accepted so far has been applied, or the timeout elapses.
+     *
+     * @return true if the pipeline caught up
+     */
+    public boolean flush(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        while (appliedCount.get() + failedCount.get() + droppedCount.sum() < publishedCount.sum()) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+
+            Thread.sleep(1);
+        }
+
+        return true;
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public long getAppliedCount() {
+        return appliedCount.get();
+    }
+
+    /**
+     * Events in batches that could not be recorded or applied, e.g. because a service threw.
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    public int getQueuedCount() {
+        return queues.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    /**
+     * Records, for every event published from the stream, the time from it being read until it is applied to the
+     * store and so visible to queries.
+     */
+    public void setVisibilityTimer(Timer visibilityTimer) {
+        this.visibilityTimer = visibilityTimer;
+    }
+
+    /**
+     * Registers a listener called on the consumer threads with every batch once it is visible to queries.
+     * The batch is reused afterwards, so listeners must not keep it, and they should return quickly.
+     */
+    public void addBatchListener(Consumer<List<StudentExamScore>> batchListener) {
+        batchListeners.add(batchListener);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        running = true;
+
+        for (int i = 0; i < queues.size(); i++) {
+            BlockingQueue<StudentExamScore> queue = queues.get(i);
+            Thread consumer = new Thread(() -> consume(queue), "score-ingest-" + i);
+            consumer.setDaemon(true);
+            consumer.start();
+            consumers.add(consumer);
+        }
+    }
+
+    /**
+     * Stops the consumers after they have applied everything already queued.
+     */
+    @Override
+    public synchronized void stop() {
+        running = false;
+
+        for (Thread consumer : consumers) {
+            try {
+                consumer.join(TimeUnit.SECONDS.toMillis(10));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        consumers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void consume(BlockingQueue<StudentExamScore> queue) {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        long flushIntervalNanos = properties.getFlushInterval().toNanos();
+        List<StudentExamScore> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                StudentExamScore first = queue.poll(100, TimeUnit.MILLISECONDS);
+
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+
+                // fill the batch until it is full or the flush interval since its first event has passed
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+
+                    long remaining = deadline - System.nanoTime();
+
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+
+                    StudentExamScore next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+
+                    if (next == null) {
+                        break;
+                    }
+
+                    batch.add(next);
+                }
+
+                apply(batch);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void apply(List<StudentExamScore> batch) {
+        try {
+            if (scorePersistence != null) {
+                scorePersistence.record(batch, () -> applyToServices(batch));
+            }
+            else {
+                applyToServices(batch);
+            }
+        }
+        catch (Exception e) {
+            // counted apart, so a flush still returns without the batch passing for applied
+            log.error("Failed to apply {} score events: {}", batch.size(), e.getLocalizedMessage());
+            failedCount.addAndGet(batch.size());
+            return;
+        }
+
+        recordVisibility(batch);
+        notifyBatchListeners(batch);
+
+        // counted last, so a flush only returns once the listeners have seen the batch
+        appliedCount.addAndGet(batch.size());
+        batchCount.incrementAndGet();
+    }
+
+    private void notifyBatchListeners(List<StudentExamScore> batch) {
+        for (Consumer<List<StudentExamScore>> batchListener : batchListeners) {
+            try {
+                batchListener.accept(batch);
+            }
+            catch (Exception e) {
+                log.error("Batch listener failed on {} score events: {}", batch.size(), e.getLocalizedMessage());
+            }
+        }
+    }
+
+    private void recordVisibility(List<StudentExamScore> batch) {
+        Timer timer = visibilityTimer;
+
+        if (timer == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+
+        for (StudentExamScore studentExamScore : batch) {
+            if (studentExamScore instanceof ReceivedScore receivedScore) {
+                timer.record(now - receivedScore.receivedNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void applyToServices(List<StudentExamScore> batch) {
+        studentService.processStudentData(batch);
+        examService.processExamData(batch);
+    }
+
+    /**
+     * A queued event that remembers when it was read off the stream.
+     */
+    private static class ReceivedScore extends StudentExamScore {
+        private final long receivedNanos;
+
+        private ReceivedScore(long receivedNanos) {
+            this.receivedNanos = receivedNanos;
+        }
+    }
+}
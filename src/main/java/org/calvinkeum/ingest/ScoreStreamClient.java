@@ -0,0 +1,314 @@
+package org.calvinkeum.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.calvinkeum.config.IngestStreamProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Reads one server-sent score feed on its own thread and hands every event to a sink. Each client has its own
+ * connection, parser and counters, so several can read different feeds into the same sink at once. Dropped or failed
+ * connections are retried with exponential backoff and jitter, resuming from the last event id the server sent.
+ * A connection that stays silent past the idle timeout is dropped and reopened. Events the feed sends again,
+ * e.g. replayed after a reconnect, are recognised by a {@link ScoreEventDeduplicator} kept across connections
+ * and not passed on. The id and the deduplication window can be taken as a {@link StreamCheckpoint} once stopped, and
+ * handed to a new client before it starts, so it resumes where the old one stopped.
+ */
+@Slf4j
+public class ScoreStreamClient {
+    private final String name;
+    private final String url;
+    private final IngestStreamProperties properties;
+    private final Consumer<ScoreEvent> sink;
+    private final ScoreEventDeduplicator deduplicator;
+    private final double maxScore;
+
+    private final AtomicLong connectionCount = new AtomicLong();
+    private final AtomicLong eventCount = new AtomicLong();
+    private final AtomicLong duplicateCount = new AtomicLong();
+    private final AtomicLongArray failureCounts = new AtomicLongArray(ParseFailure.values().length);
+
+    private volatile boolean running;
+    private volatile Thread readerThread;
+    private volatile HttpURLConnection connection;
+    private volatile long lastActivityNanos;
+    private volatile String lastEventId;
+
+    /**
+     * @param properties the timeouts and backoff, its url is ignored in favour of {@code url}
+     */
+    public ScoreStreamClient(String name, String url, IngestStreamProperties properties, Consumer<ScoreEvent> sink) {
+        this(name, url, properties, sink, Double.MAX_VALUE);
+    }
+
+    /**
+     * @param properties the timeouts and backoff, its url is ignored in favour of {@code url}
+     * @param maxScore   the largest score magnitude accepted, larger ones are counted as
+     *                   {@link ParseFailure#SCORE_OUT_OF_RANGE}
+     */
+    public ScoreStreamClient(String name, String url, IngestStreamProperties properties, Consumer<ScoreEvent> sink,
+                             double maxScore) {
+        this.name = name;
+        this.url = url;
+        this.properties = properties;
+        this.sink = sink;
+        this.deduplicator = properties.getDedupWindow() > 0 ? new ScoreEventDeduplicator(properties.getDedupWindow()) : null;
+        this.maxScore = maxScore;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        running = true;
+        readerThread = new Thread(this::run, "score-stream-" + name);
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        Thread thread = readerThread;
+
+        if (thread == null) {
+            return;
+        }
+
+        disconnect();
+        thread.interrupt();
+
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        readerThread = null;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public long getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    public long getEventCount() {
+        return eventCount.get();
+    }
+
+    /**
+     * Events read but not passed on because they had been received before.
+     */
+    public long getDuplicateCount() {
+        return duplicateCount.get();
+    }
+
+    public long getFailureCount(ParseFailure parseFailure) {
+        return failureCounts.get(parseFailure.ordinal());
+    }
+
+    public String getLastEventId() {
+        return lastEventId;
+    }
+
+    /**
+     * Returns where this client stopped reading. Only consistent while the client is stopped.
+     */
+    public StreamCheckpoint checkpoint() {
+        return new StreamCheckpoint(lastEventId, deduplicator == null ? new long[0] : deduplicator.recentEvents());
+    }
+
+    /**
+     * Makes the next connection resume after the checkpoint, recognising the events remembered in it. Must be
+     * called before {@link #start()}.
+     */
+    public void resumeFrom(StreamCheckpoint streamCheckpoint) {
+        lastEventId = streamCheckpoint.getLastEventId();
+
+        if (deduplicator != null) {
+            deduplicator.restore(streamCheckpoint.getRecentEvents());
+        }
+    }
+
+    private void run() {
+        int failedAttempts = 0;
+
+        while (running) {
+            boolean receivedEvents = readStream();
+
+            if (!running) {
+                break;
+            }
+
+            // a connection that delivered events resets the backoff, repeated failures grow it
+            failedAttempts = receivedEvents ? 0 : failedAttempts + 1;
+            Duration backoff = backoff(failedAttempts);
+
+            log.info("Score stream {} disconnected, reconnecting in {} ms", name, backoff.toMillis());
+
+            try {
+                Thread.sleep(backoff.toMillis());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Reads the stream until it ends or fails, whether with an I/O error or an unchecked exception.
+     *
+     * @return true if at least one score event was received
+     */
+    private boolean readStream() {
+        long eventsBefore = eventCount.get();
+        HttpURLConnection httpURLConnection = null;
+        SseScoreParser parser = null;
+
+        try {
+            httpURLConnection = (HttpURLConnection) new URL(url).openConnection();
+            httpURLConnection.setRequestMethod("GET");
+            httpURLConnection.setRequestProperty("Accept", "text/event-stream");
+            httpURLConnection.setConnectTimeout((int) properties.getConnectTimeout().toMillis());
+            httpURLConnection.setReadTimeout((int) properties.getReadTimeout().toMillis());
+
+            if (lastEventId != null) {
+                httpURLConnection.setRequestProperty("Last-Event-ID", lastEventId);
+            }
+
+            connection = httpURLConnection;
+            lastActivityNanos = System.nanoTime();
+
+            int responseCode = httpURLConnection.getResponseCode();
+
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                log.error("Failed to fetch data from {}. Response code: {}", url, responseCode);
+                return false;
+            }
+
+            connectionCount.incrementAndGet();
+
+            try (InputStream inputStream = new IdleTimeoutInputStream(httpURLConnection.getInputStream())) {
+                parser = new SseScoreParser(inputStream, SseScoreParser.DEFAULT_BUFFER_SIZE, failureCounts, maxScore);
+
+                // the parser refills this holder in place for every score event
+                ScoreEvent scoreEvent = new ScoreEvent();
+
+                while (running && parser.next(scoreEvent)) {
+                    lastActivityNanos = System.nanoTime();
+                    eventCount.incrementAndGet();
+
+                    if (deduplicator != null
+                        && deduplicator.isDuplicate(parser.getEventIdBytes(), parser.getEventIdLength(), scoreEvent)) {
+                        duplicateCount.incrementAndGet();
+                        continue;
+                    }
+
+                    sink.accept(scoreEvent);
+                }
+            }
+        }
+        catch (IOException e) {
+            if (running) {
+                log.error("Score stream {} failed: {}", name, e.getLocalizedMessage());
+            }
+        }
+        catch (RuntimeException e) {
+            // e.g. the sink failing, or the connection torn down by stop() while connecting; the reader reconnects
+            // rather than dying with the feed still counted as running
+            if (running) {
+                log.error("Score stream {} failed unexpectedly", name, e);
+            }
+        }
+        finally {
+            connection = null;
+
+            // remember how far this connection got, even when it failed mid-stream
+            String parsedEventId = parser == null ? null : parser.getLastEventId();
+
+            if (parsedEventId != null) {
+                lastEventId = parsedEventId;
+            }
+
+            if (httpURLConnection != null) {
+                httpURLConnection.disconnect();
+            }
+        }
+
+        return eventCount.get() > eventsBefore;
+    }
+
+    private Duration backoff(int failedAttempts) {
+        long initial = properties.getInitialBackoff().toMillis();
+        long max = properties.getMaxBackoff().toMillis();
+        long delay = failedAttempts >= 30 ? max : Math.min(max, initial << Math.max(0, failedAttempts - 1));
+
+        // full jitter in the upper half keeps many clients from reconnecting in lockstep
+        return Duration.ofMillis(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+    }
+
+    private void disconnect() {
+        HttpURLConnection current = connection;
+
+        if (current != null) {
+            current.disconnect();
+        }
+    }
+
+    /**
+     * Fails reads once no score event has arrived within the idle timeout, even while the server keeps the
+     * socket busy with keep-alive comments. Each read still waits at most the socket read timeout.
+     */
+    private class IdleTimeoutInputStream extends InputStream {
+        private final InputStream delegate;
+
+        private IdleTimeoutInputStream(InputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkIdle();
+            return delegate.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkIdle();
+            return delegate.read(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        private void checkIdle() throws IOException {
+            if (System.nanoTime() - lastActivityNanos > properties.getIdleTimeout().toNanos()) {
+                throw new IOException("No score event received for " + properties.getIdleTimeout());
+            }
+        }
+    }
+}
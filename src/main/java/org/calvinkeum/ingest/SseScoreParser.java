@@ -0,0 +1,727 @@
+package org.calvinkeum.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Streaming parser for the score feed's server-sent events. Lines are scanned in a reusable byte buffer and
+ * the {@code studentId}, {@code exam} and {@code score} fields are read straight out of the JSON bytes into a
+ * caller supplied {@link ScoreEvent}, so a well-formed event costs no allocation beyond a first-seen student id.
+ * <p>
+ * Malformed events, and events with a student id or score beyond what the store can hold, are skipped and
+ * counted per {@link ParseFailure}. Not thread-safe: use one parser per stream.
+ */
+@Slf4j
+public class SseScoreParser {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int STUDENT_ID_CACHE_SIZE = 8192;
+
+    private static final byte[] SCORE_EVENT_TYPE = ascii("score");
+    private static final byte[] EVENT_FIELD = ascii("event");
+    private static final byte[] DATA_FIELD = ascii("data");
+    private static final byte[] ID_FIELD = ascii("id");
+    private static final byte[] STUDENT_ID_KEY = ascii("studentId");
+    private static final byte[] EXAM_KEY = ascii("exam");
+    private static final byte[] SCORE_KEY = ascii("score");
+
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        double power = 1;
+
+        for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = power;
+            power *= 10;
+        }
+    }
+
+    private final InputStream inputStream;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+
+    private final byte[] eventType = new byte[64];
+    private int eventTypeLength = -1;
+    private byte[] data = new byte[256];
+    private int dataLength = -1;
+
+    // SSE keeps the last seen id across events until the server sends a new one, and only commits it once the
+    // event carrying it is complete, so a connection cut mid-event resumes from the event before it
+    private final byte[] eventId = new byte[256];
+    private int eventIdLength = -1;
+    private final byte[] lastEventId = new byte[256];
+    private int lastEventIdLength = -1;
+    // whether the event being read carried an id field itself, rather than inheriting the last one
+    private boolean eventHasId;
+    private boolean dispatchedEventHasId;
+
+    private final StudentIdCache studentIdCache = new StudentIdCache(STUDENT_ID_CACHE_SIZE);
+    private byte[] stringBuffer = new byte[64];
+    private final AtomicLongArray failureCounts;
+    private final double maxScore;
+
+    // JSON cursor over the data currently being parsed
+    private byte[] json;
+    private int jsonPosition;
+    private int jsonEnd;
+
+    public SseScoreParser(InputStream inputStream) {
+        this(inputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    public SseScoreParser(InputStream inputStream, int bufferSize) {
+        this(inputStream, bufferSize, new AtomicLongArray(ParseFailure.values().length));
+    }
+
+    /**
+     * @param failureCounts counts per {@link ParseFailure} ordinal, shared with the parsers of earlier connections
+     *                      so the totals survive reconnects
+     */
+    public SseScoreParser(InputStream inputStream, int bufferSize, AtomicLongArray failureCounts) {
+        this(inputStream, bufferSize, failureCounts, Double.MAX_VALUE);
+    }
+
+    /**
+     * @param failureCounts counts per {@link ParseFailure} ordinal, shared with the parsers of earlier connections
+     *                      so the totals survive reconnects
+     * @param maxScore      the largest score magnitude accepted, see {@link org.calvinkeum.repository.ScoreColumn#maxScore}
+     */
+    public SseScoreParser(InputStream inputStream, int bufferSize, AtomicLongArray failureCounts, double maxScore) {
+        this.inputStream = inputStream;
+        this.buffer = new byte[bufferSize];
+        this.failureCounts = failureCounts;
+        this.maxScore = maxScore;
+    }
+
+    /**
+     * Reads until the next complete score event and fills {@code scoreEvent} with it.
+     *
+     * @return false once the stream is exhausted
+     */
+    public boolean next(ScoreEvent scoreEvent) throws IOException {
+        while (true) {
+            int lineEnd = findLineEnd();
+
+            if (lineEnd < 0) {
+                return false;
+            }
+
+            int lineStart = position;
+            position = lineEnd + 1;
+
+            // a line longer than the buffer was dropped while searching for its end
+            if (lineStart > lineEnd) {
+                continue;
+            }
+
+            int length = lineEnd - lineStart;
+
+            if (length > 0 && buffer[lineEnd - 1] == '\r') {
+                length--;
+            }
+
+            if (length == 0) {
+                if (dispatch(scoreEvent)) {
+                    return true;
+                }
+            }
+            else {
+                processField(lineStart, length);
+            }
+        }
+    }
+
+    /**
+     * Parses the JSON payload of a single score event.
+     *
+     * @return the reason the payload was rejected, or null if {@code scoreEvent} was filled
+     */
+    public ParseFailure parseData(byte[] bytes, int offset, int length, ScoreEvent scoreEvent) {
+        json = bytes;
+        jsonPosition = offset;
+        jsonEnd = offset + length;
+
+        try {
+            return parseScoreJson(scoreEvent);
+        }
+        finally {
+            json = null;
+        }
+    }
+
+    /**
+     * Returns the id of the most recent event, to be sent back as {@code Last-Event-ID} when reconnecting.
+     */
+    public String getLastEventId() {
+        return lastEventIdLength < 0 ? null : new String(lastEventId, 0, lastEventIdLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the length of the id sent with the event {@link #next} returned last, stored in
+     * {@link #getEventIdBytes()}, or -1 if that event carried no id field of its own.
+     */
+    public int getEventIdLength() {
+        return dispatchedEventHasId ? lastEventIdLength : -1;
+    }
+
+    /**
+     * The raw bytes of the latest event id, valid up to {@link #getEventIdLength()} and overwritten by the next event.
+     */
+    public byte[] getEventIdBytes() {
+        return lastEventId;
+    }
+
+    public long getFailureCount(ParseFailure parseFailure) {
+        return failureCounts.get(parseFailure.ordinal());
+    }
+
+    private boolean dispatch(ScoreEvent scoreEvent) {
+        boolean isScoreEvent = dataLength >= 0 && eventTypeLength >= 0
+            && Arrays.equals(eventType, 0, eventTypeLength, SCORE_EVENT_TYPE, 0, SCORE_EVENT_TYPE.length);
+
+        int length = dataLength;
+        eventTypeLength = -1;
+        dataLength = -1;
+
+        if (eventIdLength >= 0) {
+            lastEventIdLength = eventIdLength;
+            System.arraycopy(eventId, 0, lastEventId, 0, eventIdLength);
+        }
+
+        dispatchedEventHasId = eventHasId;
+        eventHasId = false;
+
+        if (!isScoreEvent) {
+            return false;
+        }
+
+        ParseFailure parseFailure = parseData(data, 0, length, scoreEvent);
+
+        if (parseFailure != null) {
+            recordFailure(parseFailure, data, 0, length);
+            return false;
+        }
+
+        return true;
+    }
+
+    private void processField(int start, int length) {
+        // lines starting with a colon are comments, e.g. keep-alives
+        if (buffer[start] == ':') {
+            return;
+        }
+
+        int colon = start;
+        int end = start + length;
+
+        while (colon < end && buffer[colon] != ':') {
+            colon++;
+        }
+
+        int valueStart = Math.min(end, colon + 1);
+
+        if (valueStart < end && buffer[valueStart] == ' ') {
+            valueStart++;
+        }
+
+        int nameLength = colon - start;
+        int valueLength = end - valueStart;
+
+        if (fieldIs(start, nameLength, EVENT_FIELD)) {
+            eventTypeLength = Math.min(valueLength, eventType.length);
+            System.arraycopy(buffer, valueStart, eventType, 0, eventTypeLength);
+        }
+        else if (fieldIs(start, nameLength, DATA_FIELD)) {
+            appendData(valueStart, valueLength);
+        }
+        else if (fieldIs(start, nameLength, ID_FIELD) && valueLength <= eventId.length) {
+            eventIdLength = valueLength;
+            eventHasId = true;
+            System.arraycopy(buffer, valueStart, eventId, 0, valueLength);
+        }
+    }
+
+    private void appendData(int start, int length) {
+        // multiple data lines of one event are joined with a newline
+        int offset = dataLength < 0 ? 0 : dataLength + 1;
+        int required = offset + length;
+
+        if (required > data.length) {
+            data = Arrays.copyOf(data, Math.max(required, data.length * 2));
+        }
+
+        if (offset > 0) {
+            data[offset - 1] = '\n';
+        }
+
+        System.arraycopy(buffer, start, data, offset, length);
+        dataLength = required;
+    }
+
+    private boolean fieldIs(int start, int length, byte[] name) {
+        return Arrays.equals(buffer, start, start + length, name, 0, name.length);
+    }
+
+    /**
+     * Returns the index of the next '\n' in the buffer, reading more input as needed, or -1 at end of stream.
+     * When a line does not fit in the buffer it is dropped, and the returned newline is positioned before
+     * {@link #position} so the caller can tell.
+     */
+    private int findLineEnd() throws IOException {
+        int scanFrom = position;
+        boolean dropping = false;
+
+        while (true) {
+            for (int i = scanFrom; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    if (dropping) {
+                        position = i + 1;
+                        return i;
+                    }
+
+                    return i;
+                }
+            }
+
+            if (position > 0) {
+                // move the partial line to the front to make room for more input
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                position = 0;
+            }
+            else if (limit == buffer.length) {
+                if (!dropping) {
+                    recordFailure(ParseFailure.LINE_TOO_LONG, buffer, 0, 0);
+                    dropping = true;
+                }
+
+                limit = 0;
+            }
+
+            scanFrom = limit;
+
+            int read = inputStream.read(buffer, limit, buffer.length - limit);
+
+            if (read < 0) {
+                return -1;
+            }
+
+            limit += read;
+        }
+    }
+
+    private ParseFailure parseScoreJson(ScoreEvent scoreEvent) {
+        scoreEvent.clear();
+
+        boolean hasStudentId = false;
+        boolean hasExam = false;
+        boolean hasScore = false;
+
+        skipWhitespace();
+
+        if (!consume('{')) {
+            return ParseFailure.MALFORMED_JSON;
+        }
+
+        skipWhitespace();
+
+        if (consume('}')) {
+            return ParseFailure.MISSING_FIELD;
+        }
+
+        while (true) {
+            skipWhitespace();
+
+            int keyLength = readString();
+
+            if (keyLength < 0) {
+                return ParseFailure.MALFORMED_JSON;
+            }
+
+            skipWhitespace();
+
+            if (!consume(':')) {
+                return ParseFailure.MALFORMED_JSON;
+            }
+
+            skipWhitespace();
+
+            if (keyIs(keyLength, STUDENT_ID_KEY)) {
+                int valueLength = readString();
+
+                if (valueLength < 0) {
+                    return peek() == '"' ? ParseFailure.MALFORMED_JSON : ParseFailure.MISSING_FIELD;
+                }
+
+                if (valueLength > ScoreEvent.MAX_STUDENT_ID_BYTES) {
+                    return ParseFailure.STUDENT_ID_TOO_LONG;
+                }
+
+                scoreEvent.setStudentId(studentIdCache.get(stringBuffer, 0, valueLength));
+                hasStudentId = true;
+            }
+            else if (keyIs(keyLength, EXAM_KEY)) {
+                int start = jsonPosition;
+                double exam = readNumber();
+
+                if (Double.isNaN(exam) || exam != Math.rint(exam) || Math.abs(exam) > Integer.MAX_VALUE) {
+                    return jsonPosition == start ? ParseFailure.MISSING_FIELD : ParseFailure.INVALID_NUMBER;
+                }
+
+                scoreEvent.setExam((int) exam);
+                hasExam = true;
+            }
+            else if (keyIs(keyLength, SCORE_KEY)) {
+                int start = jsonPosition;
+                double score = readNumber();
+
+                if (Double.isNaN(score)) {
+                    return jsonPosition == start ? ParseFailure.MISSING_FIELD : ParseFailure.INVALID_NUMBER;
+                }
+
+                // also catches numbers too large for a double, which parse as infinite
+                if (Math.abs(score) > maxScore) {
+                    return ParseFailure.SCORE_OUT_OF_RANGE;
+                }
+
+                scoreEvent.setScore(score);
+                hasScore = true;
+            }
+            else if (!skipValue()) {
+                return ParseFailure.MALFORMED_JSON;
+            }
+
+            skipWhitespace();
+
+            if (consume('}')) {
+                break;
+            }
+
+            if (!consume(',')) {
+                return ParseFailure.MALFORMED_JSON;
+            }
+        }
+
+        return hasStudentId && hasExam && hasScore ? null : ParseFailure.MISSING_FIELD;
+    }
+
+    private boolean keyIs(int keyLength, byte[] key) {
+        return Arrays.equals(stringBuffer, 0, keyLength, key, 0, key.length);
+    }
+
+    /**
+     * Reads a JSON string into {@link #stringBuffer}, decoding escapes.
+     *
+     * @return the decoded length in bytes, or -1 if there is no well-formed string at the cursor
+     */
+    private int readString() {
+        if (!consume('"')) {
+            return -1;
+        }
+
+        int length = 0;
+
+        while (jsonPosition < jsonEnd) {
+            byte b = json[jsonPosition++];
+
+            if (b == '"') {
+                return length;
+            }
+
+            if (length + 4 > stringBuffer.length) {
+                stringBuffer = Arrays.copyOf(stringBuffer, stringBuffer.length * 2);
+            }
+
+            if (b != '\\') {
+                stringBuffer[length++] = b;
+                continue;
+            }
+
+            if (jsonPosition >= jsonEnd) {
+                return -1;
+            }
+
+            byte escaped = json[jsonPosition++];
+
+            switch (escaped) {
+                case '"', '\\', '/' -> stringBuffer[length++] = escaped;
+                case 'b' -> stringBuffer[length++] = '\b';
+                case 'f' -> stringBuffer[length++] = '\f';
+                case 'n' -> stringBuffer[length++] = '\n';
+                case 'r' -> stringBuffer[length++] = '\r';
+                case 't' -> stringBuffer[length++] = '\t';
+                case 'u' -> {
+                    int codePoint = readHex4();
+
+                    if (codePoint < 0) {
+                        return -1;
+                    }
+
+                    length = appendUtf8(codePoint, length);
+                }
+                default -> {
+                    return -1;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    private int readHex4() {
+        if (jsonPosition + 4 > jsonEnd) {
+            return -1;
+        }
+
+        int value = 0;
+
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(json[jsonPosition++], 16);
+
+            if (digit < 0) {
+                return -1;
+            }
+
+            value = (value << 4) | digit;
+        }
+
+        return value;
+    }
+
+    private int appendUtf8(int codePoint, int length) {
+        if (codePoint < 0x80) {
+            stringBuffer[length++] = (byte) codePoint;
+        }
+        else if (codePoint < 0x800) {
+            stringBuffer[length++] = (byte) (0xC0 | (codePoint >> 6));
+            stringBuffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        else {
+            // lone surrogates from \\u escapes are kept as their three byte form
+            stringBuffer[length++] = (byte) (0xE0 | (codePoint >> 12));
+            stringBuffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            stringBuffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+
+        return length;
+    }
+
+    /**
+     * Reads a JSON number at the cursor.
+     *
+     * @return the value, or NaN if the cursor is not at a well-formed number
+     */
+    private double readNumber() {
+        int start = jsonPosition;
+        boolean negative = consume('-');
+
+        // up to 18 significant digits always fit in a long
+        long mantissa = 0;
+        int significantDigits = 0;
+        int decimalExponent = 0;
+        int integerDigits = 0;
+
+        while (jsonPosition < jsonEnd && isDigit(json[jsonPosition])) {
+            int digit = json[jsonPosition++] - '0';
+            integerDigits++;
+
+            if (mantissa == 0 && digit == 0) {
+                continue;
+            }
+
+            if (++significantDigits <= 18) {
+                mantissa = mantissa * 10 + digit;
+            }
+            else {
+                decimalExponent++;
+            }
+        }
+
+        if (integerDigits == 0) {
+            jsonPosition = start;
+            return Double.NaN;
+        }
+
+        if (consume('.')) {
+            int fractionDigits = 0;
+
+            while (jsonPosition < jsonEnd && isDigit(json[jsonPosition])) {
+                int digit = json[jsonPosition++] - '0';
+                fractionDigits++;
+
+                if (mantissa == 0 && digit == 0) {
+                    decimalExponent--;
+                }
+                else if (++significantDigits <= 18) {
+                    mantissa = mantissa * 10 + digit;
+                    decimalExponent--;
+                }
+            }
+
+            if (fractionDigits == 0) {
+                return Double.NaN;
+            }
+        }
+
+        boolean hasExponent = jsonPosition < jsonEnd && (json[jsonPosition] == 'e' || json[jsonPosition] == 'E');
+        double value = hasExponent || significantDigits > 18 ? Double.NaN : toDouble(mantissa, decimalExponent);
+
+        if (Double.isNaN(value)) {
+            return parseDoubleSlowly(start);
+        }
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Converts {@code mantissa * 10^decimalExponent} to the nearest double, or returns NaN when the fast path
+     * cannot guarantee correct rounding.
+     */
+    private static double toDouble(long mantissa, int decimalExponent) {
+        if (mantissa == 0) {
+            return 0;
+        }
+
+        if (decimalExponent >= 0) {
+            if (mantissa < (1L << 53) && decimalExponent < POWERS_OF_TEN.length) {
+                return mantissa * POWERS_OF_TEN[decimalExponent];
+            }
+
+            return Double.NaN;
+        }
+
+        if (-decimalExponent >= POWERS_OF_TEN.length) {
+            return Double.NaN;
+        }
+
+        double power = POWERS_OF_TEN[-decimalExponent];
+
+        // both operands are exact, so a single division is correctly rounded
+        if (mantissa < (1L << 53)) {
+            return mantissa / power;
+        }
+
+        // otherwise divide the mantissa as an exact double-double and correct the quotient once
+        double high = (double) mantissa;
+        double low = (double) (mantissa - (long) high);
+        double quotient = high / power;
+        double remainder = Math.fma(-quotient, power, high) + low;
+        double value = quotient + remainder / power;
+
+        // accept the result only when it is clearly closer than half an ulp to the exact value
+        double product = value * power;
+        double residual = (high - product) - Math.fma(value, power, -product) + low;
+        double halfUlp = Math.ulp(value) * power / 2;
+
+        return Math.abs(residual) < halfUlp * 0.999 ? value : Double.NaN;
+    }
+
+    private double parseDoubleSlowly(int start) {
+        jsonPosition = start;
+        consume('-');
+
+        while (jsonPosition < jsonEnd && isNumberChar(json[jsonPosition])) {
+            jsonPosition++;
+        }
+
+        try {
+            return Double.parseDouble(new String(json, start, jsonPosition - start, StandardCharsets.ISO_8859_1));
+        }
+        catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private boolean skipValue() {
+        byte b = peek();
+
+        if (b == '"') {
+            return readString() >= 0;
+        }
+
+        if (b == '{' || b == '[') {
+            // nested values are not needed, only balanced brackets and strings matter
+            int depth = 0;
+
+            while (jsonPosition < jsonEnd) {
+                byte current = json[jsonPosition];
+
+                if (current == '"') {
+                    if (readString() < 0) {
+                        return false;
+                    }
+
+                    continue;
+                }
+
+                jsonPosition++;
+
+                if (current == '{' || current == '[') {
+                    depth++;
+                }
+                else if (current == '}' || current == ']') {
+                    if (--depth == 0) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        int start = jsonPosition;
+
+        while (jsonPosition < jsonEnd && (isNumberChar(json[jsonPosition]) || Character.isLetter(json[jsonPosition]))) {
+            jsonPosition++;
+        }
+
+        return jsonPosition > start;
+    }
+
+    private void skipWhitespace() {
+        while (jsonPosition < jsonEnd) {
+            byte b = json[jsonPosition];
+
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                return;
+            }
+
+            jsonPosition++;
+        }
+    }
+
+    private boolean consume(char expected) {
+        if (jsonPosition < jsonEnd && json[jsonPosition] == expected) {
+            jsonPosition++;
+            return true;
+        }
+
+        return false;
+    }
+
+    private byte peek() {
+        return jsonPosition < jsonEnd ? json[jsonPosition] : 0;
+    }
+
+    private void recordFailure(ParseFailure parseFailure, byte[] bytes, int offset, int length) {
+        failureCounts.incrementAndGet(parseFailure.ordinal());
+        log.error("Skipping score event ({}): {}", parseFailure, new String(bytes, offset, length, StandardCharsets.UTF_8));
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isNumberChar(byte b) {
+        return isDigit(b) || b == '.' || b == '-' || b == '+' || b == 'e' || b == 'E';
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
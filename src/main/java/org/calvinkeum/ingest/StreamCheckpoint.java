@@ -0,0 +1,23 @@
+package org.calvinkeum.ingest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Where a {@link ScoreStreamClient} stopped reading its feed: the last event id the server sent, to resume from
+ * with {@code Last-Event-ID}, and the fingerprints of the latest events, to recognise the ones the server sends
+ * again on resuming.
+ */
+@Data
+@AllArgsConstructor
+public class StreamCheckpoint {
+    /**
+     * The last event id the server sent, or null if it sent none.
+     */
+    private String lastEventId;
+
+    /**
+     * The deduplication window, oldest first, two longs per event. Empty when deduplication is off.
+     */
+    private long[] recentEvents;
+}
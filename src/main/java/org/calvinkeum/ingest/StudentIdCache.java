@@ -0,0 +1,58 @@
+package org.calvinkeum.ingest;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Direct-mapped cache from the raw bytes of a student id to its String, so a student that keeps
+ * receiving scores does not cost a new String per event. ASCII ids are compared in place; anything
+ * else is decoded as UTF-8 without caching.
+ */
+class StudentIdCache {
+    private final String[] entries;
+    private final int mask;
+
+    StudentIdCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1) << 1);
+        entries = new String[size];
+        mask = size - 1;
+    }
+
+    String get(byte[] bytes, int offset, int length) {
+        int hash = 0;
+
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] < 0) {
+                return new String(bytes, offset, length, StandardCharsets.UTF_8);
+            }
+
+            hash = 31 * hash + bytes[i];
+        }
+
+        // same hash as String.hashCode for ASCII, spread before picking a slot
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String cached = entries[slot];
+
+        if (cached != null && matches(cached, bytes, offset, length)) {
+            return cached;
+        }
+
+        String studentId = new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        entries[slot] = studentId;
+
+        return studentId;
+    }
+
+    private static boolean matches(String cached, byte[] bytes, int offset, int length) {
+        if (cached.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (cached.charAt(i) != bytes[offset + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
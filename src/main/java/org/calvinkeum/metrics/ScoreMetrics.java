@@ -0,0 +1,205 @@
+package org.calvinkeum.metrics;
+
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.calvinkeum.DataLoader;
+import org.calvinkeum.controller.EncodedResponseCache;
+import org.calvinkeum.ingest.ParseFailure;
+import org.calvinkeum.ingest.ScoreIngestPipeline;
+import org.calvinkeum.ingest.ScoreStreamClient;
+import org.calvinkeum.repository.ScoreRepository;
+import org.calvinkeum.service.ExamService;
+import org.calvinkeum.service.ScoreRetentionService;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the ingest, store and cache counters to Micrometer. The components keep plain counters of their own
+ * and are only read when the registry is scraped, so none of this adds work to the ingest or request paths,
+ * except for the visibility timer the pipeline records once per applied event.
+ * <p>
+ * Stream counters are tagged with the source they were read from; summing over the tag gives the totals.
+ * <p>
+ * Endpoint latency is covered by Spring's {@code http.server.requests} timer, tagged by uri and status, so
+ * requests turned away by the rate limiter show up there as 429s.
+ * <p>
+ * The store's heap estimates walk every exam or student when scraped, which is linear in the store size.
+ */
+@Component
+@RequiredArgsConstructor
+public class ScoreMetrics implements MeterBinder {
+
+    private final DataLoader dataLoader;
+    private final ScoreIngestPipeline scoreIngestPipeline;
+    private final ExamService examService;
+    private final ScoreRepository scoreRepository;
+    private final RateLimiterRegistry rateLimiterRegistry;
+    private final ScoreRetentionService scoreRetentionService;
+    private final EncodedResponseCache encodedResponseCache;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindStream(registry);
+        bindPipeline(registry);
+        bindStore(registry);
+        bindExamResultsCache(registry);
+        bindEncodedResponseCache(registry);
+        bindRateLimiters(registry);
+    }
+
+    private void bindStream(MeterRegistry registry) {
+        for (ScoreStreamClient scoreStreamClient : dataLoader.getScoreStreamClients()) {
+            String source = scoreStreamClient.getName();
+
+            FunctionCounter.builder("scores.stream.events", scoreStreamClient, ScoreStreamClient::getEventCount)
+                .description("Score events read from the stream")
+                .tag("source", source)
+                .register(registry);
+
+            FunctionCounter.builder("scores.stream.connections", scoreStreamClient, ScoreStreamClient::getConnectionCount)
+                .description("Connections opened to the score stream")
+                .tag("source", source)
+                .register(registry);
+
+            FunctionCounter.builder("scores.stream.duplicates", scoreStreamClient, ScoreStreamClient::getDuplicateCount)
+                .description("Score events dropped because the stream had already sent them, e.g. replayed after a reconnect")
+                .tag("source", source)
+                .register(registry);
+
+            for (ParseFailure parseFailure : ParseFailure.values()) {
+                FunctionCounter.builder("scores.stream.parse.failures", scoreStreamClient, client -> client.getFailureCount(parseFailure))
+                    .description("Score events skipped because they could not be parsed")
+                    .tag("source", source)
+                    .tag("cause", parseFailure.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+            }
+        }
+    }
+
+    private void bindPipeline(MeterRegistry registry) {
+        FunctionCounter.builder("scores.ingest.published", scoreIngestPipeline, ScoreIngestPipeline::getPublishedCount)
+            .description("Score events handed to the ingest pipeline")
+            .register(registry);
+
+        FunctionCounter.builder("scores.ingest.dropped", scoreIngestPipeline, ScoreIngestPipeline::getDroppedCount)
+            .description("Score events dropped because the ingest pipeline was full")
+            .register(registry);
+
+        FunctionCounter.builder("scores.ingest.applied", scoreIngestPipeline, ScoreIngestPipeline::getAppliedCount)
+            .description("Score events applied to the store")
+            .register(registry);
+
+        FunctionCounter.builder("scores.ingest.failed", scoreIngestPipeline, ScoreIngestPipeline::getFailedCount)
+            .description("Score events in batches that failed to be recorded or applied")
+            .register(registry);
+
+        FunctionCounter.builder("scores.ingest.batches", scoreIngestPipeline, ScoreIngestPipeline::getBatchCount)
+            .description("Batches applied to the store")
+            .register(registry);
+
+        Gauge.builder("scores.ingest.queued", scoreIngestPipeline, ScoreIngestPipeline::getQueuedCount)
+            .description("Score events waiting in the ingest pipeline")
+            .register(registry);
+
+        scoreIngestPipeline.setVisibilityTimer(Timer.builder("scores.ingest.visibility")
+            .description("Time from a score event being read off the stream until queries can see it")
+            .publishPercentileHistogram()
+            .register(registry));
+    }
+
+    private void bindStore(MeterRegistry registry) {
+        Gauge.builder("scores.store.students", scoreRepository, ScoreRepository::countStudents)
+            .description("Students with at least one score")
+            .register(registry);
+
+        Gauge.builder("scores.store.exams", scoreRepository, ScoreRepository::countExams)
+            .description("Exams with at least one score")
+            .register(registry);
+
+        bindStoreBytes(registry, "exams", ScoreRepository::estimateExamBytes);
+        bindStoreBytes(registry, "students", ScoreRepository::estimateStudentBytes);
+        bindStoreBytes(registry, "leaderboard", repository -> repository.studentLeaderboard().estimateBytes());
+        bindStoreBytes(registry, "student_ids", ScoreRepository::estimateStudentIdBytes);
+
+        FunctionCounter.builder("scores.store.released.exams", scoreRetentionService, ScoreRetentionService::getReleasedExamCount)
+            .description("Exams whose scores were released to stay within the memory budget or retention limits")
+            .register(registry);
+
+        FunctionCounter.builder("scores.store.released.bytes", scoreRetentionService, ScoreRetentionService::getReleasedBytes)
+            .description("Estimated heap freed by releasing exam scores and trimming student scores")
+            .baseUnit("bytes")
+            .register(registry);
+
+        FunctionCounter.builder("scores.store.trimmed.students", scoreRetentionService, ScoreRetentionService::getTrimmedStudentCount)
+            .description("Times a student's oldest scores were trimmed to stay within the memory budget")
+            .register(registry);
+    }
+
+    private void bindStoreBytes(MeterRegistry registry, String structure, ToDoubleFunction<ScoreRepository> estimate) {
+        Gauge.builder("scores.store.bytes", scoreRepository, estimate)
+            .description("Estimated heap used by each part of the score store")
+            .tag("structure", structure)
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    private void bindExamResultsCache(MeterRegistry registry) {
+        Gauge.builder("scores.exam.results.cache.size", examService, ExamService::getCacheSize)
+            .description("Exam results responses held in the cache")
+            .register(registry);
+
+        FunctionCounter.builder("scores.exam.results.cache.requests", examService, ExamService::getCacheHitCount)
+            .description("Exam results served from the cache, or built because the cache had none or a stale one")
+            .tag("result", "hit")
+            .register(registry);
+
+        FunctionCounter.builder("scores.exam.results.cache.requests", examService, ExamService::getCacheMissCount)
+            .description("Exam results served from the cache, or built because the cache had none or a stale one")
+            .tag("result", "miss")
+            .register(registry);
+
+        FunctionCounter.builder("scores.exam.results.cache.evictions", examService, ExamService::getCacheEvictionCount)
+            .description("Stale exam results replaced in the cache")
+            .register(registry);
+    }
+
+    private void bindEncodedResponseCache(MeterRegistry registry) {
+        Gauge.builder("scores.encoded.responses.cache.size", encodedResponseCache, EncodedResponseCache::getWeight)
+            .description("Bytes of encoded exam results and student averages held in the cache")
+            .baseUnit("bytes")
+            .register(registry);
+
+        FunctionCounter.builder("scores.encoded.responses.cache.requests", encodedResponseCache, EncodedResponseCache::getHitCount)
+            .description("Responses sent from encoded bytes in the cache, or encoded because the cache had none at the current version")
+            .tag("result", "hit")
+            .register(registry);
+
+        FunctionCounter.builder("scores.encoded.responses.cache.requests", encodedResponseCache, EncodedResponseCache::getMissCount)
+            .description("Responses sent from encoded bytes in the cache, or encoded because the cache had none at the current version")
+            .tag("result", "miss")
+            .register(registry);
+    }
+
+    private void bindRateLimiters(MeterRegistry registry) {
+        rateLimiterRegistry.getAllRateLimiters().forEach(rateLimiter -> bindRateLimiter(registry, rateLimiter));
+        rateLimiterRegistry.getEventPublisher().onEntryAdded(event -> bindRateLimiter(registry, event.getAddedEntry()));
+    }
+
+    private void bindRateLimiter(MeterRegistry registry, RateLimiter rateLimiter) {
+        Counter rejections = Counter.builder("scores.ratelimiter.rejections")
+            .description("Requests turned away because the rate limit was exhausted")
+            .tag("name", rateLimiter.getName())
+            .register(registry);
+
+        rateLimiter.getEventPublisher().onFailure(event -> rejections.increment());
+    }
+}
@@ -0,0 +1,19 @@
+package org.calvinkeum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class ExamRank {
+    private String studentId;
+    private int exam;
+    private double score;
+    private int rank;
+    private int scoresBelow;
+    private int totalScores;
+}
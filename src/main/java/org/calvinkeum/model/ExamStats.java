@@ -13,4 +13,25 @@ public class ExamStats {
     private Double scoreSum;
     private int examCount;
     private Double averageScore;
+    private Double minScore;
+    private Double maxScore;
+
+    public static ExamStats empty() {
+        return new ExamStats(0D, 0, 0D, null, null);
+    }
+
+    /**
+     * Returns new stats with the score folded in, leaving this instance untouched so it can be shared with readers.
+     */
+    public ExamStats withScore(double score) {
+        double newScoreSum = scoreSum + score;
+        int newExamCount = examCount + 1;
+
+        return new ExamStats(
+            newScoreSum,
+            newExamCount,
+            newScoreSum / newExamCount,
+            minScore == null ? score : Math.min(minScore, score),
+            maxScore == null ? score : Math.max(maxScore, score));
+    }
 }
@@ -0,0 +1,17 @@
+package org.calvinkeum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class StudentRank {
+    private String studentId;
+    private double averageScore;
+    private int rank;
+    private int totalStudents;
+}
@@ -0,0 +1,339 @@
+package org.calvinkeum.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.calvinkeum.ingest.ScoreEvent;
+import org.calvinkeum.model.StudentExamScore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of every ingested score, split into fixed-size memory-mapped segment files. Each record gets
+ * the next sequence number, and a segment is named after the sequence number of its first record, so a reader
+ * can start replaying from any sequence number without scanning the segments before it.
+ * <p>
+ * Records are {@code [length][crc32c][exam][score][student id]}, where a zero length marks the end of the
+ * written part of a segment. A record whose checksum does not match, e.g. one torn by a crash, ends the log.
+ */
+@Slf4j
+public class ScoreEventLog implements Closeable {
+    private static final String SEGMENT_PREFIX = "scores-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // length, checksum, exam and score
+    private static final int HEADER_BYTES = Integer.BYTES * 3 + Double.BYTES;
+    private static final int MAX_STUDENT_ID_BYTES = ScoreEvent.MAX_STUDENT_ID_BYTES;
+    private static final int REPLAY_BATCH_SIZE = 4096;
+
+    private final Path directory;
+    private final int segmentSize;
+
+    // first sequence number of each segment, in order
+    private final NavigableMap<Long, Path> segments = new TreeMap<>();
+
+    private final CRC32C checksum = new CRC32C();
+    private final ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + MAX_STUDENT_ID_BYTES);
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long nextSequence;
+    private boolean closed;
+
+    private ScoreEventLog(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the log in {@code directory}, positioned after the last intact record. An empty directory starts a
+     * new log whose first record gets {@code startSequence}, e.g. the sequence a snapshot without a log ends at.
+     */
+    public static ScoreEventLog open(Path directory, int segmentSize, long startSequence) throws IOException {
+        if (segmentSize < HEADER_BYTES + MAX_STUDENT_ID_BYTES) {
+            throw new IllegalArgumentException("Segment size must be at least " + (HEADER_BYTES + MAX_STUDENT_ID_BYTES) + " bytes");
+        }
+
+        Files.createDirectories(directory);
+
+        ScoreEventLog scoreEventLog = new ScoreEventLog(directory, segmentSize);
+        scoreEventLog.openSegments(startSequence);
+
+        return scoreEventLog;
+    }
+
+    /**
+     * Returns the sequence number the next appended record will get, which is also the number of records written
+     * since the log was created.
+     */
+    public synchronized long getNextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Returns the sequence number of the oldest record still on disk.
+     */
+    public synchronized long getFirstSequence() {
+        return segments.firstKey();
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Appends the scores in order. Appends after {@link #close()} are ignored.
+     *
+     * @throws IllegalArgumentException if a student id is longer than {@link ScoreEvent#MAX_STUDENT_ID_BYTES}, in
+     *                                  which case nothing of the batch is appended
+     */
+    public synchronized void append(List<StudentExamScore> studentExamScores) {
+        if (closed) {
+            return;
+        }
+
+        for (StudentExamScore studentExamScore : studentExamScores) {
+            String studentId = studentExamScore.getStudentId();
+
+            // a char takes at most three UTF-8 bytes, so only long ids need encoding
+            if (studentId != null && studentId.length() > MAX_STUDENT_ID_BYTES / 3
+                && studentId.getBytes(StandardCharsets.UTF_8).length > MAX_STUDENT_ID_BYTES) {
+                throw new IllegalArgumentException("Cannot log a score for a student id longer than " + MAX_STUDENT_ID_BYTES + " bytes");
+            }
+        }
+
+        try {
+            for (StudentExamScore studentExamScore : studentExamScores) {
+                append(studentExamScore);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to the score event log in " + directory, e);
+        }
+    }
+
+    /**
+     * Feeds every record from {@code fromSequence} on to {@code consumer}, in batches. Records before the oldest
+     * segment still on disk can no longer be replayed and are skipped.
+     *
+     * @return the number of records replayed
+     */
+    public synchronized long replay(long fromSequence, Consumer<List<StudentExamScore>> consumer) throws IOException {
+        Long startSegment = segments.floorKey(fromSequence);
+
+        if (startSegment == null) {
+            log.warn("Score event log starts at {}, events {} to {} are lost", segments.firstKey(), fromSequence, segments.firstKey() - 1);
+            startSegment = segments.firstKey();
+        }
+
+        List<StudentExamScore> batch = new ArrayList<>(REPLAY_BATCH_SIZE);
+        long replayed = 0;
+
+        for (Map.Entry<Long, Path> entry : segments.tailMap(startSegment, true).entrySet()) {
+            long sequence = entry.getKey();
+            ByteBuffer buffer = mapSegment(entry.getValue());
+
+            while (sequence < nextSequence) {
+                StudentExamScore studentExamScore = readRecord(buffer);
+
+                if (studentExamScore == null) {
+                    break;
+                }
+
+                if (sequence++ < fromSequence) {
+                    continue;
+                }
+
+                batch.add(studentExamScore);
+                replayed++;
+
+                if (batch.size() == REPLAY_BATCH_SIZE) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(REPLAY_BATCH_SIZE);
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+
+        return replayed;
+    }
+
+    /**
+     * Deletes the segments that only hold records before {@code sequence}. The segment being written is kept.
+     */
+    public synchronized void deleteSegmentsBefore(long sequence) throws IOException {
+        while (segments.size() > 1) {
+            Map.Entry<Long, Path> oldest = segments.firstEntry();
+            Long next = segments.higherKey(oldest.getKey());
+
+            if (next > sequence) {
+                return;
+            }
+
+            Files.deleteIfExists(oldest.getValue());
+            segments.remove(oldest.getKey());
+        }
+    }
+
+    /**
+     * Flushes the mapped segment to disk. Written records already survive a crash of the process without it,
+     * this also covers a crash of the machine.
+     */
+    public synchronized void force() {
+        if (!closed) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        segment.force();
+        channel.close();
+        closed = true;
+    }
+
+    private void openSegments(long startSequence) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(ScoreEventLog::isSegment).forEach(path -> segments.put(segmentSequence(path), path));
+        }
+
+        if (segments.isEmpty()) {
+            createSegment(startSequence);
+            nextSequence = startSequence;
+            return;
+        }
+
+        // earlier segments are complete, only the last one is appended to and needs scanning for its tail
+        Map.Entry<Long, Path> last = segments.lastEntry();
+        channel = FileChannel.open(last.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), segmentSize));
+        nextSequence = last.getKey();
+
+        while (readRecord(segment) != null) {
+            nextSequence++;
+        }
+
+        int tail = segment.position();
+
+        // clear whatever a crash left behind the last intact record so it cannot be mistaken for a record later
+        if (tail + Integer.BYTES <= segment.limit() && segment.getInt(tail) != 0) {
+            log.warn("Discarding a torn record at offset {} of {}", tail, last.getValue());
+
+            for (int i = tail; i < segment.limit(); i++) {
+                segment.put(i, (byte) 0);
+            }
+        }
+
+        segment.position(tail);
+    }
+
+    private void append(StudentExamScore studentExamScore) throws IOException {
+        byte[] studentId = studentExamScore.getStudentId() == null
+            ? new byte[0]
+            : studentExamScore.getStudentId().getBytes(StandardCharsets.UTF_8);
+
+        record.clear();
+        record.putInt(0);
+        record.putInt(0);
+        record.putInt(studentExamScore.getExam());
+        record.putDouble(studentExamScore.getScore());
+        record.put(studentId);
+
+        checksum.reset();
+        checksum.update(record.array(), Integer.BYTES * 2, record.position() - Integer.BYTES * 2);
+
+        // the length counts the id bytes plus one so that zero can mark the end of a segment
+        record.putInt(0, studentId.length + 1);
+        record.putInt(Integer.BYTES, (int) checksum.getValue());
+        record.flip();
+
+        if (segment.remaining() < record.remaining() + Integer.BYTES) {
+            rollSegment();
+        }
+
+        segment.put(record);
+        nextSequence++;
+    }
+
+    private StudentExamScore readRecord(ByteBuffer buffer) {
+        int start = buffer.position();
+
+        if (buffer.remaining() < HEADER_BYTES) {
+            return null;
+        }
+
+        int length = buffer.getInt(start);
+        int studentIdLength = length - 1;
+
+        if (length <= 0 || studentIdLength > MAX_STUDENT_ID_BYTES || buffer.remaining() < HEADER_BYTES + studentIdLength) {
+            return null;
+        }
+
+        checksum.reset();
+        checksum.update(buffer.slice(start + Integer.BYTES * 2, HEADER_BYTES - Integer.BYTES * 2 + studentIdLength));
+
+        if ((int) checksum.getValue() != buffer.getInt(start + Integer.BYTES)) {
+            return null;
+        }
+
+        int exam = buffer.getInt(start + Integer.BYTES * 2);
+        double score = buffer.getDouble(start + Integer.BYTES * 3);
+        byte[] studentId = new byte[studentIdLength];
+        buffer.get(start + HEADER_BYTES, studentId);
+        buffer.position(start + HEADER_BYTES + studentIdLength);
+
+        return new StudentExamScore(new String(studentId, StandardCharsets.UTF_8), exam, score);
+    }
+
+    private void rollSegment() throws IOException {
+        segment.force();
+        channel.close();
+        createSegment(nextSequence);
+    }
+
+    private void createSegment(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segments.put(firstSequence, path);
+    }
+
+    private ByteBuffer mapSegment(Path path) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        String fileName = path.getFileName().toString();
+        return fileName.startsWith(SEGMENT_PREFIX) && fileName.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long segmentSequence(Path path) {
+        String fileName = path.getFileName().toString();
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,322 @@
+package org.calvinkeum.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.calvinkeum.config.PersistenceProperties;
+import org.calvinkeum.ingest.ScoreIngestPipeline;
+import org.calvinkeum.ingest.StreamCheckpoint;
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ScoreRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the score store on disk across restarts. On startup it loads the newest readable snapshot and replays
+ * the event log from where that snapshot ends, before the ingest pipeline and the web server start. While
+ * running, the pipeline records every batch in the log, and a snapshot is written periodically and on shutdown
+ * so later restarts only replay a short tail.
+ * <p>
+ * The feed readers hand over their {@link StreamCheckpoint}s once stopped, and they are written with the final
+ * snapshot, so after a clean restart the readers resume where they stopped instead of where the servers are now.
+ * <p>
+ * The pipeline depends on this bean rather than the other way round, so Spring starts it before the pipeline and
+ * stops it only once the pipeline has drained.
+ */
+@Component
+@ConditionalOnProperty(prefix = "test-scores.persistence", name = "enabled", havingValue = "true")
+@Slf4j
+public class ScorePersistence implements SmartLifecycle {
+    private final PersistenceProperties properties;
+    private final ScoreRepository scoreRepository;
+    private final Path directory;
+
+    // batches are logged and applied under the read lock, so taking the write lock holds the store still between batches
+    private final ReadWriteLock recordLock = new ReentrantReadWriteLock();
+
+    private volatile ScoreEventLog scoreEventLog;
+    // set once a batch was applied without being logged, until a snapshot covers it
+    private final AtomicBoolean unloggedBatches = new AtomicBoolean();
+    private volatile ScheduledExecutorService scheduler;
+    private long lastSnapshotSequence = -1;
+    private volatile boolean running;
+
+    private volatile Map<String, StreamCheckpoint> restoredStreamCheckpoints = Map.of();
+    private volatile Map<String, StreamCheckpoint> streamCheckpoints;
+
+    public ScorePersistence(PersistenceProperties properties, ScoreRepository scoreRepository) {
+        this.properties = properties;
+        this.scoreRepository = scoreRepository;
+        this.directory = Path.of(properties.getDirectory());
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        long replayed;
+
+        try {
+            long fromSequence = restoreLatestSnapshot();
+            lastSnapshotSequence = fromSequence;
+
+            scoreEventLog = ScoreEventLog.open(directory, (int) properties.getSegmentSize().toBytes(), fromSequence);
+
+            if (scoreEventLog.getNextSequence() < fromSequence) {
+                throw new IOException("The event log ends at " + scoreEventLog.getNextSequence()
+                    + ", before the snapshot at " + fromSequence);
+            }
+
+            replayed = scoreEventLog.replay(fromSequence, batch -> {
+                scoreRepository.addStudentScores(batch);
+                scoreRepository.addExamScores(batch);
+            });
+
+            restoredStreamCheckpoints = restoreStreamCheckpoints();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to restore the scores from " + directory.toAbsolutePath(), e);
+        }
+
+        log.info("Restored {} students and {} exams, replaying {} logged events, in {} ms ({} ms after JVM start)",
+            scoreRepository.countStudents(), scoreRepository.countExams(), replayed,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), ManagementFactory.getRuntimeMXBean().getUptime());
+
+        long intervalMillis = properties.getSnapshotInterval().toMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "score-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+        running = true;
+    }
+
+    /**
+     * Writes a final snapshot once the pipeline has drained, so the next start has nothing to replay.
+     */
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        scheduler.shutdownNow();
+        snapshotQuietly();
+        writeStreamCheckpoints();
+
+        try {
+            scoreEventLog.close();
+        }
+        catch (IOException e) {
+            log.error("Failed to close the score event log: {}", e.getLocalizedMessage());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // restore before the pipeline starts logging and applying new events
+        return ScoreIngestPipeline.PHASE - 2;
+    }
+
+    /**
+     * Returns the checkpoint a feed reader stopped at before the restart, if the store holds exactly what it had read.
+     */
+    public Optional<StreamCheckpoint> getStreamCheckpoint(String source) {
+        return Optional.ofNullable(restoredStreamCheckpoints.get(source));
+    }
+
+    /**
+     * Keeps the checkpoints of the stopped feed readers to be written on shutdown. Everything they read must reach
+     * the log before then, which the pipeline draining ahead of this bean ensures.
+     */
+    public void saveStreamCheckpoints(Map<String, StreamCheckpoint> streamCheckpoints) {
+        this.streamCheckpoints = Map.copyOf(streamCheckpoints);
+    }
+
+    /**
+     * Appends the batch to the event log, then applies it with {@code applier}. A batch that cannot be logged is
+     * still applied, and a snapshot is taken right away to cover it, together with whatever part of it made it into
+     * the log. Until that snapshot is written, a crash loses the batch.
+     */
+    public void record(List<StudentExamScore> batch, Runnable applier) {
+        recordLock.readLock().lock();
+
+        try {
+            ScoreEventLog currentLog = scoreEventLog;
+
+            try {
+                if (currentLog != null) {
+                    currentLog.append(batch);
+                }
+            }
+            catch (UncheckedIOException | IllegalArgumentException e) {
+                log.error("Failed to log {} score events, a snapshot will cover them: {}", batch.size(), e.getLocalizedMessage());
+
+                if (unloggedBatches.compareAndSet(false, true)) {
+                    requestSnapshot();
+                }
+            }
+
+            applier.run();
+        }
+        finally {
+            recordLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the store unless nothing was logged or applied unlogged since the last one.
+     *
+     * @return the snapshot file, or null if none was needed
+     */
+    public synchronized Path snapshot() throws IOException {
+        long startNanos = System.nanoTime();
+
+        ScoreSnapshot scoreSnapshot;
+        boolean coversUnloggedBatches;
+
+        // capturing between batches keeps the snapshot in step with its sequence number
+        recordLock.writeLock().lock();
+
+        try {
+            scoreSnapshot = ScoreSnapshot.capture(scoreRepository, scoreEventLog.getNextSequence());
+            coversUnloggedBatches = unloggedBatches.getAndSet(false);
+        }
+        finally {
+            recordLock.writeLock().unlock();
+        }
+
+        if (scoreSnapshot.getSequence() == lastSnapshotSequence && !coversUnloggedBatches) {
+            return null;
+        }
+
+        Path path;
+
+        try {
+            path = scoreSnapshot.write(directory);
+        }
+        catch (IOException | RuntimeException e) {
+            // the next periodic snapshot tries again
+            if (coversUnloggedBatches) {
+                unloggedBatches.set(true);
+            }
+
+            throw e;
+        }
+
+        lastSnapshotSequence = scoreSnapshot.getSequence();
+
+        log.info("Wrote a snapshot of {} students and {} exams up to event {} in {} ms",
+            scoreSnapshot.countStudents(), scoreSnapshot.countExams(), scoreSnapshot.getSequence(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+        deleteOldSnapshots();
+
+        return path;
+    }
+
+    private void requestSnapshot() {
+        try {
+            scheduler.execute(this::snapshotQuietly);
+        }
+        catch (RejectedExecutionException e) {
+            // stopping, and the final snapshot covers the batch
+            log.debug("Not scheduling a snapshot: {}", e.getLocalizedMessage());
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        }
+        catch (IOException | RuntimeException e) {
+            log.error("Failed to write a score snapshot: {}", e.getLocalizedMessage());
+        }
+    }
+
+    private Map<String, StreamCheckpoint> restoreStreamCheckpoints() {
+        try {
+            Map<String, StreamCheckpoint> restored = StreamCheckpoints.read(directory, scoreEventLog.getNextSequence());
+
+            if (!restored.isEmpty()) {
+                log.info("Feeds {} resume where they stopped", restored.keySet());
+            }
+
+            return restored;
+        }
+        catch (IOException e) {
+            log.warn("Skipping the stream checkpoints: {}", e.getLocalizedMessage());
+            return Map.of();
+        }
+    }
+
+    private void writeStreamCheckpoints() {
+        Map<String, StreamCheckpoint> checkpoints = streamCheckpoints;
+
+        if (checkpoints == null) {
+            return;
+        }
+
+        // tagged with where the log ends, so they are only used if nothing is logged before the next start
+        try {
+            StreamCheckpoints.write(directory, scoreEventLog.getNextSequence(), checkpoints);
+        }
+        catch (IOException e) {
+            log.error("Failed to write the stream checkpoints: {}", e.getLocalizedMessage());
+        }
+    }
+
+    private long restoreLatestSnapshot() throws IOException {
+        for (Path path : ScoreSnapshot.list(directory)) {
+            try {
+                long sequence = ScoreSnapshot.restore(path, scoreRepository);
+                log.info("Loaded snapshot {}", path.getFileName());
+                return sequence;
+            }
+            catch (IOException e) {
+                log.warn("Skipping snapshot {}: {}", path.getFileName(), e.getLocalizedMessage());
+            }
+        }
+
+        return 0;
+    }
+
+    private void deleteOldSnapshots() throws IOException {
+        List<Path> snapshots = ScoreSnapshot.list(directory);
+        int snapshotsToKeep = Math.max(1, properties.getSnapshotsToKeep());
+
+        for (Path path : snapshots.subList(Math.min(snapshotsToKeep, snapshots.size()), snapshots.size())) {
+            Files.deleteIfExists(path);
+        }
+
+        // the log is kept from the oldest remaining snapshot on, so falling back to it still has its tail
+        Path oldestKept = snapshots.get(Math.min(snapshotsToKeep, snapshots.size()) - 1);
+        scoreEventLog.deleteSegmentsBefore(ScoreSnapshot.sequenceOf(oldestKept));
+    }
+}
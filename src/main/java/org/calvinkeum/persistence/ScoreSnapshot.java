@@ -0,0 +1,299 @@
+package org.calvinkeum.persistence;
+
+import org.calvinkeum.model.ExamStats;
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ExamScores;
+import org.calvinkeum.repository.ScoreHistogram;
+import org.calvinkeum.repository.ScoreRepository;
+import org.calvinkeum.repository.StudentScores;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point-in-time copy of the score store, tagged with the sequence number of the first event log record it does
+ * not cover. The file holds each student's exam and score columns and each exam's score column, all in arrival
+ * order, with student ids written once and referenced by position, followed by a checksum of everything before it.
+ * The running totals are not stored, they are rebuilt as the columns are loaded, except for what was dropped from
+ * the columns: the stats of a student's trimmed scores, and an exam's released stats and histogram, are stored
+ * ahead of their columns.
+ */
+public class ScoreSnapshot {
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final int MAGIC = 0x54535331;
+    private static final int FORMAT_VERSION = 1;
+
+    private final long sequence;
+    private final List<StudentScores.Snapshot> students;
+    private final List<ExamScores.Snapshot> exams;
+
+    private ScoreSnapshot(long sequence, List<StudentScores.Snapshot> students, List<ExamScores.Snapshot> exams) {
+        this.sequence = sequence;
+        this.students = students;
+        this.exams = exams;
+    }
+
+    /**
+     * Captures the current contents of the repository. No scores may be added while this runs, or the copy may
+     * not match {@code sequence}; it only takes views of the store, the file is written afterwards.
+     */
+    public static ScoreSnapshot capture(ScoreRepository scoreRepository, long sequence) {
+        List<StudentScores.Snapshot> students = new ArrayList<>(scoreRepository.countStudents());
+        List<ExamScores.Snapshot> exams = new ArrayList<>(scoreRepository.countExams());
+
+        for (String studentId : scoreRepository.studentIds()) {
+            students.add(scoreRepository.findStudent(studentId).snapshot());
+        }
+
+        for (Integer exam : scoreRepository.examNumbers()) {
+            exams.add(scoreRepository.findExam(exam).snapshotWithReleased());
+        }
+
+        return new ScoreSnapshot(sequence, students, exams);
+    }
+
+    /**
+     * Returns the snapshot files in {@code directory}, newest first.
+     */
+    public static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(path -> path.getFileName().toString().startsWith(SNAPSHOT_PREFIX))
+                .filter(path -> path.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                .sorted(Comparator.comparing(Path::getFileName).reversed())
+                .toList();
+        }
+    }
+
+    /**
+     * Returns the sequence number a snapshot file was written at, taken from its name.
+     */
+    public static long sequenceOf(Path path) {
+        String fileName = path.getFileName().toString();
+        return Long.parseLong(fileName.substring(SNAPSHOT_PREFIX.length(), fileName.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int countStudents() {
+        return students.size();
+    }
+
+    public int countExams() {
+        return exams.size();
+    }
+
+    /**
+     * Writes the snapshot into {@code directory}. The file only appears under its final name once it is complete.
+     *
+     * @return the written file
+     */
+    public Path write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+
+        String fileName = String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX);
+        Path path = directory.resolve(fileName);
+        Path temporaryPath = directory.resolve(fileName + ".tmp");
+
+        CheckedOutputStream checkedOutputStream = new CheckedOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(temporaryPath), 64 * 1024), new CRC32C());
+
+        try (DataOutputStream dataOutputStream = new DataOutputStream(checkedOutputStream)) {
+            dataOutputStream.writeInt(MAGIC);
+            dataOutputStream.writeInt(FORMAT_VERSION);
+            dataOutputStream.writeLong(sequence);
+
+            Map<String, Integer> studentRefs = new HashMap<>(students.size() * 2);
+            dataOutputStream.writeInt(students.size());
+
+            for (StudentScores.Snapshot student : students) {
+                studentRefs.put(student.getStudentId(), studentRefs.size());
+                dataOutputStream.writeUTF(student.getStudentId());
+                writeStats(dataOutputStream, student.getTrimmedStats());
+                dataOutputStream.writeInt(student.size());
+
+                for (int i = 0; i < student.size(); i++) {
+                    dataOutputStream.writeInt(student.getExam(i));
+                    dataOutputStream.writeDouble(student.getScore(i));
+                }
+            }
+
+            dataOutputStream.writeInt(exams.size());
+
+            for (ExamScores.Snapshot exam : exams) {
+                dataOutputStream.writeInt(exam.getExam());
+                writeReleased(dataOutputStream, exam);
+                dataOutputStream.writeInt(exam.size());
+
+                for (int i = 0; i < exam.size(); i++) {
+                    dataOutputStream.writeInt(studentRefs.get(exam.getStudentId(i)));
+                    dataOutputStream.writeDouble(exam.getScore(i));
+                }
+            }
+
+            // the checksum covers everything written so far and is not part of itself
+            dataOutputStream.writeInt((int) checkedOutputStream.getChecksum().getValue());
+        }
+
+        // make the contents durable before the rename can make them visible
+        try (FileChannel fileChannel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE)) {
+            fileChannel.force(true);
+        }
+
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        return path;
+    }
+
+    /**
+     * Loads the snapshot in {@code path} into an empty repository. The file is verified before anything is
+     * loaded, so a damaged snapshot leaves the repository untouched.
+     *
+     * @return the sequence number of the first event log record the snapshot does not cover
+     */
+    public static long restore(Path path, ScoreRepository scoreRepository) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        int checksumOffset = bytes.length - Integer.BYTES;
+
+        if (checksumOffset < 0) {
+            throw new IOException("Snapshot " + path + " is truncated");
+        }
+
+        CRC32C checksum = new CRC32C();
+        checksum.update(bytes, 0, checksumOffset);
+
+        if ((int) checksum.getValue() != ByteBuffer.wrap(bytes).getInt(checksumOffset)) {
+            throw new IOException("Snapshot " + path + " is damaged, its checksum does not match");
+        }
+
+        DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(bytes, 0, checksumOffset));
+
+        if (dataInputStream.readInt() != MAGIC || dataInputStream.readInt() != FORMAT_VERSION) {
+            throw new IOException(path + " is not a score snapshot this version can read");
+        }
+
+        long sequence = dataInputStream.readLong();
+        String[] studentIds = new String[dataInputStream.readInt()];
+
+        for (int i = 0; i < studentIds.length; i++) {
+            studentIds[i] = dataInputStream.readUTF();
+
+            ExamStats trimmedStats = readStats(dataInputStream);
+
+            if (trimmedStats != null) {
+                scoreRepository.restoreTrimmedStudent(studentIds[i], trimmedStats);
+            }
+
+            int size = dataInputStream.readInt();
+            List<StudentExamScore> studentExamScores = new ArrayList<>(size);
+
+            for (int j = 0; j < size; j++) {
+                studentExamScores.add(new StudentExamScore(studentIds[i], dataInputStream.readInt(), dataInputStream.readDouble()));
+            }
+
+            scoreRepository.addStudentScores(studentExamScores);
+        }
+
+        int examCount = dataInputStream.readInt();
+
+        for (int i = 0; i < examCount; i++) {
+            int exam = dataInputStream.readInt();
+            readReleased(dataInputStream, exam, scoreRepository);
+
+            int size = dataInputStream.readInt();
+            List<StudentExamScore> studentExamScores = new ArrayList<>(size);
+
+            for (int j = 0; j < size; j++) {
+                studentExamScores.add(new StudentExamScore(studentIds[dataInputStream.readInt()], exam, dataInputStream.readDouble()));
+            }
+
+            scoreRepository.addExamScores(studentExamScores);
+        }
+
+        return sequence;
+    }
+
+    /**
+     * Writes the count of the stats, followed by their sum, minimum and maximum unless they are empty.
+     */
+    private static void writeStats(DataOutputStream dataOutputStream, ExamStats stats) throws IOException {
+        dataOutputStream.writeInt(stats.getExamCount());
+
+        if (stats.getExamCount() > 0) {
+            dataOutputStream.writeDouble(stats.getScoreSum());
+            dataOutputStream.writeDouble(stats.getMinScore());
+            dataOutputStream.writeDouble(stats.getMaxScore());
+        }
+    }
+
+    /**
+     * Reads what {@link #writeStats} wrote, null for empty stats.
+     */
+    private static ExamStats readStats(DataInputStream dataInputStream) throws IOException {
+        int count = dataInputStream.readInt();
+
+        if (count == 0) {
+            return null;
+        }
+
+        double scoreSum = dataInputStream.readDouble();
+
+        return new ExamStats(scoreSum, count, scoreSum / count, dataInputStream.readDouble(), dataInputStream.readDouble());
+    }
+
+    private static void writeReleased(DataOutputStream dataOutputStream, ExamScores.Snapshot exam) throws IOException {
+        ExamStats releasedStats = exam.getReleasedStats();
+        writeStats(dataOutputStream, releasedStats);
+
+        if (releasedStats.getExamCount() == 0) {
+            return;
+        }
+
+        long[] counts = exam.getReleasedHistogram().getCounts();
+        dataOutputStream.writeInt(counts.length);
+
+        for (long count : counts) {
+            dataOutputStream.writeLong(count);
+        }
+    }
+
+    private static void readReleased(DataInputStream dataInputStream, int exam, ScoreRepository scoreRepository) throws IOException {
+        ExamStats releasedStats = readStats(dataInputStream);
+
+        if (releasedStats == null) {
+            return;
+        }
+
+        long[] counts = new long[dataInputStream.readInt()];
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = dataInputStream.readLong();
+        }
+
+        scoreRepository.restoreReleasedExam(exam, releasedStats, ScoreHistogram.of(counts));
+    }
+}
@@ -0,0 +1,138 @@
+package org.calvinkeum.persistence;
+
+import org.calvinkeum.ingest.StreamCheckpoint;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The {@link StreamCheckpoint} of every score feed, tagged with the sequence number the event log had reached
+ * when they were taken. They only describe the store if nothing was logged since, so a file whose sequence is not
+ * where the log ends, e.g. after a crash logged more events, is not used. Like a snapshot, the file ends with a
+ * checksum of everything before it.
+ */
+public class StreamCheckpoints {
+    private static final String FILE_NAME = "stream-checkpoints.bin";
+    private static final int MAGIC = 0x54535343;
+    private static final int FORMAT_VERSION = 1;
+
+    private StreamCheckpoints() {
+    }
+
+    /**
+     * Writes the checkpoints into {@code directory}, replacing the previous ones once complete.
+     *
+     * @param sequence the sequence number of the next event log record
+     */
+    public static void write(Path directory, long sequence, Map<String, StreamCheckpoint> streamCheckpoints) throws IOException {
+        Files.createDirectories(directory);
+
+        Path path = directory.resolve(FILE_NAME);
+        Path temporaryPath = directory.resolve(FILE_NAME + ".tmp");
+
+        CheckedOutputStream checkedOutputStream = new CheckedOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(temporaryPath), 64 * 1024), new CRC32C());
+
+        try (DataOutputStream dataOutputStream = new DataOutputStream(checkedOutputStream)) {
+            dataOutputStream.writeInt(MAGIC);
+            dataOutputStream.writeInt(FORMAT_VERSION);
+            dataOutputStream.writeLong(sequence);
+            dataOutputStream.writeInt(streamCheckpoints.size());
+
+            for (Map.Entry<String, StreamCheckpoint> entry : streamCheckpoints.entrySet()) {
+                String lastEventId = entry.getValue().getLastEventId();
+                long[] recentEvents = entry.getValue().getRecentEvents();
+
+                dataOutputStream.writeUTF(entry.getKey());
+                dataOutputStream.writeBoolean(lastEventId != null);
+
+                if (lastEventId != null) {
+                    dataOutputStream.writeUTF(lastEventId);
+                }
+
+                dataOutputStream.writeInt(recentEvents.length);
+
+                for (long recentEvent : recentEvents) {
+                    dataOutputStream.writeLong(recentEvent);
+                }
+            }
+
+            // the checksum covers everything written so far and is not part of itself
+            dataOutputStream.writeInt((int) checkedOutputStream.getChecksum().getValue());
+        }
+
+        try (FileChannel fileChannel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE)) {
+            fileChannel.force(true);
+        }
+
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the checkpoints in {@code directory} if they were taken at {@code sequence}.
+     *
+     * @return the checkpoint of each feed by name, empty if there are none to resume from
+     * @throws IOException if the file cannot be read or is damaged
+     */
+    public static Map<String, StreamCheckpoint> read(Path directory, long sequence) throws IOException {
+        Path path = directory.resolve(FILE_NAME);
+
+        if (!Files.exists(path)) {
+            return Map.of();
+        }
+
+        byte[] bytes = Files.readAllBytes(path);
+        int checksumOffset = bytes.length - Integer.BYTES;
+
+        if (checksumOffset < 0) {
+            throw new IOException("Stream checkpoints " + path + " are truncated");
+        }
+
+        CRC32C checksum = new CRC32C();
+        checksum.update(bytes, 0, checksumOffset);
+
+        if ((int) checksum.getValue() != ByteBuffer.wrap(bytes).getInt(checksumOffset)) {
+            throw new IOException("Stream checkpoints " + path + " are damaged, their checksum does not match");
+        }
+
+        DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(bytes, 0, checksumOffset));
+
+        if (dataInputStream.readInt() != MAGIC || dataInputStream.readInt() != FORMAT_VERSION) {
+            throw new IOException(path + " are not stream checkpoints this version can read");
+        }
+
+        if (dataInputStream.readLong() != sequence) {
+            return Map.of();
+        }
+
+        int count = dataInputStream.readInt();
+        Map<String, StreamCheckpoint> streamCheckpoints = new LinkedHashMap<>(count * 2);
+
+        for (int i = 0; i < count; i++) {
+            String source = dataInputStream.readUTF();
+            String lastEventId = dataInputStream.readBoolean() ? dataInputStream.readUTF() : null;
+            long[] recentEvents = new long[dataInputStream.readInt()];
+
+            for (int j = 0; j < recentEvents.length; j++) {
+                recentEvents[j] = dataInputStream.readLong();
+            }
+
+            streamCheckpoints.put(source, new StreamCheckpoint(lastEventId, recentEvents));
+        }
+
+        return streamCheckpoints;
+    }
+}
@@ -0,0 +1,259 @@
+package org.calvinkeum.repository;
+
+import org.calvinkeum.config.ScoreStoreProperties;
+import org.calvinkeum.model.ExamStats;
+import org.calvinkeum.model.StudentExamScore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link ScoreRepository} backed by lock-free sorted maps. Each exam and student owns its own
+ * accumulator, so writers only contend when they update the same key and readers never take a lock.
+ */
+@Repository
+public class ConcurrentScoreRepository implements ScoreRepository {
+    private final ConcurrentSkipListMap<Integer, ExamScores> examScoresMap = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, StudentScores> studentScoresMap = new ConcurrentSkipListMap<>();
+
+    // ConcurrentSkipListMap.size() walks the whole map, so track the key counts separately
+    private final AtomicInteger examCount = new AtomicInteger();
+    private final AtomicInteger studentCount = new AtomicInteger();
+    private final AtomicLong studentScoresVersion = new AtomicLong();
+
+    private final StudentIdDictionary studentIdDictionary = new StudentIdDictionary();
+    private final StudentLeaderboard studentLeaderboard = new StudentLeaderboard(studentIdDictionary);
+    private final int scorePrecision;
+    private final ScoreWindows.Layout windowLayout;
+
+    public ConcurrentScoreRepository() {
+        this(new ScoreStoreProperties());
+    }
+
+    @Autowired
+    public ConcurrentScoreRepository(ScoreStoreProperties scoreStoreProperties) {
+        this(scoreStoreProperties, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock the current time in milliseconds, which places scores in the time windows
+     */
+    public ConcurrentScoreRepository(ScoreStoreProperties scoreStoreProperties, LongSupplier clock) {
+        ScoreColumn.checkPrecision(scoreStoreProperties.getScorePrecision());
+
+        this.scorePrecision = scoreStoreProperties.getScorePrecision();
+        this.windowLayout = new ScoreWindows.Layout(scoreStoreProperties.getWindowDurations(),
+            scoreStoreProperties.getWindowBuckets(), scoreStoreProperties.getWindowCounts(), clock);
+    }
+
+    @Override
+    public void addExamScore(StudentExamScore studentExamScore) {
+        int studentIndex = studentIdDictionary.encode(studentExamScore.getStudentId());
+
+        getOrCreateExam(studentExamScore.getExam()).add(studentIndex, studentExamScore.getScore());
+    }
+
+    @Override
+    public void addStudentScore(StudentExamScore studentExamScore) {
+        StudentScores studentScores = getOrCreateStudent(studentExamScore.getStudentId());
+        studentScores.add(studentExamScore.getExam(), studentExamScore.getScore());
+        studentLeaderboard.update(studentScores);
+        studentScoresVersion.incrementAndGet();
+    }
+
+    @Override
+    public void addExamScores(List<StudentExamScore> studentExamScores) {
+        // group by exam so each exam is looked up and locked once per batch, keeping the arrival order within it
+        Map<Integer, List<StudentExamScore>> scoresByExam = new LinkedHashMap<>();
+
+        for (StudentExamScore studentExamScore : studentExamScores) {
+            scoresByExam.computeIfAbsent(studentExamScore.getExam(), exam -> new ArrayList<>()).add(studentExamScore);
+        }
+
+        for (Map.Entry<Integer, List<StudentExamScore>> entry : scoresByExam.entrySet()) {
+            List<StudentExamScore> examBatch = entry.getValue();
+            int[] studentIndexes = new int[examBatch.size()];
+            double[] scores = new double[examBatch.size()];
+
+            for (int i = 0; i < examBatch.size(); i++) {
+                studentIndexes[i] = studentIdDictionary.encode(examBatch.get(i).getStudentId());
+                scores[i] = examBatch.get(i).getScore();
+            }
+
+            getOrCreateExam(entry.getKey()).addAll(studentIndexes, scores, examBatch.size());
+        }
+    }
+
+    @Override
+    public void addStudentScores(List<StudentExamScore> studentExamScores) {
+        List<StudentScores> updatedStudents = new ArrayList<>();
+        StudentScores studentScores = null;
+
+        for (StudentExamScore studentExamScore : studentExamScores) {
+            // consecutive scores for the same student reuse the lookup
+            if (studentScores == null || !studentScores.getStudentId().equals(studentExamScore.getStudentId())) {
+                studentScores = getOrCreateStudent(studentExamScore.getStudentId());
+                updatedStudents.add(studentScores);
+            }
+
+            studentScores.add(studentExamScore.getExam(), studentExamScore.getScore());
+        }
+
+        // re-rank every student the batch touched under a single lock
+        studentLeaderboard.updateAll(updatedStudents);
+
+        // bumped last, so a reader never sees a version newer than the data behind it
+        studentScoresVersion.addAndGet(studentExamScores.size());
+    }
+
+    @Override
+    public void restoreReleasedExam(int exam, ExamStats releasedStats, ScoreHistogram releasedHistogram) {
+        getOrCreateExam(exam).restoreReleased(releasedStats, releasedHistogram);
+    }
+
+    @Override
+    public void restoreTrimmedStudent(String studentId, ExamStats trimmedStats) {
+        StudentScores studentScores = getOrCreateStudent(studentId);
+        studentScores.restoreTrimmed(trimmedStats);
+        studentLeaderboard.update(studentScores);
+        studentScoresVersion.addAndGet(trimmedStats.getExamCount());
+    }
+
+    @Override
+    public ExamScores findExam(int exam) {
+        return examScoresMap.get(exam);
+    }
+
+    @Override
+    public StudentScores findStudent(String studentId) {
+        if (studentId == null) {
+            return null;
+        }
+
+        return studentScoresMap.get(studentId);
+    }
+
+    @Override
+    public SortedMap<Integer, ExamScores> findExams(Collection<Integer> exams) {
+        return findAll(examScoresMap, exams);
+    }
+
+    @Override
+    public SortedMap<String, StudentScores> findStudents(Collection<String> studentIds) {
+        return findAll(studentScoresMap, studentIds);
+    }
+
+    @Override
+    public StudentLeaderboard studentLeaderboard() {
+        return studentLeaderboard;
+    }
+
+    @Override
+    public long studentScoresVersion() {
+        return studentScoresVersion.get();
+    }
+
+    @Override
+    public ScoreWindows.Layout windowLayout() {
+        return windowLayout;
+    }
+
+    @Override
+    public NavigableSet<Integer> examNumbers() {
+        return examScoresMap.keySet();
+    }
+
+    @Override
+    public NavigableSet<String> studentIds() {
+        return studentScoresMap.keySet();
+    }
+
+    @Override
+    public int countExams() {
+        return examCount.get();
+    }
+
+    @Override
+    public int countStudents() {
+        return studentCount.get();
+    }
+
+    @Override
+    public long estimateExamBytes() {
+        return examScoresMap.values().stream().mapToLong(ExamScores::estimateBytes).sum();
+    }
+
+    @Override
+    public long estimateStudentBytes() {
+        return studentScoresMap.values().stream().mapToLong(StudentScores::estimateBytes).sum();
+    }
+
+    @Override
+    public long estimateStudentIdBytes() {
+        return studentIdDictionary.estimateBytes();
+    }
+
+    private static <K, V> SortedMap<K, V> findAll(ConcurrentSkipListMap<K, V> map, Collection<K> keys) {
+        SortedMap<K, V> found = new TreeMap<>();
+
+        // each distinct key is resolved once, in sorted order
+        for (K key : new TreeSet<>(keys)) {
+            V value = map.get(key);
+
+            if (value != null) {
+                found.put(key, value);
+            }
+        }
+
+        return found;
+    }
+
+    private ExamScores getOrCreateExam(int exam) {
+        ExamScores examScores = examScoresMap.get(exam);
+
+        if (examScores != null) {
+            return examScores;
+        }
+
+        ExamScores created = new ExamScores(exam, studentIdDictionary, scorePrecision, windowLayout);
+        examScores = examScoresMap.putIfAbsent(exam, created);
+
+        if (examScores == null) {
+            examCount.incrementAndGet();
+            return created;
+        }
+
+        return examScores;
+    }
+
+    private StudentScores getOrCreateStudent(String studentId) {
+        StudentScores studentScores = studentScoresMap.get(studentId);
+
+        if (studentScores != null) {
+            return studentScores;
+        }
+
+        StudentScores created = new StudentScores(studentId, scorePrecision, windowLayout);
+        studentScores = studentScoresMap.putIfAbsent(studentId, created);
+
+        if (studentScores == null) {
+            studentCount.incrementAndGet();
+            return created;
+        }
+
+        return studentScores;
+    }
+}
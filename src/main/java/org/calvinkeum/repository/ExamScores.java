@@ -0,0 +1,452 @@
+package org.calvinkeum.repository;
+
+import org.calvinkeum.model.ExamRank;
+import org.calvinkeum.model.ExamStats;
+import org.calvinkeum.model.StudentExamScore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Append-only columnar store of the scores recorded for one exam: a dictionary-encoded student column
+ * and a primitive score column, plus running {@link ExamStats} updated on every append. Writers serialize
+ * on this instance; readers take a snapshot of the published prefix without locking.
+ * <p>
+ * Column positions are also kept in an order-statistic tree sorted by score, which serves score-ordered
+ * pages and per-student ranks, and in a {@link ScoreHistogram} of each student's latest score that serves the
+ * score distribution. Both are guarded by a read/write lock held only for the tree and histogram operations.
+ * <p>
+ * The columns can be released to bound memory, see {@link #release()}. The stats, histogram and time windows
+ * still cover every score, while the columns, the tree and windows over the latest scores start again empty.
+ */
+public class ExamScores {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int exam;
+    private final StudentIdDictionary studentIdDictionary;
+    private final int scorePrecision;
+    private final ScoreWindows.Layout windowLayout;
+
+    // swapped as a whole on release, so readers never pair new columns with an old offset
+    private volatile Columns columns;
+
+    private final ReadWriteLock scoreIndexLock = new ReentrantReadWriteLock();
+    private IntOrderStatisticTree scoreIndex;
+    private IntIntHashMap studentPositions = new IntIntHashMap();
+    private final ScoreHistogram histogram = new ScoreHistogram();
+    // the histogram as of the last release, replaced on the next one but never modified
+    private volatile ScoreHistogram releasedHistogram;
+    private final ScoreWindows windows;
+
+    // the stats' exam count, less the released scores, doubles as the published size of the columns
+    private volatile ExamStats stats = ExamStats.empty();
+    private volatile long lastAddedMillis;
+
+    public ExamScores(int exam, StudentIdDictionary studentIdDictionary, int scorePrecision) {
+        this(exam, studentIdDictionary, scorePrecision, ScoreWindows.Layout.NONE);
+    }
+
+    public ExamScores(int exam, StudentIdDictionary studentIdDictionary, int scorePrecision, ScoreWindows.Layout windowLayout) {
+        this.exam = exam;
+        this.studentIdDictionary = studentIdDictionary;
+        this.scorePrecision = scorePrecision;
+        this.windowLayout = windowLayout;
+        this.columns = new Columns(ScoreColumn.create(scorePrecision), ExamStats.empty(), 0);
+        this.scoreIndex = new IntOrderStatisticTree(this::compareScores);
+        this.windows = new ScoreWindows(windowLayout);
+    }
+
+    public int getExam() {
+        return exam;
+    }
+
+    /**
+     * Returns how many scores the columns hold, which is every score added unless some were released.
+     */
+    public int size() {
+        return Math.max(0, stats.getExamCount() - columns.getOffset());
+    }
+
+    /**
+     * Returns when the last score was added, in milliseconds on the store's clock, or 0 if none was.
+     */
+    public long getLastAddedMillis() {
+        return lastAddedMillis;
+    }
+
+    public ExamStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns a version that grows with every score added to this exam and every release of its columns. It
+     * moves when the new stats are published, so anything read after it is at least as new as the version says.
+     */
+    public long version() {
+        // read the stats first, as in snapshot()
+        ExamStats current = stats;
+
+        return current.getExamCount() + columns.releases;
+    }
+
+    public void add(int studentIndex, double score) {
+        addAll(new int[] { studentIndex }, new double[] { score }, 1);
+    }
+
+    /**
+     * Appends the first {@code count} entries of the given columns, taking the locks and publishing the stats
+     * once for the whole batch.
+     */
+    public synchronized void addAll(int[] newStudentIndexes, double[] newScores, int count) {
+        ExamStats current = stats;
+        Columns currentColumns = columns;
+        ScoreColumn scores = currentColumns.scores;
+        int size = current.getExamCount() - currentColumns.getOffset();
+        int[] indexes = currentColumns.studentIndexes;
+
+        if (size + count > indexes.length) {
+            indexes = Arrays.copyOf(indexes, Math.max(size + count, indexes.length * 2));
+            currentColumns.studentIndexes = indexes;
+        }
+
+        for (int i = 0; i < count; i++) {
+            indexes[size + i] = newStudentIndexes[i];
+            scores.set(size + i, newScores[i]);
+            current = current.withScore(newScores[i]);
+        }
+
+        windows.addAll(scores, size, count);
+
+        scoreIndexLock.writeLock().lock();
+
+        try {
+            for (int i = 0; i < count; i++) {
+                int position = size + i;
+
+                // a student who retakes the exam is ranked on the latest score
+                int previous = studentPositions.get(newStudentIndexes[i], -1);
+
+                if (previous >= 0) {
+                    scoreIndex.remove(previous);
+                    histogram.remove(scores.get(previous));
+                }
+
+                scoreIndex.insert(position);
+                histogram.add(scores.get(position));
+                studentPositions.put(newStudentIndexes[i], position);
+            }
+        }
+        finally {
+            scoreIndexLock.writeLock().unlock();
+        }
+
+        lastAddedMillis = windowLayout.currentTimeMillis();
+
+        // publishing the new stats makes the columns above visible to readers
+        stats = current;
+    }
+
+    /**
+     * Drops the scores held in the columns, together with the score order and ranks and the windows over the
+     * latest scores built from them, and starts new, empty columns. The stats, the histogram and the time windows
+     * keep covering the released scores. A student who retakes the exam afterwards is counted in the histogram
+     * again, as their released score can no longer be taken back.
+     *
+     * @return an estimate of the bytes freed, 0 if the columns held no scores
+     */
+    public synchronized long release() {
+        ExamStats current = stats;
+        Columns currentColumns = columns;
+
+        if (current.getExamCount() == currentColumns.getOffset()) {
+            return 0;
+        }
+
+        long freed;
+
+        scoreIndexLock.writeLock().lock();
+
+        try {
+            freed = currentColumns.estimateBytes() + scoreIndex.estimateBytes() + studentPositions.estimateBytes();
+
+            // every student's latest score is released now, and later retakes are added to the histogram on top
+            releasedHistogram = histogram.copy();
+            columns = new Columns(ScoreColumn.create(scorePrecision), current, currentColumns.releases + 1);
+            scoreIndex = new IntOrderStatisticTree(this::compareScores);
+            studentPositions = new IntIntHashMap();
+            windows.clearLatest();
+        }
+        finally {
+            scoreIndexLock.writeLock().unlock();
+        }
+
+        return freed;
+    }
+
+    /**
+     * Loads what an earlier instance released of this exam: the stats and the histogram of each student's latest
+     * released score. Only valid before any score is added.
+     */
+    public synchronized void restoreReleased(ExamStats releasedStats, ScoreHistogram releasedHistogram) {
+        if (stats.getExamCount() != 0) {
+            throw new IllegalStateException("Exam " + exam + " already has scores");
+        }
+
+        scoreIndexLock.writeLock().lock();
+
+        try {
+            histogram.merge(releasedHistogram);
+            this.releasedHistogram = releasedHistogram.copy();
+            columns = new Columns(ScoreColumn.create(scorePrecision), releasedStats, 0);
+        }
+        finally {
+            scoreIndexLock.writeLock().unlock();
+        }
+
+        stats = releasedStats;
+    }
+
+    /**
+     * Returns a view of the scores published so far. Later appends are not reflected in it.
+     */
+    public Snapshot snapshot() {
+        // read the stats before the columns: any column published after them still holds the same prefix
+        ExamStats current = stats;
+
+        return new Snapshot(current, columns);
+    }
+
+    /**
+     * Returns a view like {@link #snapshot()} that also holds the histogram of the released scores, which a
+     * persisted copy needs. Both are taken while no score is added or released; the histogram is kept from the last
+     * release, so this never waits for the score index.
+     */
+    public synchronized Snapshot snapshotWithReleased() {
+        Snapshot snapshot = snapshot();
+
+        if (snapshot.releasedStats.getExamCount() > 0) {
+            snapshot.releasedHistogram = releasedHistogram;
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Returns how many distinct students have a score on this exam, including released ones.
+     */
+    public int countStudents() {
+        scoreIndexLock.readLock().lock();
+
+        try {
+            return (int) histogram.getTotal();
+        }
+        finally {
+            scoreIndexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a copy of the histogram of each student's latest score on this exam.
+     */
+    public ScoreHistogram histogram() {
+        scoreIndexLock.readLock().lock();
+
+        try {
+            return histogram.copy();
+        }
+        finally {
+            scoreIndexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the sum, count and average of the scores in the window at {@code index} of the repository's
+     * {@link ScoreWindows.Layout}, counting every score including retakes.
+     */
+    public ExamStats findWindow(int index) {
+        return windows.find(index);
+    }
+
+    /**
+     * Returns up to {@code limit} scores ordered by score, starting at position {@code skip} of that order.
+     * Only each student's latest score is included.
+     */
+    public List<StudentExamScore> findByScore(int skip, int limit, boolean descending) {
+        List<StudentExamScore> studentExamScores = new ArrayList<>(Math.max(0, limit));
+
+        scoreIndexLock.readLock().lock();
+
+        try {
+            // the columns only change under the write lock when they are released
+            int[] indexes = columns.studentIndexes;
+            ScoreColumn scores = columns.scores;
+
+            scoreIndex.forEach(skip, limit, descending, position -> studentExamScores.add(
+                new StudentExamScore(studentIdDictionary.decode(indexes[position]), exam, scores.get(position))));
+        }
+        finally {
+            scoreIndexLock.readLock().unlock();
+        }
+
+        return studentExamScores;
+    }
+
+    /**
+     * Returns where the student's latest score on this exam ranks, or null if the student has no score for it.
+     * Rank 1 is the highest score and tied scores share a rank.
+     */
+    public ExamRank findRank(String studentId) {
+        int studentIndex = studentIdDictionary.indexOf(studentId);
+
+        if (studentIndex < 0) {
+            return null;
+        }
+
+        scoreIndexLock.readLock().lock();
+
+        try {
+            int position = studentPositions.get(studentIndex, -1);
+
+            if (position < 0) {
+                return null;
+            }
+
+            ScoreColumn scores = columns.scores;
+            double score = scores.get(position);
+            int totalScores = scoreIndex.size();
+            int[] counts = scoreIndex.countBeforeAndMatching(other -> Double.compare(scores.get(other), score));
+            int scoresBelow = counts[0];
+            int scoresAtOrBelow = counts[0] + counts[1];
+
+            return ExamRank.builder()
+                .studentId(studentId)
+                .exam(exam)
+                .score(score)
+                .rank(totalScores - scoresAtOrBelow + 1)
+                .scoresBelow(scoresBelow)
+                .totalScores(totalScores)
+                .build();
+        }
+        finally {
+            scoreIndexLock.readLock().unlock();
+        }
+    }
+
+    public long estimateBytes() {
+        scoreIndexLock.readLock().lock();
+
+        try {
+            return columns.estimateBytes()
+                + scoreIndex.estimateBytes()
+                + studentPositions.estimateBytes()
+                + (long) histogram.getBins() * Long.BYTES * (releasedHistogram != null ? 2 : 1)
+                + windows.estimateBytes();
+        }
+        finally {
+            scoreIndexLock.readLock().unlock();
+        }
+    }
+
+    private int compareScores(int a, int b) {
+        ScoreColumn scores = columns.scores;
+        int result = Double.compare(scores.get(a), scores.get(b));
+        return result != 0 ? result : Integer.compare(a, b);
+    }
+
+    /**
+     * The student and score columns, and the stats of the scores released before their first position.
+     */
+    private static class Columns {
+        private final ScoreColumn scores;
+        private final ExamStats releasedStats;
+        private final int releases;
+        private volatile int[] studentIndexes = new int[INITIAL_CAPACITY];
+
+        private Columns(ScoreColumn scores, ExamStats releasedStats, int releases) {
+            this.scores = scores;
+            this.releasedStats = releasedStats;
+            this.releases = releases;
+        }
+
+        private int getOffset() {
+            return releasedStats.getExamCount();
+        }
+
+        private long estimateBytes() {
+            return (long) studentIndexes.length * Integer.BYTES + scores.estimateBytes();
+        }
+    }
+
+    public class Snapshot {
+        private final ExamStats stats;
+        private final int size;
+        private final int[] studentIndexes;
+        private final ScoreColumn scores;
+        private final ExamStats releasedStats;
+        private final long version;
+        private ScoreHistogram releasedHistogram;
+
+        private Snapshot(ExamStats stats, Columns columns) {
+            // columns released after the stats were read hold none of the scores the stats count
+            this.stats = stats;
+            this.version = stats.getExamCount() + columns.releases;
+            this.size = Math.max(0, stats.getExamCount() - columns.getOffset());
+            this.studentIndexes = columns.studentIndexes;
+            this.scores = columns.scores;
+            this.releasedStats = size == 0 && columns.getOffset() > stats.getExamCount() ? stats : columns.releasedStats;
+        }
+
+        public int getExam() {
+            return exam;
+        }
+
+        public ExamStats getStats() {
+            return stats;
+        }
+
+        /**
+         * Returns the exam's {@link #version()} this view was taken at.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns the stats of the scores released before the ones in this view, empty if none were released.
+         */
+        public ExamStats getReleasedStats() {
+            return releasedStats;
+        }
+
+        /**
+         * Returns the histogram of the latest released score of every student whose latest score was released, only
+         * set on views from {@link #snapshotWithReleased()} of an exam with released scores. Not to be modified.
+         */
+        public ScoreHistogram getReleasedHistogram() {
+            return releasedHistogram;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public String getStudentId(int index) {
+            return studentIdDictionary.decode(studentIndexes[checkIndex(index)]);
+        }
+
+        public double getScore(int index) {
+            return scores.get(checkIndex(index));
+        }
+
+        private int checkIndex(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+
+            return index;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.calvinkeum.repository;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from non-negative int keys to int values, avoiding a boxed entry per key.
+ * Not thread-safe: callers guard it with their own lock.
+ */
+public class IntIntHashMap {
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    public IntIntHashMap() {
+        this(16);
+    }
+
+    public IntIntHashMap(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(4, initialCapacity * 2 - 1));
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value for {@code key}, or {@code defaultValue} if it is not present.
+     */
+    public int get(int key, int defaultValue) {
+        int slot = find(keys, key);
+        return keys[slot] == key ? values[slot] : defaultValue;
+    }
+
+    public void put(int key, int value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Key must not be negative: " + key);
+        }
+
+        int slot = find(keys, key);
+
+        if (keys[slot] == key) {
+            values[slot] = value;
+            return;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+
+        if (++size * 4 > keys.length * 3) {
+            resize();
+        }
+    }
+
+    public int remove(int key, int defaultValue) {
+        int slot = find(keys, key);
+
+        if (keys[slot] != key) {
+            return defaultValue;
+        }
+
+        int removed = values[slot];
+        keys[slot] = EMPTY;
+        size--;
+
+        // re-insert the rest of the probe run so lookups past the freed slot still find their keys
+        int mask = keys.length - 1;
+
+        for (int next = (slot + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int movedKey = keys[next];
+            int movedValue = values[next];
+            keys[next] = EMPTY;
+
+            int target = find(keys, movedKey);
+            keys[target] = movedKey;
+            values[target] = movedValue;
+        }
+
+        return removed;
+    }
+
+    public long estimateBytes() {
+        return (long) keys.length * Integer.BYTES * 2;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int find(int[] keys, int key) {
+        int mask = keys.length - 1;
+        int slot = (key * 0x9E3779B9 >>> 7) & mask;
+
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+}
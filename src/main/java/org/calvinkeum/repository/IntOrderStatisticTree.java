@@ -0,0 +1,306 @@
+package org.calvinkeum.repository;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Order-statistic treap over int node ids, stored in parallel primitive arrays instead of node objects.
+ * The ordering comes from a {@link NodeComparator}, which must be total (break ties on the node id) and must
+ * not change for a node while it is in the tree. Rank, select and positioned iteration are O(log n).
+ * <p>
+ * Not thread-safe: callers guard it with their own lock.
+ */
+public class IntOrderStatisticTree {
+    private static final int NIL = -1;
+
+    @FunctionalInterface
+    public interface NodeComparator {
+        int compare(int a, int b);
+    }
+
+    private final NodeComparator comparator;
+
+    private int[] left = new int[0];
+    private int[] right = new int[0];
+    private int[] size = new int[0];
+    private int root = NIL;
+
+    public IntOrderStatisticTree(NodeComparator comparator) {
+        this.comparator = comparator;
+    }
+
+    public int size() {
+        return sizeOf(root);
+    }
+
+    public void insert(int node) {
+        ensureCapacity(node);
+
+        left[node] = NIL;
+        right[node] = NIL;
+        size[node] = 1;
+
+        root = insert(root, node);
+    }
+
+    public void remove(int node) {
+        root = remove(root, node);
+    }
+
+    /**
+     * Returns how many nodes are ordered before {@code node}, which must be in the tree.
+     */
+    public int rank(int node) {
+        return countBefore(other -> comparator.compare(other, node));
+    }
+
+    /**
+     * Returns how many nodes are ordered before a probe key. {@code compareToKey} returns a negative value
+     * for nodes before the key and a non-negative value otherwise, consistently with the tree order.
+     */
+    public int countBefore(IntUnaryOperator compareToKey) {
+        int count = 0;
+        int current = root;
+
+        while (current != NIL) {
+            if (compareToKey.applyAsInt(current) < 0) {
+                count += sizeOf(left[current]) + 1;
+                current = right[current];
+            }
+            else {
+                current = left[current];
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns how many nodes are ordered before a probe key and how many match it, as {@code {before, matching}},
+     * in one descent. {@code compareToKey} returns a negative value for nodes before the key, zero for nodes
+     * matching it and a positive value otherwise, consistently with the tree order.
+     */
+    public int[] countBeforeAndMatching(IntUnaryOperator compareToKey) {
+        int before = 0;
+        int current = root;
+
+        // descend to the highest matching node; every other match is in one of its subtrees
+        while (current != NIL) {
+            int comparison = compareToKey.applyAsInt(current);
+
+            if (comparison < 0) {
+                before += sizeOf(left[current]) + 1;
+                current = right[current];
+            }
+            else if (comparison > 0) {
+                current = left[current];
+            }
+            else {
+                break;
+            }
+        }
+
+        if (current == NIL) {
+            return new int[] { before, 0 };
+        }
+
+        // the left subtree only holds nodes before the key or matching it, the right one matches or comes after
+        int matchingLeft = 0;
+        int node = left[current];
+
+        while (node != NIL) {
+            if (compareToKey.applyAsInt(node) < 0) {
+                node = right[node];
+            }
+            else {
+                matchingLeft += sizeOf(right[node]) + 1;
+                node = left[node];
+            }
+        }
+
+        int matchingRight = 0;
+        node = right[current];
+
+        while (node != NIL) {
+            if (compareToKey.applyAsInt(node) > 0) {
+                node = left[node];
+            }
+            else {
+                matchingRight += sizeOf(left[node]) + 1;
+                node = right[node];
+            }
+        }
+
+        return new int[] { before + sizeOf(left[current]) - matchingLeft, matchingLeft + 1 + matchingRight };
+    }
+
+    /**
+     * Visits up to {@code limit} nodes in order, starting at position {@code skip} of the ascending
+     * or descending order.
+     */
+    public void forEach(int skip, int limit, boolean descending, IntConsumer consumer) {
+        if (skip >= size() || limit <= 0) {
+            return;
+        }
+
+        // descend to the node at position skip, keeping the ancestors still to be visited on a stack
+        int[] stack = new int[64];
+        int depth = 0;
+        int current = root;
+        int remaining = skip;
+
+        while (current != NIL) {
+            int before = sizeOf(descending ? right[current] : left[current]);
+
+            if (remaining < before) {
+                stack = push(stack, depth++, current);
+                current = descending ? right[current] : left[current];
+            }
+            else if (remaining == before) {
+                stack = push(stack, depth++, current);
+                break;
+            }
+            else {
+                remaining -= before + 1;
+                current = descending ? left[current] : right[current];
+            }
+        }
+
+        int visited = 0;
+
+        while (depth > 0 && visited < limit) {
+            int node = stack[--depth];
+            consumer.accept(node);
+            visited++;
+
+            current = descending ? left[node] : right[node];
+
+            while (current != NIL) {
+                stack = push(stack, depth++, current);
+                current = descending ? right[current] : left[current];
+            }
+        }
+    }
+
+    public long estimateBytes() {
+        return (long) left.length * Integer.BYTES * 3;
+    }
+
+    private int insert(int current, int node) {
+        if (current == NIL) {
+            return node;
+        }
+
+        if (comparator.compare(node, current) < 0) {
+            left[current] = insert(left[current], node);
+
+            if (priority(left[current]) > priority(current)) {
+                current = rotateRight(current);
+            }
+        }
+        else {
+            right[current] = insert(right[current], node);
+
+            if (priority(right[current]) > priority(current)) {
+                current = rotateLeft(current);
+            }
+        }
+
+        update(current);
+        return current;
+    }
+
+    private int remove(int current, int node) {
+        if (current == NIL) {
+            return NIL;
+        }
+
+        if (current == node) {
+            return merge(left[current], right[current]);
+        }
+
+        if (comparator.compare(node, current) < 0) {
+            left[current] = remove(left[current], node);
+        }
+        else {
+            right[current] = remove(right[current], node);
+        }
+
+        update(current);
+        return current;
+    }
+
+    private int merge(int a, int b) {
+        if (a == NIL) {
+            return b;
+        }
+
+        if (b == NIL) {
+            return a;
+        }
+
+        if (priority(a) > priority(b)) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    private int rotateRight(int node) {
+        int pivot = left[node];
+        left[node] = right[pivot];
+        right[pivot] = node;
+        update(node);
+        return pivot;
+    }
+
+    private int rotateLeft(int node) {
+        int pivot = right[node];
+        right[node] = left[pivot];
+        left[pivot] = node;
+        update(node);
+        return pivot;
+    }
+
+    private void update(int node) {
+        size[node] = sizeOf(left[node]) + sizeOf(right[node]) + 1;
+    }
+
+    private int sizeOf(int node) {
+        return node == NIL ? 0 : size[node];
+    }
+
+    private void ensureCapacity(int node) {
+        if (node < left.length) {
+            return;
+        }
+
+        int capacity = Math.max(node + 1, Math.max(16, left.length * 2));
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        size = Arrays.copyOf(size, capacity);
+    }
+
+    private static int[] push(int[] stack, int depth, int node) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+
+        stack[depth] = node;
+        return stack;
+    }
+
+    // node ids are dense, so hash them into a pseudo-random heap priority instead of storing one
+    private static int priority(int node) {
+        int h = node * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+}
@@ -0,0 +1,115 @@
+package org.calvinkeum.repository;
+
+import java.util.Arrays;
+
+/**
+ * Growable primitive column of scores. Callers serialize writes and publish the new size themselves;
+ * the backing arrays are volatile so a reader that sees a grown array also sees the copied values.
+ */
+public abstract class ScoreColumn {
+    public static final int MAX_PRECISION = 9;
+
+    /**
+     * @throws IllegalArgumentException if the precision is negative or above {@link #MAX_PRECISION}
+     */
+    public static ScoreColumn create(int precision) {
+        checkPrecision(precision);
+
+        if (precision == 0) {
+            return new DoubleScoreColumn();
+        }
+
+        return new FixedPointScoreColumn(precision);
+    }
+
+    /**
+     * Returns the largest magnitude a score may have to be stored at the given precision: any finite double at 0,
+     * and {@code Integer.MAX_VALUE / 10^precision} for fixed-point columns, e.g. about 2.147 at precision 9.
+     *
+     * @throws IllegalArgumentException if the precision is negative or above {@link #MAX_PRECISION}
+     */
+    public static double maxScore(int precision) {
+        checkPrecision(precision);
+
+        return precision == 0 ? Double.MAX_VALUE : Integer.MAX_VALUE / Math.pow(10, precision);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the precision is negative or above {@link #MAX_PRECISION}
+     */
+    public static void checkPrecision(int precision) {
+        if (precision < 0 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Score precision must be between 0 and " + MAX_PRECISION + ", got " + precision);
+        }
+    }
+
+    public abstract double get(int index);
+
+    abstract void set(int index, double score);
+
+    public abstract long estimateBytes();
+
+    static int grownCapacity(int capacity, int index) {
+        return Math.max(index + 1, capacity * 2);
+    }
+
+    static class DoubleScoreColumn extends ScoreColumn {
+        private volatile double[] values = new double[16];
+
+        @Override
+        public double get(int index) {
+            return values[index];
+        }
+
+        @Override
+        void set(int index, double score) {
+            double[] current = values;
+
+            if (index >= current.length) {
+                current = Arrays.copyOf(current, grownCapacity(current.length, index));
+                values = current;
+            }
+
+            current[index] = score;
+        }
+
+        @Override
+        public long estimateBytes() {
+            return (long) values.length * Double.BYTES;
+        }
+    }
+
+    static class FixedPointScoreColumn extends ScoreColumn {
+        private final double scale;
+
+        private volatile int[] values = new int[16];
+
+        FixedPointScoreColumn(int precision) {
+            this.scale = Math.pow(10, precision);
+        }
+
+        @Override
+        public double get(int index) {
+            return values[index] / scale;
+        }
+
+        @Override
+        void set(int index, double score) {
+            int[] current = values;
+
+            if (index >= current.length) {
+                current = Arrays.copyOf(current, grownCapacity(current.length, index));
+                values = current;
+            }
+
+            // scores beyond maxScore are rejected when parsed, any that get here anyway saturate instead of wrapping
+            long value = Math.round(score * scale);
+            current[index] = (int) Math.max(-Integer.MAX_VALUE, Math.min(Integer.MAX_VALUE, value));
+        }
+
+        @Override
+        public long estimateBytes() {
+            return (long) values.length * Integer.BYTES;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.calvinkeum.repository;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-bin histogram over the 0–1 score range. Scores outside the range are counted in the first or last bin.
+ * Histograms with the same number of bins can be merged, and percentiles are interpolated within a bin, so
+ * every query costs the same no matter how many scores were counted. Not thread-safe.
+ */
+public class ScoreHistogram {
+    public static final int DEFAULT_BINS = 100;
+
+    private final long[] counts;
+    private long total;
+
+    public ScoreHistogram() {
+        this(DEFAULT_BINS);
+    }
+
+    public ScoreHistogram(int bins) {
+        if (bins < 1) {
+            throw new IllegalArgumentException("A histogram needs at least one bin: " + bins);
+        }
+
+        this.counts = new long[bins];
+    }
+
+    private ScoreHistogram(long[] counts, long total) {
+        this.counts = counts;
+        this.total = total;
+    }
+
+    /**
+     * Returns a histogram holding the given bin counts, such as ones read back from {@link #getCounts()}.
+     */
+    public static ScoreHistogram of(long[] counts) {
+        if (counts.length < 1) {
+            throw new IllegalArgumentException("A histogram needs at least one bin: " + counts.length);
+        }
+
+        return new ScoreHistogram(counts.clone(), Arrays.stream(counts).sum());
+    }
+
+    public void add(double score) {
+        counts[binOf(score)]++;
+        total++;
+    }
+
+    /**
+     * Takes back a score counted earlier, such as a student's previous score on a retaken exam.
+     */
+    public void remove(double score) {
+        int bin = binOf(score);
+
+        if (counts[bin] > 0) {
+            counts[bin]--;
+            total--;
+        }
+    }
+
+    public void merge(ScoreHistogram other) {
+        if (other.counts.length != counts.length) {
+            throw new IllegalArgumentException("Cannot merge a histogram of " + other.counts.length + " bins into one of " + counts.length);
+        }
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+
+        total += other.total;
+    }
+
+    public ScoreHistogram copy() {
+        return new ScoreHistogram(counts.clone(), total);
+    }
+
+    public int getBins() {
+        return counts.length;
+    }
+
+    public double getBinWidth() {
+        return 1.0 / counts.length;
+    }
+
+    public long getCount(int bin) {
+        return counts[bin];
+    }
+
+    public long[] getCounts() {
+        return counts.clone();
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the score below which {@code percentile} percent of the counted scores fall, assuming scores are
+     * spread evenly within each bin, or NaN if the histogram is empty.
+     */
+    public double percentile(double percentile) {
+        if (total == 0) {
+            return Double.NaN;
+        }
+
+        double rank = Math.min(100, Math.max(0, percentile)) / 100 * total;
+        long below = 0;
+
+        for (int bin = 0; bin < counts.length; bin++) {
+            long count = counts[bin];
+
+            if (count > 0 && below + count >= rank) {
+                return (bin + (rank - below) / count) / counts.length;
+            }
+
+            below += count;
+        }
+
+        return 1.0;
+    }
+
+    private int binOf(double score) {
+        // NaN fails both comparisons and lands in the first bin
+        if (!(score > 0)) {
+            return 0;
+        }
+
+        return Math.min(counts.length - 1, (int) (score * counts.length));
+    }
+
+    @Override
+    public String toString() {
+        return "ScoreHistogram{total=" + total + ", counts=" + Arrays.toString(counts) + "}";
+    }
+}
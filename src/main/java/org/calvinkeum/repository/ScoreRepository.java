@@ -0,0 +1,102 @@
+package org.calvinkeum.repository;
+
+import org.calvinkeum.model.ExamStats;
+import org.calvinkeum.model.StudentExamScore;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.SortedMap;
+
+/**
+ * Shared store for the exam and student score data fed by the ingest path and read by the services.
+ * Implementations must allow request threads to read while one or more writers are ingesting.
+ */
+public interface ScoreRepository {
+
+    void addExamScore(StudentExamScore studentExamScore);
+
+    void addStudentScore(StudentExamScore studentExamScore);
+
+    /**
+     * Adds a batch of scores on the exam side, in order, resolving each exam once per batch.
+     */
+    void addExamScores(List<StudentExamScore> studentExamScores);
+
+    /**
+     * Adds a batch of scores on the student side, in order.
+     */
+    void addStudentScores(List<StudentExamScore> studentExamScores);
+
+    /**
+     * Loads the released part of an exam written by an earlier instance, before any of its other scores are added.
+     * See {@link ExamScores#restoreReleased}.
+     */
+    void restoreReleasedExam(int exam, ExamStats releasedStats, ScoreHistogram releasedHistogram);
+
+    /**
+     * Loads the trimmed part of a student written by an earlier instance, before any of their other scores are
+     * added. See {@link StudentScores#restoreTrimmed}.
+     */
+    void restoreTrimmedStudent(String studentId, ExamStats trimmedStats);
+
+    ExamScores findExam(int exam);
+
+    StudentScores findStudent(String studentId);
+
+    /**
+     * Looks up several exams in one call, in exam order. Exams without scores are left out.
+     */
+    SortedMap<Integer, ExamScores> findExams(Collection<Integer> exams);
+
+    /**
+     * Looks up several students in one call, in id order. Students without scores are left out.
+     */
+    SortedMap<String, StudentScores> findStudents(Collection<String> studentIds);
+
+    /**
+     * Every student ordered by average score, kept up to date as scores are added.
+     */
+    StudentLeaderboard studentLeaderboard();
+
+    /**
+     * Version of everything derived from all students at once, such as the leaderboard. It grows with every
+     * score added on the student side, once the score is visible in the students and the leaderboard.
+     */
+    long studentScoresVersion();
+
+    /**
+     * The sliding windows every exam and student keeps, see {@link ExamScores#findWindow(int)} and
+     * {@link StudentScores#findWindow(int)}.
+     */
+    ScoreWindows.Layout windowLayout();
+
+    /**
+     * Sorted, weakly consistent view of the exam numbers that have at least one score.
+     */
+    NavigableSet<Integer> examNumbers();
+
+    /**
+     * Sorted, weakly consistent view of the student ids that have at least one score.
+     */
+    NavigableSet<String> studentIds();
+
+    int countExams();
+
+    int countStudents();
+
+    /**
+     * Estimated heap bytes held by every exam's columns, indexes, histogram and windows. Walks all exams.
+     */
+    long estimateExamBytes();
+
+    /**
+     * Estimated heap bytes held by every student's columns and windows. Walks all students.
+     */
+    long estimateStudentBytes();
+
+    /**
+     * Estimated heap bytes held by the dictionary of student ids shared by the exams and the leaderboard.
+     */
+    long estimateStudentIdBytes();
+}
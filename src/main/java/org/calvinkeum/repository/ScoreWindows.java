@@ -0,0 +1,248 @@
+package org.calvinkeum.repository;
+
+import org.calvinkeum.model.ExamStats;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding-window sums of the scores recorded for one exam or student, updated on every append so that reading a
+ * window costs the same however many scores it covers.
+ * <p>
+ * A time window is a ring of buckets, each holding the sum and count of the scores stored during one slice of the
+ * window. A bucket is reused once its slice has left the window, so a window covers the current, partial slice and
+ * the ones before it, between {@code (buckets - 1) / buckets} of its duration and all of it. A window over the latest
+ * n scores keeps a running sum and takes back the score n positions earlier as each one is added, reading it from
+ * the owner's score column instead of keeping a copy, so they start again empty when the owner releases its column.
+ * <p>
+ * Writers call in while holding the owner's lock; readers synchronize on this instance, which only guards the
+ * window state and is held for a fixed number of buckets.
+ */
+public class ScoreWindows {
+    private final Layout layout;
+
+    private final double[] bucketSums;
+    private final int[] bucketCounts;
+    private final long[] bucketSlices;
+    private final double[] latestSums;
+    private long added;
+
+    ScoreWindows(Layout layout) {
+        this.layout = layout;
+
+        int bucketTotal = layout.sliceMillis.length * layout.buckets;
+        this.bucketSums = new double[bucketTotal];
+        this.bucketCounts = new int[bucketTotal];
+        this.bucketSlices = new long[bucketTotal];
+        this.latestSums = new double[layout.counts.length];
+
+        Arrays.fill(bucketSlices, Long.MIN_VALUE);
+    }
+
+    /**
+     * Folds in the scores stored at positions {@code from} to {@code from + count - 1} of the column. The owner
+     * must have written them already and must add positions in order.
+     */
+    synchronized void addAll(ScoreColumn scores, int from, int count) {
+        if (layout.isEmpty()) {
+            return;
+        }
+
+        long now = layout.clock.getAsLong();
+
+        for (int window = 0; window < layout.sliceMillis.length; window++) {
+            long slice = Math.floorDiv(now, layout.sliceMillis[window]);
+            int bucket = window * layout.buckets + (int) Math.floorMod(slice, (long) layout.buckets);
+
+            // the bucket still holds a slice that has left the window
+            if (bucketSlices[bucket] != slice) {
+                bucketSlices[bucket] = slice;
+                bucketSums[bucket] = 0;
+                bucketCounts[bucket] = 0;
+            }
+
+            for (int position = from; position < from + count; position++) {
+                bucketSums[bucket] += scores.get(position);
+            }
+
+            bucketCounts[bucket] += count;
+        }
+
+        for (int position = from; position < from + count; position++) {
+            double score = scores.get(position);
+
+            for (int window = 0; window < layout.counts.length; window++) {
+                int dropped = position - layout.counts[window];
+                latestSums[window] += dropped >= 0 ? score - scores.get(dropped) : score;
+            }
+        }
+
+        added += count;
+    }
+
+    /**
+     * Empties the windows over the latest scores, for an owner that starts its score column again.
+     */
+    synchronized void clearLatest() {
+        Arrays.fill(latestSums, 0);
+        added = 0;
+    }
+
+    /**
+     * Returns the sum, count and average of the scores in the window at {@code index} of the layout. Minimum and
+     * maximum are not tracked and left null.
+     */
+    synchronized ExamStats find(int index) {
+        double scoreSum = 0;
+        int scoreCount = 0;
+
+        if (index < layout.sliceMillis.length) {
+            long oldestSlice = Math.floorDiv(layout.clock.getAsLong(), layout.sliceMillis[index]) - layout.buckets;
+
+            for (int bucket = index * layout.buckets; bucket < (index + 1) * layout.buckets; bucket++) {
+                if (bucketSlices[bucket] > oldestSlice) {
+                    scoreSum += bucketSums[bucket];
+                    scoreCount += bucketCounts[bucket];
+                }
+            }
+        }
+        else {
+            int window = index - layout.sliceMillis.length;
+            scoreSum = latestSums[window];
+            scoreCount = (int) Math.min(added, layout.counts[window]);
+        }
+
+        return ExamStats.builder()
+            .scoreSum(scoreSum)
+            .examCount(scoreCount)
+            .averageScore(scoreCount == 0 ? null : scoreSum / scoreCount)
+            .build();
+    }
+
+    public long estimateBytes() {
+        return (long) bucketSums.length * (Double.BYTES + Integer.BYTES + Long.BYTES) + (long) latestSums.length * Double.BYTES;
+    }
+
+    /**
+     * The windows every exam and student keeps, shared by all of them: time windows first, then windows over the
+     * latest scores. A window is referred to by its index in {@link #getWindows()}.
+     */
+    public static class Layout {
+        public static final Layout NONE = new Layout(List.of(), 1, List.of(), System::currentTimeMillis);
+
+        private final List<String> windows;
+        private final long[] sliceMillis;
+        private final int buckets;
+        private final int[] counts;
+        private final LongSupplier clock;
+
+        /**
+         * @param durations the time windows, each split into {@code buckets} slices of whole milliseconds
+         * @param counts    the numbers of latest scores to keep windows over
+         * @param clock     the current time in milliseconds, for time windows
+         * @throws IllegalArgumentException if a window is not positive or shorter than a millisecond per bucket
+         */
+        public Layout(List<Duration> durations, int buckets, List<Integer> counts, LongSupplier clock) {
+            if (buckets < 1) {
+                throw new IllegalArgumentException("A time window needs at least one bucket");
+            }
+
+            List<String> names = new ArrayList<>();
+            this.sliceMillis = new long[durations.size()];
+            this.buckets = buckets;
+            this.counts = new int[counts.size()];
+            this.clock = clock;
+
+            for (int i = 0; i < durations.size(); i++) {
+                Duration duration = durations.get(i);
+
+                if (duration.toMillis() < buckets || duration.toMillis() % buckets != 0) {
+                    throw new IllegalArgumentException("The time window " + duration + " cannot be split into " + buckets + " buckets of whole milliseconds");
+                }
+
+                sliceMillis[i] = duration.toMillis() / buckets;
+                names.add(name(duration));
+            }
+
+            for (int i = 0; i < counts.size(); i++) {
+                if (counts.get(i) < 1) {
+                    throw new IllegalArgumentException("A window must cover at least one score, got " + counts.get(i));
+                }
+
+                this.counts[i] = counts.get(i);
+                names.add(Integer.toString(counts.get(i)));
+            }
+
+            this.windows = Collections.unmodifiableList(names);
+        }
+
+        /**
+         * Names of the windows in index order, such as {@code 5m} for a time window and {@code 10000} for a window
+         * over the latest scores.
+         */
+        public List<String> getWindows() {
+            return windows;
+        }
+
+        /**
+         * Returns the index of the window a request names, or -1 if no such window is kept. A plain number names
+         * a window over that many latest scores; anything else is read as a duration, such as {@code 5m} or
+         * {@code PT5M}.
+         */
+        public int indexOf(String window) {
+            if (window == null || window.isBlank()) {
+                return -1;
+            }
+
+            String trimmed = window.trim();
+
+            try {
+                String name = trimmed.chars().allMatch(Character::isDigit)
+                    ? Integer.toString(Integer.parseInt(trimmed))
+                    : name(DurationStyle.detectAndParse(trimmed));
+
+                return windows.indexOf(name);
+            }
+            catch (IllegalArgumentException e) {
+                return -1;
+            }
+        }
+
+        /**
+         * Returns the current time in milliseconds on the clock the windows run on.
+         */
+        public long currentTimeMillis() {
+            return clock.getAsLong();
+        }
+
+        boolean isEmpty() {
+            return windows.isEmpty();
+        }
+
+        /**
+         * The most latest scores any window covers, which an owner must keep in its column, 0 without such windows.
+         */
+        int maxCount() {
+            return Arrays.stream(counts).max().orElse(0);
+        }
+
+        private static String name(Duration duration) {
+            long millis = duration.toMillis();
+
+            if (millis % 3_600_000 == 0) {
+                return millis / 3_600_000 + "h";
+            }
+
+            if (millis % 60_000 == 0) {
+                return millis / 60_000 + "m";
+            }
+
+            return millis % 1000 == 0 ? millis / 1000 + "s" : millis + "ms";
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.calvinkeum.repository;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps each student id to a dense int so the per-exam columns store 4 bytes per entry
+ * instead of a reference to a separate String for every score.
+ */
+public class StudentIdDictionary {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+
+    private volatile String[] studentIds = new String[INITIAL_CAPACITY];
+    private volatile int size;
+
+    public int encode(String studentId) {
+        Integer index = indexes.get(studentId);
+
+        if (index != null) {
+            return index;
+        }
+
+        synchronized (this) {
+            index = indexes.get(studentId);
+
+            if (index != null) {
+                return index;
+            }
+
+            String[] current = studentIds;
+
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                studentIds = current;
+            }
+
+            int newIndex = size;
+            current[newIndex] = studentId;
+            size = newIndex + 1;
+
+            // publish the index last so a reader holding it can always decode it
+            indexes.put(studentId, newIndex);
+
+            return newIndex;
+        }
+    }
+
+    /**
+     * Returns the index of {@code studentId}, or -1 if it has never been encoded.
+     */
+    public int indexOf(String studentId) {
+        Integer index = indexes.get(studentId);
+        return index == null ? -1 : index;
+    }
+
+    public String decode(int index) {
+        return studentIds[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long estimateBytes() {
+        // array slot plus a typical 16 char Latin-1 String and its hash map entry
+        return (long) studentIds.length * 4 + (long) size * (40 + 48);
+    }
+}
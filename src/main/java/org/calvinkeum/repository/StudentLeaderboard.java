@@ -0,0 +1,200 @@
+package org.calvinkeum.repository;
+
+import org.calvinkeum.model.ExamStats;
+import org.calvinkeum.model.StudentRank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Every student ordered by average score, kept in an order-statistic tree over the students' dictionary
+ * indexes and updated as their totals change. Pages by average cost O(log n + k) and a student's rank O(log n).
+ * Rank 1 is the highest average and tied averages share a rank.
+ * <p>
+ * Writers and readers share a read/write lock held only for the tree operations. Updates read the student's
+ * totals under the write lock, so whichever writer updates last leaves the latest average in the tree.
+ */
+public class StudentLeaderboard {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final StudentIdDictionary studentIdDictionary;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IntOrderStatisticTree averageIndex;
+
+    // average each student is currently ranked on, NaN for students not in the tree
+    private double[] averages = newAverages(INITIAL_CAPACITY);
+
+    public StudentLeaderboard(StudentIdDictionary studentIdDictionary) {
+        this.studentIdDictionary = studentIdDictionary;
+        this.averageIndex = new IntOrderStatisticTree(this::compareAverages);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+
+        try {
+            return averageIndex.size();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void update(StudentScores studentScores) {
+        updateAll(List.of(studentScores));
+    }
+
+    /**
+     * Re-ranks the given students on their current averages, taking the write lock once for all of them.
+     */
+    public void updateAll(Collection<StudentScores> studentScores) {
+        int[] studentIndexes = new int[studentScores.size()];
+        int i = 0;
+
+        for (StudentScores scores : studentScores) {
+            studentIndexes[i++] = studentIdDictionary.encode(scores.getStudentId());
+        }
+
+        lock.writeLock().lock();
+
+        try {
+            i = 0;
+
+            for (StudentScores scores : studentScores) {
+                update(studentIndexes[i++], scores.getStats());
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} students ordered by average, starting at position {@code skip} of that order.
+     */
+    public List<StudentRank> findByAverage(int skip, int limit, boolean descending) {
+        List<StudentRank> studentRanks = new ArrayList<>(Math.max(0, limit));
+
+        lock.readLock().lock();
+
+        try {
+            int totalStudents = averageIndex.size();
+
+            averageIndex.forEach(skip, limit, descending, node -> studentRanks.add(StudentRank.builder()
+                .studentId(studentIdDictionary.decode(node))
+                .averageScore(averages[node])
+                .totalStudents(totalStudents)
+                .build()));
+
+            if (studentRanks.isEmpty()) {
+                return studentRanks;
+            }
+
+            // only the page's highest average needs a tree lookup, the other ranks follow from the positions
+            if (descending) {
+                studentRanks.get(0).setRank(rankOf(studentRanks.get(0).getAverageScore()));
+
+                for (int i = 1; i < studentRanks.size(); i++) {
+                    StudentRank previous = studentRanks.get(i - 1);
+                    StudentRank current = studentRanks.get(i);
+                    current.setRank(current.getAverageScore() == previous.getAverageScore() ? previous.getRank() : skip + i + 1);
+                }
+            }
+            else {
+                int last = studentRanks.size() - 1;
+                studentRanks.get(last).setRank(rankOf(studentRanks.get(last).getAverageScore()));
+
+                for (int i = last - 1; i >= 0; i--) {
+                    StudentRank next = studentRanks.get(i + 1);
+                    StudentRank current = studentRanks.get(i);
+                    current.setRank(current.getAverageScore() == next.getAverageScore() ? next.getRank() : totalStudents - skip - i);
+                }
+            }
+
+            return studentRanks;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns where the student's average ranks among all students, or null if the student has no score.
+     */
+    public StudentRank findRank(String studentId) {
+        int studentIndex = studentIdDictionary.indexOf(studentId);
+
+        lock.readLock().lock();
+
+        try {
+            if (studentIndex < 0 || studentIndex >= averages.length || Double.isNaN(averages[studentIndex])) {
+                return null;
+            }
+
+            double average = averages[studentIndex];
+
+            return StudentRank.builder()
+                .studentId(studentId)
+                .averageScore(average)
+                .rank(rankOf(average))
+                .totalStudents(averageIndex.size())
+                .build();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long estimateBytes() {
+        return (long) averages.length * Double.BYTES + averageIndex.estimateBytes();
+    }
+
+    private void update(int studentIndex, ExamStats stats) {
+        if (stats.getExamCount() == 0) {
+            return;
+        }
+
+        double average = stats.getScoreSum() / stats.getExamCount();
+
+        if (studentIndex >= averages.length) {
+            double[] grown = newAverages(Math.max(studentIndex + 1, averages.length * 2));
+            System.arraycopy(averages, 0, grown, 0, averages.length);
+            averages = grown;
+        }
+
+        double previous = averages[studentIndex];
+
+        if (previous == average) {
+            return;
+        }
+
+        // the tree order must not change while a student is in it, so take them out before moving their average
+        if (!Double.isNaN(previous)) {
+            averageIndex.remove(studentIndex);
+        }
+
+        averages[studentIndex] = average;
+        averageIndex.insert(studentIndex);
+    }
+
+    private int rankOf(double average) {
+        int atOrBelow = averageIndex.countBefore(other -> averages[other] <= average ? -1 : 1);
+        return averageIndex.size() - atOrBelow + 1;
+    }
+
+    private int compareAverages(int a, int b) {
+        int result = Double.compare(averages[a], averages[b]);
+        return result != 0 ? result : Integer.compare(a, b);
+    }
+
+    private static double[] newAverages(int capacity) {
+        double[] averages = new double[capacity];
+        Arrays.fill(averages, Double.NaN);
+        return averages;
+    }
+}
@@ -0,0 +1,266 @@
+package org.calvinkeum.repository;
+
+import org.calvinkeum.model.ExamStats;
+import org.calvinkeum.model.StudentExamScore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only columns of the exams and scores recorded for one student, in arrival order, plus running
+ * {@link ExamStats}. Writers serialize on this instance and publish an immutable {@link ExamStats} so readers
+ * always see a sum and count that belong together, and take a snapshot of the published prefix without locking.
+ * <p>
+ * The oldest scores can be trimmed from the columns to bound memory, see {@link #trim(int)}. The stats and the
+ * windows keep covering them, only the list of the student's exam scores no longer shows them.
+ */
+public class StudentScores {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final String studentId;
+    private final int scorePrecision;
+    private final ScoreWindows windows;
+    private final int minKept;
+
+    // swapped as a whole on trim, so readers never pair new columns with an old offset
+    private volatile Columns columns;
+
+    // the stats' exam count, less the trimmed scores, doubles as the published size of the columns
+    private volatile ExamStats stats = ExamStats.empty();
+
+    public StudentScores(String studentId) {
+        this(studentId, 0);
+    }
+
+    public StudentScores(String studentId, int scorePrecision) {
+        this(studentId, scorePrecision, ScoreWindows.Layout.NONE);
+    }
+
+    public StudentScores(String studentId, int scorePrecision, ScoreWindows.Layout windowLayout) {
+        this.studentId = studentId;
+        this.scorePrecision = scorePrecision;
+        this.windows = new ScoreWindows(windowLayout);
+        this.minKept = windowLayout.maxCount();
+        this.columns = new Columns(ScoreColumn.create(scorePrecision), new int[INITIAL_CAPACITY], ExamStats.empty(), 0);
+    }
+
+    public String getStudentId() {
+        return studentId;
+    }
+
+    public ExamStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns how many scores the columns hold, which is every score added unless some were trimmed.
+     */
+    public int size() {
+        return Math.max(0, stats.getExamCount() - columns.getOffset());
+    }
+
+    /**
+     * Returns a version that grows with every score added for this student and every trim of its columns. It
+     * moves when the new stats are published, so anything read after it is at least as new as the version says.
+     */
+    public long version() {
+        // read the stats first, as in snapshot()
+        ExamStats current = stats;
+
+        return current.getExamCount() + columns.trims;
+    }
+
+    public synchronized void add(int exam, double score) {
+        ExamStats current = stats;
+        Columns currentColumns = columns;
+        int size = current.getExamCount() - currentColumns.getOffset();
+        int[] currentExams = currentColumns.exams;
+
+        if (size == currentExams.length) {
+            currentExams = Arrays.copyOf(currentExams, currentExams.length * 2);
+            currentColumns.exams = currentExams;
+        }
+
+        currentExams[size] = exam;
+        currentColumns.scores.set(size, score);
+        windows.addAll(currentColumns.scores, size, 1);
+
+        // publishing the new stats makes the columns above visible to readers
+        stats = current.withScore(score);
+    }
+
+    /**
+     * Drops all but the latest {@code keep} scores from the columns, oldest first, into new columns sized for
+     * what is kept. The stats and windows keep covering the dropped scores; the columns always keep as many scores
+     * as the longest window over the latest scores reads back.
+     *
+     * @return an estimate of the bytes freed, 0 if the columns held no more than that
+     */
+    public synchronized long trim(int keep) {
+        ExamStats current = stats;
+        Columns currentColumns = columns;
+        int size = current.getExamCount() - currentColumns.getOffset();
+        int kept = Math.max(Math.max(0, keep), minKept);
+
+        if (size <= kept) {
+            return 0;
+        }
+
+        int dropped = size - kept;
+        ExamStats trimmedStats = currentColumns.trimmedStats;
+        ScoreColumn scores = ScoreColumn.create(scorePrecision);
+
+        for (int i = 0; i < dropped; i++) {
+            trimmedStats = trimmedStats.withScore(currentColumns.scores.get(i));
+        }
+
+        for (int i = 0; i < kept; i++) {
+            scores.set(i, currentColumns.scores.get(dropped + i));
+        }
+
+        int[] exams = Arrays.copyOfRange(currentColumns.exams, dropped, dropped + Math.max(kept, INITIAL_CAPACITY));
+        Columns trimmed = new Columns(scores, exams, trimmedStats, currentColumns.trims + 1);
+
+        columns = trimmed;
+
+        return Math.max(0, currentColumns.estimateBytes() - trimmed.estimateBytes());
+    }
+
+    /**
+     * Loads what an earlier instance trimmed of this student: the stats of the scores no longer in its columns.
+     * Only valid before any score is added.
+     */
+    public synchronized void restoreTrimmed(ExamStats trimmedStats) {
+        if (stats.getExamCount() != 0) {
+            throw new IllegalStateException("Student " + studentId + " already has scores");
+        }
+
+        columns = new Columns(ScoreColumn.create(scorePrecision), new int[INITIAL_CAPACITY], trimmedStats, 0);
+        stats = trimmedStats;
+    }
+
+    /**
+     * Returns the sum, count and average of the scores in the window at {@code index} of the repository's
+     * {@link ScoreWindows.Layout}.
+     */
+    public ExamStats findWindow(int index) {
+        return windows.find(index);
+    }
+
+    /**
+     * Returns a view of the scores published so far. Later appends are not reflected in it.
+     */
+    public Snapshot snapshot() {
+        // read the stats before the columns: any column published after them still holds the same prefix
+        ExamStats current = stats;
+
+        return new Snapshot(current, columns);
+    }
+
+    /**
+     * Returns up to {@code limit} of the student's exam scores in arrival order, or newest first, starting at
+     * position {@code skip} of that order. Every score still in the columns is included, also earlier attempts at
+     * a retaken exam; trimmed scores are not.
+     */
+    public List<StudentExamScore> findExams(int skip, int limit, boolean newestFirst) {
+        return snapshot().findExams(skip, limit, newestFirst);
+    }
+
+    public long estimateBytes() {
+        return columns.estimateBytes() + windows.estimateBytes();
+    }
+
+    /**
+     * The exam and score columns, and the stats of the scores trimmed before their first position.
+     */
+    private static class Columns {
+        private final ScoreColumn scores;
+        private final ExamStats trimmedStats;
+        private final int trims;
+        private volatile int[] exams;
+
+        private Columns(ScoreColumn scores, int[] exams, ExamStats trimmedStats, int trims) {
+            this.scores = scores;
+            this.exams = exams;
+            this.trimmedStats = trimmedStats;
+            this.trims = trims;
+        }
+
+        private int getOffset() {
+            return trimmedStats.getExamCount();
+        }
+
+        private long estimateBytes() {
+            return (long) exams.length * Integer.BYTES + scores.estimateBytes();
+        }
+    }
+
+    public class Snapshot {
+        private final ExamStats stats;
+        private final int size;
+        private final int[] exams;
+        private final ScoreColumn scores;
+        private final ExamStats trimmedStats;
+
+        private Snapshot(ExamStats stats, Columns columns) {
+            // columns trimmed after the stats were read may start past the scores the stats count
+            this.stats = stats;
+            this.size = Math.max(0, stats.getExamCount() - columns.getOffset());
+            this.exams = columns.exams;
+            this.scores = columns.scores;
+            this.trimmedStats = size == 0 && columns.getOffset() > stats.getExamCount() ? stats : columns.trimmedStats;
+        }
+
+        public String getStudentId() {
+            return studentId;
+        }
+
+        public ExamStats getStats() {
+            return stats;
+        }
+
+        /**
+         * Returns the stats of the scores trimmed before the ones in this view, empty if none were trimmed.
+         */
+        public ExamStats getTrimmedStats() {
+            return trimmedStats;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getExam(int index) {
+            return exams[checkIndex(index)];
+        }
+
+        public double getScore(int index) {
+            return scores.get(checkIndex(index));
+        }
+
+        /**
+         * Returns a page of this view, as {@link StudentScores#findExams} does.
+         */
+        public List<StudentExamScore> findExams(int skip, int limit, boolean newestFirst) {
+            int from = Math.max(0, skip);
+            int to = (int) Math.min(size, (long) from + Math.max(0, limit));
+            List<StudentExamScore> studentExamScores = new ArrayList<>(Math.max(0, to - from));
+
+            for (int i = from; i < to; i++) {
+                int index = newestFirst ? size - 1 - i : i;
+                studentExamScores.add(new StudentExamScore(studentId, getExam(index), getScore(index)));
+            }
+
+            return studentExamScores;
+        }
+
+        private int checkIndex(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+
+            return index;
+        }
+    }
+}
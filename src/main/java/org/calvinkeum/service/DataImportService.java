@@ -1,55 +1,82 @@
 package org.calvinkeum.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.calvinkeum.model.StudentExamScore;
-import org.json.JSONObject;
+import org.calvinkeum.config.ScoreStoreProperties;
+import org.calvinkeum.ingest.ParseFailure;
+import org.calvinkeum.ingest.ScoreEvent;
+import org.calvinkeum.ingest.ScoreIngestPipeline;
+import org.calvinkeum.ingest.SseScoreParser;
+import org.calvinkeum.repository.ScoreColumn;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class DataImportService {
     private static final Pattern JSON_DATA_PATTERN = Pattern.compile("data: \\{.*\\}");
 
-    public static void importStudentExamData(String data) {
+    private final ScoreIngestPipeline scoreIngestPipeline;
+    private final double maxScore;
+
+    // a parser comes with its read buffers and student id cache, so each calling thread keeps one for its lines
+    private final ThreadLocal<SseScoreParser> dataParsers;
+
+    public DataImportService(ScoreIngestPipeline scoreIngestPipeline) {
+        this(scoreIngestPipeline, new ScoreStoreProperties());
+    }
+
+    @Autowired
+    public DataImportService(ScoreIngestPipeline scoreIngestPipeline, ScoreStoreProperties scoreStoreProperties) {
+        this.scoreIngestPipeline = scoreIngestPipeline;
+        this.maxScore = ScoreColumn.maxScore(scoreStoreProperties.getScorePrecision());
+        this.dataParsers = ThreadLocal.withInitial(() ->
+            new SseScoreParser(InputStream.nullInputStream(), 1, new AtomicLongArray(ParseFailure.values().length), maxScore));
+    }
+
+    /**
+     * Returns the largest score magnitude the store holds at its configured precision; parsers of the score feeds
+     * reject events beyond it.
+     */
+    public double getMaxScore() {
+        return maxScore;
+    }
+
+    /**
+     * Imports a single {@code data: {...}} line. The stream reader parses events with {@link SseScoreParser}
+     * and calls {@link #importScoreEvent(ScoreEvent)} directly instead.
+     */
+    public void importStudentExamData(String data) {
         Matcher matcher = JSON_DATA_PATTERN.matcher(data);
 
         if (!matcher.find()) {
             return;
         }
 
-        try {
-            String jsonData = data.substring(data.indexOf('{'));
-            JSONObject jsonObject = new JSONObject(jsonData);
+        byte[] jsonData = data.substring(data.indexOf('{')).getBytes(StandardCharsets.UTF_8);
 
-            importStudentExamScoreData(jsonObject);
-        }
-        catch (Exception e) {
-            log.error(e.getLocalizedMessage());
-        }
-    }
+        ScoreEvent scoreEvent = new ScoreEvent();
+        ParseFailure parseFailure = dataParsers.get().parseData(jsonData, 0, jsonData.length, scoreEvent);
 
-    private static void importStudentExamScoreData(JSONObject jsonObject) {
-        try {
-            String studentId = jsonObject.getString("studentId");
-            int exam = jsonObject.getInt("exam");
-            double score = jsonObject.getDouble("score");
+        if (parseFailure != null) {
+            log.error("Skipping score event ({}): {}", parseFailure, data);
+            return;
+        }
 
-            StudentExamScore studentExamScore = new StudentExamScore();
-            studentExamScore.setStudentId(studentId);
-            studentExamScore.setExam(exam);
-            studentExamScore.setScore(score);
+        importScoreEvent(scoreEvent);
+    }
 
-            // Kafka would be good here, especially if broken out into microservices
-            StudentService.processStudentData(studentExamScore);
-            ExamService.processExamData(studentExamScore);
-        }
-        catch (Exception e) {
-            log.error(e.getLocalizedMessage());
-        }
+    /**
+     * Hands the event to the ingest pipeline, which applies it to the student and exam data asynchronously.
+     *
+     * @return false if the pipeline dropped the event
+     */
+    public boolean importScoreEvent(ScoreEvent scoreEvent) {
+        return scoreIngestPipeline.publish(scoreEvent);
     }
 }
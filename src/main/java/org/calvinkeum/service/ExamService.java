@@ -1,42 +1,93 @@
 package org.calvinkeum.service;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
+import org.calvinkeum.config.MemoryProperties;
 import org.calvinkeum.dto.ExamAvgScoreResponse;
+import org.calvinkeum.dto.ExamBatchResponse;
+import org.calvinkeum.dto.ExamDistributionResponse;
 import org.calvinkeum.dto.ExamPaginationResponse;
+import org.calvinkeum.dto.ExamRankResponse;
 import org.calvinkeum.dto.ExamResponse;
+import org.calvinkeum.dto.ExamScorePageResponse;
+import org.calvinkeum.dto.ExamSummaryResponse;
+import org.calvinkeum.dto.ExamWindowResponse;
 import org.calvinkeum.dto.StudentScoreResponse;
+import org.calvinkeum.model.ExamRank;
+import org.calvinkeum.model.ExamStats;
 import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ExamScores;
+import org.calvinkeum.repository.ScoreHistogram;
+import org.calvinkeum.repository.ScoreRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.TreeMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ExamService {
-    protected static TreeMap<Integer, ExamAvgScoreResponse> cachedExamAvgScoreResponseMap = new TreeMap<>();
-    protected static TreeMap<Integer, List<StudentExamScore>> examEntriesMap = new TreeMap<>();
+    // size-bounded, evicting by W-TinyLFU; the map view serves the lookups
+    private final Cache<Integer, ExamAvgScoreResponse> cachedExamAvgScoreResponses;
+    protected final Map<Integer, ExamAvgScoreResponse> cachedExamAvgScoreResponseMap;
+
+    private final ScoreRepository scoreRepository;
+
+    private final AtomicLong cacheHitCount = new AtomicLong();
+    private final AtomicLong cacheMissCount = new AtomicLong();
+    private final AtomicLong cacheEvictionCount = new AtomicLong();
 
     private static final int ALL_EXAMS_MAX_LIMIT = 50;
+    private static final int EXAM_SCORES_MAX_LIMIT = 1000;
+
+    public ExamService(ScoreRepository scoreRepository) {
+        this(scoreRepository, new MemoryProperties());
+    }
+
+    @Autowired
+    public ExamService(ScoreRepository scoreRepository, MemoryProperties memoryProperties) {
+        this.scoreRepository = scoreRepository;
+        this.cachedExamAvgScoreResponses = Caffeine.newBuilder()
+            .maximumSize(memoryProperties.getExamResultsCacheSize())
+            .recordStats()
+            .build();
+        this.cachedExamAvgScoreResponseMap = cachedExamAvgScoreResponses.asMap();
+    }
 
     public ExamPaginationResponse getAllExams(int skip, int limit, String sortOrder) {
+        return getAllExams(skip, limit, sortOrder, null);
+    }
+
+    /**
+     * Pages through the exams in key order. When {@code after} holds the {@code nextCursor} of a previous page,
+     * the page starts right after that exam and {@code skip} is applied from there.
+     *
+     * @throws IllegalArgumentException if {@code after} is not a valid exam cursor
+     */
+    public ExamPaginationResponse getAllExams(int skip, int limit, String sortOrder, String after) {
         skip = Math.max(0, skip);
         limit = Math.min(ALL_EXAMS_MAX_LIMIT, Math.max(1, limit));
         sortOrder = "DESC".equalsIgnoreCase(sortOrder) ? "DESC" : "ASC";
 
-        List<ExamResponse> examResponses = examEntriesMap.keySet()
+        // the key set is already sorted, read one extra key to know whether another page exists
+        List<Integer> exams = PageCursor.keysAfter(scoreRepository.examNumbers(), sortOrder, PageCursor.decodeExam(after))
             .stream()
-            .sorted(getComparator(sortOrder))
             .skip(skip)
+            .limit(limit + 1L)
+            .toList();
+
+        List<ExamResponse> examResponses = exams.stream()
             .limit(limit)
             .map(this::mapToExamResponse)
             .toList();
 
-        int totalExams = examEntriesMap.size();
+        int totalExams = scoreRepository.countExams();
 
         ExamPaginationResponse response = new ExamPaginationResponse();
         response.setTotalExams(totalExams);
@@ -44,59 +95,261 @@ public class ExamService {
         response.setLimit(limit);
         response.setExamResponses(examResponses);
 
+        if (exams.size() > limit) {
+            response.setNextCursor(PageCursor.encodeExam(exams.get(limit - 1)));
+        }
+
         return response;
     }
 
     public ExamAvgScoreResponse getExamResults(Integer exam) {
-        if (!examEntriesMap.containsKey(exam)) {
+        ExamScores examScores = exam == null ? null : scoreRepository.findExam(exam);
+
+        if (examScores == null) {
             return null;
         }
 
-        // grab and return from cache if it exists
-        if (cachedExamAvgScoreResponseMap.containsKey(exam)) {
-            return cachedExamAvgScoreResponseMap.get(exam);
+        // grab and return from cache if it exists and no score has been added since it was built
+        ExamAvgScoreResponse cachedResponse = cachedExamAvgScoreResponseMap.get(exam);
+
+        if (cachedResponse != null && cachedResponse.getStudents() instanceof StudentScoreResponseList cachedStudents
+                && cachedStudents.getVersion() == examScores.version()) {
+            cacheHitCount.incrementAndGet();
+            return cachedResponse;
+        }
+
+        cacheMissCount.incrementAndGet();
+
+        // a stale response is replaced below, which counts as evicting it
+        if (cachedResponse != null) {
+            cacheEvictionCount.incrementAndGet();
         }
 
-        // otherwise calculate data
-        double scoreSum = 0;
-        int examCount = 0;
+        // otherwise wrap the current columns, the running stats already hold the aggregates
+        ExamScores.Snapshot snapshot = examScores.snapshot();
+        ExamStats examStats = snapshot.getStats();
 
-        List<StudentScoreResponse> studentScoreResponses = new ArrayList<>();
+        Double averageScore = calculateAverageScore(examStats.getScoreSum(), examStats.getExamCount());
 
-        for (StudentExamScore studentExamScore : examEntriesMap.get(exam)) {
-            StudentScoreResponse studentScoreResponse =
-                mapToStudentScoreResponse(studentExamScore.getStudentId(), studentExamScore.getScore());
+        ExamAvgScoreResponse examAveScoreResponse = mapToExamAvgScoreResponse(
+            exam, new StudentScoreResponseList(snapshot), averageScore, examStats);
 
-            studentScoreResponses.add(studentScoreResponse);
+        cachedExamAvgScoreResponseMap.put(exam, examAveScoreResponse);
+
+        return examAveScoreResponse;
+    }
 
-            scoreSum += studentExamScore.getScore();
-            examCount += 1;
+    /**
+     * Returns the average, lowest and highest score and number of students of every listed exam that has a score,
+     * in the order requested, and the exams that have none. All exams are looked up in a single repository call.
+     */
+    public ExamBatchResponse getExamSummaries(List<Integer> exams) {
+        Set<Integer> requested = new LinkedHashSet<>(exams);
+        requested.remove(null);
+
+        Map<Integer, ExamScores> found = scoreRepository.findExams(requested);
+        List<ExamSummaryResponse> examSummaryResponses = new ArrayList<>(found.size());
+        List<Integer> notFound = new ArrayList<>();
+
+        for (Integer exam : requested) {
+            ExamScores examScores = found.get(exam);
+
+            if (examScores == null) {
+                notFound.add(exam);
+            }
+            else {
+                examSummaryResponses.add(mapToExamSummaryResponse(exam, examScores));
+            }
         }
 
-        Double averageScore = calculateAverageScore(scoreSum, examCount);
+        return ExamBatchResponse.builder()
+            .exams(examSummaryResponses)
+            .notFound(notFound)
+            .build();
+    }
 
-        ExamAvgScoreResponse examAveScoreResponse =
-            mapToExamAvgScoreResponse(exam, studentScoreResponses, averageScore);
+    /**
+     * Returns the average, lowest and highest score and number of students of the exam, or null if it has no score.
+     */
+    public ExamSummaryResponse getExamSummary(Integer exam) {
+        ExamScores examScores = exam == null ? null : scoreRepository.findExam(exam);
 
-        cachedExamAvgScoreResponseMap.put(exam, examAveScoreResponse);
+        if (examScores == null) {
+            return null;
+        }
 
-        return examAveScoreResponse;
+        return mapToExamSummaryResponse(exam, examScores);
     }
 
-    public static void processExamData(StudentExamScore studentExamScore) {
+    /**
+     * Returns the number and average of the exam's scores in a sliding window, or null if the exam has no score.
+     * Retakes count as separate scores. The window is kept up to date as scores arrive, so this does not read them.
+     *
+     * @throws IllegalArgumentException if no such window is kept, see {@link #getWindows()}
+     */
+    public ExamWindowResponse getExamWindow(Integer exam, String window) {
+        int index = scoreRepository.windowLayout().indexOf(window);
+
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown window " + window);
+        }
+
+        ExamScores examScores = exam == null ? null : scoreRepository.findExam(exam);
+
+        if (examScores == null) {
+            return null;
+        }
+
+        ExamStats windowStats = examScores.findWindow(index);
+
+        return ExamWindowResponse.builder()
+            .exam(exam)
+            .window(scoreRepository.windowLayout().getWindows().get(index))
+            .totalScores(windowStats.getExamCount())
+            .averageScore(windowStats.getAverageScore())
+            .build();
+    }
+
+    /**
+     * Returns the names of the sliding windows that can be asked for, such as 5m or 10000.
+     */
+    public List<String> getWindows() {
+        return scoreRepository.windowLayout().getWindows();
+    }
+
+    /**
+     * Returns one page of the exam's students ordered by score, highest first for {@code DESC}.
+     */
+    public ExamScorePageResponse getExamResultsByScore(Integer exam, int skip, int limit, String sortOrder) {
+        ExamScores examScores = exam == null ? null : scoreRepository.findExam(exam);
+
+        if (examScores == null) {
+            return null;
+        }
+
+        skip = Math.max(0, skip);
+        limit = Math.min(EXAM_SCORES_MAX_LIMIT, Math.max(1, limit));
+        sortOrder = "DESC".equalsIgnoreCase(sortOrder) ? "DESC" : "ASC";
+
+        ExamStats examStats = examScores.getStats();
+
+        List<StudentScoreResponse> studentScoreResponses = examScores.findByScore(skip, limit, "DESC".equals(sortOrder))
+            .stream()
+            .map(this::mapToStudentScoreResponse)
+            .toList();
+
+        return ExamScorePageResponse.builder()
+            .exam(exam)
+            .averageScore(calculateAverageScore(examStats.getScoreSum(), examStats.getExamCount()))
+            .totalStudents(examScores.countStudents())
+            .skip(skip)
+            .limit(limit)
+            .sortOrder(sortOrder)
+            .students(studentScoreResponses)
+            .build();
+    }
+
+    /**
+     * Returns the median, p10, p90 and p99 of the exam's latest score per student together with the histogram
+     * they are read from. The cost does not depend on how many students took the exam.
+     */
+    public ExamDistributionResponse getExamDistribution(Integer exam) {
+        ExamScores examScores = exam == null ? null : scoreRepository.findExam(exam);
+
+        if (examScores == null) {
+            return null;
+        }
+
+        ScoreHistogram histogram = examScores.histogram();
+
+        return ExamDistributionResponse.builder()
+            .exam(exam)
+            .totalStudents(histogram.getTotal())
+            .median(percentile(histogram, 50))
+            .p10(percentile(histogram, 10))
+            .p90(percentile(histogram, 90))
+            .p99(percentile(histogram, 99))
+            .binWidth(histogram.getBinWidth())
+            .histogram(histogram.getCounts())
+            .build();
+    }
+
+    /**
+     * Returns the student's rank and percentile on the exam, or null if the student has no score for it.
+     */
+    public ExamRankResponse getStudentExamRank(Integer exam, String studentId) {
+        ExamScores examScores = exam == null ? null : scoreRepository.findExam(exam);
+
+        if (examScores == null) {
+            return null;
+        }
+
+        ExamRank examRank = examScores.findRank(studentId);
+
+        if (examRank == null) {
+            return null;
+        }
+
+        return mapToExamRankResponse(examRank);
+    }
+
+    /**
+     * Returns the version of the exam listing, which grows whenever an exam gets its first score.
+     */
+    public long getExamsVersion() {
+        return scoreRepository.countExams();
+    }
+
+    /**
+     * Returns the version of everything served for the exam, or 0 if it has no score yet. Read it before the
+     * exam itself, so the data served with it is never older than the version.
+     */
+    public long getExamVersion(Integer exam) {
+        ExamScores examScores = exam == null ? null : scoreRepository.findExam(exam);
+        return examScores == null ? 0 : examScores.version();
+    }
+
+    /**
+     * Drops the cached results of the exam, so its released columns are no longer kept reachable.
+     */
+    public void evictCachedResults(Integer exam) {
+        cachedExamAvgScoreResponseMap.remove(exam);
+    }
+
+    public int getCacheSize() {
+        return (int) cachedExamAvgScoreResponses.estimatedSize();
+    }
+
+    public long getCacheHitCount() {
+        return cacheHitCount.get();
+    }
+
+    public long getCacheMissCount() {
+        return cacheMissCount.get();
+    }
+
+    /**
+     * Returns how many responses left the cache because they were stale or to keep it within its size.
+     */
+    public long getCacheEvictionCount() {
+        return cacheEvictionCount.get() + cachedExamAvgScoreResponses.stats().evictionCount();
+    }
+
+    public void processExamData(StudentExamScore studentExamScore) {
         if (studentExamScore == null) {
             return;
         }
 
-        List<StudentExamScore> studentExamScores =
-            examEntriesMap.getOrDefault(studentExamScore.getExam(), new ArrayList<>());
-
-        studentExamScores.add(studentExamScore);
+        // the cached response is refreshed on the next read once it no longer covers every score
+        scoreRepository.addExamScore(studentExamScore);
+    }
 
-        examEntriesMap.put(studentExamScore.getExam(), studentExamScores);
+    public void processExamData(List<StudentExamScore> studentExamScores) {
+        if (studentExamScores == null || studentExamScores.isEmpty()) {
+            return;
+        }
 
-        // removed cached exam data if adding additional data for the exam
-        cachedExamAvgScoreResponseMap.remove(studentExamScore.getExam());
+        scoreRepository.addExamScores(studentExamScores);
     }
 
     private Double calculateAverageScore(double scoreSum, int examCount) {
@@ -108,30 +361,57 @@ public class ExamService {
         return (scoreSum / examCount);
     }
 
+    private Double percentile(ScoreHistogram histogram, double percentile) {
+        double value = histogram.percentile(percentile);
+        return Double.isNaN(value) ? null : value;
+    }
+
     private ExamAvgScoreResponse mapToExamAvgScoreResponse(
-            Integer exam, List<StudentScoreResponse> studentScoreResponses, Double averageScore) {
+            Integer exam, List<StudentScoreResponse> studentScoreResponses, Double averageScore, ExamStats examStats) {
 
         return ExamAvgScoreResponse.builder()
             .exam(exam)
             .students(studentScoreResponses)
             .averageScore(averageScore)
+            .minScore(examStats.getMinScore())
+            .maxScore(examStats.getMaxScore())
             .build();
     }
 
-    private ExamResponse mapToExamResponse(Integer exam) {
-        return ExamResponse.builder().exam(exam).build();
+    private ExamSummaryResponse mapToExamSummaryResponse(Integer exam, ExamScores examScores) {
+        ExamStats examStats = examScores.getStats();
+
+        return ExamSummaryResponse.builder()
+            .exam(exam)
+            .totalStudents(examScores.countStudents())
+            .averageScore(calculateAverageScore(examStats.getScoreSum(), examStats.getExamCount()))
+            .minScore(examStats.getMinScore())
+            .maxScore(examStats.getMaxScore())
+            .build();
     }
 
-    private StudentScoreResponse mapToStudentScoreResponse(String studentId, Double score) {
-        return StudentScoreResponse.builder().studentId(studentId).score(score).build();
+    private ExamRankResponse mapToExamRankResponse(ExamRank examRank) {
+        // percentile is the share of scores strictly below this one
+        double percentile = 100.0 * examRank.getScoresBelow() / examRank.getTotalScores();
+
+        return ExamRankResponse.builder()
+            .exam(examRank.getExam())
+            .studentId(examRank.getStudentId())
+            .score(examRank.getScore())
+            .rank(examRank.getRank())
+            .totalStudents(examRank.getTotalScores())
+            .percentile(percentile)
+            .build();
     }
 
-    private Comparator<? super Integer> getComparator(String sortOrder) {
-        if ("DESC".equals(sortOrder)) {
-            return Comparator.reverseOrder();
-        }
-        else {
-            return Comparator.naturalOrder();
-        }
+    private StudentScoreResponse mapToStudentScoreResponse(StudentExamScore studentExamScore) {
+        return StudentScoreResponse.builder()
+            .studentId(studentExamScore.getStudentId())
+            .score(studentExamScore.getScore())
+            .build();
+    }
+
+    private ExamResponse mapToExamResponse(Integer exam) {
+        return ExamResponse.builder().exam(exam).build();
     }
 }
@@ -0,0 +1,440 @@
+package org.calvinkeum.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.calvinkeum.config.LiveUpdateProperties;
+import org.calvinkeum.ingest.ScoreIngestPipeline;
+import org.calvinkeum.model.StudentExamScore;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Pushes the latest exam summaries and student averages to event stream subscribers as ingest applies scores.
+ * Ingest only flags the exams and students that have subscribers, and once per coalesce window every flagged
+ * one is looked up and serialized once and sent to all of its subscribers, so a burst of scores costs one push
+ * per subscriber and window.
+ * <p>
+ * An idle subscription holds no thread, only its emitter and its entries in the topic maps. Updates and
+ * heartbeats are built on a single scheduler thread and queued per subscription; a pool of sender threads writes
+ * each subscription's queue in order, so a client that stops reading only holds up its own updates. A subscriber
+ * whose queue fills up, or whose write has been stuck for longer than the send timeout, is dropped.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LiveUpdateService implements SmartLifecycle {
+    private final LiveUpdateProperties properties;
+    private final ScoreIngestPipeline scoreIngestPipeline;
+    private final ExamService examService;
+    private final StudentService studentService;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Integer, Topic<Integer>> examTopics = new ConcurrentHashMap<>();
+    private final Map<String, Topic<String>> studentTopics = new ConcurrentHashMap<>();
+    private final Queue<Topic<?>> dirtyTopics = new ConcurrentLinkedQueue<>();
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriptionCount = new AtomicInteger();
+
+    private ScheduledExecutorService scheduler;
+    private volatile ExecutorService sender;
+    private boolean listening;
+    private volatile boolean running;
+
+    /**
+     * Opens a subscription to the given exams and students. Their current values are sent right away and
+     * every change after that at most once per coalesce window.
+     *
+     * @return null if the most subscriptions allowed are already open, or the service is stopped
+     */
+    public SseEmitter subscribe(Collection<Integer> exams, Collection<String> studentIds) {
+        SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+
+        return subscribe(emitter, exams, studentIds) ? emitter : null;
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptionCount.get();
+    }
+
+    boolean subscribe(SseEmitter emitter, Collection<Integer> exams, Collection<String> studentIds) {
+        if (!running) {
+            return false;
+        }
+
+        if (subscriptionCount.incrementAndGet() > properties.getMaxSubscriptions()) {
+            subscriptionCount.decrementAndGet();
+            return false;
+        }
+
+        Subscription subscription = new Subscription(emitter);
+        subscriptions.add(subscription);
+
+        for (Integer exam : new LinkedHashSet<>(exams)) {
+            if (exam != null) {
+                subscription.topics.add(join(examTopics, "exam", exam, examService::getExamSummary, subscription));
+            }
+        }
+
+        for (String studentId : new LinkedHashSet<>(studentIds)) {
+            if (studentId != null) {
+                subscription.topics.add(join(studentTopics, "student", studentId, studentService::getStudentAverageScore, subscription));
+            }
+        }
+
+        // a flush may already have failed on the new subscription and missed the topics joined after that
+        if (subscription.closed.get()) {
+            subscription.topics.forEach(topic -> topic.leave(subscription));
+            return true;
+        }
+
+        emitter.onCompletion(() -> unsubscribe(subscription));
+
+        // the current values give the client a baseline, the updates only follow changes
+        for (Topic<?> topic : subscription.topics) {
+            String data = serialize(topic.lookup());
+
+            if (data != null) {
+                send(subscription, SseEmitter.event().name(topic.name).data(data));
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Flags the subscribed exams and students the batch touched, for the next flush. Called on the ingest
+     * consumer threads, so it only does map lookups.
+     */
+    void onBatchApplied(List<StudentExamScore> batch) {
+        // nothing to track while nobody listens, which is the common case
+        if (examTopics.isEmpty() && studentTopics.isEmpty()) {
+            return;
+        }
+
+        for (StudentExamScore studentExamScore : batch) {
+            markDirty(examTopics.get(studentExamScore.getExam()));
+
+            if (studentExamScore.getStudentId() != null) {
+                markDirty(studentTopics.get(studentExamScore.getStudentId()));
+            }
+        }
+    }
+
+    /**
+     * Sends the current value of every exam and student flagged since the last flush to its subscribers.
+     */
+    void flush() {
+        List<Topic<?>> flushing = new ArrayList<>();
+        Topic<?> topic;
+
+        // a topic stays flagged until it is cleared below, so it cannot be queued twice while the queue drains
+        while ((topic = dirtyTopics.poll()) != null) {
+            flushing.add(topic);
+        }
+
+        for (Topic<?> dirtyTopic : flushing) {
+            // clear before the lookup: scores applied while the update is built flag it again for the next window
+            dirtyTopic.dirty.set(false);
+
+            if (dirtyTopic.subscribers.isEmpty()) {
+                continue;
+            }
+
+            String data = serialize(dirtyTopic.lookup());
+
+            if (data == null) {
+                continue;
+            }
+
+            for (Subscription subscription : dirtyTopic.subscribers) {
+                send(subscription, SseEmitter.event().name(dirtyTopic.name).data(data));
+            }
+        }
+    }
+
+    /**
+     * Sends a comment to every subscriber, which keeps idle connections open and drops the ones that failed.
+     */
+    void heartbeat() {
+        for (Subscription subscription : subscriptions) {
+            send(subscription, SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        if (!listening) {
+            scoreIngestPipeline.addBatchListener(this::onBatchApplied);
+            listening = true;
+        }
+
+        long coalesceWindowMillis = Math.max(1, properties.getCoalesceWindow().toMillis());
+        long heartbeatIntervalMillis = Math.max(1, properties.getHeartbeatInterval().toMillis());
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "score-live-updates");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, coalesceWindowMillis, coalesceWindowMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::heartbeatQuietly, heartbeatIntervalMillis, heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+
+        // a thread per write in progress: one stuck on a stalled client stays stuck until the container gives up on it
+        AtomicInteger senderThreads = new AtomicInteger();
+        sender = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "score-live-sender-" + senderThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        running = true;
+    }
+
+    /**
+     * Stops pushing and closes every open subscription.
+     */
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        scheduler.shutdownNow();
+
+        for (Subscription subscription : subscriptions) {
+            drop(subscription);
+        }
+
+        sender.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private <K> Topic<K> join(Map<K, Topic<K>> topics, String name, K key, Function<K, Object> lookup, Subscription subscription) {
+        return topics.compute(key, (k, topic) -> {
+            if (topic == null) {
+                topic = new Topic<>(name, k, topics, lookup);
+            }
+
+            topic.subscribers.add(subscription);
+            return topic;
+        });
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        if (!subscription.closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        for (Topic<?> topic : subscription.topics) {
+            topic.leave(subscription);
+        }
+
+        subscriptions.remove(subscription);
+        subscriptionCount.decrementAndGet();
+    }
+
+    private void markDirty(Topic<?> topic) {
+        // the plain read keeps a burst of scores for one exam from contending on the flag
+        if (topic != null && !topic.dirty.get() && topic.dirty.compareAndSet(false, true)) {
+            dirtyTopics.add(topic);
+        }
+    }
+
+    /**
+     * Queues the event for the subscription's sender, or drops the subscription if it fell behind.
+     */
+    private void send(Subscription subscription, SseEmitter.SseEventBuilder event) {
+        if (subscription.closed.get()) {
+            return;
+        }
+
+        long sendStartedNanos = subscription.sendStartedNanos;
+
+        if (sendStartedNanos != 0 && System.nanoTime() - sendStartedNanos > properties.getSendTimeout().toNanos()) {
+            log.debug("Dropping live update subscription stuck sending for over {}", properties.getSendTimeout());
+            drop(subscription);
+            return;
+        }
+
+        if (subscription.queued.incrementAndGet() > properties.getMaxQueuedEvents()) {
+            log.debug("Dropping live update subscription with {} events waiting", properties.getMaxQueuedEvents());
+            drop(subscription);
+            return;
+        }
+
+        subscription.outbox.add(event);
+
+        if (subscription.sending.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> drain(subscription));
+            }
+            catch (RejectedExecutionException e) {
+                // stopped meanwhile
+                unsubscribe(subscription);
+            }
+        }
+    }
+
+    /**
+     * Writes the subscription's queued events in order, on a sender thread.
+     */
+    private void drain(Subscription subscription) {
+        while (true) {
+            SseEmitter.SseEventBuilder event;
+
+            while ((event = subscription.outbox.poll()) != null) {
+                subscription.queued.decrementAndGet();
+
+                if (subscription.closed.get()) {
+                    continue;
+                }
+
+                subscription.sendStartedNanos = System.nanoTime();
+
+                try {
+                    subscription.emitter.send(event);
+                }
+                catch (IOException | IllegalStateException e) {
+                    // the client went away or the emitter already completed
+                    log.debug("Dropping live update subscription: {}", e.getLocalizedMessage());
+                    unsubscribe(subscription);
+                }
+                finally {
+                    subscription.sendStartedNanos = 0;
+                }
+            }
+
+            subscription.sending.set(false);
+
+            // an event queued after the queue came up empty but before the flag was cleared still needs a sender
+            if (subscription.outbox.isEmpty() || !subscription.sending.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Unsubscribes and completes the emitter. Completing waits for a write in progress, so it runs on a sender
+     * thread rather than holding up the caller.
+     */
+    private void drop(Subscription subscription) {
+        unsubscribe(subscription);
+
+        try {
+            sender.execute(subscription.emitter::complete);
+        }
+        catch (RejectedExecutionException e) {
+            // stopped meanwhile, the container completes whatever is still open
+            log.debug("Not completing a dropped live update subscription: {}", e.getLocalizedMessage());
+        }
+    }
+
+    private String serialize(Object value) {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return objectMapper.writeValueAsString(value);
+        }
+        catch (JsonProcessingException e) {
+            log.error("Failed to serialize live update: {}", e.getLocalizedMessage());
+            return null;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        }
+        catch (Exception e) {
+            log.error("Failed to push live updates: {}", e.getLocalizedMessage());
+        }
+    }
+
+    private void heartbeatQuietly() {
+        try {
+            heartbeat();
+        }
+        catch (Exception e) {
+            log.error("Failed to send live update heartbeats: {}", e.getLocalizedMessage());
+        }
+    }
+
+    private static class Subscription {
+        private final SseEmitter emitter;
+        private final List<Topic<?>> topics = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final Queue<SseEmitter.SseEventBuilder> outbox = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // when the write in progress started, 0 while none is
+        private volatile long sendStartedNanos;
+
+        private Subscription(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    /**
+     * One exam or student with at least one subscriber. It is removed from its map when the last one leaves.
+     */
+    private static class Topic<K> {
+        private final String name;
+        private final K key;
+        private final Map<K, Topic<K>> topics;
+        private final Function<K, Object> lookup;
+        private final Set<Subscription> subscribers = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean dirty = new AtomicBoolean();
+
+        private Topic(String name, K key, Map<K, Topic<K>> topics, Function<K, Object> lookup) {
+            this.name = name;
+            this.key = key;
+            this.topics = topics;
+            this.lookup = lookup;
+        }
+
+        private Object lookup() {
+            return lookup.apply(key);
+        }
+
+        private void leave(Subscription subscription) {
+            topics.computeIfPresent(key, (k, topic) -> {
+                topic.subscribers.remove(subscription);
+                return topic.subscribers.isEmpty() ? null : topic;
+            });
+        }
+    }
+}
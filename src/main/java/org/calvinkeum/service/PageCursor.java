@@ -0,0 +1,86 @@
+package org.calvinkeum.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.NavigableSet;
+
+/**
+ * Opaque keyset cursors for the listing endpoints. A cursor wraps the last key of a page so the next page
+ * can start straight from the sorted key set instead of skipping over everything before it.
+ */
+public final class PageCursor {
+    private static final String EXAM_PREFIX = "exam:";
+    private static final String STUDENT_PREFIX = "student:";
+
+    private PageCursor() {
+    }
+
+    public static String encodeExam(Integer exam) {
+        return encode(EXAM_PREFIX + exam);
+    }
+
+    public static String encodeStudent(String studentId) {
+        return encode(STUDENT_PREFIX + studentId);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encodeExam(Integer)}
+     */
+    public static Integer decodeExam(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return Integer.valueOf(decode(cursor, EXAM_PREFIX));
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encodeStudent(String)}
+     */
+    public static String decodeStudent(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+
+        return decode(cursor, STUDENT_PREFIX);
+    }
+
+    /**
+     * Returns the keys that follow {@code after} in the requested order, or all keys in that order when there is no cursor.
+     */
+    static <K> NavigableSet<K> keysAfter(NavigableSet<K> keys, String sortOrder, K after) {
+        boolean descending = "DESC".equals(sortOrder);
+
+        if (after == null) {
+            return descending ? keys.descendingSet() : keys;
+        }
+
+        return descending ? keys.headSet(after, false).descendingSet() : keys.tailSet(after, false);
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor, String prefix) {
+        String value;
+
+        try {
+            value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+
+        if (!value.startsWith(prefix)) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+
+        return value.substring(prefix.length());
+    }
+}
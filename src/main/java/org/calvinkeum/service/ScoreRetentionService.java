@@ -0,0 +1,225 @@
+package org.calvinkeum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.calvinkeum.config.MemoryProperties;
+import org.calvinkeum.repository.ExamScores;
+import org.calvinkeum.repository.ScoreRepository;
+import org.calvinkeum.repository.StudentScores;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the score store within its memory budget and retention limits by releasing the scores of whole exams,
+ * oldest update first, while their stats, student count, distribution and time windows stay available. If that
+ * is not enough for the budget, the students holding the most scores have their oldest ones trimmed down to
+ * {@code studentScoresKept}, keeping their totals and windows. The leaderboard, the student id dictionary and the
+ * scores kept per student are never released, so a budget smaller than they need cannot be met and is reported
+ * instead.
+ * <p>
+ * Checks run on a single scheduler thread every sweep interval, and only when a budget or a limit is set.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ScoreRetentionService implements SmartLifecycle {
+    private final MemoryProperties properties;
+    private final ScoreRepository scoreRepository;
+    private final ExamService examService;
+
+    private final AtomicLong releasedExamCount = new AtomicLong();
+    private final AtomicLong releasedBytes = new AtomicLong();
+    private final AtomicLong trimmedStudentCount = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    /**
+     * Returns the estimated heap used by the whole store: exams, students, the leaderboard and the student ids.
+     */
+    public long estimateStoreBytes() {
+        return scoreRepository.estimateExamBytes()
+            + scoreRepository.estimateStudentBytes()
+            + scoreRepository.studentLeaderboard().estimateBytes()
+            + scoreRepository.estimateStudentIdBytes();
+    }
+
+    public long getReleasedExamCount() {
+        return releasedExamCount.get();
+    }
+
+    public long getReleasedBytes() {
+        return releasedBytes.get();
+    }
+
+    /**
+     * How many times a student's oldest scores were trimmed to fit the budget.
+     */
+    public long getTrimmedStudentCount() {
+        return trimmedStudentCount.get();
+    }
+
+    /**
+     * Releases the scores of every exam past the retention age, then of the exams updated longest ago while more
+     * exams than allowed hold scores or the store is over its budget, then trims the students with the most scores
+     * while it still is.
+     *
+     * @return how many exams had their scores released
+     */
+    int sweep() {
+        List<ExamScores> retained = new ArrayList<>();
+
+        for (Integer exam : scoreRepository.examNumbers()) {
+            ExamScores examScores = scoreRepository.findExam(exam);
+
+            if (examScores != null && examScores.size() > 0) {
+                retained.add(examScores);
+            }
+        }
+
+        retained.sort(Comparator.comparingLong(ExamScores::getLastAddedMillis));
+
+        long oldestKept = properties.getRetentionMaxAge() == null ? Long.MIN_VALUE
+            : scoreRepository.windowLayout().currentTimeMillis() - properties.getRetentionMaxAge().toMillis();
+        int excessExams = properties.getRetentionMaxExams() > 0 ? retained.size() - properties.getRetentionMaxExams() : 0;
+        long excessBytes = properties.getBudget() == null ? 0 : estimateStoreBytes() - properties.getBudget().toBytes();
+
+        int released = 0;
+        long freed = 0;
+
+        for (ExamScores examScores : retained) {
+            // in order of age, so once one is recent enough and within the limits, so are the rest
+            if (examScores.getLastAddedMillis() >= oldestKept && excessExams <= 0 && excessBytes <= 0) {
+                break;
+            }
+
+            long bytes = examScores.release();
+            examService.evictCachedResults(examScores.getExam());
+
+            released++;
+            freed += bytes;
+            excessExams--;
+            excessBytes -= bytes;
+        }
+
+        if (released > 0) {
+            releasedExamCount.addAndGet(released);
+            releasedBytes.addAndGet(freed);
+            log.info("Released the scores of {} exams, about {} KB", released, freed / 1024);
+        }
+
+        if (excessBytes > 0) {
+            excessBytes -= trimStudents(excessBytes);
+        }
+
+        if (excessBytes > 0) {
+            log.warn("The score store is about {} KB over its budget of {} with no exam or student scores left to release",
+                excessBytes / 1024, properties.getBudget());
+        }
+
+        return released;
+    }
+
+    /**
+     * Trims the students holding the most scores first, until {@code excessBytes} are freed or none holds more
+     * than it keeps.
+     *
+     * @return an estimate of the bytes freed
+     */
+    private long trimStudents(long excessBytes) {
+        int kept = Math.max(1, properties.getStudentScoresKept());
+        List<StudentScores> trimmable = new ArrayList<>();
+
+        for (String studentId : scoreRepository.studentIds()) {
+            StudentScores studentScores = scoreRepository.findStudent(studentId);
+
+            if (studentScores != null && studentScores.size() > kept) {
+                trimmable.add(studentScores);
+            }
+        }
+
+        trimmable.sort(Comparator.comparingInt(StudentScores::size).reversed());
+
+        int trimmed = 0;
+        long freed = 0;
+
+        for (StudentScores studentScores : trimmable) {
+            if (freed >= excessBytes) {
+                break;
+            }
+
+            long bytes = studentScores.trim(kept);
+
+            if (bytes > 0) {
+                trimmed++;
+                freed += bytes;
+            }
+        }
+
+        if (trimmed > 0) {
+            trimmedStudentCount.addAndGet(trimmed);
+            releasedBytes.addAndGet(freed);
+            log.info("Trimmed the oldest scores of {} students, about {} KB", trimmed, freed / 1024);
+        }
+
+        return freed;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        running = true;
+
+        if (properties.getBudget() == null && properties.getRetentionMaxAge() == null && properties.getRetentionMaxExams() <= 0) {
+            return;
+        }
+
+        long sweepIntervalMillis = Math.max(1, properties.getSweepInterval().toMillis());
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "score-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        }
+        catch (Exception e) {
+            log.error("Failed to apply the score retention limits: {}", e.getLocalizedMessage());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.calvinkeum.service;
+
+import org.calvinkeum.dto.StudentScoreResponse;
+import org.calvinkeum.repository.ExamScores;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list of {@link StudentScoreResponse}s backed directly by an exam's score columns.
+ * Elements are created as they are read, so building a response for a large exam costs nothing up front.
+ */
+class StudentScoreResponseList extends AbstractList<StudentScoreResponse> implements RandomAccess {
+    private final ExamScores.Snapshot snapshot;
+
+    StudentScoreResponseList(ExamScores.Snapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public StudentScoreResponse get(int index) {
+        return StudentScoreResponse.builder()
+            .studentId(snapshot.getStudentId(index))
+            .score(snapshot.getScore(index))
+            .build();
+    }
+
+    @Override
+    public int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * Returns the exam version the columns were read at, see {@link ExamScores#version()}.
+     */
+    long getVersion() {
+        return snapshot.getVersion();
+    }
+}
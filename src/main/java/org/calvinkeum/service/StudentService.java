@@ -2,38 +2,66 @@ package org.calvinkeum.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.calvinkeum.dto.ExamScoreResponse;
 import org.calvinkeum.dto.StudentAvgScoreResponse;
+import org.calvinkeum.dto.StudentBatchResponse;
+import org.calvinkeum.dto.StudentExamPageResponse;
 import org.calvinkeum.dto.StudentPaginationResponse;
+import org.calvinkeum.dto.StudentRankPageResponse;
+import org.calvinkeum.dto.StudentRankResponse;
 import org.calvinkeum.dto.StudentResponse;
+import org.calvinkeum.dto.StudentWindowResponse;
 import org.calvinkeum.model.ExamStats;
 import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.model.StudentRank;
+import org.calvinkeum.repository.ScoreRepository;
+import org.calvinkeum.repository.StudentLeaderboard;
+import org.calvinkeum.repository.StudentScores;
 import org.springframework.stereotype.Service;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.TreeMap;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class StudentService {
-    protected static TreeMap<String, ExamStats> studentIdExamStatsMap = new TreeMap<>();
     private static final int ALL_STUDENTS_MAX_LIMIT = 100;
+    private static final int STUDENT_EXAMS_MAX_LIMIT = 1000;
+
+    private final ScoreRepository scoreRepository;
 
     public StudentPaginationResponse getAllStudents(int skip, int limit, String sortOrder) {
+        return getAllStudents(skip, limit, sortOrder, null);
+    }
+
+    /**
+     * Pages through the students in id order. When {@code after} holds the {@code nextCursor} of a previous page,
+     * the page starts right after that student and {@code skip} is applied from there.
+     *
+     * @throws IllegalArgumentException if {@code after} is not a valid student cursor
+     */
+    public StudentPaginationResponse getAllStudents(int skip, int limit, String sortOrder, String after) {
         skip = Math.max(0, skip);
         limit = Math.min(ALL_STUDENTS_MAX_LIMIT, Math.max(1, limit));
         sortOrder = "DESC".equalsIgnoreCase(sortOrder) ? "DESC" : "ASC";
 
-        List<StudentResponse> studentResponses = studentIdExamStatsMap.keySet()
+        // the key set is already sorted, read one extra key to know whether another page exists
+        List<String> studentIds = PageCursor.keysAfter(scoreRepository.studentIds(), sortOrder, PageCursor.decodeStudent(after))
             .stream()
-            .sorted(getComparator(sortOrder))
             .skip(skip)
+            .limit(limit + 1L)
+            .toList();
+
+        List<StudentResponse> studentResponses = studentIds.stream()
             .limit(limit)
             .map(this::mapToStudentResponse)
             .toList();
 
-        int totalStudents = studentIdExamStatsMap.size();
+        int totalStudents = scoreRepository.countStudents();
 
         StudentPaginationResponse response = new StudentPaginationResponse();
         response.setTotalStudents(totalStudents);
@@ -41,32 +69,202 @@ public class StudentService {
         response.setLimit(limit);
         response.setStudentResponses(studentResponses);
 
+        if (studentIds.size() > limit) {
+            response.setNextCursor(PageCursor.encodeStudent(studentIds.get(limit - 1)));
+        }
+
         return response;
     }
 
+    /**
+     * Returns one page of the leaderboard of student averages, highest first unless {@code sortOrder} is
+     * {@code ASC}, with every student's global rank.
+     */
+    public StudentRankPageResponse getStudentsByAverage(int skip, int limit, String sortOrder) {
+        skip = Math.max(0, skip);
+        limit = Math.min(ALL_STUDENTS_MAX_LIMIT, Math.max(1, limit));
+        sortOrder = "ASC".equalsIgnoreCase(sortOrder) ? "ASC" : "DESC";
+
+        StudentLeaderboard studentLeaderboard = scoreRepository.studentLeaderboard();
+
+        List<StudentRankResponse> studentRankResponses = studentLeaderboard.findByAverage(skip, limit, "DESC".equals(sortOrder))
+            .stream()
+            .map(this::mapToStudentRankResponse)
+            .toList();
+
+        return StudentRankPageResponse.builder()
+            .totalStudents(studentLeaderboard.size())
+            .skip(skip)
+            .limit(limit)
+            .sortOrder(sortOrder)
+            .students(studentRankResponses)
+            .build();
+    }
+
+    /**
+     * Returns the student's average and global rank, or null if the student has no score.
+     */
+    public StudentRankResponse getStudentRank(String studentId) {
+        StudentRank studentRank = studentId == null ? null : scoreRepository.studentLeaderboard().findRank(studentId);
+
+        if (studentRank == null) {
+            return null;
+        }
+
+        return mapToStudentRankResponse(studentRank);
+    }
+
+    /**
+     * Returns the version of the student listing, which grows whenever a student gets their first score.
+     */
+    public long getStudentsVersion() {
+        return scoreRepository.countStudents();
+    }
+
+    /**
+     * Returns the version of the leaderboard and every student's rank, which grows with every score added.
+     */
+    public long getLeaderboardVersion() {
+        return scoreRepository.studentScoresVersion();
+    }
+
+    /**
+     * Returns the version of everything served for the student, or 0 if they have no score yet. Read it before
+     * the student itself, so the data served with it is never older than the version.
+     */
+    public long getStudentVersion(String studentId) {
+        StudentScores studentScores = scoreRepository.findStudent(studentId);
+        return studentScores == null ? 0 : studentScores.version();
+    }
+
     public StudentAvgScoreResponse getStudentAverageScore(String studentId) {
-        if (!studentIdExamStatsMap.containsKey(studentId)) {
+        StudentScores studentScores = scoreRepository.findStudent(studentId);
+
+        if (studentScores == null) {
+            return null;
+        }
+
+        return mapToStudentAvgScoreResponse(studentId, calculateAverageScore(studentScores.getStats()));
+    }
+
+    /**
+     * Returns the number and average of the student's scores in a sliding window, or null if the student has no
+     * score. The window is kept up to date as scores arrive, so this does not read them.
+     *
+     * @throws IllegalArgumentException if no such window is kept, see {@link #getWindows()}
+     */
+    public StudentWindowResponse getStudentWindow(String studentId, String window) {
+        int index = scoreRepository.windowLayout().indexOf(window);
+
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown window " + window);
+        }
+
+        StudentScores studentScores = scoreRepository.findStudent(studentId);
+
+        if (studentScores == null) {
             return null;
         }
 
-        return mapToStudentAvgScoreResponse(studentId, calculateAverageScore(studentId));
+        ExamStats windowStats = studentScores.findWindow(index);
+
+        return StudentWindowResponse.builder()
+            .studentId(studentId)
+            .window(scoreRepository.windowLayout().getWindows().get(index))
+            .totalScores(windowStats.getExamCount())
+            .averageScore(windowStats.getAverageScore())
+            .build();
+    }
+
+    /**
+     * Returns the names of the sliding windows that can be asked for, such as 5m or 10000.
+     */
+    public List<String> getWindows() {
+        return scoreRepository.windowLayout().getWindows();
     }
 
-    public static void processStudentData(StudentExamScore studentExamScore) {
-        ExamStats examStats =
-            studentIdExamStatsMap.getOrDefault(
-                studentExamScore.getStudentId(),
-                new ExamStats(0D, 0, 0D));
+    /**
+     * Returns the averages of every listed student that has a score, in the order requested, and the ids that
+     * have none. All students are looked up in a single repository call.
+     */
+    public StudentBatchResponse getStudentAverageScores(List<String> studentIds) {
+        Set<String> requested = new LinkedHashSet<>(studentIds);
+        requested.remove(null);
+
+        Map<String, StudentScores> found = scoreRepository.findStudents(requested);
+        List<StudentAvgScoreResponse> studentAvgScoreResponses = new ArrayList<>(found.size());
+        List<String> notFound = new ArrayList<>();
+
+        for (String studentId : requested) {
+            StudentScores studentScores = found.get(studentId);
+
+            if (studentScores == null) {
+                notFound.add(studentId);
+            }
+            else {
+                studentAvgScoreResponses.add(mapToStudentAvgScoreResponse(studentId, calculateAverageScore(studentScores.getStats())));
+            }
+        }
+
+        return StudentBatchResponse.builder()
+            .students(studentAvgScoreResponses)
+            .notFound(notFound)
+            .build();
+    }
+
+    /**
+     * Returns one page of the student's exam scores in the order they arrived, newest first for {@code DESC}.
+     * Served from the student's own columns, so the cost depends only on the page size. Scores trimmed to keep the
+     * store within its memory budget are counted in the totals and as {@code trimmedExams}, but not listed.
+     */
+    public StudentExamPageResponse getStudentExams(String studentId, int skip, int limit, String sortOrder) {
+        StudentScores studentScores = scoreRepository.findStudent(studentId);
+
+        if (studentScores == null) {
+            return null;
+        }
+
+        skip = Math.max(0, skip);
+        limit = Math.min(STUDENT_EXAMS_MAX_LIMIT, Math.max(1, limit));
+        sortOrder = "DESC".equalsIgnoreCase(sortOrder) ? "DESC" : "ASC";
+
+        StudentScores.Snapshot snapshot = studentScores.snapshot();
+        ExamStats examStats = snapshot.getStats();
 
-        examStats.setScoreSum(examStats.getScoreSum() + studentExamScore.getScore());
-        examStats.setExamCount(examStats.getExamCount() + 1);
+        List<ExamScoreResponse> examScoreResponses = snapshot.findExams(skip, limit, "DESC".equals(sortOrder))
+            .stream()
+            .map(this::mapToExamScoreResponse)
+            .toList();
+
+        return StudentExamPageResponse.builder()
+            .studentId(studentId)
+            .averageScore(calculateAverageScore(examStats))
+            .totalExams(examStats.getExamCount())
+            .trimmedExams(snapshot.getTrimmedStats().getExamCount())
+            .skip(skip)
+            .limit(limit)
+            .sortOrder(sortOrder)
+            .exams(examScoreResponses)
+            .build();
+    }
+
+    public void processStudentData(StudentExamScore studentExamScore) {
+        if (studentExamScore == null) {
+            return;
+        }
 
-        studentIdExamStatsMap.put(studentExamScore.getStudentId(), examStats);
+        scoreRepository.addStudentScore(studentExamScore);
     }
 
-    private Double calculateAverageScore(String studentId) {
-        ExamStats examStats = studentIdExamStatsMap.get(studentId);
+    public void processStudentData(List<StudentExamScore> studentExamScores) {
+        if (studentExamScores == null || studentExamScores.isEmpty()) {
+            return;
+        }
 
+        scoreRepository.addStudentScores(studentExamScores);
+    }
+
+    private Double calculateAverageScore(ExamStats examStats) {
         if (examStats == null || examStats.getExamCount() == 0) {
             log.error("No Student scores found.");
             return null;
@@ -79,16 +277,20 @@ public class StudentService {
         return StudentAvgScoreResponse.builder().studentId(studentId).averageScore(averageScore).build();
     }
 
-    private StudentResponse mapToStudentResponse(String studentId) {
-        return StudentResponse.builder().studentId(studentId).build();
+    private StudentRankResponse mapToStudentRankResponse(StudentRank studentRank) {
+        return StudentRankResponse.builder()
+            .studentId(studentRank.getStudentId())
+            .averageScore(studentRank.getAverageScore())
+            .rank(studentRank.getRank())
+            .totalStudents(studentRank.getTotalStudents())
+            .build();
     }
 
-    private Comparator<? super String> getComparator(String sortOrder) {
-        if ("DESC".equals(sortOrder)) {
-            return Comparator.reverseOrder();
-        }
-        else {
-            return Comparator.naturalOrder();
-        }
+    private ExamScoreResponse mapToExamScoreResponse(StudentExamScore studentExamScore) {
+        return ExamScoreResponse.builder().exam(studentExamScore.getExam()).score(studentExamScore.getScore()).build();
+    }
+
+    private StudentResponse mapToStudentResponse(String studentId) {
+        return StudentResponse.builder().studentId(studentId).build();
     }
 }
@@ -0,0 +1,120 @@
+package org.calvinkeum;
+
+import org.calvinkeum.config.IngestPipelineProperties;
+import org.calvinkeum.config.IngestStreamProperties;
+import org.calvinkeum.config.LocalEmitterProperties;
+import org.calvinkeum.ingest.LocalScoreEmitter;
+import org.calvinkeum.ingest.ScoreIngestPipeline;
+import org.calvinkeum.ingest.ScoreStreamClient;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.repository.ScoreRepository;
+import org.calvinkeum.service.DataImportService;
+import org.calvinkeum.service.ExamService;
+import org.calvinkeum.service.StudentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataLoaderTest {
+
+    private final List<LocalScoreEmitter> localScoreEmitters = new ArrayList<>();
+    private IngestStreamProperties streamProperties;
+    private ScoreIngestPipeline scoreIngestPipeline;
+    private DataLoader dataLoader;
+
+    @BeforeEach
+    public void setUp() {
+        ScoreRepository scoreRepository = new ConcurrentScoreRepository();
+        scoreIngestPipeline = new ScoreIngestPipeline(new IngestPipelineProperties(), new StudentService(scoreRepository),
+            new ExamService(scoreRepository));
+        scoreIngestPipeline.start();
+
+        streamProperties = new IngestStreamProperties();
+        streamProperties.setConnectTimeout(Duration.ofSeconds(1));
+        streamProperties.setReadTimeout(Duration.ofSeconds(5));
+        streamProperties.setInitialBackoff(Duration.ofMillis(10));
+        streamProperties.setMaxBackoff(Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (dataLoader != null) {
+            dataLoader.stop();
+        }
+
+        localScoreEmitters.forEach(LocalScoreEmitter::stop);
+        scoreIngestPipeline.stop();
+    }
+
+    @Test
+    public void testStart_ReadsEverySourceIntoThePipeline() throws InterruptedException {
+        streamProperties.getSources().put("eu", startEmitter(30_000));
+        streamProperties.getSources().put("us", startEmitter(20_000));
+        streamProperties.getSources().put("apac", startEmitter(10_000));
+
+        dataLoader = new DataLoader(streamProperties, new DataImportService(scoreIngestPipeline));
+        dataLoader.start();
+
+        assertTrue(awaitEvents(60_000, Duration.ofSeconds(30)));
+        assertTrue(scoreIngestPipeline.flush(Duration.ofSeconds(10)));
+        dataLoader.stop();
+
+        List<ScoreStreamClient> clients = dataLoader.getScoreStreamClients();
+        assertEquals(List.of("eu", "us", "apac"), clients.stream().map(ScoreStreamClient::getName).toList());
+        assertEquals(30_000, clients.get(0).getEventCount());
+        assertEquals(20_000, clients.get(1).getEventCount());
+        assertEquals(10_000, clients.get(2).getEventCount());
+
+        assertEquals(60_000, scoreIngestPipeline.getPublishedCount());
+        assertEquals(60_000, scoreIngestPipeline.getAppliedCount());
+        assertEquals(0, scoreIngestPipeline.getDroppedCount());
+    }
+
+    @Test
+    public void testStart_ReadsTheUrlAsTheDefaultSourceWhenNoneAreListed() throws InterruptedException {
+        streamProperties.setUrl(startEmitter(1_000));
+
+        dataLoader = new DataLoader(streamProperties, new DataImportService(scoreIngestPipeline));
+        dataLoader.start();
+
+        assertTrue(awaitEvents(1_000, Duration.ofSeconds(10)));
+        dataLoader.stop();
+
+        assertEquals(1, dataLoader.getScoreStreamClients().size());
+        assertEquals(DataLoader.DEFAULT_SOURCE, dataLoader.getScoreStreamClients().get(0).getName());
+        assertFalse(dataLoader.isRunning());
+    }
+
+    private String startEmitter(long maxEvents) {
+        LocalEmitterProperties emitterProperties = new LocalEmitterProperties();
+        emitterProperties.setPort(0);
+        emitterProperties.setEventsPerSecond(0);
+        emitterProperties.setMaxEvents(maxEvents);
+
+        LocalScoreEmitter localScoreEmitter = new LocalScoreEmitter(emitterProperties);
+        localScoreEmitter.start();
+        localScoreEmitters.add(localScoreEmitter);
+
+        return localScoreEmitter.getUrl();
+    }
+
+    private boolean awaitEvents(long count, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        while (dataLoader.getEventCount() < count) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+
+            Thread.sleep(10);
+        }
+
+        return true;
+    }
+}
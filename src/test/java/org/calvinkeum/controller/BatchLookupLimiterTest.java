@@ -0,0 +1,51 @@
+package org.calvinkeum.controller;
+
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import org.calvinkeum.config.BatchLookupProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchLookupLimiterTest {
+
+    @Test
+    public void testTryAcquire_TakesOnePermitPerStartedGroupOfIds() {
+        RateLimiterRegistry rateLimiterRegistry = RateLimiterRegistry.of(RateLimiterConfig.custom()
+            .limitForPeriod(20)
+            .limitRefreshPeriod(Duration.ofMinutes(1))
+            .timeoutDuration(Duration.ZERO)
+            .build());
+        BatchLookupLimiter batchLookupLimiter = new BatchLookupLimiter(rateLimiterRegistry, new BatchLookupProperties());
+        RateLimiter rateLimiter = rateLimiterRegistry.rateLimiter("student");
+
+        assertEquals(1, batchLookupLimiter.permitsFor(rateLimiter, 1));
+        assertEquals(1, batchLookupLimiter.permitsFor(rateLimiter, 100));
+        assertEquals(2, batchLookupLimiter.permitsFor(rateLimiter, 101));
+        assertEquals(20, batchLookupLimiter.permitsFor(rateLimiter, 100_000));
+
+        assertTrue(batchLookupLimiter.tryAcquire("student", 1000));
+        assertEquals(10, rateLimiter.getMetrics().getAvailablePermissions());
+        assertTrue(batchLookupLimiter.tryAcquire("student", 1000));
+        assertFalse(batchLookupLimiter.tryAcquire("student", 1));
+    }
+
+    @Test
+    public void testReserve_ReportsTheWaitWithoutBlocking() {
+        RateLimiterRegistry rateLimiterRegistry = RateLimiterRegistry.of(RateLimiterConfig.custom()
+            .limitForPeriod(2)
+            .limitRefreshPeriod(Duration.ofMinutes(1))
+            .timeoutDuration(Duration.ofMinutes(2))
+            .build());
+        BatchLookupLimiter batchLookupLimiter = new BatchLookupLimiter(rateLimiterRegistry, new BatchLookupProperties());
+
+        assertEquals(0, batchLookupLimiter.reserve("exam", 200));
+        assertTrue(batchLookupLimiter.reserve("exam", 1) > 0);
+
+        rateLimiterRegistry.rateLimiter("exam").changeTimeoutDuration(Duration.ZERO);
+        assertTrue(batchLookupLimiter.reserve("exam", 1) < 0);
+    }
+}
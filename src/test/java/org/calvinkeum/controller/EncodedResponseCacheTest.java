@@ -0,0 +1,107 @@
+package org.calvinkeum.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.calvinkeum.config.EncodedResponseProperties;
+import org.calvinkeum.dto.ExamAvgScoreResponse;
+import org.calvinkeum.dto.StudentScoreResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EncodedResponseCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testOk_ReusesTheEncodedBodyUntilTheVersionMoves() throws IOException {
+        EncodedResponseCache encodedResponseCache = new EncodedResponseCache(new EncodedResponseProperties(), objectMapper);
+        ExamAvgScoreResponse examAvgScoreResponse = examResults(1000);
+        AtomicInteger builds = new AtomicInteger();
+
+        ResponseEntity<byte[]> responseEntity = encodedResponseCache.ok("exam", 1, 5, "\"e5\"", WireFormat.JSON, null, () -> {
+            builds.incrementAndGet();
+            return examAvgScoreResponse;
+        });
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, responseEntity.getHeaders().getContentType());
+        assertEquals("\"e5\"", responseEntity.getHeaders().getETag());
+        assertNull(responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(examAvgScoreResponse, objectMapper.readValue(responseEntity.getBody(), ExamAvgScoreResponse.class));
+
+        // the same version is served from the cache, gzipped for a client that accepts it
+        ResponseEntity<byte[]> gzipped = encodedResponseCache.ok("exam", 1, 5, "\"e5\"", WireFormat.JSON, "br, gzip;q=0.8", () -> {
+            builds.incrementAndGet();
+            return examAvgScoreResponse;
+        });
+        assertEquals("gzip", gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("\"e5-gzip\"", gzipped.getHeaders().getETag());
+        assertTrue(gzipped.getBody().length < responseEntity.getBody().length);
+        assertArrayEquals(responseEntity.getBody(), new GZIPInputStream(new ByteArrayInputStream(gzipped.getBody())).readAllBytes());
+        assertEquals(1, builds.get());
+        assertEquals(1, encodedResponseCache.getHitCount());
+
+        encodedResponseCache.ok("exam", 1, 6, "\"e6\"", WireFormat.JSON, null, () -> {
+            builds.incrementAndGet();
+            return examAvgScoreResponse;
+        });
+        assertEquals(2, builds.get());
+        assertTrue(encodedResponseCache.getWeight() > responseEntity.getBody().length);
+
+        assertNull(encodedResponseCache.ok("exam", 2, 1, "\"e1\"", WireFormat.JSON, null, () -> null));
+    }
+
+    @Test
+    public void testOk_KeepsAnEntryPerFormat() throws IOException {
+        EncodedResponseCache encodedResponseCache = new EncodedResponseCache(new EncodedResponseProperties(), objectMapper);
+        ExamAvgScoreResponse examAvgScoreResponse = examResults(100);
+
+        ResponseEntity<byte[]> json = encodedResponseCache.ok("exam", 1, 1, "\"e1\"", WireFormat.JSON, null, () -> examAvgScoreResponse);
+        ResponseEntity<byte[]> cbor = encodedResponseCache.ok("exam", 1, 1, "\"e1\"", WireFormat.CBOR, null, () -> examAvgScoreResponse);
+
+        assertEquals(MediaType.APPLICATION_JSON, json.getHeaders().getContentType());
+        assertEquals(MediaType.APPLICATION_CBOR, cbor.getHeaders().getContentType());
+        assertEquals(examAvgScoreResponse, WireFormat.CBOR.decode(cbor.getBody(), ExamAvgScoreResponse.class));
+        assertEquals(2, encodedResponseCache.getMissCount());
+
+        encodedResponseCache.ok("exam", 1, 1, "\"e1\"", WireFormat.CBOR, null, () -> examAvgScoreResponse);
+        assertEquals(1, encodedResponseCache.getHitCount());
+    }
+
+    @Test
+    public void testOk_SendsSmallBodiesAsTheyAre() {
+        EncodedResponseCache encodedResponseCache = new EncodedResponseCache(new EncodedResponseProperties(), objectMapper);
+
+        ResponseEntity<byte[]> responseEntity = encodedResponseCache.ok("exam", 1, 1, "\"e1\"", WireFormat.JSON, "gzip", () -> examResults(1));
+        assertNull(responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(responseEntity.getBody().length, responseEntity.getHeaders().getContentLength());
+    }
+
+    @Test
+    public void testAcceptsGzip_HonoursAnExplicitRefusal() {
+        assertTrue(EncodedResponseCache.acceptsGzip("gzip, deflate, br"));
+        assertTrue(EncodedResponseCache.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertFalse(EncodedResponseCache.acceptsGzip("gzip;q=0"));
+        assertFalse(EncodedResponseCache.acceptsGzip("gzip; q=0.000"));
+        assertFalse(EncodedResponseCache.acceptsGzip("deflate, *"));
+        assertFalse(EncodedResponseCache.acceptsGzip(null));
+    }
+
+    private static ExamAvgScoreResponse examResults(int students) {
+        List<StudentScoreResponse> studentScoreResponses = IntStream.range(0, students)
+            .mapToObj(i -> new StudentScoreResponse("student" + i, (i % 100) / 100D))
+            .toList();
+
+        return ExamAvgScoreResponse.builder().exam(1).students(studentScoreResponses).averageScore(0.495).build();
+    }
+}
@@ -1,6 +1,9 @@
 package org.calvinkeum.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import org.calvinkeum.config.EncodedResponseProperties;
+import org.calvinkeum.config.ExamStreamingProperties;
 import org.calvinkeum.dto.*;
 import org.calvinkeum.service.ExamService;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,16 +11,24 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.lang.reflect.Constructor;
 import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ExamControllerTest {
@@ -25,6 +36,15 @@ public class ExamControllerTest {
     @Mock
     private ExamService examService;
 
+    @Mock
+    private BatchLookupLimiter batchLookupLimiter;
+
+    @Spy
+    private EncodedResponseCache encodedResponseCache = new EncodedResponseCache(new EncodedResponseProperties(), new ObjectMapper());
+
+    @Spy
+    private ServletExamResultsStreamer examResultsStreamer = new ServletExamResultsStreamer(new ExamStreamingProperties(), new ObjectMapper());
+
     @InjectMocks
     private ExamController examController;
 
@@ -39,10 +59,10 @@ public class ExamControllerTest {
         constructor.setAccessible(true);
 
         RequestNotPermitted requestNotPermitted = constructor.newInstance("Rate limit exceeded", false);
-        when(examService.getAllExams(anyInt(), anyInt(), anyString())).thenThrow(requestNotPermitted);
+        when(examService.getAllExams(anyInt(), anyInt(), anyString(), any())).thenThrow(requestNotPermitted);
 
         Exception exception = assertThrows(RequestNotPermitted.class, () -> {
-            examController.getAllExams(0, 20, "ASC");
+            examController.getAllExams(0, 20, "ASC", null, null, null);
         });
 
         assertNotNull(exception);
@@ -57,21 +77,30 @@ public class ExamControllerTest {
         mockResponse.setLimit(10);
         mockResponse.setExamResponses(Collections.singletonList(new ExamResponse()));
 
-        when(examService.getAllExams(0, 10, "ASC")).thenReturn(mockResponse);
-        ResponseEntity<?> responseEntity = examController.getAllExams(0, 10, "ASC");
+        when(examService.getAllExams(0, 10, "ASC", null)).thenReturn(mockResponse);
+        ResponseEntity<?> responseEntity = examController.getAllExams(0, 10, "ASC", null, null, null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
     }
 
     @Test
     public void testGetAllExams_ReturnsNoContentWithEmptyList() {
-        when(examService.getAllExams(0, 10, "ASC")).thenReturn(new ExamPaginationResponse());
-        ResponseEntity<?> responseEntity = examController.getAllExams(0, 10, "ASC");
+        when(examService.getAllExams(0, 10, "ASC", null)).thenReturn(new ExamPaginationResponse());
+        ResponseEntity<?> responseEntity = examController.getAllExams(0, 10, "ASC", null, null, null);
 
         assertEquals(HttpStatus.NO_CONTENT, responseEntity.getStatusCode());
         assertEquals("No results found.", responseEntity.getBody());
     }
 
+    @Test
+    public void testGetAllExams_ReturnsBadRequestForInvalidCursor() {
+        when(examService.getAllExams(0, 10, "ASC", "bogus")).thenThrow(new IllegalArgumentException("Invalid cursor: bogus"));
+        ResponseEntity<?> responseEntity = examController.getAllExams(0, 10, "ASC", "bogus", null, null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        assertEquals("Invalid cursor supplied.", responseEntity.getBody());
+    }
+
     @Test
     public void testGetExamResults_RateLimiterExceeded() throws Exception {
         Constructor<RequestNotPermitted> constructor = RequestNotPermitted.class.getDeclaredConstructor(String.class, boolean.class);
@@ -81,7 +110,7 @@ public class ExamControllerTest {
         when(examService.getExamResults(anyInt())).thenThrow(requestNotPermitted);
 
         Exception exception = assertThrows(RequestNotPermitted.class, () -> {
-            examController.getExamResults(1000);
+            examController.getExamResults(1000, null, 0, 100, "DESC", null, null, null, null);
         });
 
         assertNotNull(exception);
@@ -91,21 +120,186 @@ public class ExamControllerTest {
     @Test
     public void testGetExamResults_ReturnsOkWithValidResponse() {
         when(examService.getExamResults(1)).thenReturn(new ExamAvgScoreResponse());
-        ResponseEntity<?> responseEntity = examController.getExamResults(1);
+        ResponseEntity<?> responseEntity = examController.getExamResults(1, null, 0, 100, "DESC", null, null, null, null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertEquals(ExamAvgScoreResponse.class, responseEntity.getBody().getClass());
     }
 
+    @Test
+    public void testGetExamResults_StreamsLargeExams() {
+        List<StudentScoreResponse> students = Collections.nCopies(10000, new StudentScoreResponse("john.doe", 0.5));
+        when(examService.getExamVersion(1)).thenReturn(10000L);
+        when(examService.getExamResults(1)).thenReturn(ExamAvgScoreResponse.builder().exam(1).students(students).build());
+
+        ResponseEntity<?> responseEntity = examController.getExamResults(1, null, 0, 100, "DESC", null, null, null, "gzip");
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertInstanceOf(StreamingResponseBody.class, responseEntity.getBody());
+        assertEquals("gzip", responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertNotNull(responseEntity.getHeaders().getETag());
+        assertEquals(0, encodedResponseCache.getMissCount());
+    }
+
     @Test
     public void testGetExamResults_ReturnsNotFoundForInvalidNumber() {
         when(examService.getExamResults(1)).thenReturn(null);
-        ResponseEntity<?> responseEntity = examController.getExamResults(1);
+        ResponseEntity<?> responseEntity = examController.getExamResults(1, null, 0, 100, "DESC", null, null, null, null);
 
         assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
         assertEquals("No results found for the provided number.", responseEntity.getBody());
     }
 
+    @Test
+    public void testGetExamResults_ReturnsScorePageWhenOrderedByScore() {
+        when(examService.getExamResultsByScore(1, 0, 10, "DESC")).thenReturn(new ExamScorePageResponse());
+        ResponseEntity<?> responseEntity = examController.getExamResults(1, "score", 0, 10, "DESC", null, null, null, null);
+
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(ExamScorePageResponse.class, responseEntity.getBody().getClass());
+    }
+
+    @Test
+    public void testGetExamResults_ReturnsBadRequestForUnknownOrder() {
+        ResponseEntity<?> responseEntity = examController.getExamResults(1, "name", 0, 10, "DESC", null, null, null, null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+    }
+
+    @Test
+    public void testGetExamResults_ReturnsWindowWithoutETag() {
+        when(examService.getExamWindow(1, "5m")).thenReturn(new ExamWindowResponse(1, "5m", 2, 0.5));
+        when(examService.getExamWindow(1, "7m")).thenThrow(new IllegalArgumentException("Unknown window 7m"));
+        when(examService.getWindows()).thenReturn(List.of("5m", "10000"));
+
+        ResponseEntity<?> responseEntity = examController.getExamResults(1, null, 0, 100, "DESC", "5m", null, null, null);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(ExamWindowResponse.class, responseEntity.getBody().getClass());
+        assertNull(responseEntity.getHeaders().getETag());
+
+        responseEntity = examController.getExamResults(1, null, 0, 100, "DESC", "7m", null, null, null);
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        assertEquals("Invalid window supplied, expected one of [5m, 10000].", responseEntity.getBody());
+
+        responseEntity = examController.getExamResults(1, "score", 0, 100, "DESC", "5m", null, null, null);
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        verify(examService, times(0)).getExamResultsByScore(anyInt(), anyInt(), anyInt(), anyString());
+    }
+
+    @Test
+    public void testGetExamResults_ReturnsNotModifiedForCurrentETag() {
+        when(examService.getExamVersion(1)).thenReturn(5L);
+        when(examService.getExamResults(1)).thenReturn(new ExamAvgScoreResponse());
+
+        ResponseEntity<?> responseEntity = examController.getExamResults(1, null, 0, 100, "DESC", null, null, null, null);
+        String eTag = responseEntity.getHeaders().getETag();
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNotNull(eTag);
+
+        ResponseEntity<?> notModified = examController.getExamResults(1, null, 0, 100, "DESC", null, "\"other\", W/" + eTag, null, null);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals(eTag, notModified.getHeaders().getETag());
+        assertNull(notModified.getBody());
+        verify(examService, times(1)).getExamResults(1);
+
+        // a new score moves the version and the tag
+        when(examService.getExamVersion(1)).thenReturn(6L);
+        responseEntity = examController.getExamResults(1, null, 0, 100, "DESC", null, eTag, null, null);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertNotEquals(eTag, responseEntity.getHeaders().getETag());
+    }
+
+    @Test
+    public void testGetExamResults_TagsTheGzippedBodyOnItsOwn() {
+        List<StudentScoreResponse> students = IntStream.range(0, 200).mapToObj(i -> new StudentScoreResponse("student" + i, i / 200D)).toList();
+        when(examService.getExamVersion(1)).thenReturn(5L);
+        when(examService.getExamResults(1)).thenReturn(ExamAvgScoreResponse.builder().exam(1).students(students).build());
+
+        String plainETag = examController.getExamResults(1, null, 0, 100, "DESC", null, null, null, null).getHeaders().getETag();
+        ResponseEntity<?> gzipped = examController.getExamResults(1, null, 0, 100, "DESC", null, null, null, "gzip");
+        String gzipETag = gzipped.getHeaders().getETag();
+        assertEquals("gzip", gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertNotEquals(plainETag, gzipETag);
+
+        ResponseEntity<?> notModified = examController.getExamResults(1, null, 0, 100, "DESC", null, gzipETag, null, "gzip");
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals(gzipETag, notModified.getHeaders().getETag());
+        assertTrue(notModified.getHeaders().getVary().contains(HttpHeaders.ACCEPT_ENCODING));
+
+        // the gzipped body's tag does not stand for the plain one
+        assertEquals(HttpStatus.OK, examController.getExamResults(1, null, 0, 100, "DESC", null, gzipETag, null, null).getStatusCode());
+    }
+
+    @Test
+    public void testGetExamResults_TagsTheCborBodyOnItsOwn() {
+        when(examService.getExamVersion(1)).thenReturn(5L);
+        when(examService.getExamResults(1)).thenReturn(ExamAvgScoreResponse.builder().exam(1).build());
+
+        ResponseEntity<?> json = examController.getExamResults(1, null, 0, 100, "DESC", null, null, null, null);
+        ResponseEntity<?> cbor = examController.getExamResults(1, null, 0, 100, "DESC", null, null, "application/cbor", null);
+        String cborETag = cbor.getHeaders().getETag();
+        assertEquals(WireFormat.CBOR.getMediaType(), cbor.getHeaders().getContentType());
+        assertTrue(cborETag.endsWith("-cbor\""));
+        assertNotEquals(json.getHeaders().getETag(), cborETag);
+        assertTrue(cbor.getHeaders().getVary().contains(HttpHeaders.ACCEPT));
+
+        ResponseEntity<?> notModified = examController.getExamResults(1, null, 0, 100, "DESC", null, cborETag, "application/cbor", null);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertTrue(notModified.getHeaders().getVary().contains(HttpHeaders.ACCEPT));
+
+        // the CBOR body's tag does not stand for the JSON one
+        assertEquals(HttpStatus.OK, examController.getExamResults(1, null, 0, 100, "DESC", null, cborETag, null, null).getStatusCode());
+    }
+
+    @Test
+    public void testGetExamDistribution_PinsTheNegotiatedFormat() {
+        when(examService.getExamVersion(1)).thenReturn(5L);
+        when(examService.getExamDistribution(1)).thenReturn(ExamDistributionResponse.builder().exam(1).build());
+
+        ResponseEntity<?> cbor = examController.getExamDistribution(1, null, "application/cbor");
+        assertEquals(WireFormat.CBOR.getMediaType(), cbor.getHeaders().getContentType());
+        assertEquals(List.of(HttpHeaders.ACCEPT), cbor.getHeaders().getVary());
+
+        ResponseEntity<?> notModified = examController.getExamDistribution(1, cbor.getHeaders().getETag(), "application/cbor");
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals(List.of(HttpHeaders.ACCEPT), notModified.getHeaders().getVary());
+        assertEquals(HttpStatus.OK, examController.getExamDistribution(1, cbor.getHeaders().getETag(), null).getStatusCode());
+    }
+
+    @Test
+    public void testGetExamDistribution_ReturnsDistribution() {
+        ExamDistributionResponse examDistributionResponse = ExamDistributionResponse.builder().exam(1).totalStudents(2).median(0.5).build();
+        when(examService.getExamDistribution(1)).thenReturn(examDistributionResponse);
+
+        ResponseEntity<?> responseEntity = examController.getExamDistribution(1, null, null);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(examDistributionResponse, responseEntity.getBody());
+
+        when(examService.getExamDistribution(2)).thenReturn(null);
+        assertEquals(HttpStatus.NOT_FOUND, examController.getExamDistribution(2, null, null).getStatusCode());
+    }
+
+    @Test
+    public void testGetExamSummaries_ReturnsSummariesWithinLimits() {
+        List<Integer> exams = List.of(1, 2);
+        ExamBatchResponse mockResponse = ExamBatchResponse.builder().notFound(List.of(2)).build();
+        when(batchLookupLimiter.getMaxSize()).thenReturn(2);
+        when(batchLookupLimiter.tryAcquire("exam", 2)).thenReturn(true);
+        when(examService.getExamSummaries(exams)).thenReturn(mockResponse);
+
+        assertEquals(mockResponse, examController.getExamSummaries(new ExamBatchRequest(exams)).getBody());
+        assertEquals(HttpStatus.BAD_REQUEST, examController.getExamSummaries(new ExamBatchRequest(List.of(1, 2, 3))).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, examController.getExamSummaries(null).getStatusCode());
+    }
+
+    @Test
+    public void testGetStudentExamRank_ReturnsNotFoundForMissingStudent() {
+        when(examService.getStudentExamRank(1, "john.doe")).thenReturn(null);
+        ResponseEntity<?> responseEntity = examController.getStudentExamRank(1, "john.doe", null, null);
+
+        assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
+        assertEquals("No results found for the provided number and id.", responseEntity.getBody());
+    }
+
     @Test
     public void testRateLimiterFallback() {
         Throwable throwable = new RuntimeException();
@@ -0,0 +1,79 @@
+package org.calvinkeum.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.calvinkeum.config.ExamStreamingProperties;
+import org.calvinkeum.dto.ExamAvgScoreResponse;
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.repository.ScoreRepository;
+import org.calvinkeum.service.ExamService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExamResultsStreamerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testStream_WritesTheSameJsonAsEncodingTheWholeResponse() throws IOException {
+        ScoreRepository scoreRepository = new ConcurrentScoreRepository();
+        List<StudentExamScore> studentExamScores = IntStream.range(0, 5000)
+            .mapToObj(i -> new StudentExamScore("student" + i, 1, (i * 7919 % 1000) / 1000D))
+            .toList();
+        scoreRepository.addExamScores(studentExamScores);
+
+        ExamAvgScoreResponse examAvgScoreResponse = new ExamService(scoreRepository).getExamResults(1);
+        ExamStreamingProperties properties = new ExamStreamingProperties();
+        properties.setMinStudents(5000);
+        ServletExamResultsStreamer examResultsStreamer = new ServletExamResultsStreamer(properties, objectMapper);
+
+        assertTrue(examResultsStreamer.shouldStream(examAvgScoreResponse));
+
+        ResponseEntity<StreamingResponseBody> plain = examResultsStreamer.stream(examAvgScoreResponse, "\"e1\"", WireFormat.JSON, null);
+        assertEquals("\"e1\"", plain.getHeaders().getETag());
+        assertEquals(-1, plain.getHeaders().getContentLength());
+        assertArrayEquals(objectMapper.writeValueAsBytes(examAvgScoreResponse), write(plain));
+
+        ResponseEntity<StreamingResponseBody> gzipped = examResultsStreamer.stream(examAvgScoreResponse, "\"e1\"", WireFormat.JSON, "gzip");
+        assertEquals("gzip", gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("\"e1-gzip\"", gzipped.getHeaders().getETag());
+        assertArrayEquals(objectMapper.writeValueAsBytes(examAvgScoreResponse),
+            new GZIPInputStream(new ByteArrayInputStream(write(gzipped))).readAllBytes());
+
+        ResponseEntity<StreamingResponseBody> cbor = examResultsStreamer.stream(examAvgScoreResponse, "\"e1\"", WireFormat.CBOR, null);
+        assertEquals(MediaType.APPLICATION_CBOR, cbor.getHeaders().getContentType());
+        assertEquals(examAvgScoreResponse, WireFormat.CBOR.decode(write(cbor), ExamAvgScoreResponse.class));
+    }
+
+    @Test
+    public void testShouldStream_OnlyAtTheMinimumSize() {
+        ExamStreamingProperties properties = new ExamStreamingProperties();
+        properties.setMinStudents(2);
+        ServletExamResultsStreamer examResultsStreamer = new ServletExamResultsStreamer(properties, objectMapper);
+
+        assertFalse(examResultsStreamer.shouldStream(new ExamAvgScoreResponse()));
+        assertFalse(examResultsStreamer.shouldStream(ExamAvgScoreResponse.builder().students(List.of()).build()));
+
+        properties.setMinStudents(0);
+        assertFalse(new ServletExamResultsStreamer(properties, objectMapper).shouldStream(ExamAvgScoreResponse.builder().students(List.of()).build()));
+    }
+
+    private static byte[] write(ResponseEntity<StreamingResponseBody> responseEntity) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        responseEntity.getBody().writeTo(outputStream);
+
+        return outputStream.toByteArray();
+    }
+}
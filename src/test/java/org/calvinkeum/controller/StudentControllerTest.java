@@ -1,8 +1,15 @@
 package org.calvinkeum.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import org.calvinkeum.config.EncodedResponseProperties;
 import org.calvinkeum.dto.StudentAvgScoreResponse;
+import org.calvinkeum.dto.StudentBatchRequest;
+import org.calvinkeum.dto.StudentBatchResponse;
+import org.calvinkeum.dto.StudentExamPageResponse;
 import org.calvinkeum.dto.StudentPaginationResponse;
+import org.calvinkeum.dto.StudentRankPageResponse;
+import org.calvinkeum.dto.StudentRankResponse;
 import org.calvinkeum.dto.StudentResponse;
 import org.calvinkeum.service.StudentService;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,15 +17,20 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.lang.reflect.Constructor;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class StudentControllerTest {
@@ -26,6 +38,12 @@ public class StudentControllerTest {
     @Mock
     private StudentService studentService;
 
+    @Mock
+    private BatchLookupLimiter batchLookupLimiter;
+
+    @Spy
+    private EncodedResponseCache encodedResponseCache = new EncodedResponseCache(new EncodedResponseProperties(), new ObjectMapper());
+
     @InjectMocks
     private StudentController studentController;
 
@@ -42,8 +60,8 @@ public class StudentControllerTest {
         mockResponse.setLimit(10);
         mockResponse.setStudentResponses(Collections.singletonList(new StudentResponse()));
 
-        when(studentService.getAllStudents(0, 10, "ASC")).thenReturn(mockResponse);
-        ResponseEntity<?> responseEntity = studentController.getAllStudents(0, 10, "ASC");
+        when(studentService.getAllStudents(0, 10, "ASC", null)).thenReturn(mockResponse);
+        ResponseEntity<?> responseEntity = studentController.getAllStudents(0, 10, "ASC", null, null, null, null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
     }
@@ -58,7 +76,7 @@ public class StudentControllerTest {
                 .thenThrow(requestNotPermitted);
 
         Exception exception = assertThrows(RequestNotPermitted.class, () -> {
-            studentController.getStudentAverageScore("john.doe");
+            studentController.getStudentAverageScore("john.doe", null, null, null, null);
         });
 
         assertNotNull(exception);
@@ -67,33 +85,94 @@ public class StudentControllerTest {
 
     @Test
     public void testGetAllStudents_ReturnsNoResultsFoundWithEmptyList() {
-        when(studentService.getAllStudents(0, 10, "ASC")).thenReturn(new StudentPaginationResponse());
-        ResponseEntity<?> responseEntity = studentController.getAllStudents(0, 10, "ASC");
+        when(studentService.getAllStudents(0, 10, "ASC", null)).thenReturn(new StudentPaginationResponse());
+        ResponseEntity<?> responseEntity = studentController.getAllStudents(0, 10, "ASC", null, null, null, null);
 
         assertEquals(HttpStatus.NO_CONTENT, responseEntity.getStatusCode());
         assertEquals("No results found.", responseEntity.getBody());
     }
 
+    @Test
+    public void testGetAllStudents_ReturnsBadRequestForInvalidCursor() {
+        when(studentService.getAllStudents(0, 10, "ASC", "bogus")).thenThrow(new IllegalArgumentException("Invalid cursor: bogus"));
+        ResponseEntity<?> responseEntity = studentController.getAllStudents(0, 10, "ASC", "bogus", null, null, null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, responseEntity.getStatusCode());
+        assertEquals("Invalid cursor supplied.", responseEntity.getBody());
+    }
+
     @Test
     public void testGetStudentAverageScore_RateLimiterExceeded() throws Exception {
         Constructor<RequestNotPermitted> constructor = RequestNotPermitted.class.getDeclaredConstructor(String.class, boolean.class);
         constructor.setAccessible(true);
 
         RequestNotPermitted requestNotPermitted = constructor.newInstance("Rate limit exceeded", false);
-        when(studentService.getAllStudents(anyInt(), anyInt(), anyString())).thenThrow(requestNotPermitted);
+        when(studentService.getAllStudents(anyInt(), anyInt(), anyString(), any())).thenThrow(requestNotPermitted);
 
         Exception exception = assertThrows(RequestNotPermitted.class, () -> {
-            studentController.getAllStudents(0, 20, "ASC");
+            studentController.getAllStudents(0, 20, "ASC", null, null, null, null);
         });
 
         assertNotNull(exception);
         assertTrue(exception instanceof RequestNotPermitted);
     }
 
+    @Test
+    public void testGetAllStudents_OrdersByAverage() {
+        StudentRankPageResponse mockResponse = StudentRankPageResponse.builder().totalStudents(1).build();
+        when(studentService.getStudentsByAverage(0, 10, null)).thenReturn(mockResponse);
+
+        ResponseEntity<?> responseEntity = studentController.getAllStudents(0, 10, null, null, "average", null, null);
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(mockResponse, responseEntity.getBody());
+
+        assertEquals(HttpStatus.BAD_REQUEST, studentController.getAllStudents(0, 10, null, "cursor", "average", null, null).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, studentController.getAllStudents(0, 10, null, null, "name", null, null).getStatusCode());
+    }
+
+    @Test
+    public void testGetStudentExams_ReturnsPageOrNotFound() {
+        StudentExamPageResponse mockResponse = StudentExamPageResponse.builder().studentId("1").totalExams(3).build();
+        when(studentService.getStudentExams("1", 0, 100, "ASC")).thenReturn(mockResponse);
+        when(studentService.getStudentExams("2", 0, 100, "ASC")).thenReturn(null);
+
+        assertEquals(mockResponse, studentController.getStudentExams("1", 0, 100, "ASC", null, null).getBody());
+        assertEquals(HttpStatus.NOT_FOUND, studentController.getStudentExams("2", 0, 100, "ASC", null, null).getStatusCode());
+    }
+
+    @Test
+    public void testGetStudentAverageScores_ChargesBatchAsOneWeightedCall() {
+        List<String> studentIds = List.of("a", "b", "c");
+        StudentBatchResponse mockResponse = StudentBatchResponse.builder().notFound(List.of("c")).build();
+        when(batchLookupLimiter.getMaxSize()).thenReturn(3);
+        when(batchLookupLimiter.tryAcquire("student", 3)).thenReturn(true);
+        when(studentService.getStudentAverageScores(studentIds)).thenReturn(mockResponse);
+
+        ResponseEntity<?> responseEntity = studentController.getStudentAverageScores(new StudentBatchRequest(studentIds));
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(mockResponse, responseEntity.getBody());
+
+        when(batchLookupLimiter.tryAcquire("student", 3)).thenReturn(false);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, studentController.getStudentAverageScores(new StudentBatchRequest(studentIds)).getStatusCode());
+
+        assertEquals(HttpStatus.BAD_REQUEST, studentController.getStudentAverageScores(new StudentBatchRequest(List.of("a", "b", "c", "d"))).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, studentController.getStudentAverageScores(new StudentBatchRequest(List.of())).getStatusCode());
+    }
+
+    @Test
+    public void testGetStudentRank_ReturnsRankOrNotFound() {
+        StudentRankResponse mockResponse = StudentRankResponse.builder().studentId("1").rank(3).build();
+        when(studentService.getStudentRank("1")).thenReturn(mockResponse);
+        when(studentService.getStudentRank("2")).thenReturn(null);
+
+        assertEquals(mockResponse, studentController.getStudentRank("1", null, null).getBody());
+        assertEquals(HttpStatus.NOT_FOUND, studentController.getStudentRank("2", null, null).getStatusCode());
+    }
+
     @Test
     public void testGetStudentAverageScore_ReturnsNotFoundForInvalidId() {
         when(studentService.getStudentAverageScore("1")).thenReturn(null);
-        ResponseEntity<?> responseEntity = studentController.getStudentAverageScore("1");
+        ResponseEntity<?> responseEntity = studentController.getStudentAverageScore("1", null, null, null, null);
 
         assertEquals(HttpStatus.NOT_FOUND, responseEntity.getStatusCode());
         assertEquals("No results found for the provided id.", responseEntity.getBody());
@@ -103,12 +182,28 @@ public class StudentControllerTest {
     public void testGetStudentAverageScore_ReturnsOkWithValidResponse() {
         StudentAvgScoreResponse mockResponse = new StudentAvgScoreResponse();
         when(studentService.getStudentAverageScore("1")).thenReturn(mockResponse);
-        ResponseEntity<?> responseEntity = studentController.getStudentAverageScore("1");
+        ResponseEntity<?> responseEntity = studentController.getStudentAverageScore("1", null, null, null, null);
 
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
         assertEquals(mockResponse, responseEntity.getBody());
     }
 
+    @Test
+    public void testGetStudentAverageScore_ReturnsNotModifiedForCurrentETag() {
+        when(studentService.getStudentVersion("1")).thenReturn(3L);
+        when(studentService.getStudentAverageScore("1")).thenReturn(new StudentAvgScoreResponse("1", 0.5));
+
+        String eTag = studentController.getStudentAverageScore("1", null, null, null, null).getHeaders().getETag();
+        assertNotNull(eTag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, studentController.getStudentAverageScore("1", null, eTag, null, null).getStatusCode());
+        verify(studentService, times(1)).getStudentAverageScore("1");
+
+        // students without scores have no version and never match
+        when(studentService.getStudentAverageScore("2")).thenReturn(null);
+        assertEquals(HttpStatus.NOT_FOUND, studentController.getStudentAverageScore("2", null, eTag, null, null).getStatusCode());
+    }
+
     @Test
     public void testRateLimiterFallback() {
         Throwable throwable = new RuntimeException();
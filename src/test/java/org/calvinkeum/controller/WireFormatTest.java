@@ -0,0 +1,52 @@
+package org.calvinkeum.controller;
+
+import org.calvinkeum.dto.ExamAvgScoreResponse;
+import org.calvinkeum.dto.StudentPaginationResponse;
+import org.calvinkeum.dto.StudentResponse;
+import org.calvinkeum.dto.StudentScoreResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WireFormatTest {
+
+    @Test
+    public void testNegotiate_PicksCborOnlyWhenRankedHigher() {
+        assertEquals(WireFormat.CBOR, WireFormat.negotiate("application/cbor"));
+        assertEquals(WireFormat.CBOR, WireFormat.negotiate("application/json;q=0.5, application/cbor"));
+        assertEquals(WireFormat.JSON, WireFormat.negotiate("application/cbor;q=0.5, application/json"));
+        assertEquals(WireFormat.JSON, WireFormat.negotiate("application/cbor, */*"));
+        assertEquals(WireFormat.JSON, WireFormat.negotiate("text/html"));
+        assertEquals(WireFormat.JSON, WireFormat.negotiate("not a media type;;"));
+        assertEquals(WireFormat.JSON, WireFormat.negotiate(null));
+    }
+
+    @Test
+    public void testDecode_RoundTripsResponsesSmallerThanJson() throws IOException {
+        List<StudentScoreResponse> students = IntStream.range(0, 1000)
+            .mapToObj(i -> new StudentScoreResponse("student" + i, (i * 7919 % 1000) / 1000D))
+            .toList();
+        ExamAvgScoreResponse examAvgScoreResponse = ExamAvgScoreResponse.builder()
+            .exam(1).students(students).averageScore(0.4995).minScore(0.0).maxScore(0.999).build();
+
+        byte[] cbor = WireFormat.CBOR.encode(examAvgScoreResponse);
+        assertEquals(examAvgScoreResponse, WireFormat.CBOR.decode(cbor, ExamAvgScoreResponse.class));
+        assertTrue(cbor.length < WireFormat.JSON.encode(examAvgScoreResponse).length);
+
+        // the body opens a string reference namespace, tag 256, so repeated field names are written once
+        assertArrayEquals(new byte[] { (byte) 0xD9, 0x01, 0x00 }, Arrays.copyOf(cbor, 3));
+
+        StudentPaginationResponse studentPaginationResponse = StudentPaginationResponse.builder()
+            .studentResponses(List.of(StudentResponse.builder().studentId("john.doe").build()))
+            .totalStudents(1)
+            .limit(20)
+            .build();
+        assertEquals(studentPaginationResponse,
+            WireFormat.CBOR.decode(WireFormat.CBOR.encode(studentPaginationResponse), StudentPaginationResponse.class));
+    }
+}
@@ -0,0 +1,88 @@
+package org.calvinkeum.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScoreEventDeduplicatorTest {
+
+    @Test
+    public void testIsDuplicate_DropsEventsSeenWithinTheWindowOnly() {
+        ScoreEventDeduplicator deduplicator = new ScoreEventDeduplicator(1_000);
+
+        for (int i = 0; i < 5_000; i++) {
+            assertFalse(isDuplicate(deduplicator, i), "event " + i);
+        }
+
+        // the latest 1000 are remembered, anything older has left the window
+        for (int i = 4_000; i < 5_000; i++) {
+            assertTrue(isDuplicate(deduplicator, i), "event " + i);
+        }
+
+        assertFalse(isDuplicate(deduplicator, 3_999));
+        assertFalse(isDuplicate(deduplicator, 0));
+        assertTrue(deduplicator.getBloomFalsePositiveCount() < 5_000 / 20);
+    }
+
+    @Test
+    public void testIsDuplicate_KeysOnTheIdTogetherWithTheScore() {
+        ScoreEventDeduplicator deduplicator = new ScoreEventDeduplicator(100);
+        byte[] id = "42".getBytes(StandardCharsets.US_ASCII);
+
+        assertFalse(deduplicator.isDuplicate(id, id.length, scoreEvent("alice", 1, 0.5)));
+        assertTrue(deduplicator.isDuplicate(id, id.length, scoreEvent("alice", 1, 0.5)));
+
+        // a server that restarted its ids sends a new event under an old id
+        assertFalse(deduplicator.isDuplicate(id, id.length, scoreEvent("bob", 1, 0.5)));
+
+    }
+
+    @Test
+    public void testIsDuplicate_PassesEventsWithoutAnId() {
+        ScoreEventDeduplicator deduplicator = new ScoreEventDeduplicator(100);
+        byte[] id = "42".getBytes(StandardCharsets.US_ASCII);
+
+        assertFalse(deduplicator.isDuplicate(id, id.length, scoreEvent("alice", 1, 0.5)));
+
+        // a retake with the same score looks just like a replay, so neither is dropped
+        assertFalse(deduplicator.isDuplicate(null, -1, scoreEvent("alice", 1, 0.5)));
+        assertFalse(deduplicator.isDuplicate(null, -1, scoreEvent("alice", 1, 0.5)));
+        assertTrue(deduplicator.isDuplicate(id, id.length, scoreEvent("alice", 1, 0.5)));
+    }
+
+    @Test
+    public void testRestore_RemembersTheLatestEventsOfAnotherWindow() {
+        ScoreEventDeduplicator previous = new ScoreEventDeduplicator(1_000);
+
+        for (int i = 0; i < 1_500; i++) {
+            isDuplicate(previous, i);
+        }
+
+        assertEquals(2_000, previous.recentEvents().length);
+
+        ScoreEventDeduplicator deduplicator = new ScoreEventDeduplicator(500);
+        deduplicator.restore(previous.recentEvents());
+
+        for (int i = 1_000; i < 1_500; i++) {
+            assertTrue(isDuplicate(deduplicator, i), "event " + i);
+        }
+
+        assertFalse(isDuplicate(deduplicator, 999));
+        assertFalse(isDuplicate(deduplicator, 1_500));
+    }
+
+    private static boolean isDuplicate(ScoreEventDeduplicator deduplicator, int sequence) {
+        byte[] id = Integer.toString(sequence).getBytes(StandardCharsets.US_ASCII);
+        return deduplicator.isDuplicate(id, id.length, scoreEvent("student" + sequence % 100, sequence % 7 + 1, sequence % 11 / 10D));
+    }
+
+    private static ScoreEvent scoreEvent(String studentId, int exam, double score) {
+        ScoreEvent scoreEvent = new ScoreEvent();
+        scoreEvent.setStudentId(studentId);
+        scoreEvent.setExam(exam);
+        scoreEvent.setScore(score);
+        return scoreEvent;
+    }
+}
@@ -0,0 +1,152 @@
+package org.calvinkeum.ingest;
+
+import org.calvinkeum.config.IngestPipelineProperties;
+import org.calvinkeum.config.IngestPipelineProperties.OverflowPolicy;
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.repository.ExamScores;
+import org.calvinkeum.repository.ScoreRepository;
+import org.calvinkeum.service.ExamService;
+import org.calvinkeum.service.StudentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScoreIngestPipelineTest {
+
+    private ScoreRepository scoreRepository;
+    private IngestPipelineProperties properties;
+    private ScoreIngestPipeline scoreIngestPipeline;
+
+    @BeforeEach
+    public void setUp() {
+        scoreRepository = new ConcurrentScoreRepository();
+        properties = new IngestPipelineProperties();
+        properties.setConsumers(3);
+        properties.setBatchSize(64);
+        properties.setFlushInterval(Duration.ofMillis(5));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (scoreIngestPipeline != null) {
+            scoreIngestPipeline.stop();
+        }
+    }
+
+    @Test
+    public void testPublish_AppliesEveryEventInOrderPerExam() throws InterruptedException {
+        scoreIngestPipeline = createPipeline();
+        scoreIngestPipeline.start();
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(scoreIngestPipeline.publish(new StudentExamScore("student" + (i % 100), i % 10, i / 10_000D)));
+        }
+
+        assertTrue(scoreIngestPipeline.flush(Duration.ofSeconds(10)));
+        assertEquals(10_000, scoreIngestPipeline.getAppliedCount());
+        assertTrue(scoreIngestPipeline.getBatchCount() < 10_000);
+
+        ExamScores.Snapshot snapshot = scoreRepository.findExam(3).snapshot();
+        assertEquals(1_000, snapshot.size());
+
+        for (int i = 1; i < snapshot.size(); i++) {
+            assertTrue(snapshot.getScore(i - 1) < snapshot.getScore(i));
+        }
+
+        assertEquals(100, scoreRepository.countStudents());
+        assertEquals(100, scoreRepository.findStudent("student42").getStats().getExamCount());
+    }
+
+    @Test
+    public void testPublish_DropsNewestWhenFull() {
+        properties.setConsumers(1);
+        properties.setBufferSize(4);
+        properties.setOverflowPolicy(OverflowPolicy.DROP_NEWEST);
+        scoreIngestPipeline = createPipeline();
+
+        // not started, so nothing drains the buffer
+        for (int i = 0; i < 6; i++) {
+            scoreIngestPipeline.publish(new StudentExamScore("student", 1, i));
+        }
+
+        assertEquals(4, scoreIngestPipeline.getQueuedCount());
+        assertEquals(2, scoreIngestPipeline.getDroppedCount());
+    }
+
+    @Test
+    public void testPublish_DropsOldestWhenFull() throws InterruptedException {
+        properties.setConsumers(1);
+        properties.setBufferSize(4);
+        properties.setOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+        scoreIngestPipeline = createPipeline();
+
+        for (int i = 0; i < 6; i++) {
+            assertTrue(scoreIngestPipeline.publish(new StudentExamScore("student", 1, i)));
+        }
+
+        assertEquals(2, scoreIngestPipeline.getDroppedCount());
+
+        scoreIngestPipeline.start();
+        assertTrue(scoreIngestPipeline.flush(Duration.ofSeconds(10)));
+
+        ExamScores.Snapshot snapshot = scoreRepository.findExam(1).snapshot();
+        assertEquals(4, snapshot.size());
+        assertEquals(2.0, snapshot.getScore(0));
+    }
+
+    @Test
+    public void testStop_AppliesQueuedEvents() {
+        scoreIngestPipeline = createPipeline();
+        scoreIngestPipeline.start();
+
+        for (int i = 0; i < 1_000; i++) {
+            scoreIngestPipeline.publish(new StudentExamScore("student", i, 0.5));
+        }
+
+        scoreIngestPipeline.stop();
+
+        assertEquals(1_000, scoreIngestPipeline.getAppliedCount());
+        assertEquals(1_000, scoreRepository.countExams());
+    }
+
+    @Test
+    public void testFlush_ReturnsWithoutCountingFailedBatchesAsApplied() throws InterruptedException {
+        properties.setConsumers(1);
+        StudentService studentService = new StudentService(scoreRepository) {
+            @Override
+            public void processStudentData(List<StudentExamScore> studentExamScores) {
+                if (studentExamScores.stream().anyMatch(studentExamScore -> "broken".equals(studentExamScore.getStudentId()))) {
+                    throw new IllegalStateException("broken batch");
+                }
+
+                super.processStudentData(studentExamScores);
+            }
+        };
+        scoreIngestPipeline = new ScoreIngestPipeline(properties, studentService, new ExamService(scoreRepository));
+        scoreIngestPipeline.start();
+
+        for (int i = 0; i < 10; i++) {
+            scoreIngestPipeline.publish(new StudentExamScore("student", 1, 0.5));
+        }
+
+        assertTrue(scoreIngestPipeline.flush(Duration.ofSeconds(10)));
+
+        for (int i = 0; i < 5; i++) {
+            scoreIngestPipeline.publish(new StudentExamScore("broken", 1, 0.5));
+        }
+
+        assertTrue(scoreIngestPipeline.flush(Duration.ofSeconds(10)));
+        assertEquals(10, scoreIngestPipeline.getAppliedCount());
+        assertEquals(5, scoreIngestPipeline.getFailedCount());
+    }
+
+    private ScoreIngestPipeline createPipeline() {
+        return new ScoreIngestPipeline(properties, new StudentService(scoreRepository), new ExamService(scoreRepository));
+    }
+}
@@ -0,0 +1,244 @@
+package org.calvinkeum.ingest;
+
+import org.calvinkeum.config.IngestStreamProperties;
+import org.calvinkeum.config.LocalEmitterProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScoreStreamClientTest {
+
+    private LocalEmitterProperties emitterProperties;
+    private IngestStreamProperties streamProperties;
+    private LocalScoreEmitter localScoreEmitter;
+    private ScoreStreamClient scoreStreamClient;
+
+    // written by the client thread only, read after the client has been stopped
+    private final List<ScoreEvent> receivedEvents = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        emitterProperties = new LocalEmitterProperties();
+        emitterProperties.setPort(0);
+        emitterProperties.setEventsPerSecond(0);
+
+        streamProperties = new IngestStreamProperties();
+        streamProperties.setConnectTimeout(Duration.ofSeconds(1));
+        streamProperties.setReadTimeout(Duration.ofSeconds(5));
+        streamProperties.setInitialBackoff(Duration.ofMillis(10));
+        streamProperties.setMaxBackoff(Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (scoreStreamClient != null) {
+            scoreStreamClient.stop();
+        }
+
+        if (localScoreEmitter != null) {
+            localScoreEmitter.stop();
+        }
+    }
+
+    @Test
+    public void testStart_ResumesFromLastEventIdWithoutGapsOrDuplicates() throws InterruptedException {
+        emitterProperties.setDisconnectAfter(700);
+        emitterProperties.setMaxEvents(5_000);
+        startEmitter();
+
+        scoreStreamClient = startClient();
+
+        assertTrue(awaitEvents(5_000, Duration.ofSeconds(20)));
+        scoreStreamClient.stop();
+
+        assertReceivedInOrder(5_000);
+        assertEquals("4999", scoreStreamClient.getLastEventId());
+        assertTrue(scoreStreamClient.getConnectionCount() >= 8);
+    }
+
+    @Test
+    public void testStart_DropsEventsReplayedAfterAReconnect() throws InterruptedException {
+        emitterProperties.setDisconnectAfter(700);
+        emitterProperties.setReplayOnResume(300);
+        emitterProperties.setMaxEvents(5_000);
+        startEmitter();
+
+        scoreStreamClient = startClient();
+
+        assertTrue(awaitLastEventId("4999", Duration.ofSeconds(20)));
+        scoreStreamClient.stop();
+
+        assertReceivedInOrder(5_000);
+        assertEquals(scoreStreamClient.getEventCount() - 5_000, scoreStreamClient.getDuplicateCount());
+        assertTrue(scoreStreamClient.getDuplicateCount() >= 300 * 7);
+    }
+
+    @Test
+    public void testResumeFrom_PicksUpWhereTheStoppedClientLeftOff() throws InterruptedException {
+        emitterProperties.setDisconnectAfter(700);
+        emitterProperties.setReplayOnResume(300);
+        emitterProperties.setMaxEvents(1_000);
+        startEmitter();
+
+        scoreStreamClient = startClient();
+
+        assertTrue(awaitLastEventId("999", Duration.ofSeconds(20)));
+        scoreStreamClient.stop();
+
+        // a new client, as after a restart, neither skips nor repeats events, the replayed ones included
+        StreamCheckpoint streamCheckpoint = scoreStreamClient.checkpoint();
+        emitterProperties.setMaxEvents(5_000);
+        scoreStreamClient = startClient(streamCheckpoint);
+
+        assertTrue(awaitLastEventId("4999", Duration.ofSeconds(20)));
+        scoreStreamClient.stop();
+
+        assertReceivedInOrder(5_000);
+        assertTrue(scoreStreamClient.getDuplicateCount() >= 300);
+    }
+
+    @Test
+    public void testStart_ReconnectsWhenTheSinkThrows() throws InterruptedException {
+        emitterProperties.setMaxEvents(1_000);
+        startEmitter();
+
+        AtomicInteger accepted = new AtomicInteger();
+        scoreStreamClient = new ScoreStreamClient("test", streamProperties.getUrl(), streamProperties, scoreEvent -> {
+            if (accepted.incrementAndGet() == 100) {
+                throw new IllegalStateException("sink failed");
+            }
+        });
+        scoreStreamClient.start();
+
+        assertTrue(awaitLastEventId("999", Duration.ofSeconds(10)));
+        assertTrue(scoreStreamClient.isRunning());
+        scoreStreamClient.stop();
+
+        // the failed event is passed over, the reader carries on after it on a new connection
+        assertEquals(1_000, accepted.get());
+        assertTrue(scoreStreamClient.getConnectionCount() >= 2);
+    }
+
+    @Test
+    public void testStart_ReconnectsWhenReadsTimeOut() throws InterruptedException {
+        emitterProperties.setEventsPerSecond(5);
+        streamProperties.setReadTimeout(Duration.ofMillis(100));
+        startEmitter();
+
+        scoreStreamClient = startClient();
+
+        assertTrue(awaitEvents(5, Duration.ofSeconds(10)));
+        scoreStreamClient.stop();
+
+        assertReceivedInOrder(receivedEvents.size());
+        assertTrue(scoreStreamClient.getConnectionCount() >= 5);
+    }
+
+    @Test
+    public void testStart_KeepsRetryingUntilTheFeedIsUp() throws InterruptedException {
+        startEmitter();
+        int port = Integer.parseInt(localScoreEmitter.getUrl().replaceAll(".*:(\\d+)/.*", "$1"));
+        localScoreEmitter.stop();
+
+        emitterProperties.setPort(port);
+        emitterProperties.setMaxEvents(100);
+        scoreStreamClient = startClient();
+
+        Thread.sleep(200);
+        assertTrue(scoreStreamClient.isRunning());
+        assertEquals(0, scoreStreamClient.getConnectionCount());
+
+        localScoreEmitter.start();
+
+        assertTrue(awaitEvents(100, Duration.ofSeconds(10)));
+        scoreStreamClient.stop();
+
+        assertReceivedInOrder(100);
+    }
+
+    @Test
+    public void testStart_ReadsAnUnthrottledFeed() throws InterruptedException {
+        emitterProperties.setMaxEvents(200_000);
+        startEmitter();
+
+        scoreStreamClient = startClient();
+
+        assertTrue(awaitEvents(200_000, Duration.ofSeconds(30)));
+        scoreStreamClient.stop();
+
+        assertEquals(200_000, receivedEvents.size());
+        assertEquals(200_000, localScoreEmitter.getSentCount());
+    }
+
+    private void startEmitter() {
+        localScoreEmitter = new LocalScoreEmitter(emitterProperties);
+        localScoreEmitter.start();
+        streamProperties.setUrl(localScoreEmitter.getUrl());
+    }
+
+    private ScoreStreamClient startClient() {
+        return startClient(null);
+    }
+
+    private ScoreStreamClient startClient(StreamCheckpoint streamCheckpoint) {
+        ScoreStreamClient client = new ScoreStreamClient("test", streamProperties.getUrl(), streamProperties, scoreEvent -> {
+            ScoreEvent copy = new ScoreEvent();
+            copy.setStudentId(scoreEvent.getStudentId());
+            copy.setExam(scoreEvent.getExam());
+            copy.setScore(scoreEvent.getScore());
+            receivedEvents.add(copy);
+        });
+
+        if (streamCheckpoint != null) {
+            client.resumeFrom(streamCheckpoint);
+        }
+
+        client.start();
+        return client;
+    }
+
+    private boolean awaitEvents(long count, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        while (scoreStreamClient.getEventCount() < count) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+
+            Thread.sleep(10);
+        }
+
+        return true;
+    }
+
+    private boolean awaitLastEventId(String eventId, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        while (!eventId.equals(scoreStreamClient.getLastEventId())) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+
+            Thread.sleep(10);
+        }
+
+        return true;
+    }
+
+    private void assertReceivedInOrder(int count) {
+        assertEquals(count, receivedEvents.size());
+        ScoreEvent expected = new ScoreEvent();
+
+        for (int i = 0; i < count; i++) {
+            localScoreEmitter.eventAt(i, expected);
+            assertEquals(expected, receivedEvents.get(i), "event " + i);
+        }
+    }
+}
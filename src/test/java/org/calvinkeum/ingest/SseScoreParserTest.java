@@ -0,0 +1,216 @@
+package org.calvinkeum.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SseScoreParserTest {
+
+    @Test
+    public void testNext_ReadsScoreEventsAndSkipsOthers() throws IOException {
+        String stream = """
+            : keep-alive
+            event: score
+            data: {"exam": 3, "studentId": "Jane.Doe", "score": 0.7428269186548633}
+
+            event: other
+            data: {"exam": 4, "studentId": "John.Doe", "score": 0.5}
+
+            event: score\r
+            data: {"studentId":"John.Doe","extra":{"nested":[1,"}"]},"score":1,"exam":12}\r
+            \r
+            """;
+
+        List<ScoreEvent> scoreEvents = parseAll(stream, 64 * 1024);
+
+        assertEquals(2, scoreEvents.size());
+        assertEquals("Jane.Doe", scoreEvents.get(0).getStudentId());
+        assertEquals(3, scoreEvents.get(0).getExam());
+        assertEquals(0.7428269186548633, scoreEvents.get(0).getScore());
+        assertEquals("John.Doe", scoreEvents.get(1).getStudentId());
+        assertEquals(12, scoreEvents.get(1).getExam());
+        assertEquals(1.0, scoreEvents.get(1).getScore());
+    }
+
+    @Test
+    public void testNext_CountsMalformedEventsByCause() throws IOException {
+        String stream = """
+            event: score
+            data: {}
+
+            event: score
+            data: {"exam": 1.5, "studentId": "a", "score": 0.5}
+
+            event: score
+            data: {"exam": 1, "studentId": "a", "score": 0.5
+
+            event: score
+            data: {"exam": 1, "studentId": "a\\u00e9", "score": 0.25}
+
+            """;
+
+        SseScoreParser parser = new SseScoreParser(new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8)));
+        ScoreEvent scoreEvent = new ScoreEvent();
+
+        assertTrue(parser.next(scoreEvent));
+        assertEquals("aé", scoreEvent.getStudentId());
+        assertFalse(parser.next(scoreEvent));
+
+        assertEquals(1, parser.getFailureCount(ParseFailure.MISSING_FIELD));
+        assertEquals(1, parser.getFailureCount(ParseFailure.INVALID_NUMBER));
+        assertEquals(1, parser.getFailureCount(ParseFailure.MALFORMED_JSON));
+    }
+
+    @Test
+    public void testNext_RejectsScoresBeyondTheMaximum() throws IOException {
+        String stream = """
+            event: score
+            data: {"exam": 1, "studentId": "a", "score": 2.5}
+
+            event: score
+            data: {"exam": 1, "studentId": "b", "score": 1e400}
+
+            event: score
+            data: {"exam": 1, "studentId": "c", "score": -2}
+
+            """;
+
+        SseScoreParser parser = new SseScoreParser(new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8)),
+            SseScoreParser.DEFAULT_BUFFER_SIZE, new AtomicLongArray(ParseFailure.values().length), 2.147);
+        ScoreEvent scoreEvent = new ScoreEvent();
+
+        assertTrue(parser.next(scoreEvent));
+        assertEquals("c", scoreEvent.getStudentId());
+        assertFalse(parser.next(scoreEvent));
+
+        assertEquals(2, parser.getFailureCount(ParseFailure.SCORE_OUT_OF_RANGE));
+    }
+
+    @Test
+    public void testNext_RejectsStudentIdsTooLongToLog() throws IOException {
+        String stream = "event: score\ndata: {\"studentId\":\"" + "x".repeat(ScoreEvent.MAX_STUDENT_ID_BYTES + 1) + "\",\"exam\":1,\"score\":0.5}\n\n"
+            + "event: score\ndata: {\"studentId\":\"" + "y".repeat(ScoreEvent.MAX_STUDENT_ID_BYTES) + "\",\"exam\":2,\"score\":0.5}\n\n";
+
+        SseScoreParser parser = new SseScoreParser(new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8)));
+        ScoreEvent scoreEvent = new ScoreEvent();
+
+        assertTrue(parser.next(scoreEvent));
+        assertEquals(2, scoreEvent.getExam());
+        assertEquals(1, parser.getFailureCount(ParseFailure.STUDENT_ID_TOO_LONG));
+    }
+
+    @Test
+    public void testNext_DropsLinesLongerThanTheBuffer() throws IOException {
+        String stream = "event: score\ndata: {\"studentId\":\"" + "x".repeat(200) + "\",\"exam\":1,\"score\":0.5}\n\n"
+            + "event: score\ndata: {\"studentId\":\"a\",\"exam\":2,\"score\":0.5}\n\n";
+
+        SseScoreParser parser = new SseScoreParser(new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8)), 64);
+        ScoreEvent scoreEvent = new ScoreEvent();
+
+        assertTrue(parser.next(scoreEvent));
+        assertEquals(2, scoreEvent.getExam());
+        assertEquals(1, parser.getFailureCount(ParseFailure.LINE_TOO_LONG));
+    }
+
+    @Test
+    public void testNext_TracksLastEventIdOfCompletedEvents() throws IOException {
+        String stream = """
+            id: 41
+            event: score
+            data: {"exam": 1, "studentId": "Jane.Doe", "score": 0.5}
+
+            event: score
+            data: {"exam": 2, "studentId": "Jane.Doe", "score": 0.5}
+
+            id: 43
+            event: score
+            data: {"exam": 3, "studentId": "Jane.Doe", "score": 0.5}
+            """;
+
+        SseScoreParser parser = new SseScoreParser(new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8)));
+        ScoreEvent scoreEvent = new ScoreEvent();
+
+        assertNull(parser.getLastEventId());
+        assertTrue(parser.next(scoreEvent));
+        assertEquals("41", parser.getLastEventId());
+        assertTrue(parser.next(scoreEvent));
+        assertEquals("41", parser.getLastEventId());
+
+        // the stream ends before the last event is terminated, so its id is never committed
+        assertFalse(parser.next(scoreEvent));
+        assertEquals("41", parser.getLastEventId());
+    }
+
+    @Test
+    public void testNext_HandlesEventsSplitAcrossReads() throws IOException {
+        StringBuilder stream = new StringBuilder();
+
+        for (int i = 0; i < 500; i++) {
+            stream.append("event: score\ndata: {\"studentId\":\"student").append(i % 7)
+                .append("\",\"exam\":").append(i).append(",\"score\":0.").append(i).append("}\n\n");
+        }
+
+        List<ScoreEvent> scoreEvents = parseAll(stream.toString(), 128);
+
+        assertEquals(500, scoreEvents.size());
+        assertEquals("student2", scoreEvents.get(499).getStudentId());
+        assertEquals(499, scoreEvents.get(499).getExam());
+        assertEquals(0.499, scoreEvents.get(499).getScore());
+    }
+
+    @Test
+    public void testParseData_MatchesDoubleParseDouble() {
+        Random random = new Random(7);
+        SseScoreParser parser = new SseScoreParser(InputStream.nullInputStream(), 1);
+        ScoreEvent scoreEvent = new ScoreEvent();
+
+        List<String> scores = new ArrayList<>(List.of("0", "-0.5", "1e-3", "12.5E2", "0.000000000000000000001234",
+            "123456789012345678901", "0.99999999999999999999", "9007199254740993"));
+
+        for (int i = 0; i < 200_000; i++) {
+            scores.add(Double.toString(random.nextDouble()));
+            scores.add("0." + Long.toString(Math.abs(random.nextLong())));
+        }
+
+        for (String score : scores) {
+            byte[] json = ("{\"studentId\":\"a\",\"exam\":1,\"score\":" + score + "}").getBytes(StandardCharsets.US_ASCII);
+
+            assertNull(parser.parseData(json, 0, json.length, scoreEvent), score);
+            assertEquals(Double.parseDouble(score), scoreEvent.getScore(), score);
+        }
+    }
+
+    private static List<ScoreEvent> parseAll(String stream, int bufferSize) throws IOException {
+        // hand out a few bytes per read to exercise refills and compaction
+        InputStream inputStream = new FilterInputStream(new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8))) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 37));
+            }
+        };
+
+        SseScoreParser parser = new SseScoreParser(inputStream, bufferSize);
+        List<ScoreEvent> scoreEvents = new ArrayList<>();
+        ScoreEvent scoreEvent = new ScoreEvent();
+
+        while (parser.next(scoreEvent)) {
+            ScoreEvent copy = new ScoreEvent();
+            copy.setStudentId(scoreEvent.getStudentId());
+            copy.setExam(scoreEvent.getExam());
+            copy.setScore(scoreEvent.getScore());
+            scoreEvents.add(copy);
+        }
+
+        return scoreEvents;
+    }
+}
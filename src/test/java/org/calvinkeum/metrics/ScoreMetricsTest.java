@@ -0,0 +1,121 @@
+package org.calvinkeum.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.calvinkeum.DataLoader;
+import org.calvinkeum.config.EncodedResponseProperties;
+import org.calvinkeum.config.IngestPipelineProperties;
+import org.calvinkeum.config.IngestStreamProperties;
+import org.calvinkeum.config.MemoryProperties;
+import org.calvinkeum.controller.EncodedResponseCache;
+import org.calvinkeum.ingest.ScoreEvent;
+import org.calvinkeum.ingest.ScoreIngestPipeline;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.repository.ScoreRepository;
+import org.calvinkeum.service.DataImportService;
+import org.calvinkeum.service.ExamService;
+import org.calvinkeum.service.ScoreRetentionService;
+import org.calvinkeum.service.StudentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScoreMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ExamService examService;
+    private ScoreIngestPipeline scoreIngestPipeline;
+    private RateLimiterRegistry rateLimiterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        ScoreRepository scoreRepository = new ConcurrentScoreRepository();
+        examService = new ExamService(scoreRepository);
+        scoreIngestPipeline = new ScoreIngestPipeline(new IngestPipelineProperties(), new StudentService(scoreRepository), examService);
+        scoreIngestPipeline.start();
+
+        DataImportService dataImportService = new DataImportService(scoreIngestPipeline);
+        DataLoader dataLoader = new DataLoader(new IngestStreamProperties(), dataImportService);
+
+        rateLimiterRegistry = RateLimiterRegistry.of(RateLimiterConfig.custom()
+            .limitForPeriod(1)
+            .limitRefreshPeriod(Duration.ofMinutes(1))
+            .timeoutDuration(Duration.ZERO)
+            .build());
+        rateLimiterRegistry.rateLimiter("exam");
+
+        meterRegistry = new SimpleMeterRegistry();
+        ScoreRetentionService scoreRetentionService = new ScoreRetentionService(new MemoryProperties(), scoreRepository, examService);
+        new ScoreMetrics(dataLoader, scoreIngestPipeline, examService, scoreRepository, rateLimiterRegistry, scoreRetentionService,
+            new EncodedResponseCache(new EncodedResponseProperties(), new ObjectMapper())).bindTo(meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scoreIngestPipeline.stop();
+    }
+
+    @Test
+    public void testBindTo_ReportsIngestStoreAndCacheCounts() throws InterruptedException {
+        ScoreEvent scoreEvent = new ScoreEvent();
+        scoreEvent.setExam(1);
+
+        for (int i = 0; i < 100; i++) {
+            scoreEvent.setStudentId("student" + i);
+            scoreEvent.setScore(i / 100D);
+            scoreIngestPipeline.publish(scoreEvent);
+        }
+
+        assertTrue(scoreIngestPipeline.flush(Duration.ofSeconds(5)));
+
+        assertEquals(100, meterRegistry.get("scores.ingest.published").functionCounter().count());
+        assertEquals(100, meterRegistry.get("scores.ingest.applied").functionCounter().count());
+        assertEquals(0, meterRegistry.get("scores.ingest.failed").functionCounter().count());
+        assertEquals(0, meterRegistry.get("scores.ingest.queued").gauge().value());
+        assertEquals(100, meterRegistry.get("scores.ingest.visibility").timer().count());
+        assertEquals(100, meterRegistry.get("scores.store.students").gauge().value());
+        assertEquals(1, meterRegistry.get("scores.store.exams").gauge().value());
+        assertTrue(meterRegistry.get("scores.store.bytes").tag("structure", "exams").gauge().value() > 100 * 12);
+        assertTrue(meterRegistry.get("scores.store.bytes").tag("structure", "students").gauge().value() > 100 * 12);
+
+        examService.getExamResults(1);
+        examService.getExamResults(1);
+
+        assertEquals(1, meterRegistry.get("scores.exam.results.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("scores.exam.results.cache.requests").tag("result", "miss").functionCounter().count());
+        assertEquals(1, meterRegistry.get("scores.exam.results.cache.size").gauge().value());
+
+        scoreEvent.setStudentId("late");
+        scoreIngestPipeline.publish(scoreEvent);
+        assertTrue(scoreIngestPipeline.flush(Duration.ofSeconds(5)));
+        examService.getExamResults(1);
+
+        assertEquals(1, meterRegistry.get("scores.exam.results.cache.evictions").functionCounter().count());
+        assertEquals(0, meterRegistry.get("scores.stream.parse.failures").tag("cause", "malformed_json").functionCounter().count());
+        assertEquals(0, meterRegistry.get("scores.stream.events").tag("source", DataLoader.DEFAULT_SOURCE).functionCounter().count());
+        assertEquals(0, meterRegistry.get("scores.stream.duplicates").tag("source", DataLoader.DEFAULT_SOURCE).functionCounter().count());
+    }
+
+    @Test
+    public void testBindTo_CountsRateLimiterRejections() {
+        RateLimiter exam = rateLimiterRegistry.rateLimiter("exam");
+        assertTrue(exam.acquirePermission());
+        assertFalse(exam.acquirePermission());
+
+        // limiters created after binding are counted too
+        RateLimiter student = rateLimiterRegistry.rateLimiter("student");
+        assertTrue(student.acquirePermission());
+        assertFalse(student.acquirePermission());
+        assertFalse(student.acquirePermission());
+
+        assertEquals(1, meterRegistry.get("scores.ratelimiter.rejections").tag("name", "exam").counter().count());
+        assertEquals(2, meterRegistry.get("scores.ratelimiter.rejections").tag("name", "student").counter().count());
+    }
+}
@@ -0,0 +1,134 @@
+package org.calvinkeum.persistence;
+
+import org.calvinkeum.model.StudentExamScore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScoreEventLogTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testReplay_ReturnsRecordsAcrossSegmentsAfterReopening() throws IOException {
+        try (ScoreEventLog scoreEventLog = ScoreEventLog.open(directory, SEGMENT_SIZE, 0)) {
+            scoreEventLog.append(scores(0, 500));
+            scoreEventLog.append(scores(500, 500));
+
+            assertEquals(1_000, scoreEventLog.getNextSequence());
+            assertTrue(scoreEventLog.getSegmentCount() > 1);
+        }
+
+        try (ScoreEventLog scoreEventLog = ScoreEventLog.open(directory, SEGMENT_SIZE, 0)) {
+            assertEquals(1_000, scoreEventLog.getNextSequence());
+
+            List<StudentExamScore> replayed = new ArrayList<>();
+            assertEquals(300, scoreEventLog.replay(700, replayed::addAll));
+            assertEquals(scores(700, 300), replayed);
+
+            // appends continue after the last record
+            scoreEventLog.append(scores(1_000, 10));
+            replayed.clear();
+            scoreEventLog.replay(0, replayed::addAll);
+            assertEquals(scores(0, 1_010), replayed);
+        }
+    }
+
+    @Test
+    public void testOpen_DiscardsATornRecord() throws IOException {
+        try (ScoreEventLog scoreEventLog = ScoreEventLog.open(directory, SEGMENT_SIZE, 0)) {
+            scoreEventLog.append(scores(0, 10));
+        }
+
+        // damage the student id of the last record, as if the process died while writing it
+        Path segment = segments().get(0);
+
+        try (FileChannel fileChannel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int lastRecord = recordOffset(fileChannel, 9);
+            fileChannel.write(ByteBuffer.wrap(new byte[] { 'x' }), lastRecord + 20);
+        }
+
+        try (ScoreEventLog scoreEventLog = ScoreEventLog.open(directory, SEGMENT_SIZE, 0)) {
+            assertEquals(9, scoreEventLog.getNextSequence());
+
+            scoreEventLog.append(scores(100, 1));
+
+            List<StudentExamScore> replayed = new ArrayList<>();
+            scoreEventLog.replay(0, replayed::addAll);
+
+            assertEquals(10, replayed.size());
+            assertEquals(scores(100, 1).get(0), replayed.get(9));
+        }
+    }
+
+    @Test
+    public void testDeleteSegmentsBefore_KeepsSegmentsStillNeeded() throws IOException {
+        try (ScoreEventLog scoreEventLog = ScoreEventLog.open(directory, SEGMENT_SIZE, 0)) {
+            scoreEventLog.append(scores(0, 1_000));
+            int segmentCount = scoreEventLog.getSegmentCount();
+
+            scoreEventLog.deleteSegmentsBefore(600);
+
+            assertTrue(scoreEventLog.getSegmentCount() < segmentCount);
+            assertTrue(scoreEventLog.getFirstSequence() <= 600);
+
+            List<StudentExamScore> replayed = new ArrayList<>();
+            scoreEventLog.replay(600, replayed::addAll);
+            assertEquals(scores(600, 400), replayed);
+
+            scoreEventLog.deleteSegmentsBefore(Long.MAX_VALUE);
+            assertEquals(1, scoreEventLog.getSegmentCount());
+        }
+    }
+
+    @Test
+    public void testOpen_StartsAnEmptyLogAtTheGivenSequence() throws IOException {
+        try (ScoreEventLog scoreEventLog = ScoreEventLog.open(directory, SEGMENT_SIZE, 42)) {
+            scoreEventLog.append(scores(0, 3));
+
+            assertEquals(45, scoreEventLog.getNextSequence());
+            assertEquals(42, scoreEventLog.getFirstSequence());
+        }
+    }
+
+    private static List<StudentExamScore> scores(int from, int count) {
+        List<StudentExamScore> studentExamScores = new ArrayList<>(count);
+
+        for (int i = from; i < from + count; i++) {
+            studentExamScores.add(new StudentExamScore("student" + i % 37, i % 11, i / 1_000D));
+        }
+
+        return studentExamScores;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static int recordOffset(FileChannel fileChannel, int index) throws IOException {
+        ByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        int offset = 0;
+
+        // each record is a 20 byte header followed by length - 1 bytes of student id
+        for (int i = 0; i < index; i++) {
+            offset += 20 + buffer.getInt(offset) - 1;
+        }
+
+        return offset;
+    }
+}
@@ -0,0 +1,274 @@
+package org.calvinkeum.persistence;
+
+import org.calvinkeum.config.IngestPipelineProperties;
+import org.calvinkeum.config.PersistenceProperties;
+import org.calvinkeum.config.ScoreStoreProperties;
+import org.calvinkeum.ingest.ScoreIngestPipeline;
+import org.calvinkeum.ingest.StreamCheckpoint;
+import org.calvinkeum.model.ExamStats;
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.repository.ExamScores;
+import org.calvinkeum.repository.ScoreRepository;
+import org.calvinkeum.service.ExamService;
+import org.calvinkeum.service.StudentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScorePersistenceTest {
+
+    @TempDir
+    private Path directory;
+
+    private PersistenceProperties properties;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new PersistenceProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setSnapshotInterval(Duration.ofHours(1));
+    }
+
+    @Test
+    public void testStart_RestoresSnapshotAndReplaysTheLogTail() throws Exception {
+        ScoreRepository original = new ConcurrentScoreRepository();
+        Instance first = new Instance(original);
+
+        first.ingest(0, 10_000);
+        assertNotNull(first.scorePersistence.snapshot());
+        first.ingest(10_000, 5_000);
+
+        // simulate a crash: the pipeline drains but no final snapshot is written
+        first.scoreIngestPipeline.stop();
+
+        ScoreRepository restored = new ConcurrentScoreRepository();
+        Instance second = new Instance(restored);
+
+        assertSameContents(original, restored);
+
+        // new events keep their place after the restored ones
+        second.ingest(15_000, 1_000);
+        second.stop();
+
+        ScoreRepository restoredAgain = new ConcurrentScoreRepository();
+        Instance third = new Instance(restoredAgain);
+
+        assertSameContents(second.scoreRepository, restoredAgain);
+        assertEquals(16_000, restoredAgain.findExam(1).size() * 10L);
+        third.stop();
+    }
+
+    @Test
+    public void testSnapshot_SkipsWhenNothingChangedAndKeepsLatestSnapshots() throws Exception {
+        properties.setSnapshotsToKeep(2);
+        Instance instance = new Instance(new ConcurrentScoreRepository());
+
+        assertNull(instance.scorePersistence.snapshot());
+
+        for (int i = 0; i < 4; i++) {
+            instance.ingest(i * 100, 100);
+            assertNotNull(instance.scorePersistence.snapshot());
+            assertNull(instance.scorePersistence.snapshot());
+        }
+
+        List<Path> snapshots = ScoreSnapshot.list(directory);
+        assertEquals(2, snapshots.size());
+        assertEquals(400, ScoreSnapshot.sequenceOf(snapshots.get(0)));
+
+        instance.stop();
+    }
+
+    @Test
+    public void testStart_FallsBackToAnOlderSnapshotWhenTheLatestIsDamaged() throws Exception {
+        ScoreRepository original = new ConcurrentScoreRepository();
+        Instance first = new Instance(original);
+
+        first.ingest(0, 1_000);
+        first.scorePersistence.snapshot();
+        first.ingest(1_000, 1_000);
+        Path latest = first.scorePersistence.snapshot();
+        first.scoreIngestPipeline.stop();
+
+        byte[] bytes = Files.readAllBytes(latest);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(latest, bytes);
+
+        ScoreRepository restored = new ConcurrentScoreRepository();
+        Instance second = new Instance(restored);
+
+        assertSameContents(original, restored);
+        second.stop();
+    }
+
+    @Test
+    public void testStart_RestoresTheAggregatesOfReleasedExamsAndTrimmedStudents() throws Exception {
+        ScoreStoreProperties scoreStoreProperties = new ScoreStoreProperties();
+        scoreStoreProperties.setWindowCounts(List.of(2));
+        ScoreRepository original = new ConcurrentScoreRepository(scoreStoreProperties);
+        Instance first = new Instance(original);
+
+        first.ingest(0, 2_000);
+        assertTrue(original.findStudent("student7").trim(3) > 0);
+        original.findExam(3).release();
+        first.ingest(2_000, 500);
+        original.findExam(4).release();
+        first.stop();
+
+        ScoreRepository restored = new ConcurrentScoreRepository(scoreStoreProperties);
+        Instance second = new Instance(restored);
+
+        assertSameContents(original, restored);
+        assertEquals(3 + 2, restored.findStudent("student7").size());
+        assertEquals(original.findStudent("student7").findExams(0, 10, false), restored.findStudent("student7").findExams(0, 10, false));
+
+        for (int exam : new int[] { 3, 4 }) {
+            assertEquals(original.findExam(exam).countStudents(), restored.findExam(exam).countStudents());
+            assertArrayEquals(original.findExam(exam).histogram().getCounts(), restored.findExam(exam).histogram().getCounts());
+        }
+
+        assertEquals(50, restored.findExam(3).size());
+        assertEquals(0, restored.findExam(4).size());
+        second.stop();
+    }
+
+    @Test
+    public void testStart_ResumesTheFeedsOnlyIfNothingWasLoggedSinceTheyStopped() throws Exception {
+        Instance first = new Instance(new ConcurrentScoreRepository());
+
+        first.ingest(0, 100);
+        first.scorePersistence.saveStreamCheckpoints(Map.of("eu", new StreamCheckpoint("99", new long[] { 1, 2 })));
+        first.stop();
+
+        Instance second = new Instance(new ConcurrentScoreRepository());
+        StreamCheckpoint streamCheckpoint = second.scorePersistence.getStreamCheckpoint("eu").orElseThrow();
+
+        assertEquals("99", streamCheckpoint.getLastEventId());
+        assertArrayEquals(new long[] { 1, 2 }, streamCheckpoint.getRecentEvents());
+        assertTrue(second.scorePersistence.getStreamCheckpoint("us").isEmpty());
+
+        // a crash after more events were logged leaves the checkpoints behind the store
+        second.ingest(100, 10);
+        second.scoreIngestPipeline.stop();
+
+        Instance third = new Instance(new ConcurrentScoreRepository());
+
+        assertTrue(third.scorePersistence.getStreamCheckpoint("eu").isEmpty());
+        third.stop();
+    }
+
+    @Test
+    public void testRecord_SnapshotsABatchTheLogCouldNotTake() throws Exception {
+        Instance first = new Instance(new ConcurrentScoreRepository());
+        String longStudentId = "x".repeat(2000);
+
+        first.ingest(0, 100);
+        first.scoreIngestPipeline.publish(new StudentExamScore(longStudentId, 1, 0.5));
+        assertTrue(first.scoreIngestPipeline.flush(Duration.ofSeconds(10)));
+
+        // the batch is applied all the same, and a snapshot written right away covers it
+        assertNotNull(first.scoreRepository.findStudent(longStudentId));
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+
+        while (countSnapshots() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, countSnapshots());
+
+        // simulate a crash
+        first.scoreIngestPipeline.stop();
+
+        ScoreRepository restored = new ConcurrentScoreRepository();
+        Instance second = new Instance(restored);
+
+        assertSameContents(first.scoreRepository, restored);
+        second.stop();
+    }
+
+    private long countSnapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().matches("snapshot-\\d+\\.bin")).count();
+        }
+    }
+
+    private static void assertSameContents(ScoreRepository expected, ScoreRepository actual) {
+        assertEquals(expected.countStudents(), actual.countStudents());
+        assertEquals(expected.countExams(), actual.countExams());
+
+        for (String studentId : expected.studentIds()) {
+            assertEquals(expected.findStudent(studentId).getStats(), actual.findStudent(studentId).getStats());
+
+            // consumers on different exams may apply a student's scores in another order than they were logged
+            Comparator<StudentExamScore> order = Comparator.comparingInt(StudentExamScore::getExam).thenComparingDouble(StudentExamScore::getScore);
+            List<StudentExamScore> expectedExams = new ArrayList<>(expected.findStudent(studentId).findExams(0, Integer.MAX_VALUE, false));
+            List<StudentExamScore> actualExams = new ArrayList<>(actual.findStudent(studentId).findExams(0, Integer.MAX_VALUE, false));
+            expectedExams.sort(order);
+            actualExams.sort(order);
+
+            assertEquals(expectedExams, actualExams);
+            assertEquals(expected.studentLeaderboard().findRank(studentId), actual.studentLeaderboard().findRank(studentId));
+        }
+
+        for (Integer exam : expected.examNumbers()) {
+            ExamScores.Snapshot expectedExam = expected.findExam(exam).snapshot();
+            ExamScores.Snapshot actualExam = actual.findExam(exam).snapshot();
+            ExamStats expectedStats = expectedExam.getStats();
+
+            assertEquals(expectedStats, actualExam.getStats());
+
+            for (int i = 0; i < expectedExam.size(); i++) {
+                assertEquals(expectedExam.getStudentId(i), actualExam.getStudentId(i));
+                assertEquals(expectedExam.getScore(i), actualExam.getScore(i));
+            }
+
+            assertEquals(expected.findExam(exam).findByScore(0, 10, true), actual.findExam(exam).findByScore(0, 10, true));
+        }
+    }
+
+    private class Instance {
+        private final ScoreRepository scoreRepository;
+        private final ScoreIngestPipeline scoreIngestPipeline;
+        private final ScorePersistence scorePersistence;
+
+        private Instance(ScoreRepository scoreRepository) {
+            IngestPipelineProperties pipelineProperties = new IngestPipelineProperties();
+            pipelineProperties.setFlushInterval(Duration.ofMillis(5));
+
+            this.scoreRepository = scoreRepository;
+            this.scorePersistence = new ScorePersistence(properties, scoreRepository);
+            this.scoreIngestPipeline = new ScoreIngestPipeline(pipelineProperties,
+                new StudentService(scoreRepository), new ExamService(scoreRepository), Optional.of(scorePersistence));
+
+            scorePersistence.start();
+            scoreIngestPipeline.start();
+        }
+
+        private void ingest(int from, int count) throws InterruptedException {
+            for (int i = from; i < from + count; i++) {
+                scoreIngestPipeline.publish(new StudentExamScore("student" + i % 250, i % 10, (i * 7919 % 1000) / 1000D));
+            }
+
+            assertTrue(scoreIngestPipeline.flush(Duration.ofSeconds(10)));
+        }
+
+        private void stop() throws IOException {
+            scoreIngestPipeline.stop();
+            scorePersistence.stop();
+        }
+    }
+}
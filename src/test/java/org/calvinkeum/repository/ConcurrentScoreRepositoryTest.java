@@ -0,0 +1,230 @@
+package org.calvinkeum.repository;
+
+import org.calvinkeum.config.ScoreStoreProperties;
+import org.calvinkeum.model.ExamStats;
+import org.calvinkeum.model.StudentExamScore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentScoreRepositoryTest {
+
+    private ConcurrentScoreRepository scoreRepository;
+
+    @BeforeEach
+    public void setUp() {
+        scoreRepository = new ConcurrentScoreRepository();
+    }
+
+    @Test
+    public void testFindExam_ReturnsNullForNonExistentExam() {
+        assertNull(scoreRepository.findExam(1));
+        assertNull(scoreRepository.findStudent("John.Doe"));
+        assertEquals(0, scoreRepository.countExams());
+        assertEquals(0, scoreRepository.countStudents());
+    }
+
+    @Test
+    public void testAddScores_KeepsKeysSortedAndCounted() {
+        addScore(new StudentExamScore("Jane.Doe", 1002, 0.5));
+        addScore(new StudentExamScore("John.Doe", 1000, 0.7));
+        addScore(new StudentExamScore("Jane.Doe", 1000, 0.9));
+
+        assertEquals(List.of(1000, 1002), new ArrayList<>(scoreRepository.examNumbers()));
+        assertEquals(List.of("Jane.Doe", "John.Doe"), new ArrayList<>(scoreRepository.studentIds()));
+        assertEquals(2, scoreRepository.countExams());
+        assertEquals(2, scoreRepository.countStudents());
+
+        ExamStats examStats = scoreRepository.findStudent("Jane.Doe").getStats();
+        assertEquals(2, examStats.getExamCount());
+        assertEquals(1.4, examStats.getScoreSum(), 1e-9);
+        assertEquals(2, scoreRepository.findExam(1000).size());
+    }
+
+    @Test
+    public void testVersions_GrowWithEveryScore() {
+        assertEquals(0, scoreRepository.studentScoresVersion());
+
+        addScore(new StudentExamScore("Jane.Doe", 1000, 0.5));
+        long examVersion = scoreRepository.findExam(1000).version();
+        long studentVersion = scoreRepository.findStudent("Jane.Doe").version();
+
+        scoreRepository.addStudentScores(List.of(new StudentExamScore("Jane.Doe", 1000, 0.5), new StudentExamScore("John.Doe", 1000, 0.7)));
+        scoreRepository.addExamScores(List.of(new StudentExamScore("Jane.Doe", 1000, 0.5)));
+
+        // an unchanged average still moves the versions, the versions do not look at the data
+        assertEquals(3, scoreRepository.studentScoresVersion());
+        assertTrue(scoreRepository.findExam(1000).version() > examVersion);
+        assertTrue(scoreRepository.findStudent("Jane.Doe").version() > studentVersion);
+    }
+
+    @Test
+    public void testTrim_DropsTheOldestStudentScoresKeepingTotalsAndWindows() {
+        ScoreStoreProperties scoreStoreProperties = new ScoreStoreProperties();
+        scoreStoreProperties.setWindowDurations(List.of());
+        scoreStoreProperties.setWindowCounts(List.of(10));
+        scoreRepository = new ConcurrentScoreRepository(scoreStoreProperties);
+
+        for (int i = 0; i < 100; i++) {
+            addScore(new StudentExamScore("Jane.Doe", i, i / 100D));
+        }
+
+        StudentScores studentScores = scoreRepository.findStudent("Jane.Doe");
+        ExamStats stats = studentScores.getStats();
+        long version = studentScores.version();
+        StudentScores.Snapshot before = studentScores.snapshot();
+
+        // the window over the latest 10 scores reads them back, so they are kept even when asked for fewer
+        assertTrue(studentScores.trim(3) > 0);
+        assertEquals(10, studentScores.size());
+        assertEquals(stats, studentScores.getStats());
+        assertTrue(studentScores.version() > version);
+        assertEquals(90, studentScores.snapshot().getTrimmedStats().getExamCount());
+        assertEquals(new StudentExamScore("Jane.Doe", 90, 0.9), studentScores.findExams(0, 1, false).get(0));
+        assertEquals(0, studentScores.trim(3));
+
+        // views taken before the trim still read the old columns
+        assertEquals(100, before.size());
+        assertEquals(0.0, before.getScore(0));
+
+        for (int i = 100; i < 105; i++) {
+            addScore(new StudentExamScore("Jane.Doe", i, 1.0));
+        }
+
+        ExamStats window = studentScores.findWindow(0);
+        assertEquals(10, window.getExamCount());
+        assertEquals(0.95 + 0.96 + 0.97 + 0.98 + 0.99 + 5.0, window.getScoreSum(), 1e-9);
+        assertEquals(105, studentScores.getStats().getExamCount());
+        assertEquals(15, studentScores.size());
+    }
+
+    @Test
+    public void testSnapshot_IsNotAffectedByLaterScores() {
+        addScore(new StudentExamScore("John.Doe", 1000, 0.7));
+        ExamScores.Snapshot snapshot = scoreRepository.findExam(1000).snapshot();
+
+        addScore(new StudentExamScore("Jane.Doe", 1000, 0.9));
+
+        assertEquals(1, snapshot.size());
+        assertEquals(2, scoreRepository.findExam(1000).snapshot().size());
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.getScore(1));
+    }
+
+    @Test
+    public void testSnapshot_DecodesStudentIdsAndScores() {
+        for (int i = 0; i < 100; i++) {
+            addScore(new StudentExamScore("student" + (i % 10), 1000, i / 100D));
+        }
+
+        ExamScores.Snapshot snapshot = scoreRepository.findExam(1000).snapshot();
+
+        assertEquals(100, snapshot.size());
+        assertEquals("student7", snapshot.getStudentId(97));
+        assertEquals(0.97, snapshot.getScore(97));
+    }
+
+    @Test
+    public void testSnapshot_RoundsScoresToConfiguredPrecision() {
+        ScoreStoreProperties scoreStoreProperties = new ScoreStoreProperties();
+        scoreStoreProperties.setScorePrecision(4);
+        scoreRepository = new ConcurrentScoreRepository(scoreStoreProperties);
+
+        addScore(new StudentExamScore("John.Doe", 1000, 0.7428269186548633));
+
+        assertEquals(0.7428, scoreRepository.findExam(1000).snapshot().getScore(0), 1e-12);
+        assertEquals(0.7428269186548633, scoreRepository.findStudent("John.Doe").getStats().getScoreSum());
+    }
+
+    @Test
+    public void testConstructor_RejectsPrecisionBeyondAnInt() {
+        ScoreStoreProperties scoreStoreProperties = new ScoreStoreProperties();
+        scoreStoreProperties.setScorePrecision(10);
+
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentScoreRepository(scoreStoreProperties));
+    }
+
+    @Test
+    public void testSnapshot_SaturatesFixedPointScoresBeyondTheRange() {
+        ScoreStoreProperties scoreStoreProperties = new ScoreStoreProperties();
+        scoreStoreProperties.setScorePrecision(9);
+        scoreRepository = new ConcurrentScoreRepository(scoreStoreProperties);
+
+        addScore(new StudentExamScore("John.Doe", 1000, 3.0));
+        addScore(new StudentExamScore("Jane.Doe", 1000, -3.0));
+
+        assertEquals(ScoreColumn.maxScore(9), scoreRepository.findExam(1000).snapshot().getScore(0), 1e-9);
+        assertEquals(-ScoreColumn.maxScore(9), scoreRepository.findExam(1000).snapshot().getScore(1), 1e-9);
+    }
+
+    @Test
+    public void testConcurrentWritersAndReaders_DoNotLoseUpdates() throws Exception {
+        int writers = 4;
+        int scoresPerWriter = 20_000;
+
+        ExecutorService executorService = Executors.newFixedThreadPool(writers + 1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        // reader iterates the live key sets while the writers are adding new keys
+        Future<?> reader = executorService.submit(() -> {
+            while (writing.get()) {
+                for (Integer exam : scoreRepository.examNumbers()) {
+                    ExamScores.Snapshot snapshot = scoreRepository.findExam(exam).snapshot();
+
+                    for (int i = 0; i < snapshot.size(); i++) {
+                        assertNotNull(snapshot.getStudentId(i));
+                    }
+                }
+                scoreRepository.studentIds().forEach(scoreRepository::findStudent);
+            }
+        });
+
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int writer = 0; writer < writers; writer++) {
+            futures.add(executorService.submit(() -> {
+                for (int i = 0; i < scoresPerWriter; i++) {
+                    addScore(new StudentExamScore("student" + (i % 100), i % 50, 0.5));
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        writing.set(false);
+        reader.get(30, TimeUnit.SECONDS);
+        executorService.shutdown();
+
+        int totalScores = 0;
+
+        for (Integer exam : scoreRepository.examNumbers()) {
+            totalScores += scoreRepository.findExam(exam).size();
+        }
+
+        int totalStudentScores = 0;
+
+        for (String studentId : scoreRepository.studentIds()) {
+            totalStudentScores += scoreRepository.findStudent(studentId).getStats().getExamCount();
+        }
+
+        assertEquals(writers * scoresPerWriter, totalScores);
+        assertEquals(writers * scoresPerWriter, totalStudentScores);
+        assertEquals(50, scoreRepository.countExams());
+        assertEquals(100, scoreRepository.countStudents());
+    }
+
+    private void addScore(StudentExamScore studentExamScore) {
+        scoreRepository.addStudentScore(studentExamScore);
+        scoreRepository.addExamScore(studentExamScore);
+    }
+}
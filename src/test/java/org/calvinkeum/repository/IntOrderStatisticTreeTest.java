@@ -0,0 +1,95 @@
+package org.calvinkeum.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntOrderStatisticTreeTest {
+
+    @Test
+    public void testTree_MatchesSortedListUnderRandomInsertsAndRemoves() {
+        Random random = new Random(42);
+        double[] values = new double[2000];
+        Comparator<Integer> order = Comparator.<Integer>comparingDouble(node -> values[node]).thenComparingInt(node -> node);
+
+        IntOrderStatisticTree tree = new IntOrderStatisticTree(
+            (a, b) -> order.compare(a, b));
+        List<Integer> expected = new ArrayList<>();
+
+        for (int node = 0; node < values.length; node++) {
+            values[node] = random.nextInt(100) / 100D;
+            tree.insert(node);
+            expected.add(node);
+
+            if (random.nextInt(4) == 0) {
+                int removed = expected.remove(random.nextInt(expected.size()));
+                tree.remove(removed);
+            }
+        }
+
+        expected.sort(order);
+        assertEquals(expected.size(), tree.size());
+
+        for (int i = 0; i < expected.size(); i += 37) {
+            assertEquals(i, tree.rank(expected.get(i)));
+        }
+
+        assertEquals(expected.subList(100, 150), collect(tree, 100, 50, false));
+
+        List<Integer> descending = new ArrayList<>(expected);
+        descending.sort(order.reversed());
+        assertEquals(descending.subList(0, 20), collect(tree, 0, 20, true));
+        assertEquals(descending.subList(descending.size() - 5, descending.size()), collect(tree, descending.size() - 5, 50, true));
+    }
+
+    @Test
+    public void testCountBefore_CountsNodesBelowProbe() {
+        double[] values = { 0.5, 0.1, 0.9, 0.5, 0.3 };
+        IntOrderStatisticTree tree = new IntOrderStatisticTree((a, b) -> {
+            int result = Double.compare(values[a], values[b]);
+            return result != 0 ? result : Integer.compare(a, b);
+        });
+
+        for (int node = 0; node < values.length; node++) {
+            tree.insert(node);
+        }
+
+        assertEquals(2, tree.countBefore(node -> values[node] < 0.5 ? -1 : 1));
+        assertEquals(4, tree.countBefore(node -> values[node] <= 0.5 ? -1 : 1));
+        assertTrue(collect(tree, 5, 10, false).isEmpty());
+    }
+
+    @Test
+    public void testCountBeforeAndMatching_MatchesTwoCountsUnderManyTies() {
+        Random random = new Random(7);
+        int[] values = new int[2000];
+        IntOrderStatisticTree tree = new IntOrderStatisticTree((a, b) -> {
+            int result = Integer.compare(values[a], values[b]);
+            return result != 0 ? result : Integer.compare(a, b);
+        });
+
+        for (int node = 0; node < values.length; node++) {
+            values[node] = random.nextInt(50);
+            tree.insert(node);
+        }
+
+        for (int key = -1; key <= 50; key++) {
+            int probe = key;
+            int[] counts = tree.countBeforeAndMatching(node -> Integer.compare(values[node], probe));
+
+            assertEquals(tree.countBefore(node -> values[node] < probe ? -1 : 1), counts[0]);
+            assertEquals(tree.countBefore(node -> values[node] <= probe ? -1 : 1), counts[0] + counts[1]);
+        }
+    }
+
+    private static List<Integer> collect(IntOrderStatisticTree tree, int skip, int limit, boolean descending) {
+        List<Integer> nodes = new ArrayList<>();
+        tree.forEach(skip, limit, descending, nodes::add);
+        return nodes;
+    }
+}
@@ -0,0 +1,72 @@
+package org.calvinkeum.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScoreHistogramTest {
+
+    @Test
+    public void testPercentile_StaysWithinOneBinOfExactPercentiles() {
+        Random random = new Random(7);
+        double[] scores = new double[100_000];
+        ScoreHistogram histogram = new ScoreHistogram();
+
+        for (int i = 0; i < scores.length; i++) {
+            // skewed towards high scores like a real exam
+            scores[i] = Math.sqrt(random.nextDouble());
+            histogram.add(scores[i]);
+        }
+
+        Arrays.sort(scores);
+
+        for (double percentile : new double[] { 10, 50, 90, 99 }) {
+            double exact = scores[(int) Math.ceil(percentile / 100 * scores.length) - 1];
+            assertEquals(exact, histogram.percentile(percentile), histogram.getBinWidth());
+        }
+
+        assertEquals(scores.length, histogram.getTotal());
+        assertEquals(scores.length, Arrays.stream(histogram.getCounts()).sum());
+    }
+
+    @Test
+    public void testMerge_MatchesHistogramOfAllScores() {
+        ScoreHistogram first = new ScoreHistogram(10);
+        ScoreHistogram second = new ScoreHistogram(10);
+        ScoreHistogram all = new ScoreHistogram(10);
+
+        for (int i = 0; i <= 100; i++) {
+            double score = i / 100D;
+            (i % 3 == 0 ? first : second).add(score);
+            all.add(score);
+        }
+
+        first.merge(second);
+
+        assertArrayEquals(all.getCounts(), first.getCounts());
+        assertEquals(all.percentile(50), first.percentile(50));
+        assertThrows(IllegalArgumentException.class, () -> first.merge(new ScoreHistogram(20)));
+    }
+
+    @Test
+    public void testAddAndRemove_ClampOutOfRangeScores() {
+        ScoreHistogram histogram = new ScoreHistogram(4);
+        histogram.add(-0.5);
+        histogram.add(1.0);
+        histogram.add(7);
+        histogram.add(0.3);
+
+        assertArrayEquals(new long[] { 1, 1, 0, 2 }, histogram.getCounts());
+
+        histogram.remove(7);
+        histogram.remove(0.3);
+        histogram.remove(0.6);
+
+        assertArrayEquals(new long[] { 1, 0, 0, 1 }, histogram.getCounts());
+        assertEquals(2, histogram.getTotal());
+        assertTrue(Double.isNaN(new ScoreHistogram().percentile(50)));
+    }
+}
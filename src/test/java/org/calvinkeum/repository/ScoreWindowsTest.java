@@ -0,0 +1,81 @@
+package org.calvinkeum.repository;
+
+import org.calvinkeum.model.ExamStats;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScoreWindowsTest {
+
+    @Test
+    public void testFindWindow_DropsBucketsOnceTheyLeaveTheTimeWindow() {
+        AtomicLong clock = new AtomicLong(60_000);
+        ScoreWindows.Layout layout = new ScoreWindows.Layout(List.of(Duration.ofMinutes(1)), 6, List.of(), clock::get);
+        ExamScores examScores = new ExamScores(1, new StudentIdDictionary(), 0, layout);
+        int window = layout.indexOf("1m");
+
+        examScores.add(0, 0.2);
+        clock.addAndGet(30_000);
+        examScores.addAll(new int[] { 1, 2 }, new double[] { 0.4, 0.9 }, 2);
+
+        ExamStats stats = examScores.findWindow(window);
+        assertEquals(3, stats.getExamCount());
+        assertEquals(0.5, stats.getAverageScore(), 1e-9);
+
+        // the first score's 10s bucket leaves the window a minute after it started
+        clock.addAndGet(30_000);
+        stats = examScores.findWindow(window);
+        assertEquals(2, stats.getExamCount());
+        assertEquals(0.65, stats.getAverageScore(), 1e-9);
+
+        clock.addAndGet(60_000);
+        stats = examScores.findWindow(window);
+        assertEquals(0, stats.getExamCount());
+        assertNull(stats.getAverageScore());
+
+        // lifetime stats are unaffected
+        assertEquals(3, examScores.getStats().getExamCount());
+    }
+
+    @Test
+    public void testFindWindow_CoversTheLatestScores() {
+        ScoreWindows.Layout layout = new ScoreWindows.Layout(List.of(), 1, List.of(3, 100), () -> 0);
+        StudentScores studentScores = new StudentScores("john.doe", 2, layout);
+
+        for (int exam = 1; exam <= 10; exam++) {
+            studentScores.add(exam, exam / 10D);
+        }
+
+        ExamStats latestThree = studentScores.findWindow(layout.indexOf("3"));
+        assertEquals(3, latestThree.getExamCount());
+        assertEquals(0.9, latestThree.getAverageScore(), 1e-9);
+
+        ExamStats latestHundred = studentScores.findWindow(layout.indexOf("100"));
+        assertEquals(10, latestHundred.getExamCount());
+        assertEquals(0.55, latestHundred.getAverageScore(), 1e-9);
+    }
+
+    @Test
+    public void testIndexOf_AcceptsEquivalentNamesOnly() {
+        ScoreWindows.Layout layout = new ScoreWindows.Layout(
+            List.of(Duration.ofMinutes(5), Duration.ofHours(1)), 10, List.of(10000), () -> 0);
+
+        assertEquals(List.of("5m", "1h", "10000"), layout.getWindows());
+        assertEquals(0, layout.indexOf("5m"));
+        assertEquals(0, layout.indexOf("PT5M"));
+        assertEquals(0, layout.indexOf("300s"));
+        assertEquals(1, layout.indexOf("60m"));
+        assertEquals(2, layout.indexOf("10000"));
+        assertEquals(-1, layout.indexOf("10m"));
+        assertEquals(-1, layout.indexOf("5 minutes"));
+        assertEquals(-1, layout.indexOf("99999999999"));
+        assertEquals(-1, layout.indexOf(null));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> new ScoreWindows.Layout(List.of(Duration.ofMillis(5)), 10, List.of(), () -> 0));
+    }
+}
@@ -0,0 +1,87 @@
+package org.calvinkeum.repository;
+
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.model.StudentRank;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StudentLeaderboardTest {
+
+    @Test
+    public void testFindByAverage_MatchesSortedAveragesWithSharedRanksForTies() {
+        Random random = new Random(11);
+        ScoreRepository scoreRepository = new ConcurrentScoreRepository();
+        Map<String, double[]> totals = new HashMap<>();
+
+        for (int batch = 0; batch < 50; batch++) {
+            List<StudentExamScore> studentExamScores = new ArrayList<>();
+
+            for (int i = 0; i < 100; i++) {
+                // few distinct scores so plenty of averages tie
+                String studentId = "student" + random.nextInt(300);
+                double score = random.nextInt(5) / 4D;
+                studentExamScores.add(new StudentExamScore(studentId, 1, score));
+
+                double[] total = totals.computeIfAbsent(studentId, id -> new double[2]);
+                total[0] += score;
+                total[1]++;
+            }
+
+            scoreRepository.addStudentScores(studentExamScores);
+        }
+
+        List<Map.Entry<String, Double>> expected = totals.entrySet().stream()
+            .map(entry -> Map.entry(entry.getKey(), entry.getValue()[0] / entry.getValue()[1]))
+            .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()))
+            .toList();
+
+        StudentLeaderboard studentLeaderboard = scoreRepository.studentLeaderboard();
+        assertEquals(expected.size(), studentLeaderboard.size());
+
+        for (int skip = 0; skip < expected.size(); skip += 17) {
+            List<StudentRank> descending = studentLeaderboard.findByAverage(skip, 17, true);
+            List<StudentRank> ascending = studentLeaderboard.findByAverage(expected.size() - skip - descending.size(), descending.size(), false);
+
+            for (int i = 0; i < descending.size(); i++) {
+                double average = expected.get(skip + i).getValue();
+                long higher = expected.stream().filter(entry -> entry.getValue() > average).count();
+
+                assertEquals(average, descending.get(i).getAverageScore(), 1e-12);
+                assertEquals(higher + 1, descending.get(i).getRank());
+                assertEquals(higher + 1, studentLeaderboard.findRank(descending.get(i).getStudentId()).getRank());
+
+                StudentRank ascendingRank = ascending.get(descending.size() - 1 - i);
+                assertEquals(average, ascendingRank.getAverageScore(), 1e-12);
+                assertEquals(higher + 1, ascendingRank.getRank());
+            }
+        }
+
+        assertNull(studentLeaderboard.findRank("nobody"));
+    }
+
+    @Test
+    public void testUpdate_MovesStudentWhenAverageChanges() {
+        ScoreRepository scoreRepository = new ConcurrentScoreRepository();
+        scoreRepository.addStudentScore(new StudentExamScore("a", 1, 0.9));
+        scoreRepository.addStudentScore(new StudentExamScore("b", 1, 0.5));
+        scoreRepository.addStudentScore(new StudentExamScore("c", 1, 0.1));
+
+        StudentLeaderboard studentLeaderboard = scoreRepository.studentLeaderboard();
+        assertEquals(List.of("a", "b", "c"), studentLeaderboard.findByAverage(0, 10, true).stream().map(StudentRank::getStudentId).toList());
+
+        scoreRepository.addStudentScore(new StudentExamScore("c", 2, 1.0));
+        scoreRepository.addStudentScore(new StudentExamScore("a", 2, 0.0));
+
+        assertEquals(List.of("c", "b", "a"), studentLeaderboard.findByAverage(0, 10, true).stream().map(StudentRank::getStudentId).toList());
+        assertEquals(1, studentLeaderboard.findRank("c").getRank());
+        assertEquals(3, studentLeaderboard.size());
+    }
+}
@@ -1,41 +1,57 @@
 package org.calvinkeum.service;
 
+import org.calvinkeum.config.IngestPipelineProperties;
+import org.calvinkeum.ingest.ScoreIngestPipeline;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.repository.ScoreRepository;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.util.TreeMap;
+import java.time.Duration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class DataImportServiceTest {
     private StudentService studentService;
     private ExamService examService;
+    private ScoreIngestPipeline scoreIngestPipeline;
+    private DataImportService dataImportService;
 
     @BeforeEach
     public void setUp() {
-        studentService = new StudentService();
-        StudentService.studentIdExamStatsMap = new TreeMap<>();
+        ScoreRepository scoreRepository = new ConcurrentScoreRepository();
 
-        examService = new ExamService();
-        ExamService.examEntriesMap = new TreeMap<>();
-        ExamService.cachedExamAvgScoreResponseMap = new TreeMap<>();
+        studentService = new StudentService(scoreRepository);
+        examService = new ExamService(scoreRepository);
+        scoreIngestPipeline = new ScoreIngestPipeline(new IngestPipelineProperties(), studentService, examService);
+        scoreIngestPipeline.start();
+        dataImportService = new DataImportService(scoreIngestPipeline);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scoreIngestPipeline.stop();
     }
 
     @Test
-    void importStudentExamData_ShouldImportDataWhenValid() {
+    void importStudentExamData_ShouldImportDataWhenValid() throws InterruptedException {
         String validData = "data: {\"studentId\":\"john.doe\",\"exam\":1,\"score\":0.7428269186548633}";
 
-        DataImportService.importStudentExamData(validData);
+        dataImportService.importStudentExamData(validData);
+        assertTrue(scoreIngestPipeline.flush(Duration.ofSeconds(5)));
 
         assertEquals(1, studentService.getAllStudents(0,20,"ASC").getTotalStudents());
         assertEquals(1, examService.getAllExams(0, 20, "ASC").getTotalExams());
     }
 
     @Test
-    void importStudentExamData_ShouldNotImportDataWhenInvalid() {
+    void importStudentExamData_ShouldNotImportDataWhenInvalid() throws InterruptedException {
         String validData = "data: {}";
 
-        DataImportService.importStudentExamData(validData);
+        dataImportService.importStudentExamData(validData);
+        assertTrue(scoreIngestPipeline.flush(Duration.ofSeconds(5)));
 
         assertEquals(0, studentService.getAllStudents(0,20,"ASC").getTotalStudents());
         assertEquals(0, examService.getAllExams(0, 20, "ASC").getTotalExams());
@@ -1,25 +1,33 @@
 package org.calvinkeum.service;
 
 import org.calvinkeum.dto.ExamAvgScoreResponse;
+import org.calvinkeum.dto.ExamBatchResponse;
+import org.calvinkeum.dto.ExamDistributionResponse;
 import org.calvinkeum.dto.ExamPaginationResponse;
+import org.calvinkeum.dto.ExamRankResponse;
+import org.calvinkeum.dto.ExamResponse;
+import org.calvinkeum.dto.ExamScorePageResponse;
+import org.calvinkeum.dto.StudentScoreResponse;
 import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.repository.ExamScores;
+import org.calvinkeum.repository.ScoreRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
-import java.util.TreeMap;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ExamServiceTest {
 
+    private ScoreRepository scoreRepository;
     private ExamService examService;
 
     @BeforeEach
     public void setUp() {
-        examService = new ExamService();
-        ExamService.examEntriesMap = new TreeMap<>();
-        ExamService.cachedExamAvgScoreResponseMap = new TreeMap<>();
+        scoreRepository = new ConcurrentScoreRepository();
+        examService = new ExamService(scoreRepository);
     }
 
     @Test
@@ -29,16 +37,31 @@ public class ExamServiceTest {
         assertTrue(allExams.getExamResponses().isEmpty());
     }
 
+    @Test
+    public void testGetAllExams_PagesWithCursorInDescendingOrder() {
+        for (int exam = 1; exam <= 5; exam++) {
+            examService.processExamData(new StudentExamScore("John.Doe", exam, 0.5));
+        }
+
+        ExamPaginationResponse firstPage = examService.getAllExams(0, 3, "DESC", null);
+        assertEquals(List.of(5, 4, 3), firstPage.getExamResponses().stream().map(ExamResponse::getExam).toList());
+
+        ExamPaginationResponse secondPage = examService.getAllExams(0, 3, "DESC", firstPage.getNextCursor());
+        assertEquals(List.of(2, 1), secondPage.getExamResponses().stream().map(ExamResponse::getExam).toList());
+        assertNull(secondPage.getNextCursor());
+        assertEquals(5, secondPage.getTotalExams());
+    }
+
     @Test
     public void testGetExamResults_ComputesAverageScoreCorrectly() {
         StudentExamScore studentExamScore = new StudentExamScore("John.Doe", 1000, 0.7225095851635466);
-        ExamService.processExamData(studentExamScore);
+        examService.processExamData(studentExamScore);
 
         studentExamScore =  new StudentExamScore("Jane.Doe", 1000, 0.6592995722194341);
-        ExamService.processExamData(studentExamScore);
+        examService.processExamData(studentExamScore);
 
         studentExamScore = new StudentExamScore("Dohn.Joe", 1000, 0.9085568050082964);
-        ExamService.processExamData(studentExamScore);
+        examService.processExamData(studentExamScore);
 
         ExamAvgScoreResponse examAvgScoreResponse = examService.getExamResults(1000);
         assertNotNull(examAvgScoreResponse);
@@ -46,16 +69,108 @@ public class ExamServiceTest {
         assertNotNull(examAvgScoreResponse.getStudents());
         assertEquals(3, examAvgScoreResponse.getStudents().size());
         assertEquals(0.7634553207970924, examAvgScoreResponse.getAverageScore());
+        assertEquals(0.6592995722194341, examAvgScoreResponse.getMinScore());
+        assertEquals(0.9085568050082964, examAvgScoreResponse.getMaxScore());
+        assertEquals("Jane.Doe", examAvgScoreResponse.getStudents().get(1).getStudentId());
+        assertEquals(0.6592995722194341, examAvgScoreResponse.getStudents().get(1).getScore());
     }
 
     @Test
     public void testGetExamResults_ReturnsCachedResultIfAvailable() {
         StudentExamScore studentExamScore = new StudentExamScore("John.Doe", 1000, 0.8124807009026258);
-        ExamService.processExamData(studentExamScore);
+        examService.processExamData(studentExamScore);
+
+        assertTrue(examService.cachedExamAvgScoreResponseMap.isEmpty());
+        ExamAvgScoreResponse examAvgScoreResponse = examService.getExamResults(1000);
+        assertEquals(examService.cachedExamAvgScoreResponseMap.get(1000), examAvgScoreResponse);
+    }
 
-        assertTrue(ExamService.cachedExamAvgScoreResponseMap.isEmpty());
+    @Test
+    public void testGetExamResults_RebuildsCachedResultAfterNewScore() {
+        examService.processExamData(new StudentExamScore("John.Doe", 1000, 0.8));
+        assertEquals(1, examService.getExamResults(1000).getStudents().size());
+
+        examService.processExamData(new StudentExamScore("Jane.Doe", 1000, 0.6));
         ExamAvgScoreResponse examAvgScoreResponse = examService.getExamResults(1000);
-        assertEquals(ExamService.cachedExamAvgScoreResponseMap.get(1000), examAvgScoreResponse);
+        assertEquals(2, examAvgScoreResponse.getStudents().size());
+        assertEquals(0.7, examAvgScoreResponse.getAverageScore(), 1e-9);
+        assertEquals(examService.cachedExamAvgScoreResponseMap.get(1000), examAvgScoreResponse);
+    }
+
+    @Test
+    public void testGetExamResultsByScore_PagesStudentsByScore() {
+        examService.processExamData(new StudentExamScore("a", 1000, 0.4));
+        examService.processExamData(new StudentExamScore("b", 1000, 0.9));
+        examService.processExamData(new StudentExamScore("c", 1000, 0.1));
+        examService.processExamData(new StudentExamScore("d", 1000, 0.7));
+
+        ExamScorePageResponse descendingPage = examService.getExamResultsByScore(1000, 0, 2, "DESC");
+        assertEquals(4, descendingPage.getTotalStudents());
+        assertEquals(List.of("b", "d"), descendingPage.getStudents().stream().map(StudentScoreResponse::getStudentId).toList());
+
+        ExamScorePageResponse ascendingPage = examService.getExamResultsByScore(1000, 1, 2, "ASC");
+        assertEquals(List.of("a", "d"), ascendingPage.getStudents().stream().map(StudentScoreResponse::getStudentId).toList());
+
+        assertNull(examService.getExamResultsByScore(1, 0, 2, "DESC"));
+    }
+
+    @Test
+    public void testGetStudentExamRank_RanksLatestScore() {
+        examService.processExamData(new StudentExamScore("a", 1000, 0.4));
+        examService.processExamData(new StudentExamScore("b", 1000, 0.9));
+        examService.processExamData(new StudentExamScore("c", 1000, 0.4));
+        examService.processExamData(new StudentExamScore("d", 1000, 0.1));
+
+        ExamRankResponse examRankResponse = examService.getStudentExamRank(1000, "c");
+        assertEquals(2, examRankResponse.getRank());
+        assertEquals(4, examRankResponse.getTotalStudents());
+        assertEquals(25.0, examRankResponse.getPercentile());
+
+        examService.processExamData(new StudentExamScore("d", 1000, 0.95));
+        assertEquals(1, examService.getStudentExamRank(1000, "d").getRank());
+        assertEquals(4, examService.getStudentExamRank(1000, "d").getTotalStudents());
+
+        assertNull(examService.getStudentExamRank(1000, "e"));
+        assertNull(examService.getStudentExamRank(1, "a"));
+    }
+
+    @Test
+    public void testGetExamDistribution_CountsLatestScorePerStudent() {
+        for (int i = 0; i < 1000; i++) {
+            examService.processExamData(new StudentExamScore("student" + i, 1000, i / 1000D));
+        }
+
+        // a retake moves the student's score to another bin instead of counting it twice
+        examService.processExamData(new StudentExamScore("student0", 1000, 0.999));
+
+        ExamDistributionResponse examDistributionResponse = examService.getExamDistribution(1000);
+        assertEquals(1000, examDistributionResponse.getTotalStudents());
+        assertEquals(0.5, examDistributionResponse.getMedian(), 0.01);
+        assertEquals(0.1, examDistributionResponse.getP10(), 0.01);
+        assertEquals(0.9, examDistributionResponse.getP90(), 0.01);
+        assertEquals(0.99, examDistributionResponse.getP99(), 0.01);
+        assertEquals(0.01, examDistributionResponse.getBinWidth());
+        assertEquals(9, examDistributionResponse.getHistogram()[0]);
+        assertEquals(11, examDistributionResponse.getHistogram()[99]);
+
+        assertNull(examService.getExamDistribution(1));
+    }
+
+    @Test
+    public void testGetExamSummaries_SummarizesEachExamOnce() {
+        examService.processExamData(List.of(
+            new StudentExamScore("a", 3, 0.2),
+            new StudentExamScore("b", 3, 0.6),
+            new StudentExamScore("a", 1, 0.9)));
+
+        ExamBatchResponse examBatchResponse = examService.getExamSummaries(List.of(3, 2, 1, 3));
+        assertEquals(2, examBatchResponse.getExams().size());
+        assertEquals(3, examBatchResponse.getExams().get(0).getExam());
+        assertEquals(2, examBatchResponse.getExams().get(0).getTotalStudents());
+        assertEquals(0.4, examBatchResponse.getExams().get(0).getAverageScore(), 1e-12);
+        assertEquals(0.6, examBatchResponse.getExams().get(0).getMaxScore());
+        assertEquals(1, examBatchResponse.getExams().get(1).getExam());
+        assertEquals(List.of(2), examBatchResponse.getNotFound());
     }
 
     @Test
@@ -67,11 +182,12 @@ public class ExamServiceTest {
     @Test
     public void testProcessExamData_UpdatesExamEntriesCorrectly() {
         StudentExamScore studentExamScore = new StudentExamScore("John.Doe", 1000, 0.8124807009026258);
-        ExamService.processExamData(studentExamScore);
+        examService.processExamData(studentExamScore);
 
-        List<StudentExamScore> studentExamScores = ExamService.examEntriesMap.get(1000);
-        assertNotNull(studentExamScores);
-        assertEquals(1, studentExamScores.size());
-        assertEquals(studentExamScore, studentExamScores.get(0));
+        ExamScores.Snapshot snapshot = scoreRepository.findExam(1000).snapshot();
+        assertNotNull(snapshot);
+        assertEquals(1, snapshot.size());
+        assertEquals(studentExamScore.getStudentId(), snapshot.getStudentId(0));
+        assertEquals(studentExamScore.getScore(), snapshot.getScore(0));
     }
 }
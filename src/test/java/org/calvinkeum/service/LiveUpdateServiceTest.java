@@ -0,0 +1,207 @@
+package org.calvinkeum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.calvinkeum.config.IngestPipelineProperties;
+import org.calvinkeum.config.LiveUpdateProperties;
+import org.calvinkeum.ingest.ScoreIngestPipeline;
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.repository.ScoreRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LiveUpdateServiceTest {
+
+    private ScoreIngestPipeline scoreIngestPipeline;
+    private LiveUpdateProperties liveUpdateProperties;
+    private LiveUpdateService liveUpdateService;
+
+    @BeforeEach
+    public void setUp() {
+        ScoreRepository scoreRepository = new ConcurrentScoreRepository();
+        ExamService examService = new ExamService(scoreRepository);
+        StudentService studentService = new StudentService(scoreRepository);
+        scoreIngestPipeline = new ScoreIngestPipeline(new IngestPipelineProperties(), studentService, examService);
+        scoreIngestPipeline.start();
+
+        // a long window leaves the flushing to the tests
+        liveUpdateProperties = new LiveUpdateProperties();
+        liveUpdateProperties.setCoalesceWindow(Duration.ofHours(1));
+        liveUpdateProperties.setHeartbeatInterval(Duration.ofHours(1));
+        liveUpdateProperties.setMaxSubscriptions(2);
+
+        liveUpdateService = new LiveUpdateService(liveUpdateProperties, scoreIngestPipeline, examService, studentService, new ObjectMapper());
+        liveUpdateService.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        liveUpdateService.stop();
+        scoreIngestPipeline.stop();
+    }
+
+    @Test
+    public void testFlush_CoalescesABurstIntoOneUpdatePerSubscription() throws InterruptedException {
+        publish(new StudentExamScore("john.doe", 1, 0.5));
+
+        RecordingEmitter examSubscriber = new RecordingEmitter();
+        RecordingEmitter studentSubscriber = new RecordingEmitter();
+        assertTrue(liveUpdateService.subscribe(examSubscriber, List.of(1), List.of()));
+        assertTrue(liveUpdateService.subscribe(studentSubscriber, List.of(), List.of("jane.doe")));
+
+        // the exam has a score to start from, the student does not
+        assertTrue(await(() -> examSubscriber.events.size() == 1));
+        assertEquals(0, studentSubscriber.events.size());
+
+        for (int i = 0; i < 10000; i++) {
+            scoreIngestPipeline.publish(new StudentExamScore(i % 2 == 0 ? "jane.doe" : "student" + i, 1, 1.0));
+        }
+
+        assertTrue(scoreIngestPipeline.flush(Duration.ofSeconds(5)));
+
+        liveUpdateService.flush();
+
+        assertTrue(await(() -> examSubscriber.events.size() == 2 && studentSubscriber.events.size() == 1));
+        assertTrue(examSubscriber.events.get(1).contains("event:exam"));
+        assertTrue(examSubscriber.events.get(1).contains("\"totalStudents\":5002"));
+        assertEquals(1, studentSubscriber.events.size());
+        assertTrue(studentSubscriber.events.get(0).contains("\"studentId\":\"jane.doe\",\"averageScore\":1.0"));
+
+        // nothing changed since, so nothing is pushed
+        liveUpdateService.flush();
+        assertEquals(2, examSubscriber.events.size());
+        assertEquals(1, studentSubscriber.events.size());
+    }
+
+    @Test
+    public void testSubscribe_TurnsAwaySubscriptionsOverTheLimitAndDropsFailedOnes() throws InterruptedException {
+        RecordingEmitter failing = new RecordingEmitter();
+        failing.failing = true;
+
+        assertTrue(liveUpdateService.subscribe(new RecordingEmitter(), List.of(1), List.of()));
+        assertTrue(liveUpdateService.subscribe(failing, List.of(1), List.of()));
+        assertFalse(liveUpdateService.subscribe(new RecordingEmitter(), List.of(1), List.of()));
+        assertEquals(2, liveUpdateService.getSubscriptionCount());
+
+        liveUpdateService.heartbeat();
+
+        assertTrue(await(() -> liveUpdateService.getSubscriptionCount() == 1));
+        assertTrue(liveUpdateService.subscribe(new RecordingEmitter(), List.of(1), List.of()));
+    }
+
+    @Test
+    public void testFlush_DropsASubscriberThatStopsReadingWithoutHoldingUpOthers() throws InterruptedException {
+        liveUpdateProperties.setMaxQueuedEvents(4);
+        publish(new StudentExamScore("john.doe", 1, 0.5));
+
+        CountDownLatch released = new CountDownLatch(1);
+        RecordingEmitter stalled = new RecordingEmitter();
+        stalled.blockedUntil = released;
+        RecordingEmitter reading = new RecordingEmitter();
+
+        assertTrue(liveUpdateService.subscribe(stalled, List.of(1), List.of()));
+        assertTrue(liveUpdateService.subscribe(reading, List.of(1), List.of()));
+
+        try {
+            // the stalled subscriber is stuck on its first write while every update reaches the other one
+            for (int i = 0; i < 10; i++) {
+                publish(new StudentExamScore("student" + i, 1, 1.0));
+                liveUpdateService.flush();
+
+                int updates = i + 2;
+                assertTrue(await(() -> reading.events.size() == updates));
+            }
+
+            assertEquals(1, liveUpdateService.getSubscriptionCount());
+            assertTrue(stalled.events.isEmpty());
+        }
+        finally {
+            released.countDown();
+        }
+    }
+
+    @Test
+    public void testHeartbeat_DropsASubscriberWhoseWriteIsStuck() throws InterruptedException {
+        liveUpdateProperties.setSendTimeout(Duration.ofMillis(50));
+        publish(new StudentExamScore("john.doe", 1, 0.5));
+
+        CountDownLatch released = new CountDownLatch(1);
+        RecordingEmitter stalled = new RecordingEmitter();
+        stalled.blockedUntil = released;
+
+        try {
+            assertTrue(liveUpdateService.subscribe(stalled, List.of(1), List.of()));
+
+            Thread.sleep(100);
+            liveUpdateService.heartbeat();
+
+            assertEquals(0, liveUpdateService.getSubscriptionCount());
+        }
+        finally {
+            released.countDown();
+        }
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+
+            Thread.sleep(10);
+        }
+
+        return true;
+    }
+
+    private void publish(StudentExamScore studentExamScore) throws InterruptedException {
+        scoreIngestPipeline.publish(studentExamScore);
+        assertTrue(scoreIngestPipeline.flush(Duration.ofSeconds(5)));
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private volatile boolean failing;
+        private volatile CountDownLatch blockedUntil;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+
+            if (blockedUntil != null) {
+                try {
+                    blockedUntil.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted", e);
+                }
+            }
+
+            Set<DataWithMediaType> data = builder.build();
+
+            // heartbeats are not counted as events
+            if (data.stream().noneMatch(item -> MediaType.TEXT_PLAIN.equals(item.getMediaType()) && item.getData().toString().startsWith(":"))) {
+                events.add(data.stream().map(item -> item.getData().toString()).collect(Collectors.joining()));
+            }
+        }
+    }
+}
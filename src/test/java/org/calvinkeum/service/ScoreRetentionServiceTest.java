@@ -0,0 +1,140 @@
+package org.calvinkeum.service;
+
+import org.calvinkeum.config.MemoryProperties;
+import org.calvinkeum.config.ScoreStoreProperties;
+import org.calvinkeum.dto.ExamAvgScoreResponse;
+import org.calvinkeum.dto.StudentExamPageResponse;
+import org.calvinkeum.model.ExamStats;
+import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.repository.ExamScores;
+import org.calvinkeum.repository.ScoreRepository;
+import org.calvinkeum.repository.StudentScores;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScoreRetentionServiceTest {
+
+    private AtomicLong clock;
+    private MemoryProperties properties;
+    private ScoreRepository scoreRepository;
+    private ExamService examService;
+    private StudentService studentService;
+    private ScoreRetentionService scoreRetentionService;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new AtomicLong(1_000_000);
+        properties = new MemoryProperties();
+        ScoreStoreProperties scoreStoreProperties = new ScoreStoreProperties();
+        scoreStoreProperties.setWindowCounts(List.of(10));
+        scoreRepository = new ConcurrentScoreRepository(scoreStoreProperties, clock::get);
+        examService = new ExamService(scoreRepository, properties);
+        studentService = new StudentService(scoreRepository);
+        scoreRetentionService = new ScoreRetentionService(properties, scoreRepository, examService);
+    }
+
+    @Test
+    public void testSweep_ReleasesOldestExamsKeepingTheirAggregates() {
+        for (int exam = 1; exam <= 3; exam++) {
+            addScores(exam, 100);
+            clock.addAndGet(60_000);
+        }
+
+        ExamStats stats = scoreRepository.findExam(1).getStats();
+        int students = scoreRepository.findExam(1).countStudents();
+        ExamAvgScoreResponse cached = examService.getExamResults(1);
+        long version = scoreRepository.findExam(1).version();
+
+        properties.setRetentionMaxExams(2);
+        assertEquals(1, scoreRetentionService.sweep());
+        assertEquals(0, scoreRetentionService.sweep());
+
+        ExamScores released = scoreRepository.findExam(1);
+        assertEquals(0, released.size());
+        assertTrue(released.version() > version);
+        assertEquals(stats, released.getStats());
+        assertEquals(students, released.countStudents());
+        assertEquals(students, released.histogram().getTotal());
+        assertTrue(released.findByScore(0, 10, true).isEmpty());
+        assertEquals(100, scoreRepository.findExam(2).size());
+
+        // the cached results held the released columns and are rebuilt without them
+        ExamAvgScoreResponse rebuilt = examService.getExamResults(1);
+        assertNotSame(cached, rebuilt);
+        assertTrue(rebuilt.getStudents().isEmpty());
+        assertEquals(stats.getAverageScore(), rebuilt.getAverageScore());
+        assertEquals(1, scoreRetentionService.getReleasedExamCount());
+        assertTrue(scoreRetentionService.getReleasedBytes() > 0);
+
+        // new scores are held again and counted on top of the released ones
+        examService.processExamData(new StudentExamScore("late", 1, 1.0));
+        assertEquals(1, released.size());
+        assertEquals(101, released.getStats().getExamCount());
+        assertEquals(students + 1, released.countStudents());
+    }
+
+    @Test
+    public void testSweep_ReleasesExamsPastTheirAgeAndOverTheBudget() {
+        addScores(1, 100);
+        clock.addAndGet(Duration.ofHours(2).toMillis());
+        addScores(2, 100);
+        addScores(3, 100);
+
+        properties.setRetentionMaxAge(Duration.ofHours(1));
+        assertEquals(1, scoreRetentionService.sweep());
+        assertEquals(0, scoreRepository.findExam(1).size());
+
+        long storeBytes = scoreRetentionService.estimateStoreBytes();
+        properties.setBudget(DataSize.ofBytes(storeBytes - 1));
+        assertEquals(1, scoreRetentionService.sweep());
+        assertTrue(scoreRetentionService.estimateStoreBytes() < storeBytes);
+        assertEquals(0, scoreRepository.findExam(2).size());
+        assertEquals(100, scoreRepository.findExam(3).size());
+
+        // student data is never released, so a budget below it releases every exam and stops there
+        properties.setBudget(DataSize.ofBytes(1));
+        assertEquals(1, scoreRetentionService.sweep());
+        assertEquals(0, scoreRetentionService.sweep());
+        assertEquals(0, scoreRepository.findExam(3).size());
+    }
+
+    @Test
+    public void testSweep_TrimsTheLargestStudentsOnceNoExamIsLeftToRelease() {
+        for (int exam = 1; exam <= 500; exam++) {
+            examService.processExamData(new StudentExamScore("busy", exam, exam / 500D));
+            studentService.processStudentData(new StudentExamScore("busy", exam, exam / 500D));
+        }
+
+        studentService.processStudentData(new StudentExamScore("quiet", 1, 0.5));
+        ExamStats stats = scoreRepository.findStudent("busy").getStats();
+
+        properties.setStudentScoresKept(50);
+        properties.setBudget(DataSize.ofBytes(1));
+        scoreRetentionService.sweep();
+
+        StudentScores busy = scoreRepository.findStudent("busy");
+        assertEquals(50, busy.size());
+        assertEquals(stats, busy.getStats());
+        assertEquals(1, scoreRepository.findStudent("quiet").size());
+        assertEquals(1, scoreRetentionService.getTrimmedStudentCount());
+
+        StudentExamPageResponse page = studentService.getStudentExams("busy", 0, 10, "ASC");
+        assertEquals(500, page.getTotalExams());
+        assertEquals(450, page.getTrimmedExams());
+        assertEquals(451, (int) page.getExams().get(0).getExam());
+    }
+
+    private void addScores(int exam, int count) {
+        for (int i = 0; i < count; i++) {
+            examService.processExamData(new StudentExamScore("student" + i, exam, (i * 7919 % 1000) / 1000D));
+        }
+    }
+}
@@ -1,13 +1,22 @@
 package org.calvinkeum.service;
 
+import org.calvinkeum.dto.ExamScoreResponse;
 import org.calvinkeum.dto.StudentAvgScoreResponse;
+import org.calvinkeum.dto.StudentBatchResponse;
+import org.calvinkeum.dto.StudentExamPageResponse;
 import org.calvinkeum.dto.StudentPaginationResponse;
+import org.calvinkeum.dto.StudentRankPageResponse;
+import org.calvinkeum.dto.StudentRankResponse;
+import org.calvinkeum.dto.StudentResponse;
 import org.calvinkeum.model.ExamStats;
 import org.calvinkeum.model.StudentExamScore;
+import org.calvinkeum.repository.ConcurrentScoreRepository;
+import org.calvinkeum.repository.ScoreRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.util.TreeMap;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
@@ -15,12 +24,13 @@ import static org.mockito.Mockito.when;
 
 public class StudentServiceTest {
 
+    private ScoreRepository scoreRepository;
     private StudentService studentService;
 
     @BeforeEach
     public void setUp() {
-        studentService = new StudentService();
-        StudentService.studentIdExamStatsMap = new TreeMap<>();
+        scoreRepository = new ConcurrentScoreRepository();
+        studentService = new StudentService(scoreRepository);
     }
 
     @Test
@@ -30,6 +40,96 @@ public class StudentServiceTest {
         assertEquals(0, allStudents.getTotalStudents());
     }
 
+    @Test
+    public void testGetStudentsByAverage_PagesLeaderboardHighestFirst() {
+        studentService.processStudentData(List.of(
+            new StudentExamScore("a", 1, 0.6),
+            new StudentExamScore("b", 1, 0.9),
+            new StudentExamScore("c", 1, 0.6),
+            new StudentExamScore("d", 1, 0.2),
+            new StudentExamScore("a", 2, 1.0)));
+
+        StudentRankPageResponse firstPage = studentService.getStudentsByAverage(0, 2, null);
+        assertEquals("DESC", firstPage.getSortOrder());
+        assertEquals(4, firstPage.getTotalStudents());
+        assertEquals(List.of("b", "a"), firstPage.getStudents().stream().map(StudentRankResponse::getStudentId).toList());
+        assertEquals(List.of(1, 2), firstPage.getStudents().stream().map(StudentRankResponse::getRank).toList());
+
+        StudentRankPageResponse bottomPage = studentService.getStudentsByAverage(0, 2, "asc");
+        assertEquals(List.of("d", "c"), bottomPage.getStudents().stream().map(StudentRankResponse::getStudentId).toList());
+        assertEquals(List.of(4, 3), bottomPage.getStudents().stream().map(StudentRankResponse::getRank).toList());
+
+        StudentRankResponse studentRankResponse = studentService.getStudentRank("a");
+        assertEquals(0.8, studentRankResponse.getAverageScore(), 1e-12);
+        assertEquals(1, studentService.getStudentRank("b").getRank());
+        assertEquals(4, studentRankResponse.getTotalStudents());
+        assertNull(studentService.getStudentRank("e"));
+    }
+
+    @Test
+    public void testGetStudentAverageScores_ReturnsFoundInRequestOrderAndListsMissing() {
+        studentService.processStudentData(List.of(
+            new StudentExamScore("a", 1, 0.2),
+            new StudentExamScore("b", 1, 0.8),
+            new StudentExamScore("a", 2, 0.4)));
+
+        StudentBatchResponse studentBatchResponse = studentService.getStudentAverageScores(Arrays.asList("b", "x", "a", "b", null));
+        assertEquals(List.of("b", "a"), studentBatchResponse.getStudents().stream().map(StudentAvgScoreResponse::getStudentId).toList());
+        assertEquals(0.3, studentBatchResponse.getStudents().get(1).getAverageScore(), 1e-12);
+        assertEquals(List.of("x"), studentBatchResponse.getNotFound());
+    }
+
+    @Test
+    public void testGetStudentExams_PagesScoresInArrivalOrder() {
+        for (int exam = 1; exam <= 5; exam++) {
+            studentService.processStudentData(new StudentExamScore("a", exam, exam / 10D));
+            studentService.processStudentData(new StudentExamScore("b", exam, 1.0));
+        }
+
+        studentService.processStudentData(new StudentExamScore("a", 2, 0.9));
+
+        StudentExamPageResponse firstPage = studentService.getStudentExams("a", 0, 4, "ASC");
+        assertEquals(6, firstPage.getTotalExams());
+        assertEquals(List.of(1, 2, 3, 4), firstPage.getExams().stream().map(ExamScoreResponse::getExam).toList());
+        assertEquals(0.1, firstPage.getExams().get(0).getScore());
+
+        StudentExamPageResponse newestFirst = studentService.getStudentExams("a", 0, 2, "DESC");
+        assertEquals(List.of(2, 5), newestFirst.getExams().stream().map(ExamScoreResponse::getExam).toList());
+        assertEquals(0.9, newestFirst.getExams().get(0).getScore());
+        assertEquals(0.4, newestFirst.getAverageScore(), 1e-12);
+
+        assertTrue(studentService.getStudentExams("a", 6, 10, "ASC").getExams().isEmpty());
+        assertNull(studentService.getStudentExams("c", 0, 10, "ASC"));
+    }
+
+    @Test
+    public void testGetAllStudents_PagesWithCursor() {
+        for (String studentId : List.of("d", "a", "e", "c", "b")) {
+            studentService.processStudentData(new StudentExamScore(studentId, 1000, 0.5));
+        }
+
+        StudentPaginationResponse firstPage = studentService.getAllStudents(0, 2, "ASC", null);
+        assertEquals(List.of("a", "b"), firstPage.getStudentResponses().stream().map(StudentResponse::getStudentId).toList());
+        assertEquals(5, firstPage.getTotalStudents());
+        assertNotNull(firstPage.getNextCursor());
+
+        StudentPaginationResponse secondPage = studentService.getAllStudents(0, 2, "ASC", firstPage.getNextCursor());
+        assertEquals(List.of("c", "d"), secondPage.getStudentResponses().stream().map(StudentResponse::getStudentId).toList());
+
+        StudentPaginationResponse lastPage = studentService.getAllStudents(0, 2, "ASC", secondPage.getNextCursor());
+        assertEquals(List.of("e"), lastPage.getStudentResponses().stream().map(StudentResponse::getStudentId).toList());
+        assertNull(lastPage.getNextCursor());
+
+        StudentPaginationResponse descendingPage = studentService.getAllStudents(1, 2, "DESC", PageCursor.encodeStudent("d"));
+        assertEquals(List.of("b", "a"), descendingPage.getStudentResponses().stream().map(StudentResponse::getStudentId).toList());
+    }
+
+    @Test
+    public void testGetAllStudents_ThrowsForInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> studentService.getAllStudents(0, 2, "ASC", "not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> studentService.getAllStudents(0, 2, "ASC", PageCursor.encodeExam(1)));
+    }
+
     @Test
     public void testGetStudentAverageScore_ReturnsNullForNonExistentStudent() {
         StudentAvgScoreResponse studentAvgScoreResponse = studentService.getStudentAverageScore("nonExistentId");
@@ -38,9 +138,9 @@ public class StudentServiceTest {
 
     @Test
     public void testGetStudentAverageScore_ReturnsNullWhenNoScoresAvailable() {
-        TreeMap<String, ExamStats> studentIdExamStatsMapMock = mock(TreeMap.class);
-        StudentService.studentIdExamStatsMap = studentIdExamStatsMapMock;
-        when(studentIdExamStatsMapMock.get("John.Doe")).thenReturn(null);
+        ScoreRepository scoreRepositoryMock = mock(ScoreRepository.class);
+        studentService = new StudentService(scoreRepositoryMock);
+        when(scoreRepositoryMock.findStudent("John.Doe")).thenReturn(null);
 
         StudentAvgScoreResponse studentAvgScoreResponse = studentService.getStudentAverageScore("John.Doe");
         assertNull(studentAvgScoreResponse);
@@ -49,9 +149,9 @@ public class StudentServiceTest {
     @Test
     public void testProcessStudentData_UpdatesExamStatsCorrectly() {
         StudentExamScore studentExamScore = new StudentExamScore("John.Doe", 1000, 0.5357000219593212);
-        StudentService.processStudentData(studentExamScore);
+        studentService.processStudentData(studentExamScore);
 
-        ExamStats examStats = StudentService.studentIdExamStatsMap.get("John.Doe");
+        ExamStats examStats = scoreRepository.findStudent("John.Doe").getStats();
         assertNotNull(examStats);
         assertEquals(1, examStats.getExamCount());
         assertEquals(0.5357000219593212, examStats.getScoreSum());
@@ -63,11 +163,11 @@ public class StudentServiceTest {
         StudentExamScore studentExamScore2 = new StudentExamScore("John.Doe", 1001, 0.780310326039997);
         StudentExamScore studentExamScore3 = new StudentExamScore("John.Doe", 1002, 0.7161821077444079);
 
-        StudentService.processStudentData(studentExamScore1);
-        StudentService.processStudentData(studentExamScore2);
-        StudentService.processStudentData(studentExamScore3);
+        studentService.processStudentData(studentExamScore1);
+        studentService.processStudentData(studentExamScore2);
+        studentService.processStudentData(studentExamScore3);
 
-        ExamStats examStats = StudentService.studentIdExamStatsMap.get("John.Doe");
+        ExamStats examStats = scoreRepository.findStudent("John.Doe").getStats();
         assertNotNull(examStats);
         assertEquals(3, examStats.getExamCount());
         assertEquals(2.032192455743726, examStats.getScoreSum());